@@ -0,0 +1,177 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//Compares the build time, memory footprint and set operation times of AddressSet and
+//CompactAddressSet using the undefined ranges and instructions of the current program,
+//plus a large synthetic sparse set.
+//@category Examples
+
+import java.util.Random;
+
+import ghidra.app.script.GhidraScript;
+import ghidra.program.model.address.*;
+import ghidra.program.model.listing.Instruction;
+import ghidra.program.model.listing.InstructionIterator;
+
+public class CompareAddressSetPerformanceScript extends GhidraScript {
+
+	private static final int SYNTHETIC_RANGE_COUNT = 1000000;
+	private static final int LOOKUP_COUNT = 1000000;
+
+	@Override
+	protected void run() throws Exception {
+		if (currentProgram == null) {
+			printerr("no current program");
+			return;
+		}
+
+		AddressSetView undefined = currentProgram.getListing().getUndefinedRanges(
+			currentProgram.getMemory(), false, monitor);
+		println("Undefined ranges: " + undefined.getNumAddressRanges());
+		Workload undefinedLoad = new Workload("undefined", undefined);
+
+		AddressSet instructions = new AddressSet();
+		InstructionIterator it = currentProgram.getListing().getInstructions(true);
+		while (it.hasNext()) {
+			monitor.checkCanceled();
+			Instruction instr = it.next();
+			instructions.add(instr.getMinAddress(), instr.getMaxAddress());
+		}
+		println("Instruction ranges: " + instructions.getNumAddressRanges());
+		Workload instructionLoad = new Workload("instructions", instructions);
+
+		Address base = currentProgram.getMinAddress();
+		AddressSet synthetic = new AddressSet();
+		for (int i = 0; i < SYNTHETIC_RANGE_COUNT; i++) {
+			Address start = base.add(i * 4L);
+			synthetic.add(start, start.add(1));
+		}
+		Workload syntheticLoad = new Workload("synthetic", synthetic);
+
+		for (Workload load : new Workload[] { undefinedLoad, instructionLoad, syntheticLoad }) {
+			monitor.checkCanceled();
+			load.measureBuild();
+			load.measureLookups();
+		}
+
+		compareOperations(undefinedLoad, instructionLoad);
+		compareOperations(syntheticLoad, undefinedLoad);
+	}
+
+	private void compareOperations(Workload load1, Workload load2) {
+		String name = load1.name + "/" + load2.name;
+
+		long t = System.nanoTime();
+		AddressSet union = load1.addressSet.union(load2.addressSet);
+		AddressSet intersect = load1.addressSet.intersect(load2.addressSet);
+		AddressSet subtract = load1.addressSet.subtract(load2.addressSet);
+		long addressSetTime = System.nanoTime() - t;
+
+		t = System.nanoTime();
+		CompactAddressSet compactUnion = load1.compactSet.unionCompact(load2.compactSet);
+		CompactAddressSet compactIntersect = load1.compactSet.intersectCompact(load2.compactSet);
+		CompactAddressSet compactSubtract = load1.compactSet.subtractCompact(load2.compactSet);
+		long compactTime = System.nanoTime() - t;
+
+		boolean same = compactUnion.hasSameAddresses(union) &&
+			compactIntersect.hasSameAddresses(intersect) &&
+			compactSubtract.hasSameAddresses(subtract);
+		println(String.format("%s union/intersect/subtract: AddressSet %d ms, " +
+			"CompactAddressSet %d ms%s", name, addressSetTime / 1000000, compactTime / 1000000,
+			same ? "" : " (RESULTS DIFFER!)"));
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private class Workload {
+		private final String name;
+		private final AddressSetView source;
+		private AddressSet addressSet;
+		private CompactAddressSet compactSet;
+
+		Workload(String name, AddressSetView source) {
+			this.name = name;
+			this.source = source;
+		}
+
+		void measureBuild() {
+			long mem = usedMemory();
+			long t = System.nanoTime();
+			addressSet = new AddressSet();
+			for (AddressRange range : source) {
+				addressSet.add(range);
+			}
+			long addressSetTime = System.nanoTime() - t;
+			long addressSetMem = usedMemory() - mem;
+
+			mem = usedMemory();
+			t = System.nanoTime();
+			compactSet = new CompactAddressSet();
+			for (AddressRange range : source) {
+				compactSet.add(range);
+			}
+			compactSet.trimToSize();
+			long compactTime = System.nanoTime() - t;
+			long compactMem = usedMemory() - mem;
+
+			println(String.format(
+				"%s (%d ranges) build: AddressSet %d ms / %d KB, CompactAddressSet %d ms / %d KB",
+				name, source.getNumAddressRanges(), addressSetTime / 1000000,
+				addressSetMem / 1024, compactTime / 1000000, compactMem / 1024));
+		}
+
+		void measureLookups() {
+			if (source.isEmpty()) {
+				return;
+			}
+			Address min = source.getMinAddress();
+			long span = Math.max(1, source.getMaxAddress().subtract(min));
+			Random random = new Random(0);
+			Address[] addrs = new Address[LOOKUP_COUNT];
+			for (int i = 0; i < LOOKUP_COUNT; i++) {
+				addrs[i] = min.add(Math.floorMod(random.nextLong(), span));
+			}
+
+			int count1 = 0;
+			long t = System.nanoTime();
+			for (Address addr : addrs) {
+				if (addressSet.contains(addr)) {
+					++count1;
+				}
+			}
+			long addressSetTime = System.nanoTime() - t;
+
+			int count2 = 0;
+			t = System.nanoTime();
+			for (Address addr : addrs) {
+				if (compactSet.contains(addr)) {
+					++count2;
+				}
+			}
+			long compactTime = System.nanoTime() - t;
+
+			println(String.format(
+				"%s %d lookups: AddressSet %d ms, CompactAddressSet %d ms%s", name,
+				LOOKUP_COUNT, addressSetTime / 1000000, compactTime / 1000000,
+				count1 == count2 ? "" : " (RESULTS DIFFER!)"));
+		}
+	}
+}
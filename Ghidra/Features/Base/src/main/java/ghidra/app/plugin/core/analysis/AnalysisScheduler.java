@@ -178,6 +178,9 @@ public class AnalysisScheduler {
 			scheduled = false;
 		}
 
+		analysisMgr.addToTaskAddressCount(getName(),
+			saveAddSet.getNumAddresses() + saveRemoveSet.getNumAddresses());
+
 		monitor.setMessage(analyzer.getName());
 		monitor.setProgress(0);
 		boolean result = false;
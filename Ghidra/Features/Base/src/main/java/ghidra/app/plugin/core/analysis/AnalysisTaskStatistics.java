@@ -0,0 +1,244 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.core.analysis;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import db.DBHandle;
+import ghidra.framework.data.DomainObjectAdapterDB;
+import ghidra.program.model.listing.Program;
+
+/**
+ * <code>AnalysisTaskStatistics</code> accumulates the resource usage of a single named
+ * auto-analysis task (generally an analyzer) over an auto-analysis run.
+ * <p>
+ * CPU time and allocated bytes are measured for the thread which runs the task, while
+ * database buffer cache hits and misses are measured for the program database as a whole.
+ * Cache statistics are therefore only approximate for analyzers which are run concurrently.
+ */
+public class AnalysisTaskStatistics {
+
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+	private final String taskName;
+
+	private int invocationCount;
+	private long addressCount;
+	private long wallTime;
+	private long cpuTime;
+	private long allocatedBytes;
+	private long bufferCacheHits;
+	private long bufferCacheMisses;
+
+	AnalysisTaskStatistics(String taskName) {
+		this.taskName = taskName;
+	}
+
+	/**
+	 * @return the name of the task
+	 */
+	public String getTaskName() {
+		return taskName;
+	}
+
+	/**
+	 * @return the number of times the task was run
+	 */
+	public synchronized int getInvocationCount() {
+		return invocationCount;
+	}
+
+	/**
+	 * @return the total number of addresses within the address sets passed to the analyzer
+	 * (0 for tasks which are not analyzers)
+	 */
+	public synchronized long getAddressCount() {
+		return addressCount;
+	}
+
+	/**
+	 * @return wall time in milliseconds
+	 */
+	public synchronized long getWallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * @return CPU time in milliseconds (0 if not supported by the JVM)
+	 */
+	public synchronized long getCpuTime() {
+		return cpuTime;
+	}
+
+	/**
+	 * @return number of bytes allocated on the heap (0 if not supported by the JVM)
+	 */
+	public synchronized long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * @return number of database buffer requests satisfied by the buffer cache
+	 */
+	public synchronized long getBufferCacheHits() {
+		return bufferCacheHits;
+	}
+
+	/**
+	 * @return number of database buffer requests not satisfied by the buffer cache
+	 */
+	public synchronized long getBufferCacheMisses() {
+		return bufferCacheMisses;
+	}
+
+	synchronized void addInvocation(Usage usage) {
+		++invocationCount;
+		wallTime += usage.wallTime;
+		cpuTime += usage.cpuTime;
+		allocatedBytes += usage.allocatedBytes;
+		bufferCacheHits += usage.bufferCacheHits;
+		bufferCacheMisses += usage.bufferCacheMisses;
+	}
+
+	synchronized void addAddressCount(long count) {
+		addressCount += count;
+	}
+
+	/**
+	 * Append this task's statistics to the specified buffer as a JSON object
+	 * @param buf buffer
+	 */
+	synchronized void appendJson(StringBuilder buf) {
+		buf.append('{');
+		buf.append("\"name\":").append(toJsonString(taskName));
+		buf.append(",\"invocations\":").append(invocationCount);
+		buf.append(",\"addresses\":").append(addressCount);
+		buf.append(",\"wallTimeMs\":").append(wallTime);
+		buf.append(",\"cpuTimeMs\":").append(cpuTime);
+		buf.append(",\"allocatedBytes\":").append(allocatedBytes);
+		buf.append(",\"bufferCacheHits\":").append(bufferCacheHits);
+		buf.append(",\"bufferCacheMisses\":").append(bufferCacheMisses);
+		buf.append('}');
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		appendJson(buf);
+		return buf.toString();
+	}
+
+	/**
+	 * Quote and escape the specified string for use as a JSON string value
+	 * @param str string value
+	 * @return JSON string
+	 */
+	static String toJsonString(String str) {
+		if (str == null) {
+			return "null";
+		}
+		StringBuilder buf = new StringBuilder(str.length() + 2);
+		buf.append('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+				case '"':
+					buf.append("\\\"");
+					break;
+				case '\\':
+					buf.append("\\\\");
+					break;
+				case '\n':
+					buf.append("\\n");
+					break;
+				case '\r':
+					buf.append("\\r");
+					break;
+				case '\t':
+					buf.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						buf.append(String.format("\\u%04x", (int) c));
+					}
+					else {
+						buf.append(c);
+					}
+			}
+		}
+		buf.append('"');
+		return buf.toString();
+	}
+
+	/**
+	 * <code>Usage</code> is a snapshot, or an accumulated difference of snapshots, of the
+	 * resource counters for the current thread and program database.
+	 */
+	static class Usage {
+		long wallTime;
+		long cpuTime;
+		long allocatedBytes;
+		long bufferCacheHits;
+		long bufferCacheMisses;
+
+		/**
+		 * Take a snapshot of the current resource counters
+		 * @param program program whose database buffer cache should be sampled (may be null)
+		 * @return current counters
+		 */
+		static Usage sample(Program program) {
+			Usage usage = new Usage();
+			usage.wallTime = System.currentTimeMillis();
+			if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+				usage.cpuTime = THREAD_MX_BEAN.getCurrentThreadCpuTime() / 1000000;
+			}
+			usage.allocatedBytes = getCurrentThreadAllocatedBytes();
+			if (program instanceof DomainObjectAdapterDB) {
+				DBHandle dbh = ((DomainObjectAdapterDB) program).getDBHandle();
+				if (dbh != null) {
+					usage.bufferCacheHits = dbh.getCacheHits();
+					usage.bufferCacheMisses = dbh.getCacheMisses();
+				}
+			}
+			return usage;
+		}
+
+		private static long getCurrentThreadAllocatedBytes() {
+			if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+				return 0;
+			}
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+			if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+				return 0;
+			}
+			return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+
+		/**
+		 * Accumulate the difference between two snapshots
+		 * @param start starting snapshot
+		 * @param end ending snapshot
+		 */
+		void add(Usage start, Usage end) {
+			wallTime += end.wallTime - start.wallTime;
+			cpuTime += end.cpuTime - start.cpuTime;
+			allocatedBytes += end.allocatedBytes - start.allocatedBytes;
+			bufferCacheHits += end.bufferCacheHits - start.bufferCacheHits;
+			bufferCacheMisses += end.bufferCacheMisses - start.bufferCacheMisses;
+		}
+	}
+}
@@ -18,7 +18,7 @@ package ghidra.app.plugin.core.analysis;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 import java.util.Stack;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.*;
 
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
@@ -64,6 +64,16 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 	private static final String OPTION_DESCRIPTION_THREAD_USE =
 		"Maximum number of threads to use at once for tasks that run in parallel";
 
+	/**
+	 * The name of the shared thread pool used to run concurrent analyzers of the same priority.
+	 * This is kept separate from the analysis pool since analyzers may themselves use that pool
+	 * and must not be starved by their peers.
+	 */
+	private static final String CONCURRENT_ANALYZER_THREAD_POOL_NAME = "Concurrent Analyzers";
+	private static final String OPTION_NAME_CONCURRENT_ANALYZERS = "Run Analyzers Concurrently";
+	private static final String OPTION_DESCRIPTION_CONCURRENT_ANALYZERS =
+		"Allow analyzers of the same priority which support concurrent analysis to run in parallel";
+
 	/**
 	 * The size of the statically shared analysis thread pool.
 	 * <p>
@@ -76,6 +86,8 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 	 */
 	private static int analysisSharedThreadPoolSize = SystemUtilities.getDefaultThreadPoolSize();
 
+	private static boolean concurrentAnalyzersEnabled = true;
+
 	private static Map<Program, AutoAnalysisManager> managerMap = new WeakHashMap<>();
 
 	private static final Factory<WeakSet<PluginTool>> SET_FACTORY =
@@ -106,6 +118,7 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 	private Map<String, Long> timedTasks = new HashMap<>();
 	// used for testing and performance monitoring; accessed via reflection
 	private Map<String, Long> cumulativeTasks = new HashMap<>();
+	private Map<String, AnalysisTaskStatistics> taskStatistics = new HashMap<>();
 
 	private boolean backgroundAnalysisPending = false;
 	private Thread analysisThread;
@@ -128,6 +141,7 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 	private volatile boolean ignoreChanges;
 	private boolean isEnabled = true; // used by testing via introspection
 
+	// shared by all analysis tasks, including those run concurrently
 	private MessageLog log = new MessageLog();
 
 	private List<AutoAnalysisManagerListener> listeners = new ArrayList<>();
@@ -160,37 +174,45 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 
 		Set<Analyzer> analyzers = ClassSearcher.getInstances(Analyzer.class);
 		for (Analyzer analyzer : analyzers) {
-			if (!analyzer.canAnalyze(program)) {
-				continue;
-			}
-			AnalyzerType type = analyzer.getAnalysisType();
-			if (type == AnalyzerType.BYTE_ANALYZER) {
-				byteTasks.add(analyzer);
-			}
-			else if (type == AnalyzerType.DATA_ANALYZER) {
-				dataTasks.add(analyzer);
-			}
-			else if (type == AnalyzerType.FUNCTION_ANALYZER) {
-				functionTasks.add(analyzer);
-			}
-			else if (type == AnalyzerType.FUNCTION_MODIFIERS_ANALYZER) {
-				functionModifierChangedTasks.add(analyzer);
-			}
-			else if (type == AnalyzerType.FUNCTION_SIGNATURES_ANALYZER) {
-				functionSignatureChangedTasks.add(analyzer);
-			}
-			else if (type == AnalyzerType.INSTRUCTION_ANALYZER) {
-				instructionTasks.add(analyzer);
-			}
-			else {
-				Msg.showError(this, null, "Unknown Analysis Type",
-					"Unexpected Analysis type " + type);
+			if (analyzer.canAnalyze(program)) {
+				addAnalyzer(analyzer);
 			}
 		}
 		registerOptions();
 		initializeOptions();
 	}
 
+	/**
+	 * Add an analyzer to the task list for its analysis type.  Only analyzers which were not
+	 * found by the class searcher (e.g., by tests) need to be added after construction.
+	 * @param analyzer the analyzer
+	 */
+	void addAnalyzer(Analyzer analyzer) {
+		AnalyzerType type = analyzer.getAnalysisType();
+		if (type == AnalyzerType.BYTE_ANALYZER) {
+			byteTasks.add(analyzer);
+		}
+		else if (type == AnalyzerType.DATA_ANALYZER) {
+			dataTasks.add(analyzer);
+		}
+		else if (type == AnalyzerType.FUNCTION_ANALYZER) {
+			functionTasks.add(analyzer);
+		}
+		else if (type == AnalyzerType.FUNCTION_MODIFIERS_ANALYZER) {
+			functionModifierChangedTasks.add(analyzer);
+		}
+		else if (type == AnalyzerType.FUNCTION_SIGNATURES_ANALYZER) {
+			functionSignatureChangedTasks.add(analyzer);
+		}
+		else if (type == AnalyzerType.INSTRUCTION_ANALYZER) {
+			instructionTasks.add(analyzer);
+		}
+		else {
+			Msg.showError(this, null, "Unknown Analysis Type",
+				"Unexpected Analysis type " + type);
+		}
+	}
+
 	public MessageLog getMessageLog() {
 		return log;
 	}
@@ -671,16 +693,40 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 		private final BackgroundCommand task;
 		Integer taskPriority;
 
-		private long timeAccumulator;
-		private long startTime;
+		private AnalysisTaskStatistics.Usage usageAccumulator;
+		private AnalysisTaskStatistics.Usage startUsage;
 
 		AnalysisTaskWrapper(BackgroundCommand task, int taskPriority) {
 			this.task = task;
 			this.taskPriority = taskPriority;
 		}
 
+		/**
+		 * Returns the analyzer which will be run by this task, or null if this task is not
+		 * an analyzer task (e.g., disassembly or an analysis worker).
+		 */
+		Analyzer getAnalyzer() {
+			if (task instanceof AnalysisTask) {
+				return ((AnalysisTask) task).scheduler.getAnalyzer();
+			}
+			return null;
+		}
+
 		void run(Program p, TaskMonitor monitor) {
-			startTime = System.currentTimeMillis();
+			long timeDiff = execute(p, monitor);
+			synchronized (AutoAnalysisManager.this) {
+				totalTaskTime += timeDiff;
+			}
+			p.flushPrivateEventQueue(eventQueueID);
+		}
+
+		/**
+		 * Run the task and record its resource usage.
+		 * @return task wall time in milliseconds
+		 */
+		long execute(Program p, TaskMonitor monitor) {
+			usageAccumulator = new AnalysisTaskStatistics.Usage();
+			startUsage = AnalysisTaskStatistics.Usage.sample(p);
 			try {
 				task.applyTo(p, monitor);
 			}
@@ -697,22 +743,21 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 						"Analysis Task: " + task.getName() + " - " + msg, th);
 				}
 			}
-			long timeDiff = timeAccumulator + (System.currentTimeMillis() - startTime);
-			totalTaskTime += timeDiff;
-			addToTaskTime(task.getName(), timeDiff);
-			startTime = 0;
-			timeAccumulator = 0;
-
-			p.flushPrivateEventQueue(eventQueueID);
+			AnalysisTaskStatistics.Usage usage = usageAccumulator;
+			usage.add(startUsage, AnalysisTaskStatistics.Usage.sample(p));
+			addToTaskTime(task.getName(), usage);
+			startUsage = null;
+			usageAccumulator = null;
+			return usage.wallTime;
 		}
 
 		void pauseTimer() {
-			timeAccumulator += (System.currentTimeMillis() - startTime);
-			startTime = 0;
+			usageAccumulator.add(startUsage, AnalysisTaskStatistics.Usage.sample(program));
+			startUsage = null;
 		}
 
 		void resumeTimer() {
-			startTime = System.currentTimeMillis();
+			startUsage = AnalysisTaskStatistics.Usage.sample(program);
 		}
 
 	}
@@ -782,7 +827,13 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 					break;
 				}
 
-				activeTask.run(p, monitor);
+				List<AnalysisTaskWrapper> concurrentTasks = getConcurrentTasks(activeTask);
+				if (concurrentTasks.isEmpty()) {
+					activeTask.run(p, monitor);
+				}
+				else {
+					runConcurrently(p, activeTask, concurrentTasks, monitor);
+				}
 
 				synchronized (this) {
 					activeTask = getNextTask(limitPriority, monitor);
@@ -832,6 +883,97 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 		return new AnalysisTaskWrapper(queue.removeFirst(), nextTaskPriority);
 	}
 
+	/**
+	 * Remove and return the queued analyzer tasks which may be run concurrently with the
+	 * specified task.  Only those tasks which immediately follow the task within the same
+	 * priority tier are considered, and only while each analyzer supports concurrent analysis
+	 * and does not depend upon another analyzer within the group.  This preserves the
+	 * relative order of all other queued tasks.
+	 * @param primaryTask task about to be run
+	 * @return list of tasks to run concurrently with primaryTask (may be empty)
+	 */
+	private synchronized List<AnalysisTaskWrapper> getConcurrentTasks(
+			AnalysisTaskWrapper primaryTask) {
+
+		Analyzer primaryAnalyzer = primaryTask.getAnalyzer();
+		if (!concurrentAnalyzersEnabled || primaryAnalyzer == null ||
+			!primaryAnalyzer.supportsConcurrentAnalysis() || primaryTask.taskPriority == null) {
+			return Collections.emptyList();
+		}
+
+		int priority = primaryTask.taskPriority;
+		Set<String> groupNames = new HashSet<>();
+		groupNames.add(primaryAnalyzer.getName());
+
+		List<AnalysisTaskWrapper> concurrentTasks = new ArrayList<>();
+		while (!queue.isEmpty() && queue.getFirstPriority() == priority) {
+			BackgroundCommand cmd = queue.getFirst();
+			if (!(cmd instanceof AnalysisTask)) {
+				break;
+			}
+			Analyzer analyzer = ((AnalysisTask) cmd).scheduler.getAnalyzer();
+			if (!analyzer.supportsConcurrentAnalysis() ||
+				groupNames.contains(analyzer.getName()) ||
+				!Collections.disjoint(groupNames, analyzer.getAnalyzerDependencies())) {
+				break;
+			}
+			groupNames.add(analyzer.getName());
+			concurrentTasks.add(new AnalysisTaskWrapper(queue.removeFirst(), priority));
+		}
+		return concurrentTasks;
+	}
+
+	/**
+	 * Run the primary task within the current analysis thread while the other tasks run
+	 * within the concurrent analyzer thread pool.  Returns once all tasks have completed.
+	 * @param p program
+	 * @param primaryTask task to run in the current thread
+	 * @param concurrentTasks tasks to run in parallel with primaryTask
+	 * @param monitor analysis task monitor
+	 */
+	private void runConcurrently(Program p, AnalysisTaskWrapper primaryTask,
+			List<AnalysisTaskWrapper> concurrentTasks, TaskMonitor monitor) {
+
+		long startTime = System.currentTimeMillis();
+
+		// only the primary task reports progress; the others just honor cancellation
+		TaskMonitor concurrentMonitor = new CancelOnlyWrappingTaskMonitor(monitor);
+		GThreadPool pool = getConcurrentAnalyzerThreadPool();
+		List<Future<?>> futures = new ArrayList<>();
+		for (AnalysisTaskWrapper task : concurrentTasks) {
+			futures.add(pool.submit(() -> task.execute(p, concurrentMonitor)));
+		}
+
+		primaryTask.execute(p, monitor);
+
+		boolean interrupted = false;
+		for (Future<?> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				}
+				catch (InterruptedException e) {
+					// tasks must complete before analysis may proceed - cancel and keep waiting
+					interrupted = true;
+					monitor.cancel();
+				}
+				catch (ExecutionException e) {
+					Msg.error(this, "Concurrent analysis task failed", e.getCause());
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			totalTaskTime += System.currentTimeMillis() - startTime;
+		}
+		p.flushPrivateEventQueue(eventQueueID);
+	}
+
 	public void addListener(AutoAnalysisManagerListener listener) {
 		if (!listeners.contains(listener)) {
 			listeners.add(listener);
@@ -1036,7 +1178,11 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 		Options options = tool.getOptions("Auto Analysis");
 		options.registerOption(OPTION_NAME_THREAD_USE, analysisSharedThreadPoolSize, null,
 			OPTION_DESCRIPTION_THREAD_USE);
+		options.registerOption(OPTION_NAME_CONCURRENT_ANALYZERS, concurrentAnalyzersEnabled, null,
+			OPTION_DESCRIPTION_CONCURRENT_ANALYZERS);
 		analysisSharedThreadPoolSize = getSharedThreadPoolSizeOption(tool);
+		concurrentAnalyzersEnabled =
+			options.getBoolean(OPTION_NAME_CONCURRENT_ANALYZERS, concurrentAnalyzersEnabled);
 	}
 
 	private static int getSharedThreadPoolSizeOption(PluginTool tool) {
@@ -1200,12 +1346,63 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 		return time.longValue();
 	}
 
+	/**
+	 * Get the CPU time consumed by a named task during the last auto analysis run.
+	 * The names of tasks that have run can be retrieved using getTimedTasks
+	 * @param taskName task name
+	 * @return CPU time in milliseconds or -1 if task has not run
+	 */
+	public synchronized long getTaskCpuTime(String taskName) {
+		AnalysisTaskStatistics stats = taskStatistics.get(taskName);
+		return stats != null ? stats.getCpuTime() : -1;
+	}
+
+	/**
+	 * Get the resource usage statistics of a named task during the last auto analysis run.
+	 * The names of tasks that have run can be retrieved using getTimedTasks
+	 * @param taskName task name
+	 * @return task statistics or null if task has not run
+	 */
+	public synchronized AnalysisTaskStatistics getTaskStatistics(String taskName) {
+		return taskStatistics.get(taskName);
+	}
+
+	/**
+	 * Get the resource usage statistics of all tasks which ran during the last auto analysis
+	 * run as a JSON object of the form:
+	 * <pre>
+	 * {"program":"name","totalTimeMs":n,"tasks":[{"name":"task","invocations":n,...},...]}
+	 * </pre>
+	 * Tasks are sorted by decreasing wall time.
+	 * @return JSON text
+	 */
+	public synchronized String getTaskStatisticsJson() {
+		List<AnalysisTaskStatistics> list = new ArrayList<>(taskStatistics.values());
+		Collections.sort(list, (s1, s2) -> Long.compare(s2.getWallTime(), s1.getWallTime()));
+
+		Program p = program;
+		StringBuilder buf = new StringBuilder();
+		buf.append("{\"program\":");
+		buf.append(AnalysisTaskStatistics.toJsonString(p != null ? p.getName() : null));
+		buf.append(",\"totalTimeMs\":").append(totalTaskTime);
+		buf.append(",\"tasks\":[");
+		for (int i = 0; i < list.size(); i++) {
+			if (i != 0) {
+				buf.append(',');
+			}
+			list.get(i).appendJson(buf);
+		}
+		buf.append("]}");
+		return buf.toString();
+	}
+
 	/**
 	 * Get rid of timed tasks that have run
 	 *
 	 */
-	private void clearTimedTasks() {
+	private synchronized void clearTimedTasks() {
 		timedTasks.clear();
+		taskStatistics.clear();
 		totalTaskTime = 0;
 	}
 
@@ -1219,12 +1416,32 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 		return l.longValue();
 	}
 
-	private void addToTaskTime(String taskName, long time) {
-		long l = getUpdatedTaskTime(timedTasks, taskName, time);
+	private synchronized void addToTaskTime(String taskName, AnalysisTaskStatistics.Usage usage) {
+		long l = getUpdatedTaskTime(timedTasks, taskName, usage.wallTime);
 		timedTasks.put(taskName, l);
 
-		l = getUpdatedTaskTime(cumulativeTasks, taskName, time);
+		l = getUpdatedTaskTime(cumulativeTasks, taskName, usage.wallTime);
 		cumulativeTasks.put(taskName, l);
+
+		getOrCreateTaskStatistics(taskName).addInvocation(usage);
+	}
+
+	/**
+	 * Record the number of addresses passed to an analyzer for the current analysis run
+	 * @param taskName analyzer task name
+	 * @param addressCount number of addresses
+	 */
+	synchronized void addToTaskAddressCount(String taskName, long addressCount) {
+		getOrCreateTaskStatistics(taskName).addAddressCount(addressCount);
+	}
+
+	private AnalysisTaskStatistics getOrCreateTaskStatistics(String taskName) {
+		AnalysisTaskStatistics stats = taskStatistics.get(taskName);
+		if (stats == null) {
+			stats = new AnalysisTaskStatistics(taskName);
+			taskStatistics.put(taskName, stats);
+		}
+		return stats;
 	}
 
 	/**
@@ -1239,7 +1456,7 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 	/**
 	 * Print out the time for each task that ran for this auto analysis run.
 	 */
-	public String getTaskTimesString() {
+	public synchronized String getTaskTimesString() {
 
 		StringBuffer taskTimesStringBuf = new StringBuffer();
 
@@ -1250,17 +1467,17 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 		String taskNames[] = getTimedTasks();
 		for (String element : taskNames) {
 			long taskTime = getTaskTime(timedTasks, element);
-			double totalTime = taskTime / 1000.00;
-
-			String partTime = (((int) (totalTime * 1000.0)) % 1000) + "";
-			String secString =
-				((int) totalTime) + "." + "000".substring(partTime.length()) + partTime + " secs";
+			String secString = formatSeconds(taskTime);
 			int testLen = element.length() + secString.length();
 			if (testLen > spacer.length()) {
 				testLen = spacer.length() - 5;
 			}
-			taskTimesStringBuf.append(
-				"    " + element + spacer.substring(testLen) + secString + "\n");
+			taskTimesStringBuf.append("    " + element + spacer.substring(testLen) + secString);
+			long cpuTime = getTaskCpuTime(element);
+			if (cpuTime > 0) {
+				taskTimesStringBuf.append("  (cpu " + formatSeconds(cpuTime) + ")");
+			}
+			taskTimesStringBuf.append("\n");
 		}
 
 		taskTimesStringBuf.append("-----------------------------------------------------\n");
@@ -1271,6 +1488,12 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 		return taskTimesStringBuf.toString();
 	}
 
+	private static String formatSeconds(long timeMillis) {
+		double totalTime = timeMillis / 1000.00;
+		String partTime = (((int) (totalTime * 1000.0)) % 1000) + "";
+		return ((int) totalTime) + "." + "000".substring(partTime.length()) + partTime + " secs";
+	}
+
 	private void printTimedTasks() {
 		if (totalTaskTime < 1000) {
 			return;
@@ -1398,6 +1621,14 @@ public class AutoAnalysisManager implements DomainObjectListener, DomainObjectCl
 		return pool;
 	}
 
+	private static GThreadPool getConcurrentAnalyzerThreadPool() {
+		GThreadPool pool = GThreadPool.getSharedThreadPool(CONCURRENT_ANALYZER_THREAD_POOL_NAME);
+
+		updateSharedThreadPoolSize();
+		pool.setMaxThreadCount(analysisSharedThreadPoolSize);
+		return pool;
+	}
+
 	private static void updateSharedThreadPoolSize() {
 		PluginTool tool = getAnyTool();
 		if (tool == null) {
@@ -16,6 +16,8 @@
 package ghidra.app.plugin.core.analysis;
 
 import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import generic.concurrent.*;
 import ghidra.app.services.*;
@@ -31,6 +33,7 @@ import ghidra.program.model.symbol.*;
 import ghidra.program.model.util.CodeUnitInsertionException;
 import ghidra.program.util.ContextEvaluator;
 import ghidra.program.util.SymbolicPropogator;
+import ghidra.program.util.SymbolicPropogator.DeferredReference;
 import ghidra.util.Msg;
 import ghidra.util.exception.CancelledException;
 import ghidra.util.task.TaskMonitor;
@@ -61,6 +64,16 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 		"Maximum threads for constant propagation.  Too many threads causes thrashing in DB.";
 	protected static final int MAXTHREADCOUNT_OPTION_DEFAULT_VALUE = 2;
 
+	protected static final String DEFERREFS_OPTION_NAME = "Batch references from threads";
+	protected static final String DEFERREFS_OPTION_DESCRIPTION =
+		"Turn on to collect the references found by each constant propagation thread and " +
+			"create them in batches from the analysis thread.  This reduces database " +
+			"contention when using many threads.  References, data and code that are not " +
+			"created yet are not seen by the other propagation threads (for example when " +
+			"they check existing references from an instruction or the data at an address), " +
+			"so the analysis results can differ from those found with this option off.";
+	protected static final boolean DEFERREFS_OPTION_DEFAULT_VALUE = false;
+
 	protected static final String MINKNOWNREFADDRESS_OPTION_NAME = "Min absolute reference";
 	protected static final String MINKNOWNREFADDRESS_OPTION_DESCRIPTION =
 		"Minimum address for calcuated constant store/load references";
@@ -74,10 +87,14 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 
 	protected final static int NOTIFICATION_INTERVAL = 100;
 
+	// time between applying batches of references found by propagation threads
+	protected final static long REFERENCE_BATCH_INTERVAL_MS = 250;
+
 	protected boolean checkParamRefsOption = OPTION_DEFAULT_VALUE;
 	protected boolean checkStoredRefsOption = STORED_OPTION_DEFAULT_VALUE;
 	protected boolean trustWriteMemOption = TRUSTWRITEMEM_OPTION_DEFAULT_VALUE;
 	protected int maxThreadCount = MAXTHREADCOUNT_OPTION_DEFAULT_VALUE;
+	protected boolean deferReferencesOption = DEFERREFS_OPTION_DEFAULT_VALUE;
 	protected long minStoreLoadRefAddress = MINKNOWNREFADDRESS_OPTION_DEFAULT_VALUE;
 	protected long minSpeculativeRefAddress = MINSPECULATIVEREFADDRESS_OPTION_DEFAULT_VALUE;
 
@@ -87,6 +104,10 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 	protected String processorName = "Basic";
 	protected AddressSetView EMPTY_ADDRESS_SET = new AddressSet();
 
+	// reference list for the location being analyzed by the current thread when references
+	// are being deferred, otherwise null
+	private ThreadLocal<List<DeferredReference>> threadReferenceList = new ThreadLocal<>();
+
 	public ConstantPropagationAnalyzer() {
 		this("Basic");
 	}
@@ -253,6 +274,11 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 		monitor.setMessage("Analyzing functions...");
 		monitor.setMaximum(locations.size());
 
+		// references found by each location, waiting to be applied by this thread
+		final LinkedBlockingQueue<List<DeferredReference>> pendingReferences =
+			new LinkedBlockingQueue<>();
+		final boolean deferReferences = deferReferencesOption;
+
 		QCallback<Address, AddressSetView> callback = new QCallback<Address, AddressSetView>() {
 			@Override
 			public AddressSetView process(Address loc, TaskMonitor taskMonitor) {
@@ -263,6 +289,11 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 					}
 				}
 
+				List<DeferredReference> referenceList = null;
+				if (deferReferences) {
+					referenceList = new ArrayList<>();
+					threadReferenceList.set(referenceList);
+				}
 				try {
 					AddressSetView result = analyzeLocation(program, loc, null, taskMonitor);
 					synchronized (analyzedSet) {
@@ -275,6 +306,14 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 				catch (CancelledException e) {
 					return null; // monitor was cancelled
 				}
+				finally {
+					if (referenceList != null) {
+						threadReferenceList.remove();
+						if (!referenceList.isEmpty()) {
+							pendingReferences.add(referenceList);
+						}
+					}
+				}
 			}
 		};
 
@@ -293,11 +332,46 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 
 		queue.add(locations);
 
-		queue.waitUntilDone();
+		if (deferReferences) {
+			SymbolicPropogator referenceApplier = new SymbolicPropogator(program);
+			while (!queue.waitUntilDone(REFERENCE_BATCH_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+				applyPendingReferences(referenceApplier, pendingReferences, monitor);
+			}
+			queue.waitUntilDone();
+			applyPendingReferences(referenceApplier, pendingReferences, monitor);
+		}
+		else {
+			queue.waitUntilDone();
+		}
 
 		return analyzedSet;
 	}
 
+	/**
+	 * Apply all references which have been found by the propagation threads so far.
+	 * References are applied in address order to improve database locality.
+	 * 
+	 * @param referenceApplier propagator used to apply the references
+	 * @param pendingReferences queue of reference lists from the propagation threads
+	 * @param monitor - monitor to check canceled
+	 * @throws CancelledException
+	 */
+	private void applyPendingReferences(SymbolicPropogator referenceApplier,
+			LinkedBlockingQueue<List<DeferredReference>> pendingReferences, TaskMonitor monitor)
+			throws CancelledException {
+		List<List<DeferredReference>> referenceLists = new ArrayList<>();
+		pendingReferences.drainTo(referenceLists);
+		if (referenceLists.isEmpty()) {
+			return;
+		}
+		List<DeferredReference> batch = new ArrayList<>();
+		for (List<DeferredReference> list : referenceLists) {
+			batch.addAll(list);
+		}
+		Collections.sort(batch);
+		referenceApplier.applyDeferredReferences(batch, monitor);
+	}
+
 	public void analyzeSet(Program program, AddressSetView set, TaskMonitor monitor)
 			throws CancelledException {
 
@@ -370,6 +444,7 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 		symEval.setParamRefCheck(checkParamRefsOption);
 		symEval.setReturnRefCheck(checkParamRefsOption);
 		symEval.setStoredRefCheck(checkStoredRefsOption);
+		symEval.setDeferredReferenceList(threadReferenceList.get());
 
 		// follow all flows building up context
 		// use context to fill out addresses on certain instructions 
@@ -456,6 +531,8 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 			TRUSTWRITEMEM_OPTION_DESCRIPTION);
 		options.registerOption(MAXTHREADCOUNT_OPTION_NAME, maxThreadCount, null,
 			MAXTHREADCOUNT_OPTION_DESCRIPTION);
+		options.registerOption(DEFERREFS_OPTION_NAME, deferReferencesOption, null,
+			DEFERREFS_OPTION_DESCRIPTION);
 
 		options.registerOption(MINKNOWNREFADDRESS_OPTION_NAME, minStoreLoadRefAddress, null,
 			MINKNOWNREFADDRESS_OPTION_DESCRIPTION);
@@ -473,6 +550,7 @@ public class ConstantPropagationAnalyzer extends AbstractAnalyzer {
 		trustWriteMemOption = options.getBoolean(TRUSTWRITEMEM_OPTION_NAME, trustWriteMemOption);
 
 		maxThreadCount = options.getInt(MAXTHREADCOUNT_OPTION_NAME, maxThreadCount);
+		deferReferencesOption = options.getBoolean(DEFERREFS_OPTION_NAME, deferReferencesOption);
 
 		// TODO: there should be a getAddress on option that validates and allows entry of addresses
 		minStoreLoadRefAddress =
@@ -0,0 +1,70 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.core.analysis;
+
+import ghidra.app.plugin.prototype.match.FunctionHashIndex;
+import ghidra.app.services.*;
+import ghidra.app.util.importer.MessageLog;
+import ghidra.program.model.address.AddressSetView;
+import ghidra.program.model.listing.Program;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * Maintains the program's {@link FunctionHashIndex}, rehashing each function when it is
+ * created or its body changes, so that exact function matchers (e.g., the Version Tracking
+ * exact match correlators) only need to hash functions which have changed since the last
+ * analysis.
+ * <p>
+ * The analyzer only reads the program and writes its own property maps, so it may run
+ * concurrently with other analyzers.
+ */
+public class FunctionHashIndexAnalyzer extends AbstractAnalyzer {
+
+	private static final String NAME = "Function Hash Index";
+	private static final String DESCRIPTION =
+		"Stores the exact bytes, instructions and mnemonics hashes of each function in the " +
+			"program so they need not be recomputed when the program is correlated.  " +
+			"Since this analysis is triggered by the creation or modification of functions, " +
+			"the one-shot analysis action can be used to index functions which were created " +
+			"while this analyzer was disabled.";
+
+	public FunctionHashIndexAnalyzer() {
+		super(NAME, DESCRIPTION, AnalyzerType.FUNCTION_ANALYZER);
+		setPriority(AnalysisPriority.LOW_PRIORITY);
+		setDefaultEnablement(false);
+		setSupportsOneTimeAnalysis();
+		setSupportsConcurrentAnalysis(true);
+	}
+
+	@Override
+	public boolean added(Program program, AddressSetView set, TaskMonitor monitor,
+			MessageLog log) throws CancelledException {
+		monitor.setMessage("Hashing functions...");
+		FunctionHashIndex.createIndex(program).update(set, monitor);
+		return true;
+	}
+
+	@Override
+	public boolean removed(Program program, AddressSetView set, TaskMonitor monitor,
+			MessageLog log) throws CancelledException {
+		FunctionHashIndex index = FunctionHashIndex.getIndex(program);
+		if (index != null) {
+			index.remove(set);
+		}
+		return true;
+	}
+}
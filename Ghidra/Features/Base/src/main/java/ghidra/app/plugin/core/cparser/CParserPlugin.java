@@ -16,8 +16,7 @@
 package ghidra.app.plugin.core.cparser;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.StringTokenizer;
+import java.util.*;
 
 import javax.swing.SwingUtilities;
 
@@ -31,6 +30,7 @@ import ghidra.app.plugin.ProgramPlugin;
 import ghidra.app.services.DataTypeManagerService;
 import ghidra.app.util.cparser.C.CParser;
 import ghidra.app.util.cparser.CPP.PreProcessor;
+import ghidra.app.util.cparser.CPP.PreProcessorCache;
 import ghidra.app.util.xml.DataTypesXmlMgr;
 import ghidra.framework.Application;
 import ghidra.framework.options.SaveState;
@@ -43,6 +43,7 @@ import ghidra.program.model.data.*;
 import ghidra.program.model.listing.Program;
 import ghidra.util.HelpLocation;
 import ghidra.util.Msg;
+import ghidra.util.exception.CancelledException;
 import ghidra.util.task.TaskMonitor;
 
 //@formatter:off
@@ -62,6 +63,7 @@ public class CParserPlugin extends ProgramPlugin {
 			"parserprofiles";
 	private ParseDialog parseDialog;
 	private File userProfileDir;
+	private PreProcessorCache preProcessorCache = new PreProcessorCache();
 
 	final static String DESCRIPTION =
 		"Parse C and C Header files, extracting data definitions and function signatures.";
@@ -91,6 +93,7 @@ public class CParserPlugin extends ProgramPlugin {
 
 	@Override
 	public void dispose() {
+		preProcessorCache.clear();
 		if (parseDialog != null) {
 			parseDialog.close();
 			parseDialog = null;
@@ -277,7 +280,17 @@ public class CParserPlugin extends ProgramPlugin {
 	 * Parse into a saved data type data base file
 	 */
 	protected void parse(String[] filenames, String options, String dataFilename) {
+		parse(filenames, options, dataFilename, false);
+	}
+
+	/*
+	 * Parse into a saved data type data base file, optionally parsing each file
+	 * independently on several threads
+	 */
+	protected void parse(String[] filenames, String options, String dataFilename,
+			boolean parallel) {
 		CParserTask parseTask = new CParserTask(this, filenames, options, dataFilename);
+		parseTask.setParallel(parallel);
 		this.getTool().execute(parseTask, 500);
 	}
 
@@ -287,6 +300,18 @@ public class CParserPlugin extends ProgramPlugin {
 	protected void parse(String[] filenames, String options, DataTypeManager dtMgr,
 			TaskMonitor monitor) throws ghidra.app.util.cparser.C.ParseException,
 			ghidra.app.util.cparser.CPP.ParseException {
+		parse(filenames, options, dtMgr, false, monitor);
+	}
+
+	/*
+	 * Parse C-source into a data type manager.  In parallel mode each file is preprocessed
+	 * and parsed on its own, concurrently with the other files, starting with only the
+	 * defines from the options, and the results are merged into the data type manager.
+	 */
+	protected void parse(String[] filenames, String options, DataTypeManager dtMgr,
+			boolean parallel, TaskMonitor monitor)
+			throws ghidra.app.util.cparser.C.ParseException,
+			ghidra.app.util.cparser.CPP.ParseException {
 		String[] args = parseOptions(options);
 
 		DataTypeManager openDTmanagers[] = null;
@@ -322,6 +347,11 @@ public class CParserPlugin extends ProgramPlugin {
 		ByteArrayOutputStream bos = new ByteArrayOutputStream();
 		cpp.setArgs(args);
 
+		if (parallel) {
+			parseConcurrently(filenames, args, dtMgr, openDTmanagers, monitor);
+			return;
+		}
+
 		PrintStream os = System.out;
 		try {
 			String homeDir = System.getProperty("user.home");
@@ -338,27 +368,11 @@ public class CParserPlugin extends ProgramPlugin {
 		cpp.setOutputStream(bos);
 
 		try {
-			for (String filename : filenames) {
+			for (String filename : getHeaderFiles(filenames)) {
 				if (monitor.isCancelled()) {
 					break;
 				}
-				File file = new File(filename);
-				// process each header file in the directory
-				if (file.isDirectory()) {
-					String[] children = file.list();
-					if (children == null) {
-						continue;
-					}
-					for (String element : children) {
-						File child = new File(file.getAbsolutePath() + "/" + element);
-						if (child.getName().endsWith(".h")) {
-							parseFile(child.getAbsolutePath(), monitor, cpp);
-						}
-					}
-				}
-				else {
-					parseFile(filename, monitor, cpp);
-				}
+				parseFile(filename, monitor, cpp);
 			}
 		}
 		catch (RuntimeException re) {
@@ -383,27 +397,77 @@ public class CParserPlugin extends ProgramPlugin {
 			ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
 			cParser.parse(bis);
 
-			final boolean isProgramDtMgr = (dtMgr instanceof ProgramDataTypeManager);
+			showParseCompleted(dtMgr);
+		}
+
+	}
+
+	private void parseConcurrently(String[] filenames, String[] args, DataTypeManager dtMgr,
+			DataTypeManager[] openDTmanagers, TaskMonitor monitor)
+			throws ghidra.app.util.cparser.C.ParseException {
+		String homeDir = System.getProperty("user.home");
+		String fName = homeDir + File.separator + "CParserPlugin.out";
+		try (PrintStream os = new PrintStream(new FileOutputStream(fName))) {
+			ConcurrentCParser parser =
+				new ConcurrentCParser(args, dtMgr, openDTmanagers, preProcessorCache, os);
+			parser.parse(getHeaderFiles(filenames), monitor);
+			showParseCompleted(dtMgr);
+		}
+		catch (FileNotFoundException e) {
+			Msg.error(this, "Unexpected Exception: " + e.getMessage(), e);
+		}
+		catch (CancelledException e) {
+			// user cancelled, the data types merged so far are kept
+		}
+	}
 
-			SwingUtilities.invokeLater(() -> {
-				if (isProgramDtMgr) {
-					Msg.showInfo(getClass(), parseDialog.getComponent(),
-						"Parse Header Files Completed", "Successfully parsed header file(s).\n" +
-							"Check the Manage Data Types window for added data types.");
+	/**
+	 * Returns the files to parse, replacing each directory with the header files in it.
+	 */
+	private List<String> getHeaderFiles(String[] filenames) {
+		List<String> headerFiles = new ArrayList<>();
+		for (String filename : filenames) {
+			File file = new File(filename);
+			// process each header file in the directory
+			if (file.isDirectory()) {
+				String[] children = file.list();
+				if (children == null) {
+					continue;
 				}
-				else {
-					parseDialog.setDialogText("Successfully parsed header file(s).");
+				for (String element : children) {
+					File child = new File(file.getAbsolutePath() + "/" + element);
+					if (child.getName().endsWith(".h")) {
+						headerFiles.add(child.getAbsolutePath());
+					}
 				}
-			});
+			}
+			else {
+				headerFiles.add(filename);
+			}
 		}
+		return headerFiles;
+	}
 
+	private void showParseCompleted(DataTypeManager dtMgr) {
+		final boolean isProgramDtMgr = (dtMgr instanceof ProgramDataTypeManager);
+
+		SwingUtilities.invokeLater(() -> {
+			if (isProgramDtMgr) {
+				Msg.showInfo(getClass(), parseDialog.getComponent(),
+					"Parse Header Files Completed", "Successfully parsed header file(s).\n" +
+						"Check the Manage Data Types window for added data types.");
+			}
+			else {
+				parseDialog.setDialogText("Successfully parsed header file(s).");
+			}
+		});
 	}
 
 	private void parseFile(String filename, TaskMonitor monitor, PreProcessor cpp) {
 		monitor.setMessage("PreProcessing " + filename);
 		try {
 			Msg.info(this, "parse " + filename);
-			cpp.parse(filename);
+			preProcessorCache.parse(cpp, filename);
 		}
 		catch (Throwable e) {
 			Msg.error(this, "Parsing file :" + filename);
@@ -415,6 +479,14 @@ public class CParserPlugin extends ProgramPlugin {
 	 * Parse into the current programs data type manager
 	 */
 	protected void parse(String[] filenames, String options) {
+		parse(filenames, options, false);
+	}
+
+	/*
+	 * Parse into the current programs data type manager, optionally parsing each file
+	 * independently on several threads
+	 */
+	protected void parse(String[] filenames, String options, boolean parallel) {
 		if (currentProgram == null) {
 			Msg.showInfo(getClass(), parseDialog.getComponent(), "No Open Program",
 				"A program must be open to \"Parse to Program\"");
@@ -428,6 +500,7 @@ public class CParserPlugin extends ProgramPlugin {
 		}
 		CParserTask parseTask =
 			new CParserTask(this, filenames, options, currentProgram.getDataTypeManager());
+		parseTask.setParallel(parallel);
 
 		tool.execute(parseTask);
 	}
@@ -37,6 +37,7 @@ class CParserTask extends Task {
 	private CParserPlugin plugin;
 	private String dataFileName;
 	private DataTypeManager dtMgr;
+	private boolean parallel;
 
 	CParserTask(CParserPlugin plugin, String[] filenames, String options, String dataFileName) {
 		super("Parsing C Files", true, false, false);
@@ -57,6 +58,15 @@ class CParserTask extends Task {
 		this.dtMgr = dataTypeManager;
 	}
 
+	/**
+	 * Sets whether the files are parsed independently of each other on several threads.
+	 *
+	 * @param parallel true to parse the files concurrently
+	 */
+	void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
 	@Override
 	public void run(TaskMonitor monitor) {
 		DataTypeManager fileDtMgr = null;
@@ -67,7 +77,7 @@ class CParserTask extends Task {
 				fileDtMgr = dtMgr;
 			}
 
-			plugin.parse(filenames, options, dtMgr, monitor);
+			plugin.parse(filenames, options, dtMgr, parallel, monitor);
 			if (dataFileName != null) {
 				if (dtMgr.getDataTypeCount(true) != 0) {
 					try {
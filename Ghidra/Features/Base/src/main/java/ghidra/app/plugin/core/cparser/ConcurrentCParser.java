@@ -0,0 +1,276 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.core.cparser;
+
+import java.io.*;
+import java.util.*;
+
+import generic.concurrent.*;
+import ghidra.app.util.cparser.C.CParser;
+import ghidra.app.util.cparser.C.ParseException;
+import ghidra.app.util.cparser.CPP.PreProcessor;
+import ghidra.app.util.cparser.CPP.PreProcessorCache;
+import ghidra.program.model.data.*;
+import ghidra.util.Msg;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * Preprocesses and parses header files independently of each other on several threads, and
+ * merges the data types that were found into a single {@link DataTypeManager}.
+ * <p>
+ * Each file starts with only the defines from the parse options, so it must include
+ * everything that it depends on.  Each file is parsed into its own temporary data type
+ * manager on a worker thread.  The calling thread merges each of them into the target as
+ * soon as all of the files before it have been merged, so the result does not depend on
+ * which thread finished first, and types that are equivalent in several files are only
+ * added once.
+ */
+class ConcurrentCParser {
+	private static final String THREAD_POOL_NAME = "C Parser";
+
+	private final String[] args;
+	private final DataTypeManager dtMgr;
+	private final DataTypeManager[] openDTmanagers;
+	private final PreProcessorCache preProcessorCache;
+	private final PrintStream preprocessedOut;
+
+	private ParseException firstParseException;
+
+	/**
+	 * Creates a parser.
+	 *
+	 * @param args preprocessor options
+	 * @param dtMgr data type manager that receives the parsed data types
+	 * @param openDTmanagers other data type managers to use existing data types from, or null
+	 * @param preProcessorCache cache of preprocessor output
+	 * @param preprocessedOut stream that receives the preprocessed output of each file, in
+	 * the same order as the files
+	 */
+	ConcurrentCParser(String[] args, DataTypeManager dtMgr, DataTypeManager[] openDTmanagers,
+			PreProcessorCache preProcessorCache, PrintStream preprocessedOut) {
+		this.args = args;
+		this.dtMgr = dtMgr;
+		this.openDTmanagers = openDTmanagers;
+		this.preProcessorCache = preProcessorCache;
+		this.preprocessedOut = preprocessedOut;
+	}
+
+	/**
+	 * Parses the specified files.
+	 *
+	 * @param filenames the header files to parse
+	 * @param monitor {@link TaskMonitor} to watch and update with progress
+	 * @throws ParseException the first C parse error, in file order, after all of the other
+	 * files have been merged
+	 * @throws CancelledException if the user cancelled
+	 */
+	void parse(List<String> filenames, TaskMonitor monitor)
+			throws ParseException, CancelledException {
+
+		QCallback<Integer, ParsedFile> callback =
+			(index, queueMonitor) -> parseFile(filenames.get(index), queueMonitor);
+
+		// @formatter:off
+		ConcurrentQ<Integer, ParsedFile> queue =
+			new ConcurrentQBuilder<Integer, ParsedFile>()
+				.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+				.setCollectResults(true)
+				.setMonitor(monitor)
+				.build(callback);
+		// @formatter:on
+
+		Map<Integer, ParsedFile> pending = new HashMap<>();
+		try {
+			for (int i = 0; i < filenames.size(); i++) {
+				queue.add(i);
+			}
+
+			// merge the files in list order as they become available
+			int next = 0;
+			while (next < filenames.size()) {
+				monitor.checkCanceled();
+				QResult<Integer, ParsedFile> result = queue.waitForNextResult();
+				if (result == null) {
+					break;
+				}
+				ParsedFile parsedFile = getParsedFile(result, filenames);
+				if (parsedFile == null) {
+					continue;
+				}
+				pending.put(result.getItem(), parsedFile);
+				for (ParsedFile file = pending.remove(next); file != null; file =
+					pending.remove(next)) {
+					merge(file);
+					++next;
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancelledException();
+		}
+		finally {
+			disposeUnmerged(queue, pending, filenames);
+		}
+
+		monitor.checkCanceled();
+		if (firstParseException != null) {
+			throw firstParseException;
+		}
+	}
+
+	private ParsedFile parseFile(String filename, TaskMonitor monitor) {
+		monitor.setMessage("Parsing " + new File(filename).getName());
+		ParsedFile parsedFile = new ParsedFile(filename);
+		try {
+			PreProcessor cpp = new PreProcessor();
+			cpp.setArgs(args);
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			cpp.setOutputStream(bos);
+			Msg.info(this, "parse " + filename);
+			preProcessorCache.parse(cpp, filename);
+			parsedFile.output = bos.toByteArray();
+
+			parsedFile.dtMgr = new ScratchDataTypeManager(new File(filename).getName());
+			cpp.getDefinitions().populateDefineEquates(parsedFile.dtMgr);
+
+			CParser cParser = new CParser(parsedFile.dtMgr, true, openDTmanagers);
+			cParser.parse(new ByteArrayInputStream(parsedFile.output));
+		}
+		catch (ParseException e) {
+			parsedFile.parseException = e;
+		}
+		catch (Throwable e) {
+			Msg.error(this, "Parsing file :" + filename);
+			Msg.error(this, "Unexpected Exception: " + e.getMessage(), e);
+		}
+		return parsedFile;
+	}
+
+	/**
+	 * Gets the file parsed by a worker.
+	 *
+	 * @param result the worker result
+	 * @param filenames the header files being parsed
+	 * @return the parsed file, which is empty if the worker failed unexpectedly, or null if
+	 * the worker was cancelled
+	 */
+	private ParsedFile getParsedFile(QResult<Integer, ParsedFile> result,
+			List<String> filenames) {
+		if (result.isCancelled()) {
+			return null;
+		}
+		try {
+			return result.getResult();
+		}
+		catch (Exception e) {
+			String filename = filenames.get(result.getItem());
+			Msg.error(this, "Unexpected exception parsing " + filename, e);
+			return new ParsedFile(filename);
+		}
+	}
+
+	/**
+	 * Merges the data types of a parsed file into the target data type manager, and writes
+	 * its preprocessed output.
+	 */
+	private void merge(ParsedFile parsedFile) {
+		if (preprocessedOut != null && parsedFile.output != null) {
+			preprocessedOut.write(parsedFile.output, 0, parsedFile.output.length);
+		}
+		if (parsedFile.parseException != null) {
+			Msg.error(this, "Parsing file :" + parsedFile.filename);
+			Msg.error(this, parsedFile.parseException.getMessage());
+			if (firstParseException == null) {
+				firstParseException = parsedFile.parseException;
+			}
+		}
+		if (parsedFile.dtMgr == null) {
+			return;
+		}
+
+		List<DataType> dataTypes = new ArrayList<>();
+		parsedFile.dtMgr.getAllDataTypes(dataTypes);
+		int transactionID = dtMgr.startTransaction("Merge " + parsedFile.dtMgr.getName());
+		try {
+			for (DataType dt : dataTypes) {
+				dtMgr.addDataType(dt,
+					DataTypeConflictHandler.REPLACE_EMPTY_STRUCTS_OR_RENAME_AND_ADD_HANDLER);
+			}
+		}
+		finally {
+			dtMgr.endTransaction(transactionID, true);
+			parsedFile.dtMgr.close();
+		}
+	}
+
+	/**
+	 * Cancels any files still being parsed after a cancel or error, and closes the data type
+	 * managers of the files that were parsed but not merged.
+	 */
+	private void disposeUnmerged(ConcurrentQ<Integer, ParsedFile> queue,
+			Map<Integer, ParsedFile> pending, List<String> filenames) {
+		queue.cancelAllTasks(true);
+		try {
+			for (QResult<Integer, ParsedFile> result : queue.waitForResults()) {
+				ParsedFile parsedFile = getParsedFile(result, filenames);
+				if (parsedFile != null) {
+					pending.put(result.getItem(), parsedFile);
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			queue.dispose();
+		}
+		for (ParsedFile parsedFile : pending.values()) {
+			if (parsedFile.dtMgr != null) {
+				parsedFile.dtMgr.close();
+			}
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Temporary data type manager for a single file.  Its data types are resolved like data
+	 * types from a program: they are copied into the target without their identity, so that
+	 * equivalent types from different files are matched by name and content.
+	 */
+	private static class ScratchDataTypeManager extends StandAloneDataTypeManager {
+		ScratchDataTypeManager(String rootName) {
+			super(rootName);
+		}
+
+		@Override
+		public ArchiveType getType() {
+			return ArchiveType.PROGRAM;
+		}
+	}
+
+	private static class ParsedFile {
+		final String filename;
+		byte[] output;
+		ScratchDataTypeManager dtMgr;
+		ParseException parseException;
+
+		ParsedFile(String filename) {
+			this.filename = filename;
+		}
+	}
+}
@@ -69,6 +69,7 @@ class ParseDialog extends DialogComponentProvider {
 	private static String CURRENT_PROFILE = "CurrentProfile";
 	private static String USER_DEFINED = "IsUserDefined";
 	private static String LAST_IMPORT_C_DIRECTORY = "LastImportCDirectory";
+	private static String PARSE_IN_PARALLEL = "ParseInParallel";
 
 	private JPanel mainPanel;
 	private CParserPlugin plugin;
@@ -77,6 +78,7 @@ class ParseDialog extends DialogComponentProvider {
 
 	private PathnameTablePanel pathPanel;
 	private JTextArea parseOptionsField;
+	private JCheckBox parallelCheckBox;
 	private GhidraComboBox<ComboBoxItem> comboBox;
 	private DefaultComboBoxModel<ComboBoxItem> comboModel;
 	private DockingAction saveAction;
@@ -110,9 +112,11 @@ class ParseDialog extends DialogComponentProvider {
 		ComboBoxItem item = (ComboBoxItem) comboBox.getSelectedItem();
 		saveState.putString(CURRENT_PROFILE, item.file.getName());
 		saveState.putBoolean(USER_DEFINED, item.isUserDefined);
+		saveState.putBoolean(PARSE_IN_PARALLEL, parallelCheckBox.isSelected());
 	}
 
 	void readState(SaveState saveState) {
+		parallelCheckBox.setSelected(saveState.getBoolean(PARSE_IN_PARALLEL, false));
 		String name = saveState.getString(CURRENT_PROFILE, null);
 		if (name != null) {
 			boolean userDefined = saveState.getBoolean(USER_DEFINED, true);
@@ -186,6 +190,12 @@ class ParseDialog extends DialogComponentProvider {
 		pane.getViewport().setPreferredSize(new Dimension(300, 200));
 		optionsPanel.add(pane, BorderLayout.CENTER);
 
+		parallelCheckBox = new JCheckBox("Parse each file independently, in parallel");
+		parallelCheckBox.setToolTipText("<html>Preprocess and parse each file on its own, " +
+			"using all processors, and merge the data types.<br>" +
+			"Each file must include the headers it depends on.");
+		optionsPanel.add(parallelCheckBox, BorderLayout.SOUTH);
+
 		// create Parse Button
 
 		parseButton = new JButton("Parse to Program");
@@ -555,11 +565,12 @@ class ParseDialog extends DialogComponentProvider {
 		if (parseToFile) {
 			File file = getSaveFile();
 			if (file != null) {
-				plugin.parse(paths, options, file.getAbsolutePath());
+				plugin.parse(paths, options, file.getAbsolutePath(),
+					parallelCheckBox.isSelected());
 			}
 		}
 		else {
-			plugin.parse(paths, options);
+			plugin.parse(paths, options, parallelCheckBox.isSelected());
 		}
 	}
 
@@ -0,0 +1,240 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.prototype.match;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import generic.concurrent.*;
+import generic.stl.Pair;
+import ghidra.program.model.address.*;
+import ghidra.program.model.listing.*;
+import ghidra.program.model.mem.MemoryAccessException;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * <code>FunctionHashCache</code> retains the hashes computed by one or more
+ * {@link FunctionHasher}s for the functions of a single program, so that several function
+ * matchers (e.g., the exact bytes, instructions and mnemonics matchers) can share them.
+ * <p>
+ * {@link #computeHashes(AddressSetView, Collection, TaskMonitor)} hashes all functions of an
+ * address set in parallel, extracting the code units of each function only once for all of
+ * the specified hashers.  Hashes which are still valid within the program's
+ * {@link FunctionHashIndex} are used instead of being recomputed.  The cache does not track
+ * program changes; clients which modify a function body must
+ * {@link #invalidate(Address) invalidate} its hashes.
+ */
+public class FunctionHashCache {
+
+	public static final String THREAD_POOL_NAME = "Function Hashing";
+
+	private final Program program;
+	private final FunctionHashIndex index;
+	private final Map<FunctionHasher, Map<Address, Long>> hashMaps = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct an empty cache which uses the program's function hash index, if it has one
+	 * @param program program whose functions will be hashed
+	 */
+	public FunctionHashCache(Program program) {
+		this(program, true);
+	}
+
+	/**
+	 * Construct an empty cache
+	 * @param program program whose functions will be hashed
+	 * @param useIndex true if hashes stored in the program's {@link FunctionHashIndex} should
+	 * be used
+	 */
+	public FunctionHashCache(Program program, boolean useIndex) {
+		this.program = program;
+		this.index = useIndex ? FunctionHashIndex.getIndex(program) : null;
+	}
+
+	/**
+	 * @return the program whose function hashes are cached
+	 */
+	public Program getProgram() {
+		return program;
+	}
+
+	/**
+	 * Hash all non-thunk functions within the specified set which have not already been hashed
+	 * by the specified hashers.  Functions are processed concurrently.
+	 * @param set the addresses whose functions should be hashed
+	 * @param hashers the hashers to be applied to each function
+	 * @param monitor task monitor
+	 * @throws CancelledException if the monitor is cancelled
+	 */
+	public void computeHashes(AddressSetView set, Collection<FunctionHasher> hashers,
+			TaskMonitor monitor) throws CancelledException {
+
+		List<Function> functions = new ArrayList<>();
+		FunctionIterator it = program.getFunctionManager().getFunctions(set, true);
+		while (it.hasNext()) {
+			monitor.checkCanceled();
+			Function function = it.next();
+			if (!function.isThunk() && !isHashed(function.getEntryPoint(), hashers)) {
+				functions.add(function);
+			}
+		}
+		if (functions.isEmpty()) {
+			return;
+		}
+
+		monitor.setMessage("Hashing functions in " + program.getName());
+
+		QCallback<Function, Function> callback = new QCallback<Function, Function>() {
+			@Override
+			public Function process(Function function, TaskMonitor taskMonitor)
+					throws Exception {
+				hashFunction(function, hashers, taskMonitor);
+				return function;
+			}
+		};
+
+		// @formatter:off
+		ConcurrentQ<Function, Function> queue = new ConcurrentQBuilder<Function, Function>()
+			.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+			.setMonitor(monitor)
+			.build(callback);
+		// @formatter:on
+
+		queue.add(functions);
+		try {
+			queue.waitUntilDone();
+		}
+		catch (CancelledException e) {
+			throw e;
+		}
+		catch (InterruptedException e) {
+			throw new CancelledException();
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		finally {
+			queue.dispose();
+		}
+		monitor.checkCanceled();
+	}
+
+	/**
+	 * Get the hash of a function, computing and caching it if necessary.
+	 * @param function the function to hash
+	 * @param hasher the hasher
+	 * @param monitor task monitor
+	 * @return function hash
+	 * @throws CancelledException if the monitor is cancelled
+	 */
+	public long hash(Function function, FunctionHasher hasher, TaskMonitor monitor)
+			throws CancelledException {
+		Long hash = getHashMap(hasher).get(function.getEntryPoint());
+		if (hash != null) {
+			return hash;
+		}
+		if (index != null) {
+			long[] indexed = index.getHashes(function, Collections.singletonList(hasher));
+			if (indexed != null) {
+				getHashMap(hasher).put(function.getEntryPoint(), indexed[0]);
+				return indexed[0];
+			}
+		}
+		long value = hasher.hash(function, monitor);
+		if (!monitor.isCancelled()) {
+			getHashMap(hasher).put(function.getEntryPoint(), value);
+		}
+		return value;
+	}
+
+	/**
+	 * Discard all cached hashes of the function with the specified entry point.
+	 * @param entryPoint function entry point
+	 */
+	public void invalidate(Address entryPoint) {
+		for (Map<Address, Long> map : hashMaps.values()) {
+			map.remove(entryPoint);
+		}
+	}
+
+	/**
+	 * Discard all cached hashes
+	 */
+	public void clear() {
+		hashMaps.clear();
+	}
+
+	private Map<Address, Long> getHashMap(FunctionHasher hasher) {
+		return hashMaps.computeIfAbsent(hasher, h -> new ConcurrentHashMap<>());
+	}
+
+	private boolean isHashed(Address entryPoint, Collection<FunctionHasher> hashers) {
+		for (FunctionHasher hasher : hashers) {
+			if (!getHashMap(hasher).containsKey(entryPoint)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void hashFunction(Function function, Collection<FunctionHasher> hashers,
+			TaskMonitor monitor) throws CancelledException {
+		Address entryPoint = function.getEntryPoint();
+		if (index != null && loadIndexedHashes(function, hashers)) {
+			return;
+		}
+		Pair<Integer, ArrayList<CodeUnit>> codeUnits = null;
+		for (FunctionHasher hasher : hashers) {
+			Map<Address, Long> map = getHashMap(hasher);
+			if (map.containsKey(entryPoint)) {
+				continue;
+			}
+			long hash;
+			if (hasher instanceof AbstractFunctionHasher) {
+				AbstractFunctionHasher abstractHasher = (AbstractFunctionHasher) hasher;
+				if (codeUnits == null) {
+					codeUnits = abstractHasher.getAllCodeUnits(monitor, program,
+						new AddressSet(function.getBody()));
+				}
+				try {
+					hash = abstractHasher.hash(monitor, codeUnits.second, codeUnits.first);
+				}
+				catch (MemoryAccessException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			else {
+				hash = hasher.hash(function, monitor);
+			}
+			monitor.checkCanceled();
+			map.put(entryPoint, hash);
+		}
+	}
+
+	private boolean loadIndexedHashes(Function function, Collection<FunctionHasher> hashers) {
+		long[] hashes = index.getHashes(function, hashers);
+		if (hashes == null) {
+			return false;
+		}
+		Address entryPoint = function.getEntryPoint();
+		int i = 0;
+		for (FunctionHasher hasher : hashers) {
+			getHashMap(hasher).put(entryPoint, hashes[i++]);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,257 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.prototype.match;
+
+import java.util.*;
+
+import generic.hash.FNV1a64MessageDigest;
+import ghidra.program.model.address.*;
+import ghidra.program.model.listing.*;
+import ghidra.program.model.mem.Memory;
+import ghidra.program.model.mem.MemoryAccessException;
+import ghidra.program.model.util.LongPropertyMap;
+import ghidra.program.model.util.PropertyMapManager;
+import ghidra.util.exception.*;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * <code>FunctionHashIndex</code> persists the exact bytes, instructions and mnemonics hashes of
+ * the functions of a program within user property maps, keyed by function entry point, so that
+ * they need not be recomputed every time the program is correlated.
+ * <p>
+ * Along with its hashes, a fingerprint of each function's body (its address ranges and bytes) is
+ * stored.  A stored hash is only used if the fingerprint still matches the function, so hashes
+ * which were not updated after a program change are ignored rather than trusted.  The fingerprint
+ * does not cover changes which leave both the body and its bytes unchanged (e.g., re-disassembly
+ * with a different context), which must be handled by {@link #update(AddressSetView, TaskMonitor)
+ * updating} the affected functions.
+ */
+public class FunctionHashIndex {
+
+	public static final String PROPERTY_PREFIX = "Function Hash ";
+	public static final String FINGERPRINT_PROPERTY = PROPERTY_PREFIX + "Fingerprint";
+
+	private static final List<FunctionHasher> INDEXED_HASHERS =
+		Collections.unmodifiableList(Arrays.asList(ExactBytesFunctionHasher.INSTANCE,
+			ExactInstructionsFunctionHasher.INSTANCE, ExactMnemonicsFunctionHasher.INSTANCE));
+
+	private static final int BUFFER_SIZE = 4096;
+
+	private final Program program;
+	private final LongPropertyMap fingerprintMap;
+	private final Map<FunctionHasher, LongPropertyMap> hashMaps;
+
+	private FunctionHashIndex(Program program, LongPropertyMap fingerprintMap,
+			Map<FunctionHasher, LongPropertyMap> hashMaps) {
+		this.program = program;
+		this.fingerprintMap = fingerprintMap;
+		this.hashMaps = hashMaps;
+	}
+
+	/**
+	 * Get the function hash index of a program.
+	 * @param program the program
+	 * @return the index, or null if the program does not have one
+	 */
+	public static FunctionHashIndex getIndex(Program program) {
+		PropertyMapManager propertyManager = program.getUsrPropertyManager();
+		LongPropertyMap fingerprintMap = propertyManager.getLongPropertyMap(FINGERPRINT_PROPERTY);
+		if (fingerprintMap == null) {
+			return null;
+		}
+		Map<FunctionHasher, LongPropertyMap> hashMaps = new HashMap<>();
+		for (FunctionHasher hasher : INDEXED_HASHERS) {
+			LongPropertyMap map = propertyManager.getLongPropertyMap(getPropertyName(hasher));
+			if (map == null) {
+				return null;
+			}
+			hashMaps.put(hasher, map);
+		}
+		return new FunctionHashIndex(program, fingerprintMap, hashMaps);
+	}
+
+	/**
+	 * Get the function hash index of a program, creating an empty one if necessary.  The
+	 * program must have an open transaction.
+	 * @param program the program
+	 * @return the index
+	 */
+	public static FunctionHashIndex createIndex(Program program) {
+		PropertyMapManager propertyManager = program.getUsrPropertyManager();
+		LongPropertyMap fingerprintMap = getOrCreateMap(propertyManager, FINGERPRINT_PROPERTY);
+		Map<FunctionHasher, LongPropertyMap> hashMaps = new HashMap<>();
+		for (FunctionHasher hasher : INDEXED_HASHERS) {
+			hashMaps.put(hasher, getOrCreateMap(propertyManager, getPropertyName(hasher)));
+		}
+		return new FunctionHashIndex(program, fingerprintMap, hashMaps);
+	}
+
+	/**
+	 * Remove the function hash index from a program.  The program must have an open
+	 * transaction.
+	 * @param program the program
+	 */
+	public static void removeIndex(Program program) {
+		PropertyMapManager propertyManager = program.getUsrPropertyManager();
+		propertyManager.removePropertyMap(FINGERPRINT_PROPERTY);
+		for (FunctionHasher hasher : INDEXED_HASHERS) {
+			propertyManager.removePropertyMap(getPropertyName(hasher));
+		}
+	}
+
+	/**
+	 * @return the hashers whose hashes are stored in an index
+	 */
+	public static List<FunctionHasher> getIndexedHashers() {
+		return INDEXED_HASHERS;
+	}
+
+	/**
+	 * @return the program whose function hashes are indexed
+	 */
+	public Program getProgram() {
+		return program;
+	}
+
+	/**
+	 * Get the stored hashes of a function if they are still valid for the function's body.
+	 * @param function the function
+	 * @param hashers the hashers whose hashes are wanted
+	 * @return the hashes, in the order of the specified hashers, or null if any of them is
+	 * not indexed or the function has changed since it was hashed
+	 */
+	public long[] getHashes(Function function, Collection<FunctionHasher> hashers) {
+		Address entryPoint = function.getEntryPoint();
+		long[] hashes = new long[hashers.size()];
+		try {
+			long fingerprint = fingerprintMap.getLong(entryPoint);
+			int i = 0;
+			for (FunctionHasher hasher : hashers) {
+				LongPropertyMap map = hashMaps.get(hasher);
+				if (map == null) {
+					return null;
+				}
+				hashes[i++] = map.getLong(entryPoint);
+			}
+			if (fingerprint != computeFingerprint(function)) {
+				return null;
+			}
+		}
+		catch (NoValueException e) {
+			return null;
+		}
+		return hashes;
+	}
+
+	/**
+	 * Hash and store all non-thunk functions whose entry points are within the specified set
+	 * and discard the stored hashes of any other entry point within the set.  The program
+	 * must have an open transaction.
+	 * @param set the function entry points to be updated
+	 * @param monitor task monitor
+	 * @throws CancelledException if the monitor is cancelled
+	 */
+	public void update(AddressSetView set, TaskMonitor monitor) throws CancelledException {
+		remove(set);
+
+		FunctionHashCache cache = new FunctionHashCache(program, false);
+		cache.computeHashes(set, INDEXED_HASHERS, monitor);
+
+		FunctionIterator it = program.getFunctionManager().getFunctions(set, true);
+		while (it.hasNext()) {
+			monitor.checkCanceled();
+			Function function = it.next();
+			if (function.isThunk()) {
+				continue;
+			}
+			Address entryPoint = function.getEntryPoint();
+			for (FunctionHasher hasher : INDEXED_HASHERS) {
+				hashMaps.get(hasher).add(entryPoint, cache.hash(function, hasher, monitor));
+			}
+			fingerprintMap.add(entryPoint, computeFingerprint(function));
+		}
+	}
+
+	/**
+	 * Discard the stored hashes of all entry points within the specified set.  The program
+	 * must have an open transaction.
+	 * @param set function entry points
+	 */
+	public void remove(AddressSetView set) {
+		for (AddressRange range : set) {
+			fingerprintMap.removeRange(range.getMinAddress(), range.getMaxAddress());
+			for (LongPropertyMap map : hashMaps.values()) {
+				map.removeRange(range.getMinAddress(), range.getMaxAddress());
+			}
+		}
+	}
+
+	/**
+	 * Compute the fingerprint of a function body, which covers the body's address ranges and
+	 * the bytes they contain.  Bytes are read directly from memory, so this is considerably
+	 * cheaper than hashing the function's code units.
+	 * @param function the function
+	 * @return fingerprint
+	 */
+	public static long computeFingerprint(Function function) {
+		Memory memory = function.getProgram().getMemory();
+		FNV1a64MessageDigest digest = new FNV1a64MessageDigest();
+		AddressSetView body = function.getBody();
+		// no range is longer than the body, so every range is read in chunks of BUFFER_SIZE
+		// whatever the size of the first range
+		byte[] buffer = new byte[(int) Math.min(body.getNumAddresses(), BUFFER_SIZE)];
+		for (AddressRange range : body) {
+			Address start = range.getMinAddress();
+			long length = range.getLength();
+			digest.update(start.getAddressSpace().getUniqueSpaceID());
+			digest.update(start.getOffset());
+			digest.update(length);
+			long offset = 0;
+			while (offset < length) {
+				int size = (int) Math.min(length - offset, buffer.length);
+				int count;
+				try {
+					count = memory.getBytes(start.add(offset), buffer, 0, size);
+				}
+				catch (MemoryAccessException e) {
+					count = 0;
+				}
+				digest.update(buffer, 0, count);
+				digest.update(count);
+				offset += size;
+			}
+		}
+		return digest.digestLong();
+	}
+
+	private static String getPropertyName(FunctionHasher hasher) {
+		return PROPERTY_PREFIX + hasher.getClass().getSimpleName();
+	}
+
+	private static LongPropertyMap getOrCreateMap(PropertyMapManager propertyManager,
+			String name) {
+		LongPropertyMap map = propertyManager.getLongPropertyMap(name);
+		if (map != null) {
+			return map;
+		}
+		try {
+			return propertyManager.createLongPropertyMap(name);
+		}
+		catch (DuplicateNameException e) {
+			throw new AssertException("Property map " + name + " is not a long property map");
+		}
+	}
+}
@@ -44,6 +44,32 @@ public class MatchFunctions {
 			Program bProgram, AddressSetView setB, int minimumFunctionSize,
 			boolean includeOneToOne, boolean includeNonOneToOne, FunctionHasher hasher,
 			TaskMonitor monitor) throws CancelledException {
+		return matchFunctions(aProgram, setA, bProgram, setB, minimumFunctionSize, includeOneToOne,
+			includeNonOneToOne, hasher, null, null, monitor);
+	}
+
+	/**
+	 * Finds one-to-many matches in functions from addressSet A and Address Set B, using
+	 * previously computed function hashes where available.
+	 * @param aProgram program A
+	 * @param setA the addresses of program A to match
+	 * @param bProgram program B
+	 * @param setB the addresses of program B to match
+	 * @param minimumFunctionSize minimum number of addresses in a matched function body
+	 * @param includeOneToOne true to include unique matches
+	 * @param includeNonOneToOne true to include non-unique matches
+	 * @param hasher the function hasher
+	 * @param aCache cache of program A function hashes (may be null)
+	 * @param bCache cache of program B function hashes (may be null)
+	 * @param monitor task monitor
+	 * @return matched functions
+	 * @throws CancelledException if the monitor is cancelled
+	 */
+	public static List<MatchedFunctions> matchFunctions(Program aProgram, AddressSetView setA,
+			Program bProgram, AddressSetView setB, int minimumFunctionSize,
+			boolean includeOneToOne, boolean includeNonOneToOne, FunctionHasher hasher,
+			FunctionHashCache aCache, FunctionHashCache bCache, TaskMonitor monitor)
+			throws CancelledException {
 
 		LongObjectHashtable<Match> functionHashes = new LongObjectHashtable<Match>();
 		List<MatchedFunctions> functionMatches = new ArrayList<MatchedFunctions>();
@@ -58,7 +84,7 @@ public class MatchFunctions {
 			monitor.incrementProgress(1);
 			Function func = aProgfIter.next();
 			if (!func.isThunk() && func.getBody().getNumAddresses() >= minimumFunctionSize) {
-				hashFunction(monitor, functionHashes, func, hasher, true);
+				hashFunction(monitor, functionHashes, func, hasher, aCache, true);
 			}
 		}
 
@@ -68,7 +94,7 @@ public class MatchFunctions {
 			monitor.incrementProgress(1);
 			Function func = bProgfIter.next();
 			if (!func.isThunk() && func.getBody().getNumAddresses() >= minimumFunctionSize) {
-				hashFunction(monitor, functionHashes, func, hasher, false);
+				hashFunction(monitor, functionHashes, func, hasher, bCache, false);
 			}
 		}
 
@@ -122,12 +148,12 @@ public class MatchFunctions {
 
 		// Hash the one function in program A
 
-		hashFunction(monitor, functionHashes, aFunc, hasher, true);
+		hashFunction(monitor, functionHashes, aFunc, hasher, null, true);
 
 		// Hash functions in Program B
 		while (!monitor.isCancelled() && bProgfIter.hasNext()) {
 			Function func = bProgfIter.next();
-			hashFunction(monitor, functionHashes, func, hasher, false);
+			hashFunction(monitor, functionHashes, func, hasher, null, false);
 		}
 
 		//Find the remaining hash matches ---> unique code match left and THERE is no symbol that matches
@@ -159,9 +185,10 @@ public class MatchFunctions {
 
 	private static void hashFunction(TaskMonitor monitor,
 			LongObjectHashtable<Match> functionHashes, Function function, FunctionHasher hasher,
-			boolean isProgA) throws CancelledException {
+			FunctionHashCache cache, boolean isProgA) throws CancelledException {
 
-		long hash = hasher.hash(function, monitor);
+		long hash = cache != null ? cache.hash(function, hasher, monitor)
+				: hasher.hash(function, monitor);
 
 		Match subMatch = functionHashes.get(hash);
 		if (subMatch == null) {
@@ -16,6 +16,8 @@
  */
 package ghidra.app.services;
 
+import java.util.*;
+
 import ghidra.app.util.importer.MessageLog;
 import ghidra.framework.options.Options;
 import ghidra.program.model.address.AddressSetView;
@@ -31,6 +33,8 @@ public abstract class AbstractAnalyzer implements Analyzer {
 	private boolean supportsOneTimeAnalysis;
 	private boolean isPrototype = false;
 	private AnalysisPriority priority = AnalysisPriority.LOW_PRIORITY;
+	private boolean supportsConcurrentAnalysis = false;
+	private Set<String> analyzerDependencies = new HashSet<>();
 
 	protected AbstractAnalyzer(String name, String description, AnalyzerType type) {
 		this.name = name;
@@ -58,6 +62,14 @@ public abstract class AbstractAnalyzer implements Analyzer {
 		isPrototype = true;
 	}
 
+	protected void setSupportsConcurrentAnalysis(boolean supportsConcurrentAnalysis) {
+		this.supportsConcurrentAnalysis = supportsConcurrentAnalysis;
+	}
+
+	protected void addAnalyzerDependency(String analyzerName) {
+		analyzerDependencies.add(analyzerName);
+	}
+
 	@Override
 	public final String getName() {
 		return name;
@@ -119,4 +131,14 @@ public abstract class AbstractAnalyzer implements Analyzer {
 		// do nothing
 	}
 
+	@Override
+	public boolean supportsConcurrentAnalysis() {
+		return supportsConcurrentAnalysis;
+	}
+
+	@Override
+	public Set<String> getAnalyzerDependencies() {
+		return Collections.unmodifiableSet(analyzerDependencies);
+	}
+
 }
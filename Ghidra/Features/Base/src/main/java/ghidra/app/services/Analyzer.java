@@ -16,6 +16,9 @@
  */
 package ghidra.app.services;
 
+import java.util.Collections;
+import java.util.Set;
+
 import ghidra.app.util.importer.MessageLog;
 import ghidra.framework.options.Options;
 import ghidra.program.model.address.AddressSetView;
@@ -126,4 +129,25 @@ public interface Analyzer extends ExtensionPoint {
 
 	public void registerOptions(Options options, Program program);
 
+	/**
+	 * Returns true if this analyzer may be run concurrently with other analyzers of the same
+	 * priority which also support concurrent analysis.  Such an analyzer must not depend on
+	 * the changes made by those analyzers, must guard any shared state, and must not attempt
+	 * to yield to other analysis (e.g., AutoAnalysisManager.startAnalysis) since it may not
+	 * be running within the analysis thread.
+	 * @return true if this analyzer may run concurrently with other analyzers
+	 */
+	public default boolean supportsConcurrentAnalysis() {
+		return false;
+	}
+
+	/**
+	 * Get the names of the analyzers which must complete before this analyzer is run when
+	 * analyzers of the same priority are being run concurrently.
+	 * @return set of analyzer names (may be empty)
+	 */
+	public default Set<String> getAnalyzerDependencies() {
+		return Collections.emptySet();
+	}
+
 }
@@ -17,6 +17,8 @@ package ghidra.app.util.bin;
 
 import java.io.*;
 
+import ghidra.formats.gfilesystem.FSRL;
+
 /**
  * An implementation of ByteProvider where the underlying
  * bytes are supplied by a static byte array.
@@ -26,6 +28,7 @@ import java.io.*;
 public class ByteArrayProvider implements ByteProvider {
 	private byte[] srcBytes;
 	private String name;
+	private FSRL fsrl;
 
 	/**
 	 * Constructs a byte array provider using the specified
@@ -46,6 +49,23 @@ public class ByteArrayProvider implements ByteProvider {
 		this.srcBytes = bytes;
 	}
 
+	/**
+	 * Constructs a byte array provider using the specified
+	 * byte array and FSRL.
+	 * @param bytes the underlying byte array.
+	 * @param fsrl the FSRL of the file the bytes came from
+	 */
+	public ByteArrayProvider(byte[] bytes, FSRL fsrl) {
+		this.name = fsrl.getName();
+		this.srcBytes = bytes;
+		this.fsrl = fsrl;
+	}
+
+	@Override
+	public FSRL getFSRL() {
+		return fsrl;
+	}
+
 	@Override
 	public void close() {
 		// don't do anything for now
@@ -63,7 +83,7 @@ public class ByteArrayProvider implements ByteProvider {
 
 	@Override
 	public String getAbsolutePath() {
-		return "";
+		return fsrl == null ? "" : fsrl.getPath();
 	}
 
 	@Override
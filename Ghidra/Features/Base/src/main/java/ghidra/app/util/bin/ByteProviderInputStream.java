@@ -39,4 +39,20 @@ public class ByteProviderInputStream extends InputStream {
 		return -1;
 	}
 
+	@Override
+	public int read( byte[] b, int off, int len ) throws IOException {
+		if ( len == 0 ) {
+			return 0;
+		}
+		long remaining = offset + length - nextOffset;
+		if ( remaining <= 0 ) {
+			return -1;
+		}
+		int n = (int) Math.min( len, remaining );
+		byte[] bytes = provider.readBytes( nextOffset, n );
+		System.arraycopy( bytes, 0, b, off, n );
+		nextOffset += n;
+		return n;
+	}
+
 }
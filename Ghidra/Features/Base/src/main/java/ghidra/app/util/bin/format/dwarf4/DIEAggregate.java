@@ -282,12 +282,11 @@ public class DIEAggregate {
 
 	private AttrInfo findAttribute(int attribute) {
 		for (DebugInfoEntry die : fragments) {
-			DWARFAttributeValue[] dieAttrValues = die.getAttributes();
 			DWARFAttributeSpecification[] attrDefs = die.getAbbreviation().getAttributes();
 			for (int i = 0; i < attrDefs.length; i++) {
 				DWARFAttributeSpecification attrDef = attrDefs[i];
 				if (attrDef.getAttribute() == attribute) {
-					DWARFAttributeValue attrVal = dieAttrValues[i];
+					DWARFAttributeValue attrVal = die.getAttributeValue(i);
 					DWARFForm form = attrDef.getAttributeForm();
 					if (attrVal instanceof DWARFIndirectAttribute) {
 						form = ((DWARFIndirectAttribute) attrVal).getForm();
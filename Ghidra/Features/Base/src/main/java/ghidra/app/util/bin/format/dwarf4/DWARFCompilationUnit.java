@@ -15,10 +15,10 @@
  */
 package ghidra.app.util.bin.format.dwarf4;
 
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
 
-import ghidra.app.util.bin.BinaryReader;
+import ghidra.app.util.bin.*;
 import ghidra.app.util.bin.format.dwarf4.next.DWARFProgram;
 import ghidra.util.Msg;
 import ghidra.util.exception.CancelledException;
@@ -102,6 +102,12 @@ public class DWARFCompilationUnit {
 	 */
 	private DWARFCompileUnit compUnit;
 
+	/**
+	 * Copy of the bytes of this compUnit's DIE records, which their attribute values are
+	 * decoded from, or null if the DIE records are not loaded.
+	 */
+	private volatile ByteProvider dieBytes;
+
 	/**
 	 * Creates a new {@link DWARFCompilationUnit} by reading a compilationUnit's header data
 	 * from the debug_info section and the debug_abbr section and its compileUnit DIE (ie.
@@ -315,6 +321,10 @@ public class DWARFCompilationUnit {
 	 * Reads the {@link DebugInfoEntry} records for this compilation unit from the .debug_info
 	 * section.
 	 * <p>
+	 * The bytes of the DIE records are copied from the .debug_info section and kept until
+	 * {@link #releaseDIEBytes()} is called, so that the attribute values can be decoded when
+	 * they are requested.
+	 * <p>
 	 * @param entries List of DIE records that is written to by this method.  This list should
 	 * be empty if the caller only wants this CU's records (ie. normal mode), or the list
 	 * can be used to accumulate all DIE records (preload all DIE mode).
@@ -325,8 +335,8 @@ public class DWARFCompilationUnit {
 	 */
 	public void readDIEs(List<DebugInfoEntry> entries, TaskMonitor monitor)
 			throws IOException, DWARFException, CancelledException {
-
-		BinaryReader br = dwarfProgram.getDebugInfo();
+		BinaryReader br =
+			new BinaryReader(loadDIEBytes(), dwarfProgram.getDebugInfo().isLittleEndian());
 		br.setPointerIndex(getFirstDIEOffset());
 
 		Deque<DebugInfoEntry> parentStack = new ArrayDeque<>();
@@ -373,4 +383,206 @@ public class DWARFCompilationUnit {
 			}
 		}
 	}
+
+	/**
+	 * Reads the {@link DebugInfoEntry} records for this compilation unit, like
+	 * {@link #readDIEs(List, TaskMonitor)}.
+	 * <p>
+	 * Only the copy of the bytes is made while holding the lock of the .debug_info
+	 * {@link ByteProvider}, which allows several compilation units to be read concurrently.
+	 *
+	 * @param monitor {@link TaskMonitor} to watch for cancelation
+	 * @return new list of this compilation unit's DIE records
+	 * @throws IOException if error reading data
+	 * @throws DWARFException if error in DWARF structure
+	 * @throws CancelledException if user cancels.
+	 */
+	public List<DebugInfoEntry> readDIEsConcurrently(TaskMonitor monitor)
+			throws IOException, DWARFException, CancelledException {
+		List<DebugInfoEntry> entries = new ArrayList<>();
+		readDIEs(entries, monitor);
+		return entries;
+	}
+
+	/**
+	 * Returns a new reader of the bytes of this compilation unit's DIE records, which is
+	 * used to decode their attribute values.
+	 * <p>
+	 * The bytes copied by {@link #readDIEs(List, TaskMonitor)} are read if they are still
+	 * kept, otherwise the .debug_info section is read while holding its lock.  The indexes
+	 * of the reader are .debug_info offsets.
+	 *
+	 * @return new {@link BinaryReader}
+	 */
+	public BinaryReader getDIEReader() {
+		ByteProvider bytes = dieBytes;
+		BinaryReader debugInfoBR = dwarfProgram.getDebugInfo();
+		return new BinaryReader(
+			bytes != null ? bytes : new LockingByteProvider(debugInfoBR.getByteProvider()),
+			debugInfoBR.isLittleEndian());
+	}
+
+	/**
+	 * Releases the copy of the bytes of this compilation unit's DIE records, once the
+	 * records are no longer used.
+	 */
+	public void releaseDIEBytes() {
+		dieBytes = null;
+	}
+
+	private synchronized ByteProvider loadDIEBytes() throws IOException {
+		if (dieBytes != null) {
+			return dieBytes;
+		}
+		ByteProvider provider = dwarfProgram.getDebugInfo().getByteProvider();
+		byte[] bytes;
+		synchronized (provider) {
+			long end = Math.min(getEndOffset(), provider.length());
+			if (end - getFirstDIEOffset() > Integer.MAX_VALUE) {
+				throw new IOException("Compilation unit at " +
+					Long.toHexString(getStartOffset()) + " is too large");
+			}
+			bytes = (end > getFirstDIEOffset())
+					? provider.readBytes(getFirstDIEOffset(), end - getFirstDIEOffset())
+					: new byte[0];
+		}
+		dieBytes = new CompUnitByteProvider(getFirstDIEOffset(), bytes);
+		return dieBytes;
+	}
+
+	/**
+	 * {@link ByteProvider} that reads the shared .debug_info {@link ByteProvider} while
+	 * holding its lock.
+	 */
+	private static class LockingByteProvider implements ByteProvider {
+		private final ByteProvider provider;
+
+		LockingByteProvider(ByteProvider provider) {
+			this.provider = provider;
+		}
+
+		@Override
+		public File getFile() {
+			return provider.getFile();
+		}
+
+		@Override
+		public String getName() {
+			return provider.getName();
+		}
+
+		@Override
+		public String getAbsolutePath() {
+			return provider.getAbsolutePath();
+		}
+
+		@Override
+		public long length() throws IOException {
+			synchronized (provider) {
+				return provider.length();
+			}
+		}
+
+		@Override
+		public boolean isValidIndex(long index) {
+			synchronized (provider) {
+				return provider.isValidIndex(index);
+			}
+		}
+
+		@Override
+		public void close() {
+			// the shared provider is closed by the DWARFProgram
+		}
+
+		@Override
+		public byte readByte(long index) throws IOException {
+			synchronized (provider) {
+				return provider.readByte(index);
+			}
+		}
+
+		@Override
+		public byte[] readBytes(long index, long length) throws IOException {
+			synchronized (provider) {
+				return provider.readBytes(index, length);
+			}
+		}
+
+		@Override
+		public InputStream getInputStream(long index) throws IOException {
+			return new ByteProviderInputStream(this, index, length() - index);
+		}
+	}
+
+	/**
+	 * {@link ByteProvider} over a copy of a compilation unit's bytes that keeps the indexes
+	 * of the .debug_info section the bytes were copied from.
+	 */
+	private static class CompUnitByteProvider implements ByteProvider {
+		private final long baseOffset;
+		private final byte[] bytes;
+
+		CompUnitByteProvider(long baseOffset, byte[] bytes) {
+			this.baseOffset = baseOffset;
+			this.bytes = bytes;
+		}
+
+		@Override
+		public File getFile() {
+			return null;
+		}
+
+		@Override
+		public String getName() {
+			return null;
+		}
+
+		@Override
+		public String getAbsolutePath() {
+			return null;
+		}
+
+		@Override
+		public long length() {
+			return baseOffset + bytes.length;
+		}
+
+		@Override
+		public boolean isValidIndex(long index) {
+			return index >= baseOffset && index - baseOffset < bytes.length;
+		}
+
+		@Override
+		public void close() {
+			// nothing to do
+		}
+
+		@Override
+		public byte readByte(long index) throws IOException {
+			if (!isValidIndex(index)) {
+				throw new IOException("Invalid index: " + index);
+			}
+			return bytes[(int) (index - baseOffset)];
+		}
+
+		@Override
+		public byte[] readBytes(long index, long length) throws IOException {
+			if (length < 0 || !isValidIndex(index) ||
+				(length > 0 && !isValidIndex(index + length - 1))) {
+				throw new IOException("Invalid range: " + index + ", length " + length);
+			}
+			int start = (int) (index - baseOffset);
+			return Arrays.copyOfRange(bytes, start, start + (int) length);
+		}
+
+		@Override
+		public InputStream getInputStream(long index) throws IOException {
+			if (!isValidIndex(index)) {
+				throw new IOException("Invalid index: " + index);
+			}
+			int start = (int) (index - baseOffset);
+			return new ByteArrayInputStream(bytes, start, bytes.length - start);
+		}
+	}
 }
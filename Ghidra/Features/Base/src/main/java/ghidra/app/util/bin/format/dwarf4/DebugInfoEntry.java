@@ -16,6 +16,7 @@
 package ghidra.app.util.bin.format.dwarf4;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 import ghidra.app.util.bin.BinaryReader;
@@ -30,19 +31,22 @@ import ghidra.app.util.bin.format.dwarf4.encoding.DWARFTag;
  * <p>
  * This class is a lower-level class and {@link DIEAggregate} should be used instead in most
  * cases when examining information from the DWARF system.
- *
+ * <p>
+ * The attribute values are not kept with the DIE.  They are decoded from the bytes of the
+ * {@link DWARFCompilationUnit#getDIEReader() compilation unit} each time they are requested,
+ * which keeps the heap used by a DIE to the few fields needed to find it and its relatives.
  */
 public class DebugInfoEntry {
 
 	private final DWARFCompilationUnit compilationUnit;
 	private final long offset;
 	private final DWARFAbbreviation abbreviation;
-	private final DWARFAttributeValue[] attributes;
 	private long parentOffset = -1;
 	private List<DebugInfoEntry> children;
 
 	/**
-	 * Read a DIE record.
+	 * Read a DIE record.  The attribute values are checked and skipped, they are decoded
+	 * when requested.
 	 *
 	 * @param reader
 	 * @param unit
@@ -66,16 +70,12 @@ public class DebugInfoEntry {
 				" not found in the abbreviation map for compunit " + unit);
 		}
 
-		DebugInfoEntry result = new DebugInfoEntry(unit, offset, abbreviation);
-		// Read in all of the attribute values based on the attribute specification
-		DWARFAttributeSpecification[] attributeSpecs = result.abbreviation.getAttributes();
-		for (int i = 0; i < attributeSpecs.length; i++) {
-			DWARFAttributeSpecification attributeSpec = attributeSpecs[i];
-			result.attributes[i] =
-				attributeFactory.read(reader, unit, attributeSpec.getAttributeForm());
+		// Skip all of the attribute values based on the attribute specification
+		for (DWARFAttributeSpecification attributeSpec : abbreviation.getAttributes()) {
+			attributeFactory.skip(reader, unit, attributeSpec.getAttributeForm());
 		}
 
-		return result;
+		return new DebugInfoEntry(unit, offset, abbreviation);
 	}
 
 	/**
@@ -90,9 +90,6 @@ public class DebugInfoEntry {
 		this.compilationUnit = unit;
 		this.offset = offset;
 		this.abbreviation = abbreviation;
-		this.attributes =
-			(abbreviation != null) ? new DWARFAttributeValue[abbreviation.getAttributeCount()]
-					: null;
 	}
 
 	/**
@@ -172,8 +169,69 @@ public class DebugInfoEntry {
 		return (abbreviation != null) ? abbreviation.getTag() : 0;
 	}
 
+	/**
+	 * Decodes the values of all the attributes of this DIE.
+	 *
+	 * @return new array of attribute values, in the order of the attribute specifications of
+	 * the {@link #getAbbreviation() abbreviation}, or null if this DIE is a terminator
+	 * @throws UncheckedIOException if error reading the values
+	 */
 	public DWARFAttributeValue[] getAttributes() {
-		return attributes;
+		if (abbreviation == null) {
+			return null;
+		}
+		DWARFAttributeSpecification[] attributeSpecs = abbreviation.getAttributes();
+		DWARFAttributeValue[] values = new DWARFAttributeValue[attributeSpecs.length];
+		try {
+			BinaryReader reader = getAttributeReader();
+			DWARFAttributeFactory attributeFactory =
+				compilationUnit.getProgram().getAttributeFactory();
+			for (int i = 0; i < attributeSpecs.length; i++) {
+				values[i] =
+					attributeFactory.read(reader, compilationUnit,
+						attributeSpecs[i].getAttributeForm());
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return values;
+	}
+
+	/**
+	 * Decodes the value of a single attribute of this DIE.
+	 *
+	 * @param index index of the attribute specification in the
+	 * {@link #getAbbreviation() abbreviation}
+	 * @return the attribute value
+	 * @throws UncheckedIOException if error reading the value
+	 */
+	public DWARFAttributeValue getAttributeValue(int index) {
+		DWARFAttributeSpecification[] attributeSpecs = abbreviation.getAttributes();
+		try {
+			BinaryReader reader = getAttributeReader();
+			DWARFAttributeFactory attributeFactory =
+				compilationUnit.getProgram().getAttributeFactory();
+			for (int i = 0; i < index; i++) {
+				attributeFactory.skip(reader, compilationUnit,
+					attributeSpecs[i].getAttributeForm());
+			}
+			return attributeFactory.read(reader, compilationUnit,
+				attributeSpecs[index].getAttributeForm());
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns a reader positioned at the first attribute value of this DIE.
+	 */
+	private BinaryReader getAttributeReader() throws IOException {
+		BinaryReader reader = compilationUnit.getDIEReader();
+		reader.setPointerIndex(offset);
+		LEB128.decode32u(reader); // abbreviation code
+		return reader;
 	}
 
 	/**
@@ -225,6 +283,7 @@ public class DebugInfoEntry {
 			DWARFUtil.toString(DWARFTag.class, this.abbreviation.getTag())).append("\n");
 
 		DWARFAttributeSpecification[] attributeSpecs = abbreviation.getAttributes();
+		DWARFAttributeValue[] attributes = getAttributes();
 		for (int i = 0; i < attributeSpecs.length; i++) {
 			DWARFAttributeSpecification attributeSpec = attributeSpecs[i];
 			buffer.append("\tAttribute: ");
@@ -166,4 +166,119 @@ public class DWARFAttributeFactory {
 		throw new IllegalArgumentException("Unknown DWARF Form: " + form.toString());
 	}
 
+	/**
+	 * Moves the given BinaryReader past a value of the type of DWARFForm that is given,
+	 * without creating a {@link DWARFAttributeValue} for it.
+	 * <p>
+	 * The same checks are done as when the value is {@link #read(BinaryReader,
+	 * DWARFCompilationUnit, DWARFForm) read}, so a value that was skipped can be read later.
+	 *
+	 * @param reader BinaryReader pointing to the value to skip
+	 * @param unit the current compilation unit
+	 * @param form DWARFForm type defining the type of value to skip
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void skip(BinaryReader reader, DWARFCompilationUnit unit, DWARFForm form)
+			throws IOException {
+		switch (form) {
+			case DW_FORM_addr:
+				skipBytes(reader, unit.getPointerSize());
+				return;
+			case DW_FORM_ref1:
+			case DW_FORM_data1:
+			case DW_FORM_flag:
+				skipBytes(reader, 1);
+				return;
+			case DW_FORM_ref2:
+			case DW_FORM_data2:
+				skipBytes(reader, 2);
+				return;
+			case DW_FORM_ref4:
+			case DW_FORM_data4:
+				skipBytes(reader, 4);
+				return;
+			case DW_FORM_ref8:
+			case DW_FORM_data8:
+				skipBytes(reader, 8);
+				return;
+			case DW_FORM_ref_udata:
+			case DW_FORM_sdata:
+			case DW_FORM_udata:
+				LEB128.decode(reader, false);
+				return;
+			case DW_FORM_ref_addr:
+			case DW_FORM_sec_offset:
+				DWARFUtil.readOffsetByDWARFformat(reader, unit.getFormat());
+				return;
+
+			case DW_FORM_block1:
+				skipBytes(reader, DWARFUtil.readVarSizedUInt(reader, 1));
+				return;
+			case DW_FORM_block2:
+				skipBytes(reader, DWARFUtil.readVarSizedUInt(reader, 2));
+				return;
+			case DW_FORM_block4: {
+				int length = DWARFUtil.readVarSizedUInt(reader, 4);
+				if (length < 0 || length > MAX_BLOCK4_SIZE) {
+					throw new IOException("Invalid/bad dw_form_block4 size: " + length);
+				}
+				skipBytes(reader, length);
+				return;
+			}
+			case DW_FORM_block: {
+				int length = LEB128.decode32u(reader);
+				if (length < 0 || length > MAX_BLOCK4_SIZE) {
+					throw new IOException("Invalid/bad dw_form_block size: " + length);
+				}
+				skipBytes(reader, length);
+				return;
+			}
+			case DW_FORM_exprloc: {
+				int length = LEB128.decode32u(reader);
+				if (length < 0 || length > MAX_BLOCK4_SIZE) {
+					throw new IOException("Invalid/bad dw_form_exprloc size: " + length);
+				}
+				skipBytes(reader, length);
+				return;
+			}
+
+			case DW_FORM_flag_present:
+				return;
+
+			case DW_FORM_string: {
+				long end = reader.getByteProvider().length();
+				long index = reader.getPointerIndex();
+				while (index < end && reader.readByte(index++) != 0) {
+					// skip to the terminating null
+				}
+				reader.setPointerIndex(index);
+				return;
+			}
+			case DW_FORM_strp:
+				long stringOffset = DWARFUtil.readOffsetByDWARFformat(reader, unit.getFormat());
+				if (!prog.getDebugStrings().isValid(stringOffset))
+					throw new IOException("Bad string offset " + Long.toHexString(stringOffset));
+				return;
+
+			case DW_FORM_ref_sig8:
+				throw new UnsupportedOperationException(
+					"DW_FORM_ref_sig8 is currently not implemented");
+
+			// Indirect Form
+			case DW_FORM_indirect:
+				skip(reader, unit, DWARFForm.find(LEB128.decode32u(reader)));
+				return;
+			default:
+		}
+		throw new IllegalArgumentException("Unknown DWARF Form: " + form.toString());
+	}
+
+	private static void skipBytes(BinaryReader reader, long count) throws IOException {
+		long index = reader.getPointerIndex() + count;
+		if (index > reader.getByteProvider().length()) {
+			throw new IOException("Invalid index: " + index);
+		}
+		reader.setPointerIndex(index);
+	}
+
 }
@@ -18,9 +18,7 @@ package ghidra.app.util.bin.format.dwarf4.next;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.*;
-
-import org.apache.commons.collections4.ListValuedMap;
-import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import java.util.concurrent.CancellationException;
 
 import ghidra.app.util.bin.BinaryReader;
 import ghidra.app.util.bin.ByteProvider;
@@ -34,8 +32,10 @@ import ghidra.app.util.opinion.MachoLoader;
 import ghidra.program.model.data.CategoryPath;
 import ghidra.program.model.listing.Program;
 import ghidra.program.model.symbol.SymbolUtilities;
+import generic.concurrent.*;
 import ghidra.util.Msg;
 import ghidra.util.datastruct.FixedSizeHashMap;
+import ghidra.util.datastruct.LongObjectHashtable;
 import ghidra.util.exception.CancelledException;
 import ghidra.util.task.TaskMonitor;
 
@@ -46,6 +46,14 @@ import ghidra.util.task.TaskMonitor;
  */
 public class DWARFProgram implements Closeable {
 	public static final String DWARF_ROOT_NAME = "DWARF";
+	private static final String THREAD_POOL_NAME = "DWARF";
+
+	/**
+	 * Approximate heap used by the DIE records read from a compilation unit, per byte of
+	 * the unit in the .debug_info section.
+	 */
+	private static final int DIE_HEAP_BYTES_PER_DEBUG_INFO_BYTE = 13;
+	private static final int IN_FLIGHT_HEAP_FRACTION = 8;
 	public static final int DEFAULT_NAME_LENGTH_CUTOFF = SymbolUtilities.MAX_SYMBOL_NAME_LENGTH;
 	public static final int MAX_NAME_LENGTH_CUTOFF = SymbolUtilities.MAX_SYMBOL_NAME_LENGTH;
 	public static final int MIN_NAME_LENGTH_CUTOFF = 20;
@@ -120,14 +128,16 @@ public class DWARFProgram implements Closeable {
 	private List<DebugInfoEntry> currentDIEs = new ArrayList<>();
 
 	/**
-	 * Map of DIE offsets to DIE instances of the elements in {@link #currentDIEs}.
+	 * Sorted DIE offsets of the elements in {@link #currentDIEs}, at the same index
+	 * as the DIE they belong to.
 	 */
-	private Map<Long, DebugInfoEntry> offsetMap = new HashMap<>();
+	private long[] dieOffsets = new long[0];
 
 	/**
-	 * Map of DIE offsets to {@link DIEAggregate} instances.
+	 * {@link DIEAggregate} instances, at the same index as the elements of
+	 * {@link #currentDIEs} that they contain.
 	 */
-	private Map<Long, DIEAggregate> aggregatesByOffset = new HashMap<>();
+	private DIEAggregate[] aggregatesByIndex = new DIEAggregate[0];
 
 	/**
 	 * List of current {@link DIEAggregate} instances.
@@ -140,7 +150,7 @@ public class DWARFProgram implements Closeable {
 	 * <p>
 	 * In other words, a map of inbound links to a DIEA.
 	 */
-	private ListValuedMap<Long, DIEAggregate> typeReferers = new ArrayListValuedHashMap<>();
+	private LongObjectHashtable<List<DIEAggregate>> typeReferers = new LongObjectHashtable<>();
 
 	/**
 	 * Main constructor for DWARFProgram.
@@ -208,6 +218,9 @@ public class DWARFProgram implements Closeable {
 	@Override
 	public void close() throws IOException {
 		sectionProvider.close();
+		for (DWARFCompilationUnit cu : compUnits) {
+			cu.releaseDIEBytes();
+		}
 		compUnits.clear();
 		debugAbbrBR = null;
 		debugInfoBR = null;
@@ -505,7 +518,7 @@ public class DWARFProgram implements Closeable {
 			throw new RuntimeException(
 				"Bad request for getAggregate() when compUnit is not updated");
 		}
-		return (die != null) ? aggregatesByOffset.get(die.getOffset()) : null;
+		return (die != null) ? getAggregate(die.getOffset()) : null;
 	}
 
 	/**
@@ -517,7 +530,8 @@ public class DWARFProgram implements Closeable {
 	 * offset.
 	 */
 	public DIEAggregate getAggregate(long offset) {
-		return aggregatesByOffset.get(offset);
+		int index = getDIEIndex(offset);
+		return (index >= 0) ? aggregatesByIndex[index] : null;
 	}
 
 	/**
@@ -562,6 +576,9 @@ public class DWARFProgram implements Closeable {
 	public void setCurrentCompilationUnit(DWARFCompilationUnit cu, TaskMonitor monitor)
 			throws CancelledException, IOException, DWARFException {
 		if (cu != currentCompUnit) {
+			if (currentCompUnit != null && !importOptions.isPreloadAllDIEs()) {
+				currentCompUnit.releaseDIEBytes();
+			}
 			currentCompUnit = cu;
 			if (cu != null && !importOptions.isPreloadAllDIEs()) {
 				clearDIEIndexes();
@@ -576,9 +593,20 @@ public class DWARFProgram implements Closeable {
 	}
 
 	public DWARFCompilationUnit getCompilationUnitFor(long offset) {
-		for (DWARFCompilationUnit cu : getCompilationUnits()) {
-			if (cu.containsOffset(offset)) {
-				return cu;
+		// compilation units are contiguous and in .debug_info offset order
+		int low = 0;
+		int high = compUnits.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			DWARFCompilationUnit cu = compUnits.get(mid);
+			if (offset < cu.getStartOffset()) {
+				high = mid - 1;
+			}
+			else if (offset >= cu.getEndOffset()) {
+				low = mid + 1;
+			}
+			else {
+				return cu.containsOffset(offset) ? cu : null;
 			}
 		}
 		return null;
@@ -664,11 +692,11 @@ public class DWARFProgram implements Closeable {
 	 * Releases the memory used by the DIE entries read by {@link #readDIEs()}.
 	 */
 	public void clearDIEIndexes() {
-		offsetMap.clear();
 		currentDIEs.clear();
-		aggregatesByOffset.clear();
+		dieOffsets = new long[0];
+		aggregatesByIndex = new DIEAggregate[0];
 		aggregates.clear();
-		typeReferers.clear();
+		typeReferers = new LongObjectHashtable<>();
 	}
 
 	/**
@@ -683,7 +711,13 @@ public class DWARFProgram implements Closeable {
 	 * @return the entry with the given byte offset
 	 */
 	public DebugInfoEntry getEntryAtByteOffsetUnchecked(long byteOffset) {
-		return offsetMap.get(Long.valueOf(byteOffset));
+		int index = getDIEIndex(byteOffset);
+		return (index >= 0) ? currentDIEs.get(index) : null;
+	}
+
+	private int getDIEIndex(long byteOffset) {
+		int index = Arrays.binarySearch(dieOffsets, byteOffset);
+		return (index >= 0 && index < currentDIEs.size()) ? index : -1;
 	}
 
 	private List<DIEAggregate> getTypeReferers(DIEAggregate targetDIEA) {
@@ -718,11 +752,25 @@ public class DWARFProgram implements Closeable {
 	}
 
 	private void buildDIEIndex() {
-		for (DebugInfoEntry die : currentDIEs) {
-			offsetMap.put(Long.valueOf(die.getOffset()), die);
+		dieOffsets = getOffsets(currentDIEs);
+		for (int i = 1; i < dieOffsets.length; i++) {
+			if (dieOffsets[i - 1] >= dieOffsets[i]) {
+				// DIEs are read in .debug_info order, so this should not happen
+				currentDIEs.sort((die1, die2) -> Long.compare(die1.getOffset(), die2.getOffset()));
+				dieOffsets = getOffsets(currentDIEs);
+				break;
+			}
 		}
 	}
 
+	private static long[] getOffsets(List<DebugInfoEntry> dies) {
+		long[] offsets = new long[dies.size()];
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = dies.get(i).getOffset();
+		}
+		return offsets;
+	}
+
 	private boolean checkForCrossCURefs(List<DebugInfoEntry> dies) {
 		// 'static' set of attribute types that refer from one DIE to another DIE
 		int[] refAttrs = { DWARFAttribute.DW_AT_type, DWARFAttribute.DW_AT_abstract_origin,
@@ -731,7 +779,7 @@ public class DWARFProgram implements Closeable {
 			DIEAggregate diea = DIEAggregate.createSingle(die);
 			for (int attr : refAttrs) {
 				long refdOffset = diea.getUnsignedLong(attr, -1);
-				if (refdOffset == -1) {
+				if (refdOffset == -1 || die.getCompilationUnit().containsOffset(refdOffset)) {
 					continue;
 				}
 				DWARFCompilationUnit targetCU = getCompilationUnitFor(refdOffset);
@@ -744,90 +792,111 @@ public class DWARFProgram implements Closeable {
 	}
 
 	private void buildAggregateIndex() {
-		Map<Long, DebugInfoEntry> offsetMap2Head = buildHeadIndex();
-		for (DebugInfoEntry die : currentDIEs) {
-			if (aggregatesByOffset.containsKey(die.getOffset())) {
+		int[] index2Head = buildHeadIndex(currentDIEs, dieOffsets);
+		aggregatesByIndex = new DIEAggregate[currentDIEs.size()];
+		for (int i = 0; i < aggregatesByIndex.length; i++) {
+			if (aggregatesByIndex[i] != null) {
 				continue;
 			}
-			DebugInfoEntry head = getHead(die, offsetMap2Head);
+			DebugInfoEntry head = currentDIEs.get(getHead(i, index2Head));
 			DIEAggregate diea = DIEAggregate.createFromHead(head);
 			aggregates.add(diea);
 			for (long fragOffset : diea.getOffsets()) {
-				aggregatesByOffset.put(fragOffset, diea);
+				int fragIndex = getDIEIndex(fragOffset);
+				if (fragIndex >= 0) {
+					aggregatesByIndex[fragIndex] = diea;
+				}
 			}
 		}
 	}
 
-	private int countAggregates() {
-		Map<Long, DebugInfoEntry> offsetMap2Head = buildHeadIndex();
-		Set<Long> uniqueHeads = new HashSet<>();
-		for (DebugInfoEntry die : currentDIEs) {
-			DebugInfoEntry head = getHead(die, offsetMap2Head);
-			uniqueHeads.add(head.getOffset());
+	private static int countAggregates(List<DebugInfoEntry> dies, long[] offsets) {
+		// every DIE's head is a DIE that is its own head, so just count those
+		int[] index2Head = buildHeadIndex(dies, offsets);
+		int count = 0;
+		for (int i = 0; i < index2Head.length; i++) {
+			if (index2Head[i] == i) {
+				count++;
+			}
 		}
-		return uniqueHeads.size();
+		return count;
 	}
 
 	private void buildTypeRefIndex() {
 		for (DIEAggregate diea : aggregates) {
 			DIEAggregate typeRef = diea.getTypeRef();
 			if (typeRef != null) {
-				typeReferers.put(typeRef.getOffset(), diea);
+				List<DIEAggregate> referers = typeReferers.get(typeRef.getOffset());
+				if (referers == null) {
+					referers = new ArrayList<>();
+					typeReferers.put(typeRef.getOffset(), referers);
+				}
+				referers.add(diea);
 			}
 		}
 	}
 
-	private Map<Long, DebugInfoEntry> buildHeadIndex() {
-		Map<Long, DebugInfoEntry> offsetMap2Head = new HashMap<>();
-		for (DebugInfoEntry die : currentDIEs) {
-			offsetMap2Head.put(Long.valueOf(die.getOffset()), die);
+	/**
+	 * Returns an array that maps the index of each DIE in the list to the index of the DIE
+	 * that refers back to it, or to itself if no later DIE refers to it.
+	 *
+	 * @param dies list of {@link DebugInfoEntry DIEs}, in offset order
+	 * @param offsets the offsets of the DIEs in the list
+	 * @return array of DIE indexes, parallel to the list of DIEs
+	 */
+	private static int[] buildHeadIndex(List<DebugInfoEntry> dies, long[] offsets) {
+		int[] index2Head = new int[dies.size()];
+		int[] refAttrs =
+			{ DWARFAttribute.DW_AT_abstract_origin, DWARFAttribute.DW_AT_specification };
+		for (int i = 0; i < index2Head.length; i++) {
+			index2Head[i] = i;
 
 			// If this entry has refs back to a previous DIE, overwrite their
-			// offset2head mapping so that their offset points to this entry.
+			// index2Head mapping so that their index points to this entry.
 			// This codeblock is similar to the logic in DIEAggregrate#createFromHead()
-			DIEAggregate diea = DIEAggregate.createSingle(die);
-			int[] refAttrs =
-				{ DWARFAttribute.DW_AT_abstract_origin, DWARFAttribute.DW_AT_specification };
+			DIEAggregate diea = DIEAggregate.createSingle(dies.get(i));
 			for (int attr : refAttrs) {
 				long refdOffset = diea.getUnsignedLong(attr, -1);
 				if (refdOffset == -1) {
 					continue;
 				}
-
-				offsetMap2Head.put(refdOffset, die);
+				int refdIndex = Arrays.binarySearch(offsets, refdOffset);
+				if (refdIndex >= 0) {
+					index2Head[refdIndex] = i;
+				}
 			}
 		}
-		return offsetMap2Head;
+		return index2Head;
 	}
 
 	/**
-	 * Returns the 'head'-most {@link DebugInfoEntry DIE} instance of the DIEs that
-	 * make up the fragment chain that include the {@code die} parameter.
+	 * Returns the index of the 'head'-most {@link DebugInfoEntry DIE} instance of the DIEs that
+	 * make up the fragment chain that include the DIE at the {@code index} parameter.
 	 * <p>
 	 * Since there can be many-to-one DIE relationships (for instance, many 'spec' DIEs pointing
 	 * to the same decl DIE), the results can be asymmetric, and will return the last
 	 * 'head' that references the non-head DIE.
 	 *
-	 * @param die {@link DebugInfoEntry} record
-	 * @return never null
+	 * @param index index of a {@link DebugInfoEntry} record
+	 * @param index2Head head index created by {@link #buildHeadIndex(List, long[])}
+	 * @return index of the head DIE
 	 */
-	private DebugInfoEntry getHead(DebugInfoEntry die, Map<Long, DebugInfoEntry> offsetMap2Head) {
-		// Loop until the we don't find any more redirections in the offset2HeadMap.
+	private static int getHead(int index, int[] index2Head) {
+		// Loop until the we don't find any more redirections in the index2Head array.
 		// This loop isn't endless because the lastmost DIE read will always
 		// point to itself, ending the loop.
-		while (true) {
-			DebugInfoEntry tmp = offsetMap2Head.get(die.getOffset());
-			if (tmp == die) {
-				return die;
-			}
-			die = tmp;
+		while (index2Head[index] != index) {
+			index = index2Head[index];
 		}
+		return index;
 	}
 
 	/**
 	 * Iterates over all the DWARF DIE records in the program and checks for some
 	 * pre-known issues, throwing an exception if there is a problem that would
 	 * prevent a successful run.
+	 * <p>
+	 * The compilation units are read concurrently.
 	 *
 	 * @param monitor {@link TaskMonitor} to check for cancel and upate with status.
 	 * @throws DWARFException if DWARF structure error.
@@ -838,8 +907,7 @@ public class DWARFProgram implements Closeable {
 			throws DWARFPreconditionException, DWARFException, CancelledException, IOException {
 		monitor.setIndeterminate(false);
 		monitor.setShowProgressValue(true);
-
-		monitor.setMaximum(getCompilationUnits().size());
+		monitor.setMessage("DWARF Checking Preconditions");
 
 		if (getCompilationUnits().size() > 0 &&
 			getCompilationUnits().get(0).getCompileUnit().hasDWO()) {
@@ -848,7 +916,7 @@ public class DWARFProgram implements Closeable {
 				"Unsupported DWARF DWO (external debug file) detected -- unlikely any debug information will be found");
 		}
 
-		// This loop:
+		// Reading the compilation units:
 		// 1) preloads the DIEs if that option is set
 		// 2) checks for cross-cu refs
 		// 3) sums up the total number of DIE records found and updates prog with total.
@@ -856,36 +924,180 @@ public class DWARFProgram implements Closeable {
 		totalDIECount = 0;
 		totalAggregateCount = 0;
 		clearDIEIndexes();
-		for (DWARFCompilationUnit cu : getCompilationUnits()) {
-			monitor.setMessage("DWARF Checking Preconditions - Compilation Unit #" +
-				cu.getCompUnitNumber() + "/" + getCompilationUnits().size());
-			monitor.setProgress(cu.getCompUnitNumber());
+		List<CompUnitDIEs> cuDIEsList = readAllCompilationUnits(preLoad, monitor);
+		if (preLoad) {
+			int preLoadCount = 0;
+			for (CompUnitDIEs cuDIEs : cuDIEsList) {
+				preLoadCount += cuDIEs.dies.size();
+			}
+			currentDIEs = new ArrayList<>(preLoadCount);
+			for (CompUnitDIEs cuDIEs : cuDIEsList) {
+				currentDIEs.addAll(cuDIEs.dies);
+			}
+			cuDIEsList = null;
 
-			cu.readDIEs(currentDIEs, monitor);
+			// build DIE indexes once
+			rebuildDIEIndexes();
+			this.totalAggregateCount = aggregates.size();
+			this.totalDIECount = currentDIEs.size();
+		}
+	}
 
-			if (totalDIECount > importOptions.getImportLimitDIECount() && !preLoad) {
-				throw new DWARFPreconditionException(
-					String.format(program.getName() + " has more DIE records (%d) than limit of %d",
-						totalDIECount, importOptions.getImportLimitDIECount()));
+	/**
+	 * Adds the summary of a compilation unit's DIE records to the totals, when not
+	 * preloading.
+	 *
+	 * @param cuDIEs summary of the DIE records of a compilation unit
+	 * @throws DWARFPreconditionException if the total number of DIE records is more than the
+	 * import limit, or if the compilation unit references DIE records in other units
+	 */
+	private void addCompUnitSummary(CompUnitDIEs cuDIEs) throws DWARFPreconditionException {
+		foundCrossCURefs |= cuDIEs.hasCrossCURefs;
+		totalDIECount += cuDIEs.dieCount;
+		totalAggregateCount += cuDIEs.aggregateCount;
+		if (foundCrossCURefs) {
+			throw new DWARFPreconditionException(
+				"Found cross-compilation unit references between DIE records, but 'preload' is not turned on");
+		}
+		if (totalDIECount > importOptions.getImportLimitDIECount()) {
+			throw new DWARFPreconditionException(
+				String.format(program.getName() + " has more DIE records (%d) than limit of %d",
+					totalDIECount, importOptions.getImportLimitDIECount()));
+		}
+	}
+
+	/**
+	 * Reads the DIE records of all compilation units concurrently.
+	 * <p>
+	 * When not preloading, the DIE records of each compilation unit are only summarized and
+	 * then discarded.  The summaries are added to the totals as soon as they are available,
+	 * and the remaining compilation units are cancelled once a precondition fails.  The
+	 * compilation units are queued a few at a time so that the DIE records being read at
+	 * the same time use at most about 1/{@value #IN_FLIGHT_HEAP_FRACTION} of the heap.
+	 *
+	 * @param preLoad true if the DIE records should be kept
+	 * @param monitor {@link TaskMonitor} to check for cancel and upate with status.
+	 * @return list of results, in compilation unit order, or an empty list if not preloading
+	 * @throws DWARFPreconditionException if a precondition fails while not preloading
+	 * @throws DWARFException if DWARF structure error.
+	 * @throws CancelledException if user cancels.
+	 * @throws IOException if error reading data.
+	 */
+	private List<CompUnitDIEs> readAllCompilationUnits(boolean preLoad, TaskMonitor monitor)
+			throws DWARFPreconditionException, DWARFException, CancelledException, IOException {
+		QCallback<DWARFCompilationUnit, CompUnitDIEs> callback = (cu, m) -> {
+			m.checkCanceled();
+			CompUnitDIEs cuDIEs = new CompUnitDIEs(cu);
+			if (preLoad) {
+				cuDIEs.dies = cu.readDIEsConcurrently(m);
+				return cuDIEs;
+			}
+			try {
+				List<DebugInfoEntry> dies = cu.readDIEsConcurrently(m);
+				cuDIEs.hasCrossCURefs = checkForCrossCURefs(dies);
+				cuDIEs.dieCount = dies.size();
+				cuDIEs.aggregateCount = countAggregates(dies, getOffsets(dies));
+			}
+			finally {
+				// the summarized DIE records are discarded
+				cu.releaseDIEBytes();
 			}
+			return cuDIEs;
+		};
+
+		// @formatter:off
+		ConcurrentQ<DWARFCompilationUnit, CompUnitDIEs> queue =
+			new ConcurrentQBuilder<DWARFCompilationUnit, CompUnitDIEs>()
+				.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+				.setCollectResults(true)
+				.setMonitor(monitor)
+				.build(callback);
+		// @formatter:on
+
+		// preloaded DIE records are all kept anyway, so only bound the queue when summarizing
+		long maxInFlightBytes = preLoad ? Long.MAX_VALUE
+				: Runtime.getRuntime().maxMemory() / IN_FLIGHT_HEAP_FRACTION /
+					DIE_HEAP_BYTES_PER_DEBUG_INFO_BYTE;
+		Iterator<DWARFCompilationUnit> cuIterator = getCompilationUnits().iterator();
+		int inFlightCount = 0;
+		long inFlightBytes = 0;
+		List<CompUnitDIEs> cuDIEsList = new ArrayList<>();
+		try {
+			while (true) {
+				// always queue at least one compilation unit, even if it is larger than the bound
+				while (cuIterator.hasNext() &&
+					(inFlightCount == 0 || inFlightBytes < maxInFlightBytes)) {
+					DWARFCompilationUnit cu = cuIterator.next();
+					queue.add(cu);
+					inFlightCount++;
+					inFlightBytes += cu.getLength();
+				}
+				if (inFlightCount == 0) {
+					break;
+				}
+				QResult<DWARFCompilationUnit, CompUnitDIEs> result = queue.waitForNextResult();
+				if (result == null) {
+					throw new CancelledException();
+				}
+				inFlightCount--;
+				inFlightBytes -= result.getItem().getLength();
 
-			if (!preLoad) {
-				foundCrossCURefs |= checkForCrossCURefs(currentDIEs);
-				totalDIECount += currentDIEs.size();
-				totalAggregateCount += countAggregates();
-				currentDIEs.clear();
-				if (foundCrossCURefs) {
-					throw new DWARFPreconditionException(
-						"Found cross-compilation unit references between DIE records, but 'preload' is not turned on");
+				CompUnitDIEs cuDIEs = getCompUnitDIEs(result);
+				if (preLoad) {
+					cuDIEsList.add(cuDIEs);
+				}
+				else {
+					addCompUnitSummary(cuDIEs);
 				}
 			}
+		}
+		catch (InterruptedException e) {
+			throw new CancelledException();
+		}
+		finally {
+			// cancels the queued and running compilation units if a precondition failed
+			queue.dispose();
+		}
+		monitor.checkCanceled();
+
+		cuDIEsList.sort((cuDIEs1, cuDIEs2) -> Long.compare(cuDIEs1.cu.getStartOffset(),
+			cuDIEs2.cu.getStartOffset()));
+		return cuDIEsList;
+	}
 
+	private static CompUnitDIEs getCompUnitDIEs(QResult<DWARFCompilationUnit, CompUnitDIEs> result)
+			throws DWARFException, CancelledException, IOException {
+		try {
+			CompUnitDIEs cuDIEs = result.getResult();
+			if (cuDIEs == null) {
+				throw new CancelledException();
+			}
+			return cuDIEs;
 		}
-		if (preLoad) {
-			// build DIE indexes once
-			rebuildDIEIndexes();
-			this.totalAggregateCount = aggregates.size();
-			this.totalDIECount = currentDIEs.size();
+		catch (CancellationException | CancelledException e) {
+			throw new CancelledException();
+		}
+		catch (IOException | DWARFException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IOException("Error reading DWARF compilation unit at " +
+				Long.toHexString(result.getItem().getStartOffset()), e);
+		}
+	}
+
+	/**
+	 * The DIE records, or a summary of them, read from a single compilation unit.
+	 */
+	private static class CompUnitDIEs {
+		final DWARFCompilationUnit cu;
+		List<DebugInfoEntry> dies;
+		boolean hasCrossCURefs;
+		int dieCount;
+		int aggregateCount;
+
+		CompUnitDIEs(DWARFCompilationUnit cu) {
+			this.cu = cu;
 		}
 	}
 
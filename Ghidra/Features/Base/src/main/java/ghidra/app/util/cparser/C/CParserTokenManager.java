@@ -14,7 +14,7 @@ import java.util.*;
 /** Token Manager. */
 public class CParserTokenManager implements CParserConstants
 {
-    static int parenNesting = 0;
+    int parenNesting = 0;
 
   /** Debug output. */
   public  java.io.PrintStream debugStream = System.out;
@@ -100,7 +100,7 @@ public class PreProcessor implements PreProcessorConstants {
                                                 return this.image.equals((String) t);
                                         }
                                 } catch (ClassNotFoundException e) {
-                                        Msg.error(this, "PPToken.equals: " + e.getMessage());
+                                        logError("PPToken.equals: " + e.getMessage());
                                 }
                         return false;
                 }
@@ -147,12 +147,12 @@ public class PreProcessor implements PreProcessorConstants {
                                                 }
                                                 break;
                                         default:
-                                                Msg.error(this, "Cannot compareToZero Token: " + image + " kind " + kind);
+                                                logError("Cannot compareToZero Token: " + image + " kind " + kind);
                                                 break;
                                 }
                         }
                         catch (Exception e) {
-                                Msg.error(this, "CMP2Zero:Numeric Conversion Error: " + e.getMessage());
+                                logError("CMP2Zero:Numeric Conversion Error: " + e.getMessage());
                         }
                         return comparison;
                 }
@@ -308,6 +308,17 @@ public class PreProcessor implements PreProcessorConstants {
         // Hastable for storing #include file names
         Hashtable<String, Boolean> files = new Hashtable<String, Boolean>();
 
+        // Absolute paths of the files that have been opened, including the
+        // top level file.  Shared with the parsers of included files.
+        Set<String> openedFiles = new HashSet<String>();
+
+        // Absolute paths at which an #include file was looked for but did not
+        // exist.  Shared with the parsers of included files.
+        Set<String> missingIncludePaths = new HashSet<String>();
+
+        // Errors logged while parsing.  Shared with the parsers of included files.
+        List<String> parseErrors = new ArrayList<String>();
+
         // Stack for keeping shadowed (include) files
         Stack<String> fileStack = new Stack<String>();
 
@@ -470,11 +481,12 @@ public class PreProcessor implements PreProcessorConstants {
                                 }
                         }
                 } catch (FileNotFoundException fene) {
-                        Msg.error(this, fene.getMessage() + " " + incFile);
+                        logError(fene.getMessage() + " " + incFile);
                 }
                 if (fis == null) {
                         // Msg.error(this,
                         // "Warning: No relative path to #include \""+def+"\"\nThis is a design/configuration flaw. Trying the standard places...");
+                        addMissingIncludePath(srcPath, def);
                         standardPlace(inc, xsym);
                 } else {
                         if (verboseLevel == 2) {
@@ -491,6 +503,7 @@ public class PreProcessor implements PreProcessorConstants {
                 else if (verboseLevel == 1)
                         println("Parsing stream " + incFile.getAbsolutePath() + " ... ");
                 PreProcessor parser = null;
+                openedFiles.add(incFile.getAbsolutePath());
                 try {
                         //
                         // check how many times this file occurs on the stack to try to
@@ -503,7 +516,7 @@ public class PreProcessor implements PreProcessorConstants {
                                         count++;
                                 }
                                 if (count > 5) {
-                                        Msg.error(this,
+                                        logError(
                                                         "Error: Possible infinite inclusion recursion detected: "
                                                                         + incFile.getAbsolutePath());
                                         Msg.error(this, fileStack);
@@ -530,12 +543,12 @@ public class PreProcessor implements PreProcessorConstants {
                         parser.Input();
                         fileStack.pop();
                 } catch (ParseException e) {
-                        Msg.error(this,
+                        logError(
                                         "PERROR parsing Included File: In " + incFile.getName()
                                                         + ": " + e.getMessage());
                         Msg.error(this, "PreProcessor Parse Error:  " + e.getMessage());
                 } catch (TokenMgrError e) {
-                        Msg.error(this, "ERROR parsing Included File: " + incFile.getName());
+                        logError("ERROR parsing Included File: " + incFile.getName());
                         Msg.error(this, "PreProcessor Token Error:  " + e.getMessage());
                 }
         }
@@ -618,11 +631,16 @@ public class PreProcessor implements PreProcessorConstants {
                         if (fis != null) {
                                 break;
                         }
+                        addMissingIncludePath(pathList.elementAt(i), fn);
                 }
                 if (fis == null) {
                         iFile = new File(fileStack.lastElement());
-                        iFile = getFile(iFile.getParent(), fn, xsym);
+                        String parent = iFile.getParent();
+                        iFile = getFile(parent, fn, xsym);
                         fis = getFIS(iFile);
+                        if (fis == null && parent != null) {
+                                addMissingIncludePath(parent, fn);
+                        }
                 }
                 if (fis == null) {
                         Msg.error(this, "No path to #include " + ft + "\u005cnUse -I option");
@@ -773,7 +791,7 @@ public class PreProcessor implements PreProcessorConstants {
                                         fis = new java.io.FileInputStream(lowerFile);
                         }
                 } catch (FileNotFoundException fene) {
-                        Msg.error(this, fene.getMessage() + " " + iFile);
+                        logError(fene.getMessage() + " " + iFile);
                 }
                 return fis;
         }
@@ -783,6 +801,19 @@ public class PreProcessor implements PreProcessorConstants {
                 files.put(file, Boolean.TRUE);
         }
 
+        // Record that an include file was not found in a directory
+        private void addMissingIncludePath(String parent, String filename) {
+                missingIncludePaths.add(new File(parent, filename).getAbsolutePath());
+                missingIncludePaths.add(new File(parent, filename.toLowerCase())
+                                .getAbsolutePath());
+        }
+
+        // Log an error, and record it so that the parse is known to have failed
+        private void logError(String message) {
+                parseErrors.add(message);
+                Msg.error(this, message);
+        }
+
         // Print String
         private void print(String text) {
                 outputStream.print(text);
@@ -984,6 +1015,7 @@ public class PreProcessor implements PreProcessorConstants {
                                         + " not found.");
                         return;
                 }
+                openedFiles.add(new File(filename).getAbsolutePath());
                 fileStack.push(filename);
                 alreadyDone = new HashMap<String, Integer>();
                 ReInit(fis);
@@ -997,10 +1029,10 @@ public class PreProcessor implements PreProcessorConstants {
                                 }
                         }
                 } catch (ParseException e) {
-                        Msg.error(this, "ERROR parsing: " + filename);
+                        logError("ERROR parsing: " + filename);
                         Msg.error(this, "PreProcessor Parse Error:  " + e.getMessage());
                 } catch (TokenMgrError e) {
-                        Msg.error(this, "ERROR parsing: " + filename);
+                        logError("ERROR parsing: " + filename);
                         Msg.error(this, "PreProcessor Token Error:  " + e.getMessage());
                 }
         }
@@ -1012,6 +1044,9 @@ public class PreProcessor implements PreProcessorConstants {
                 this.defs = parent.defs;
                 this.execStack = parent.execStack;
                 this.files = parent.files;
+                this.openedFiles = parent.openedFiles;
+                this.missingIncludePaths = parent.missingIncludePaths;
+                this.parseErrors = parent.parseErrors;
                 this.fileStack = parent.fileStack;
                 this.ifDepth = parent.ifDepth;
                 this.outputStream = parent.outputStream;
@@ -1115,7 +1150,7 @@ public class PreProcessor implements PreProcessorConstants {
                           if (b==false) break;
     }
         if (conditionDepth!=execStack.size()) {
-            Msg.error(this, "Imbalance in sequence/nesting of compile-time conditions/logic in input file "+curFileStackTop());
+            logError("Imbalance in sequence/nesting of compile-time conditions/logic in input file "+curFileStackTop());
             Msg.error(this, "              " + execStack);
             // pop off conditionals, so we can get back on track
             while (conditionDepth != execStack.size() && execStack.size() > 0) {
@@ -1486,7 +1521,7 @@ public class PreProcessor implements PreProcessorConstants {
       throw new ParseException();
     }
         if (conditionDepth!=execStack.size()) {
-            Msg.error(this, "Imbalance in sequence/nesting of compile-time conditions/logic in included file "+t.image);
+            logError("Imbalance in sequence/nesting of compile-time conditions/logic in included file "+t.image);
             Msg.error(this, "              " + execStack);
             // pop off conditionals, so we can get back on track
             while (conditionDepth != execStack.size() && execStack.size() > 0) {
@@ -1815,7 +1850,7 @@ public class PreProcessor implements PreProcessorConstants {
  Token t;
     t = jj_consume_token(ERROR_EXPRN);
         if (emitExecSwitch==true) {
-            Msg.error(this, curFileStackTop()+"'"+t.beginLine+" Compiler Error:");
+            logError(curFileStackTop()+"'"+t.beginLine+" Compiler Error:");
             Msg.error(this, t.image);
         }
         {if (true) return new PPToken(t);}
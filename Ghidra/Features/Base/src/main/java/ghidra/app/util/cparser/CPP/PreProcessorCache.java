@@ -0,0 +1,325 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.cparser.CPP;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.Entry;
+
+import ghidra.app.util.cparser.CPP.PreProcessor.PPToken;
+import ghidra.util.HashUtilities;
+import ghidra.util.Msg;
+
+/**
+ * Caches the output of the {@link PreProcessor} for each top level file that it parses, so
+ * that parsing the same set of header files again only preprocesses the files that changed.
+ * <p>
+ * A file's cached output is reused when the contents of the file and of every file that it
+ * included are unchanged, no #include file that was not found (or that was found later in the
+ * include path) has since been created, and the defines that were in effect when the file
+ * was parsed are the same.  Output of a file whose parse logged errors is not cached, so
+ * that the errors are reported again.  The defines that the file added, changed or removed are replayed into the
+ * {@link DefineTable} instead of preprocessing the file again.
+ * <p>
+ * Thread-safe, separate {@link PreProcessor}s can use the same cache concurrently.
+ */
+public class PreProcessorCache {
+
+	private static final int MAX_ENTRIES = 1000;
+
+	/**
+	 * Owns the cached tokens, so that they do not keep the PreProcessor that created them
+	 * (and its define table) alive.
+	 */
+	private final PreProcessor tokenOwner;
+
+	private final LinkedHashMap<String, CacheEntry> entries =
+		new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Entry<String, CacheEntry> eldest) {
+				return size() > MAX_ENTRIES;
+			}
+		};
+
+	private final Map<String, FileHash> fileHashes = new HashMap<>();
+
+	public PreProcessorCache() {
+		tokenOwner = new PreProcessor(new ByteArrayInputStream(new byte[0]));
+	}
+
+	/**
+	 * Removes all cached output.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		fileHashes.clear();
+	}
+
+	/**
+	 * Preprocesses a top level file, or replays its cached output and define changes if the
+	 * file, the files it includes and the current defines have not changed since it was
+	 * last preprocessed.
+	 *
+	 * @param cpp the {@link PreProcessor} to parse with
+	 * @param filename the file to parse
+	 * @return true if the cached output was used
+	 */
+	public boolean parse(PreProcessor cpp, String filename) {
+		Map<String, Long> definesBefore = getDefineHashes(cpp.defs);
+		String key = String.join(File.pathSeparator, cpp.pathList) + "|" + filename + "|" +
+			getDefinesHash(definesBefore);
+
+		CacheEntry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+		if (entry != null && isUnchanged(entry)) {
+			Msg.info(this, "Using cached output for " + filename);
+			cpp.outputStream.write(entry.output, 0, entry.output.length);
+			replay(cpp, entry);
+			return true;
+		}
+
+		PrintStream outputStream = cpp.outputStream;
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		cpp.outputStream = new PrintStream(bos);
+		cpp.openedFiles.clear();
+		cpp.missingIncludePaths.clear();
+		cpp.parseErrors.clear();
+		try {
+			cpp.parse(filename);
+		}
+		finally {
+			cpp.outputStream.flush();
+			cpp.outputStream = outputStream;
+		}
+		byte[] output = bos.toByteArray();
+		outputStream.write(output, 0, output.length);
+		if (cpp.openedFiles.isEmpty()) {
+			// the file was not found
+			return false;
+		}
+		if (!cpp.parseErrors.isEmpty()) {
+			return false;
+		}
+
+		entry = new CacheEntry(output);
+		for (String path : cpp.openedFiles) {
+			String md5 = getFileHash(path);
+			if (md5 == null) {
+				return false;
+			}
+			entry.fileHashes.put(path, md5);
+		}
+		entry.missingFiles.addAll(cpp.missingIncludePaths);
+		recordChanges(cpp.defs, definesBefore, entry);
+		synchronized (this) {
+			entries.put(key, entry);
+		}
+		return false;
+	}
+
+	private boolean isUnchanged(CacheEntry entry) {
+		for (Entry<String, String> fileHash : entry.fileHashes.entrySet()) {
+			if (!fileHash.getValue().equals(getFileHash(fileHash.getKey()))) {
+				return false;
+			}
+		}
+		for (String path : entry.missingFiles) {
+			if (new File(path).exists()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records the final state of every define that was added, changed or removed while the
+	 * file was parsed.
+	 */
+	private void recordChanges(DefineTable defs, Map<String, Long> definesBefore,
+			CacheEntry entry) {
+		Map<String, Long> definesAfter = getDefineHashes(defs);
+		for (Entry<String, Long> define : definesAfter.entrySet()) {
+			if (!define.getValue().equals(definesBefore.get(define.getKey()))) {
+				String name = define.getKey();
+				entry.changes.put(name,
+					new DefineState(copy(tokenOwner, defs.defs.get(name)),
+						copy(tokenOwner, defs.args.get(name))));
+			}
+		}
+		for (String name : definesBefore.keySet()) {
+			if (!definesAfter.containsKey(name)) {
+				entry.changes.put(name, new DefineState(null, null));
+			}
+		}
+	}
+
+	private void replay(PreProcessor cpp, CacheEntry entry) {
+		DefineTable defs = cpp.defs;
+		for (Entry<String, DefineState> change : entry.changes.entrySet()) {
+			String name = change.getKey();
+			DefineState state = change.getValue();
+			if (state.token != null) {
+				defs.put(name, copy(cpp, state.token));
+			}
+			else if (defs.containsKey(name)) {
+				defs.remove(name);
+			}
+			if (state.args != null) {
+				defs.putArg(name, copy(cpp, state.args));
+			}
+			else {
+				defs.removeArg(name);
+			}
+		}
+	}
+
+	private static PPToken copy(PreProcessor owner, PPToken token) {
+		if (token == null) {
+			return null;
+		}
+		PPToken copy = owner.new PPToken(token);
+		copy.setPath(token.getPath());
+		return copy;
+	}
+
+	private static Vector<PPToken> copy(PreProcessor owner, Vector<PPToken> args) {
+		if (args == null) {
+			return null;
+		}
+		Vector<PPToken> copy = new Vector<>(args.size());
+		for (PPToken arg : args) {
+			copy.add(copy(owner, arg));
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns a hash of each define's value and macro arguments, by define name.
+	 */
+	private static Map<String, Long> getDefineHashes(DefineTable defs) {
+		Map<String, Long> hashes = new HashMap<>(defs.defs.size() + defs.args.size());
+		for (String name : defs.defs.keySet()) {
+			hashes.put(name, hash(name, defs.defs.get(name), defs.args.get(name)));
+		}
+		for (String name : defs.args.keySet()) {
+			if (!hashes.containsKey(name)) {
+				hashes.put(name, hash(name, null, defs.args.get(name)));
+			}
+		}
+		return hashes;
+	}
+
+	private static long getDefinesHash(Map<String, Long> defineHashes) {
+		long hash = defineHashes.size();
+		for (long defineHash : defineHashes.values()) {
+			hash += defineHash;
+		}
+		return hash;
+	}
+
+	private static long hash(String name, PPToken token, Vector<PPToken> args) {
+		long h = name.hashCode();
+		h = h * 31 + (token != null ? hash(token) : -1);
+		if (args != null) {
+			for (PPToken arg : args) {
+				h = h * 31 + hash(arg);
+			}
+		}
+		// finalizer from MurmurHash3, spreads the bits before the hashes are summed
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static long hash(PPToken token) {
+		long h = (token.image != null) ? token.image.hashCode() : 0;
+		h = h * 31 + token.kind;
+		String path = token.getPath();
+		return h * 31 + ((path != null) ? path.hashCode() : 0);
+	}
+
+	/**
+	 * Returns the md5 of a file's contents, only reading the file again if its timestamp or
+	 * length changed.
+	 */
+	private String getFileHash(String path) {
+		File file = new File(path);
+		long lastModified = file.lastModified();
+		long length = file.length();
+		FileHash fileHash;
+		synchronized (this) {
+			fileHash = fileHashes.get(path);
+		}
+		if (fileHash != null && fileHash.lastModified == lastModified &&
+			fileHash.length == length) {
+			return fileHash.md5;
+		}
+		String md5;
+		try {
+			md5 = HashUtilities.getHash(HashUtilities.MD5_ALGORITHM, file);
+		}
+		catch (IOException e) {
+			md5 = null;
+		}
+		synchronized (this) {
+			if (md5 != null) {
+				fileHashes.put(path, new FileHash(lastModified, length, md5));
+			}
+			else {
+				fileHashes.remove(path);
+			}
+		}
+		return md5;
+	}
+
+	private static class CacheEntry {
+		final byte[] output;
+		final Map<String, String> fileHashes = new HashMap<>();
+		final Set<String> missingFiles = new HashSet<>();
+		final Map<String, DefineState> changes = new HashMap<>();
+
+		CacheEntry(byte[] output) {
+			this.output = output;
+		}
+	}
+
+	private static class DefineState {
+		final PPToken token;
+		final Vector<PPToken> args;
+
+		DefineState(PPToken token, Vector<PPToken> args) {
+			this.token = token;
+			this.args = args;
+		}
+	}
+
+	private static class FileHash {
+		final long lastModified;
+		final long length;
+		final String md5;
+
+		FileHash(long lastModified, long length, String md5) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.md5 = md5;
+		}
+	}
+}
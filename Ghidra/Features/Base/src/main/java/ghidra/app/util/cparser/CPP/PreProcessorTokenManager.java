@@ -8,7 +8,7 @@ import java.math.BigInteger;
 /** Token Manager. */
 public class PreProcessorTokenManager implements PreProcessorConstants
 {
-    static int parenNesting = 0;
+    int parenNesting = 0;
 
   /** Debug output. */
   public  java.io.PrintStream debugStream = System.out;
@@ -275,6 +275,9 @@ public class AnalyzeHeadless implements GhidraLaunchable {
 			else if ("-analysisTimeoutPerFile".equalsIgnoreCase(args[argi])) {
 				options.setPerFileAnalysisTimeout(args[++argi]);
 			}
+			else if (checkArgument("-analysisStats", args, argi)) {
+				options.setAnalysisStatisticsFile(new File(args[++argi]));
+			}
 			else if ("-process".equals(args[argi])) {
 				if (options.runScriptsNoImport) {
 					throw new InvalidInputException(
@@ -422,6 +425,7 @@ public class AnalyzeHeadless implements GhidraLaunchable {
 		System.out.println("           [-processor <languageID>]");
 		System.out.println("           [-cspec <compilerSpecID>]");
 		System.out.println("           [-analysisTimeoutPerFile <timeout in seconds>]");
+		System.out.println("           [-analysisStats <path to statistics file>]");
 		System.out.println("           [-keystore <KeystorePath>]");
 		System.out.println("           [-connect <userID>]");
 		System.out.println("           [-p]");
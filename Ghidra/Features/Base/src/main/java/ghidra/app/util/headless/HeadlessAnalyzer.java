@@ -1051,6 +1051,7 @@ public class HeadlessAnalyzer {
 						GhidraProgramUtilities.setAnalyzedFlag(program, true);
 					}
 				}
+				writeAnalysisStatistics(mgr);
 			}
 		}
 		finally {
@@ -1100,6 +1101,7 @@ public class HeadlessAnalyzer {
 				finally {
 					program.endTransaction(txId, true);
 				}
+				writeAnalysisStatistics(mgr);
 				Msg.info(this, "REPORT: Post-analysis succeeded for file: " + fileAbsolutePath);
 			}
 
@@ -1108,6 +1110,26 @@ public class HeadlessAnalyzer {
 		return !deleteProgram;
 	}
 
+	/**
+	 * Append the per-analyzer statistics of the last analysis run to the analysis
+	 * statistics file as a single line of JSON, if a statistics file was specified.
+	 * 
+	 * @param mgr the analysis manager which just completed analysis
+	 */
+	private void writeAnalysisStatistics(AutoAnalysisManager mgr) {
+		if (options.analysisStatsFile == null) {
+			return;
+		}
+		try (Writer writer = new BufferedWriter(new FileWriter(options.analysisStatsFile, true))) {
+			writer.write(mgr.getTaskStatisticsJson());
+			writer.write('\n');
+		}
+		catch (IOException e) {
+			Msg.error(this, "Failed to write analysis statistics to " +
+				options.analysisStatsFile.getAbsolutePath() + ": " + e.getMessage());
+		}
+	}
+
 	private void processFileNoImport(DomainFile domFile) throws IOException {
 
 		if (domFile.isHijacked()) {
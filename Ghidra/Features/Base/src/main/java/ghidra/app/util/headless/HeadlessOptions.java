@@ -15,6 +15,7 @@
  */
 package ghidra.app.util.headless;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -80,6 +81,9 @@ public class HeadlessOptions {
 	// -analysisTimeoutPerFile
 	int perFileTimeout;
 
+	// -analysisStats
+	File analysisStatsFile;
+
 	// -keystore
 	String keystore;
 
@@ -133,6 +137,7 @@ public class HeadlessOptions {
 		language = null;
 		compilerSpec = null;
 		perFileTimeout = -1;
+		analysisStatsFile = null;
 		keystore = null;
 		connectUserID = null;
 		allowPasswordPrompt = false;
@@ -421,6 +426,16 @@ public class HeadlessOptions {
 	public synchronized void setPerFileAnalysisTimeout(int secs) {
 		perFileTimeout = secs;
 	}
+
+	/**
+	 * Set the file to which per-analyzer statistics are appended after each program is
+	 * analyzed.  Each analysis run appends a single line containing a JSON object.
+	 * 
+	 * @param statsFile statistics output file, or null to disable statistics output
+	 */
+	public synchronized void setAnalysisStatisticsFile(File statsFile) {
+		analysisStatsFile = statsFile;
+	}
 	
 	/**
 	 * Set Ghidra Server client credentials to be used with "shared" projects.
@@ -0,0 +1,132 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.opinion;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import ghidra.app.util.bin.*;
+import ghidra.formats.gfilesystem.FSRL;
+
+/**
+ * A {@link ByteProvider} that reads the first bytes of another provider once, and shares
+ * them between the {@link Loader}s that are probing the provider concurrently.
+ * <p>
+ * Reads beyond the cached header are passed to the wrapped provider, synchronized on it
+ * unless it is already thread-safe.  Closing this provider does not close the wrapped
+ * provider.
+ */
+class HeaderCachingByteProvider implements ByteProvider {
+	private final ByteProvider provider;
+	private final byte[] header;
+	private final long length;
+	private final boolean isThreadSafe;
+
+	/**
+	 * Creates a provider that caches the first bytes of the specified provider.
+	 *
+	 * @param provider {@link ByteProvider} to wrap
+	 * @param headerSize number of bytes to cache
+	 * @throws IOException if error reading the header
+	 */
+	HeaderCachingByteProvider(ByteProvider provider, int headerSize) throws IOException {
+		this.provider = provider;
+		this.length = provider.length();
+		this.header = provider.readBytes(0, Math.min(length, headerSize));
+		this.isThreadSafe =
+			provider instanceof SynchronizedByteProvider || provider instanceof ByteArrayProvider;
+	}
+
+	@Override
+	public FSRL getFSRL() {
+		return provider.getFSRL();
+	}
+
+	@Override
+	public File getFile() {
+		return provider.getFile();
+	}
+
+	@Override
+	public String getName() {
+		return provider.getName();
+	}
+
+	@Override
+	public String getAbsolutePath() {
+		return provider.getAbsolutePath();
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public boolean isValidIndex(long index) {
+		if (index >= 0 && index < header.length) {
+			return true;
+		}
+		if (isThreadSafe) {
+			return provider.isValidIndex(index);
+		}
+		synchronized (provider) {
+			return provider.isValidIndex(index);
+		}
+	}
+
+	@Override
+	public void close() {
+		// the wrapped provider is owned by the caller
+	}
+
+	@Override
+	public byte readByte(long index) throws IOException {
+		if (index >= 0 && index < header.length) {
+			return header[(int) index];
+		}
+		if (isThreadSafe) {
+			return provider.readByte(index);
+		}
+		synchronized (provider) {
+			return provider.readByte(index);
+		}
+	}
+
+	@Override
+	public byte[] readBytes(long index, long count) throws IOException {
+		if (index >= 0 && count >= 0 && index + count <= header.length) {
+			return Arrays.copyOfRange(header, (int) index, (int) (index + count));
+		}
+		if (isThreadSafe) {
+			return provider.readBytes(index, count);
+		}
+		synchronized (provider) {
+			return provider.readBytes(index, count);
+		}
+	}
+
+	@Override
+	public InputStream getInputStream(long index) throws IOException {
+		if (isThreadSafe || provider instanceof RandomAccessByteProvider) {
+			// these streams do not share any state with the wrapped provider
+			return provider.getInputStream(index);
+		}
+		return new ByteProviderInputStream(this, index, length - index);
+	}
+}
@@ -17,9 +17,12 @@ package ghidra.app.util.opinion;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import generic.concurrent.*;
 import ghidra.app.util.bin.ByteProvider;
 import ghidra.util.Msg;
 import ghidra.util.classfinder.ClassSearcher;
@@ -31,8 +34,21 @@ public class LoaderService {
 
 	public static Predicate<Loader> ACCEPT_ALL = loader -> true;
 
+	private static final String THREAD_POOL_NAME = "Loader Probe";
+
+	/**
+	 * Number of bytes at the start of the file that are read once and shared by all the
+	 * {@link Loader}s that probe it.
+	 */
+	private static final int HEADER_CACHE_SIZE = 64 * 1024;
+
+	private static final Map<String, LongAdder> probeNanosByLoader = new ConcurrentHashMap<>();
+
 	/**
 	 * Gets all supported {@link LoadSpec}s for loading the given {@link ByteProvider}.
+	 * <p>
+	 * The {@link Loader}s probe the {@link ByteProvider} concurrently, sharing a single
+	 * read of the start of the file.
 	 * 
 	 * @param provider The {@link ByteProvider} to load.
 	 * @param loaderFilter A {@link Predicate} that will filter out undesired {@link Loader}s.
@@ -42,25 +58,110 @@ public class LoaderService {
 	 */
 	public static Map<Loader, Collection<LoadSpec>> getSupportedLoadSpecs(ByteProvider provider,
 			Predicate<Loader> loaderFilter) {
-		Map<Loader, Collection<LoadSpec>> loadMap = new LinkedHashMap<>(); // maintain loader order
+		List<Loader> loaders = new ArrayList<>();
 		for (Loader loader : getAllLoaders()) {
 			if (loaderFilter.test(loader)) {
+				loaders.add(loader);
+			}
+		}
+
+		Map<Loader, Collection<LoadSpec>> specsByLoader;
+		try {
+			ByteProvider probeProvider = new HeaderCachingByteProvider(provider, HEADER_CACHE_SIZE);
+			specsByLoader = probeConcurrently(loaders, probeProvider);
+		}
+		catch (IOException e) {
+			// can't read the header, so let each loader decide for itself
+			specsByLoader = new IdentityHashMap<>();
+			for (Loader loader : loaders) {
+				specsByLoader.put(loader, findSupportedLoadSpecs(loader, provider));
+			}
+		}
+
+		Map<Loader, Collection<LoadSpec>> loadMap = new LinkedHashMap<>(); // maintain loader order
+		for (Loader loader : loaders) {
+			Collection<LoadSpec> loadSpecs = specsByLoader.get(loader);
+			if (loadSpecs != null && !loadSpecs.isEmpty()) { // shouldn't be null, but protect against rogue loaders
+				loadMap.put(loader, loadSpecs);
+			}
+		}
+		return loadMap;
+	}
+
+	private static Map<Loader, Collection<LoadSpec>> probeConcurrently(List<Loader> loaders,
+			ByteProvider provider) {
+		QCallback<Loader, Collection<LoadSpec>> callback =
+			(loader, monitor) -> findSupportedLoadSpecs(loader, provider);
+
+		// @formatter:off
+		ConcurrentQ<Loader, Collection<LoadSpec>> queue =
+			new ConcurrentQBuilder<Loader, Collection<LoadSpec>>()
+				.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+				.setCollectResults(true)
+				.build(callback);
+		// @formatter:on
+
+		Map<Loader, Collection<LoadSpec>> specsByLoader = new IdentityHashMap<>();
+		try {
+			queue.add(loaders);
+			for (QResult<Loader, Collection<LoadSpec>> result : queue.waitForResults()) {
 				try {
-					Collection<LoadSpec> loadSpecs = loader.findSupportedLoadSpecs(provider);
-					if (loadSpecs != null && !loadSpecs.isEmpty()) { // shouldn't be null, but protect against rogue loaders
-						loadMap.put(loader, loadSpecs);
-					}
-				}
-				catch (IOException e) {
-					// file not applicable for loader
+					specsByLoader.put(result.getItem(), result.getResult());
 				}
-				catch (RuntimeException e) {
+				catch (Exception e) {
 					Msg.error(LoaderService.class,
-						"Unexpected Loader exception from " + loader.getName(), e);
+						"Unexpected Loader exception from " + result.getItem().getName(), e);
 				}
 			}
 		}
-		return loadMap;
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			queue.dispose();
+		}
+		return specsByLoader;
+	}
+
+	private static Collection<LoadSpec> findSupportedLoadSpecs(Loader loader,
+			ByteProvider provider) {
+		long start = System.nanoTime();
+		try {
+			return loader.findSupportedLoadSpecs(provider);
+		}
+		catch (IOException e) {
+			// file not applicable for loader
+		}
+		catch (RuntimeException e) {
+			Msg.error(LoaderService.class,
+				"Unexpected Loader exception from " + loader.getName(), e);
+		}
+		finally {
+			probeNanosByLoader.computeIfAbsent(loader.getName(), name -> new LongAdder())
+					.add(System.nanoTime() - start);
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the total time each {@link Loader} has spent probing files for supported
+	 * {@link LoadSpec}s, for diagnosing slow imports.
+	 * 
+	 * @return A {@link Map} of {@link Loader} names to their total probe times in milliseconds,
+	 *   sorted by name.
+	 */
+	public static Map<String, Long> getLoaderProbeTimes() {
+		Map<String, Long> probeTimes = new TreeMap<>();
+		probeNanosByLoader.forEach(
+			(name, nanos) -> probeTimes.put(name, nanos.sum() / 1_000_000));
+		return probeTimes;
+	}
+
+	/**
+	 * Resets the times returned by {@link #getLoaderProbeTimes()}.
+	 */
+	public static void clearLoaderProbeTimes() {
+		probeNanosByLoader.clear();
 	}
 
 	/**
@@ -15,16 +15,19 @@
  */
 package ghidra.formats.gfilesystem;
 
+import java.io.IOException;
+import java.io.InputStream;
+
+import ghidra.app.util.bin.ByteProvider;
 import ghidra.util.exception.CancelledException;
 import ghidra.util.task.TaskMonitor;
 
-import java.io.*;
-
 /**
  * Used by {@link FileSystemService#getDerivedFile(FSRL, String, DerivedFileProducer, TaskMonitor)}
  * to produce a derived file from a source file.
  * <p>
- * The {@link InputStream} returned from the method will be closed by the caller.
+ * The {@link InputStream} returned from the method will be closed by the caller, followed
+ * by the source file's {@link ByteProvider}.
  */
 public interface DerivedFileProducer {
 
@@ -35,10 +38,12 @@ public interface DerivedFileProducer {
 	 * The implementation needs to return an {@link InputStream} that contains the bytes
 	 * of the derived file.
 	 * <p>
-	 * @param srcFile {@link File} location of the source file (usually in the file cache)
+	 * @param srcProvider {@link ByteProvider} with the bytes of the source file (usually in
+	 * the file cache, either on disk or in memory)
 	 * @return a new {@link InputStream} that will produce all the bytes of the derived file.
 	 * @throws IOException if there is a problem while producing the InputStream.
 	 * @throws CancelledException if the user canceled.
 	 */
-	public InputStream produceDerivedStream(File srcFile) throws IOException, CancelledException;
+	public InputStream produceDerivedStream(ByteProvider srcProvider)
+			throws IOException, CancelledException;
 }
@@ -16,9 +16,9 @@
 package ghidra.formats.gfilesystem;
 
 import java.io.*;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Date;
-import java.util.UUID;
+import java.util.*;
 import java.util.regex.Pattern;
 
 import ghidra.formats.gfilesystem.FSUtilities.StreamCopyResult;
@@ -44,7 +44,13 @@ import utilities.util.FileUtilities;
  * <p>
  * Cache maint is done during startup if interval since last maint has been exceeded
  * <p>
- * No file data is maintained in memory.
+ * Small files can be added to an in-memory tier instead (see
+ * {@link #addStream(InputStream, boolean, TaskMonitor)} and
+ * {@link #pushStream(DerivedFilePushProducer, boolean, TaskMonitor)}), which is bounded in
+ * size and evicts the least recently used files.  Evicted files are not written to disk, and
+ * need to be re-added.  Files too large for the in-memory tier are written to disk.  A file
+ * that is written to disk on request (see {@link #writeToDisk(FileCacheEntry)}) is removed
+ * from the in-memory tier so that it is only stored once.
  * <p>
  * No file is moved or removed from the cache after being added (except during startup)
  * as there is no use count or reference tracking of the files.
@@ -59,6 +65,8 @@ public class FileCache {
 	private static final int NESTING_LEVEL = 2;
 	private static final long MAX_FILE_AGE_MS = DateUtils.MS_PER_DAY;
 	private static final long MAINT_INTERVAL_MS = DateUtils.MS_PER_DAY * 2;
+	private static final int MAX_MEMORY_FILE_SIZE = 1024 * 1024;
+	private static final long MAX_MEMORY_CACHE_SIZE = 64 * 1024 * 1024;
 
 	private final File cacheDir;
 	private final File newDir;
@@ -69,6 +77,12 @@ public class FileCache {
 	private long storageEstimateBytes;
 	private long lastMaintTS;
 
+	/**
+	 * In-memory tier, md5 to file contents, in least recently used order.
+	 */
+	private final LinkedHashMap<String, byte[]> memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryCacheBytes;
+
 	/**
 	 * Creates a new {@link FileCache} instance where files are stored under the specified
 	 * {@code cacheDir}
@@ -95,6 +109,8 @@ public class FileCache {
 	 * Will cause other processes which are accessing or updating the cache to error.
 	 */
 	public synchronized void purge() {
+		memoryCache.clear();
+		memoryCacheBytes = 0;
 		for (File f : cacheDir.listFiles()) {
 			String name = f.getName();
 			if (f.isDirectory() && NESTING_DIR_NAME_REGEX.matcher(name).matches()) {
@@ -124,12 +140,49 @@ public class FileCache {
 	 * NULL if there is no matching file.
 	 * <p>
 	 * Tweaks the file's last modified time to implement a LRU.
+	 * <p>
+	 * A file that is only in the in-memory tier is moved to disk first.
 	 *
 	 * @param md5 md5 string.
 	 * @return {@link FileCacheEntry} with a File and it's md5 string or {@code null} if no
 	 * matching file exists in cache.
 	 */
 	public FileCacheEntry getFile(String md5) {
+		FileCacheEntry cfi = getFileByMD5(md5);
+		if (cfi != null) {
+			cfi.file.setLastModified(System.currentTimeMillis());
+			return cfi;
+		}
+		byte[] bytes;
+		synchronized (this) {
+			bytes = memoryCache.get(md5);
+		}
+		if (bytes != null) {
+			try {
+				return writeToDisk(new FileCacheEntry(bytes, md5));
+			}
+			catch (IOException e) {
+				Msg.error(this, "Failed to write cached file " + md5 + " to disk", e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a {@link FileCacheEntry} for the matching file, based on its MD5, from either
+	 * the in-memory tier or the disk, or NULL if there is no matching file.
+	 *
+	 * @param md5 md5 string.
+	 * @return {@link FileCacheEntry} with either the bytes or the File of the matching file,
+	 * or {@code null} if no matching file exists in cache.
+	 */
+	public FileCacheEntry getEntry(String md5) {
+		synchronized (this) {
+			byte[] bytes = memoryCache.get(md5);
+			if (bytes != null) {
+				return new FileCacheEntry(bytes, md5);
+			}
+		}
 		FileCacheEntry cfi = getFileByMD5(md5);
 		if (cfi != null) {
 			cfi.file.setLastModified(System.currentTimeMillis());
@@ -137,6 +190,38 @@ public class FileCache {
 		return cfi;
 	}
 
+	/**
+	 * Returns a {@link FileCacheEntry} for the same file as the specified entry that has a
+	 * {@link File}, moving the file's bytes from the in-memory tier to disk if needed.
+	 *
+	 * @param fce {@link FileCacheEntry} with either a File or bytes
+	 * @return {@link FileCacheEntry} with a File, never null
+	 * @throws IOException if error writing the file
+	 */
+	public FileCacheEntry writeToDisk(FileCacheEntry fce) throws IOException {
+		if (fce.file != null) {
+			return fce;
+		}
+		File tmpFile = new File(newDir, UUID.randomUUID().toString());
+		try {
+			FileUtilities.writeBytes(tmpFile, fce.bytes);
+			FileCacheEntry result = addTmpFileToCache(tmpFile, fce.md5, fce.bytes.length);
+			synchronized (this) {
+				byte[] bytes = memoryCache.remove(fce.md5);
+				if (bytes != null) {
+					memoryCacheBytes -= bytes.length;
+				}
+			}
+			return result;
+		}
+		finally {
+			if (tmpFile.exists()) {
+				Msg.debug(this, "Removing left-over temp file " + tmpFile);
+				tmpFile.delete();
+			}
+		}
+	}
+
 	/**
 	 * Get a file (by md5) from the cache, returns NULL if not found.
 	 * <p>
@@ -253,6 +338,71 @@ public class FileCache {
 		}
 	}
 
+	/**
+	 * Adds a contents of a stream to the cache, returning the md5 identifier of the stream.
+	 * <p>
+	 * If {@code allowInMemory} is true and the stream is small enough, its contents are
+	 * kept in the in-memory tier instead of being written to disk, and the returned
+	 * {@link FileCacheEntry} will have bytes instead of a File.
+	 *
+	 * @param is {@link InputStream} to add to the cache.  Not closed when done.
+	 * @param allowInMemory true if a small stream can be kept in memory
+	 * @param monitor {@link TaskMonitor} that will be checked for canceling and updating progress.
+	 * @return {@link FileCacheEntry} with file or bytes and md5, never null.
+	 * @throws IOException if error
+	 * @throws CancelledException if canceled
+	 */
+	public FileCacheEntry addStream(InputStream is, boolean allowInMemory, TaskMonitor monitor)
+			throws IOException, CancelledException {
+		if (allowInMemory) {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			byte buffer[] = new byte[FileUtilities.IO_BUFFER_SIZE];
+			int bytesRead;
+			while (baos.size() <= MAX_MEMORY_FILE_SIZE && (bytesRead = is.read(buffer)) > 0) {
+				baos.write(buffer, 0, bytesRead);
+				monitor.setProgress(baos.size());
+				monitor.checkCanceled();
+			}
+			if (baos.size() <= MAX_MEMORY_FILE_SIZE) {
+				return addBytes(baos.toByteArray());
+			}
+			// too large, spill what was read so far and the rest of the stream to disk
+			is = new SequenceInputStream(new ByteArrayInputStream(baos.toByteArray()), is);
+		}
+		return addStream(is, monitor);
+	}
+
+	private FileCacheEntry addBytes(byte[] bytes) throws IOException {
+		String md5;
+		try {
+			md5 = NumericUtilities.convertBytesToString(
+				MessageDigest.getInstance("MD5").digest(bytes));
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException("Error getting MD5 algo", e);
+		}
+
+		synchronized (this) {
+			fileAddCount++;
+			byte[] prevBytes = memoryCache.get(md5);
+			if (prevBytes != null) {
+				fileReUseCount++;
+				return new FileCacheEntry(prevBytes, md5);
+			}
+			memoryCache.put(md5, bytes);
+			memoryCacheBytes += bytes.length;
+			Iterator<byte[]> it = memoryCache.values().iterator();
+			while (memoryCacheBytes > MAX_MEMORY_CACHE_SIZE && it.hasNext()) {
+				byte[] evictedBytes = it.next();
+				if (evictedBytes != bytes) {
+					memoryCacheBytes -= evictedBytes.length;
+					it.remove();
+				}
+			}
+		}
+		return new FileCacheEntry(bytes, md5);
+	}
+
 	/**
 	 * Adds a file to the cache, using a 'pusher' strategy where the producer is given a
 	 * {@link OutputStream} to write to.
@@ -300,6 +450,97 @@ public class FileCache {
 
 	}
 
+	/**
+	 * Adds a file to the cache, using a 'pusher' strategy where the producer is given a
+	 * {@link OutputStream} to write to.
+	 * <p>
+	 * If {@code allowInMemory} is true and the pushed file is small enough, its contents are
+	 * kept in the in-memory tier instead of being written to disk, and the returned
+	 * {@link FileCacheEntry} will have bytes instead of a File.
+	 *
+	 * @param pusher functional callback that will accept an {@link OutputStream} and write
+	 * to it.
+	 * @param allowInMemory true if a small file can be kept in memory
+	 * @param monitor {@link TaskMonitor} that will be checked for cancel and updated with
+	 * file io progress.
+	 * @return a new {@link FileCacheEntry} with the newly added file's File or bytes and MD5,
+	 * never null.
+	 * @throws IOException if an IO error
+	 * @throws CancelledException if the user cancels
+	 */
+	public FileCacheEntry pushStream(DerivedFilePushProducer pusher, boolean allowInMemory,
+			TaskMonitor monitor) throws IOException, CancelledException {
+		if (!allowInMemory) {
+			return pushStream(pusher, monitor);
+		}
+		SpillingOutputStream sos = new SpillingOutputStream();
+		try {
+			pusher.push(sos);
+			// close so the temp file, if any, can be renamed/moved on the filesystem
+			sos.close();
+
+			if (sos.tmpFile == null) {
+				return addBytes(sos.baos.toByteArray());
+			}
+			String md5 = NumericUtilities.convertBytesToString(sos.hos.getDigest());
+			return addTmpFileToCache(sos.tmpFile, md5, sos.tmpFile.length());
+		}
+		catch (Throwable th) {
+			throw new IOException("Error while pushing stream into cache", th);
+		}
+		finally {
+			sos.close();
+			if (sos.tmpFile != null && sos.tmpFile.exists()) {
+				Msg.debug(this, "Removing left-over temp file " + sos.tmpFile);
+				sos.tmpFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * {@link OutputStream} that keeps up to {@link #MAX_MEMORY_FILE_SIZE} bytes in memory,
+	 * and writes all bytes to a temp file in the cacheDir/new directory once more are
+	 * written.
+	 */
+	private class SpillingOutputStream extends OutputStream {
+		private ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		private File tmpFile;
+		private HashingOutputStream hos;
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (hos == null && baos.size() + len > MAX_MEMORY_FILE_SIZE) {
+				tmpFile = new File(newDir, UUID.randomUUID().toString());
+				try {
+					hos = new HashingOutputStream(new FileOutputStream(tmpFile), "MD5");
+				}
+				catch (NoSuchAlgorithmException e) {
+					throw new IOException("Error getting MD5 algo", e);
+				}
+				baos.writeTo(hos);
+				baos = null;
+			}
+			if (hos != null) {
+				hos.write(b, off, len);
+			}
+			else {
+				baos.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (hos != null) {
+				hos.close();
+			}
+		}
+	}
+
 	/**
 	 * Adds a File to this cache, consuming the file.
 	 * <p>
@@ -376,7 +617,8 @@ public class FileCache {
 	@Override
 	public String toString() {
 		return "FileCache [cacheDir=" + cacheDir + ", fileAddCount=" + fileAddCount +
-			", storageEstimateBytes=" + storageEstimateBytes + ", lastMaintTS=" + lastMaintTS + "]";
+			", storageEstimateBytes=" + storageEstimateBytes + ", memoryCacheBytes=" +
+			memoryCacheBytes + ", lastMaintTS=" + lastMaintTS + "]";
 	}
 
 	/**
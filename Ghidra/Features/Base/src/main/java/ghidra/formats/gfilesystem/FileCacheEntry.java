@@ -15,18 +15,46 @@
  */
 package ghidra.formats.gfilesystem;
 
-import java.io.File;
+import java.io.*;
 
 /**
  * Simple class that contains a {@link File} and its MD5 string.
+ * <p>
+ * Small files that are only cached in memory have their contents in {@link #bytes} instead,
+ * and a null {@link #file}.
  */
 public class FileCacheEntry {
 
 	public String md5;
 	public File file;
+	public byte[] bytes;
 
 	public FileCacheEntry(File file, String md5) {
 		this.file = file;
 		this.md5 = md5;
 	}
+
+	public FileCacheEntry(byte[] bytes, String md5) {
+		this.bytes = bytes;
+		this.md5 = md5;
+	}
+
+	/**
+	 * Returns the length of the cached file.
+	 *
+	 * @return length of the cached file in bytes
+	 */
+	public long length() {
+		return (bytes != null) ? bytes.length : file.length();
+	}
+
+	/**
+	 * Returns a new {@link InputStream} that reads the contents of the cached file.
+	 *
+	 * @return new {@link InputStream}, which the caller is responsible for closing
+	 * @throws IOException if error opening the file
+	 */
+	public InputStream getInputStream() throws IOException {
+		return (bytes != null) ? new ByteArrayInputStream(bytes) : new FileInputStream(file);
+	}
 }
@@ -16,13 +16,14 @@
 package ghidra.formats.gfilesystem;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A helper class used by GFilesystem implementors to track mappings between GFile
  * instances and the underlying container filesystem's native file objects.
  * <p>
- * Threadsafe after initial use of {@link #storeFile(String, int, boolean, long, Object) storeFile()}
- * by the owning filesystem.
+ * Threadsafe.  Files can be stored from several threads while the container is being
+ * indexed, and lookups do not block while more files are being stored.
  * <p>
  * This class also provides filename 'unique-ifying' (per directory) where an auto-incrementing
  * number will be added to a file's filename if it is not unique in the directory.
@@ -35,7 +36,7 @@ public class FileSystemIndexHelper<METADATATYPE> {
 	private GFile rootDir;
 
 	protected Map<GFile, METADATATYPE> fileToEntryMap = new HashMap<>();
-	protected Map<GFile, Map<String, GFile>> directoryToListing = new HashMap<>();
+	protected Map<GFile, Map<String, GFile>> directoryToListing = new ConcurrentHashMap<>();
 
 	/**
 	 * Creates a new {@link FileSystemIndexHelper} for the specified {@link GFileSystem}.
@@ -63,7 +64,7 @@ public class FileSystemIndexHelper<METADATATYPE> {
 	/**
 	 * Removes all file info from this index.
 	 */
-	public void clear() {
+	public synchronized void clear() {
 		fileToEntryMap.clear();
 		directoryToListing.clear();
 	}
@@ -73,7 +74,7 @@ public class FileSystemIndexHelper<METADATATYPE> {
 	 *
 	 * @return number of file in this index.
 	 */
-	public int getFileCount() {
+	public synchronized int getFileCount() {
 		return fileToEntryMap.size();
 	}
 
@@ -83,7 +84,7 @@ public class FileSystemIndexHelper<METADATATYPE> {
 	 * @param f {@link GFile} to look for.
 	 * @return Filesystem specific blob associated with the specified file, or null if not found.
 	 */
-	public METADATATYPE getMetadata(GFile f) {
+	public synchronized METADATATYPE getMetadata(GFile f) {
 		return fileToEntryMap.get(f);
 	}
 
@@ -143,8 +144,8 @@ public class FileSystemIndexHelper<METADATATYPE> {
 	 * GFile instance.
 	 * @return new GFile instance.
 	 */
-	public GFileImpl storeFile(String path, int fileIndex, boolean isDirectory, long length,
-			METADATATYPE fileInfo) {
+	public synchronized GFileImpl storeFile(String path, int fileIndex, boolean isDirectory,
+			long length, METADATATYPE fileInfo) {
 
 		String[] nameparts = path.replaceAll("[\\\\]", "/").split("/");
 		GFile parent = lookupParent(nameparts);
@@ -186,7 +187,7 @@ public class FileSystemIndexHelper<METADATATYPE> {
 	 * GFile instance.
 	 * @return new GFile instance.
 	 */
-	public GFile storeFileWithParent(String filename, GFile parent, int fileIndex,
+	public synchronized GFile storeFileWithParent(String filename, GFile parent, int fileIndex,
 			boolean isDirectory, long length, METADATATYPE fileInfo) {
 		parent = (parent == null) ? rootDir : parent;
 		int fileNum = (fileIndex != -1) ? fileIndex : fileToEntryMap.size();
@@ -216,13 +217,11 @@ public class FileSystemIndexHelper<METADATATYPE> {
 			boolean createIfMissing) {
 		directoryFile = (directoryFile != null) ? directoryFile : rootDir;
 
-		Map<String, GFile> dirContents = directoryToListing.get(directoryFile);
-		if (dirContents == null && createIfMissing) {
-			dirContents = new HashMap<>();
-			directoryToListing.put(directoryFile, dirContents);
+		if (createIfMissing) {
+			return directoryToListing.computeIfAbsent(directoryFile,
+				dir -> new ConcurrentHashMap<>());
 		}
-
-		return dirContents;
+		return directoryToListing.get(directoryFile);
 	}
 
 	/**
@@ -239,7 +238,7 @@ public class FileSystemIndexHelper<METADATATYPE> {
 	 * @param nameparts
 	 * @return
 	 */
-	protected GFile lookupParent(String[] nameparts) {
+	protected synchronized GFile lookupParent(String[] nameparts) {
 
 		GFile currentDir = rootDir;
 		GFile currentFile = rootDir;
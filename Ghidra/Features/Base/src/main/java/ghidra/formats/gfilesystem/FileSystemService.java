@@ -20,11 +20,10 @@ import java.util.List;
 
 import org.apache.commons.io.FilenameUtils;
 
-import ghidra.app.util.bin.ByteProvider;
-import ghidra.app.util.bin.RandomAccessByteProvider;
+import ghidra.app.util.bin.*;
 import ghidra.formats.gfilesystem.annotations.FileSystemInfo;
 import ghidra.formats.gfilesystem.factory.FileSystemFactoryMgr;
-import ghidra.framework.Application;
+import ghidra.framework.*;
 import ghidra.util.Msg;
 import ghidra.util.datastruct.FixedSizeHashMap;
 import ghidra.util.exception.CancelledException;
@@ -98,6 +97,7 @@ public class FileSystemService {
 	private FileSystemCache filesystemCache = new FileSystemCache(localFS);
 	private FileCacheNameIndex fileCacheNameIndex = new FileCacheNameIndex();
 	private FileFingerprintCache fileFingerprintCache = new FileFingerprintCache();
+	private FileSystemTypeIndex fileSystemTypeIndex;
 	private long fsCacheMaintIntervalMS = 10 * 1000;
 
 	/**
@@ -124,8 +124,16 @@ public class FileSystemService {
 	public FileSystemService(File fscacheDir) {
 		try {
 			fileCache = new FileCache(fscacheDir);
+			fileSystemTypeIndex =
+				new FileSystemTypeIndex(new File(fscacheDir, "fstypes.properties"),
+					fsFactoryMgr.getFileSystemTypesSignature());
 			GTimer.scheduleRepeatingRunnable(fsCacheMaintIntervalMS, fsCacheMaintIntervalMS,
-				() -> filesystemCache.cacheMaint());
+				() -> {
+					filesystemCache.cacheMaint();
+					fileSystemTypeIndex.flush();
+				});
+			ShutdownHookRegistry.addShutdownHook(() -> fileSystemTypeIndex.flush(),
+				ShutdownPriority.DISPOSE_FILE_HANDLES);
 		}
 		catch (IOException e) {
 			throw new RuntimeException("Failed to init global cache " + fscacheDir, e);
@@ -226,7 +234,7 @@ public class FileSystemService {
 		String md5 = fsrl.getMD5();
 		FSRLRoot fsRoot = fsrl.getFS();
 
-		FileCacheEntry result = (md5 != null) ? fileCache.getFile(md5) : null;
+		FileCacheEntry result = (md5 != null) ? fileCache.getEntry(md5) : null;
 		if (result == null) {
 			try (FileSystemRef ref = getFilesystem(fsRoot, monitor)) {
 				GFileSystem fs = ref.getFilesystem();
@@ -240,7 +248,7 @@ public class FileSystemService {
 				// or that we now have a better FSRL with a MD5 value that we can use to
 				// search the file cache.
 				if (gfile.getFSRL().getMD5() != null) {
-					result = fileCache.getFile(gfile.getFSRL().getMD5());
+					result = fileCache.getEntry(gfile.getFSRL().getMD5());
 					if (result != null) {
 						return result;
 					}
@@ -252,7 +260,7 @@ public class FileSystemService {
 					}
 					monitor.setMessage("Caching " + gfile.getName());
 					monitor.initialize(gfile.getLength());
-					result = fileCache.addStream(dataStream, monitor);
+					result = fileCache.addStream(dataStream, true, monitor);
 					if (md5 != null && !md5.equals(result.md5)) {
 						throw new IOException("Error reading file, MD5 has changed: " + fsrl +
 							", md5 now " + result.md5);
@@ -264,6 +272,22 @@ public class FileSystemService {
 		return result;
 	}
 
+	/**
+	 * Same as {@link #getCacheFile(FSRL, TaskMonitor)}, but the returned
+	 * {@link FileCacheEntry} always has a {@link File}, even if the file was only cached
+	 * in memory.
+	 *
+	 * @param fsrl {@link FSRL} of the desired file.
+	 * @param monitor {@link TaskMonitor} to watch and update with progress.
+	 * @return new {@link FileCacheEntry} with info about the cached file.
+	 * @throws IOException if IO error when getting file.
+	 * @throws CancelledException if user canceled.
+	 */
+	private FileCacheEntry getCacheFileOnDisk(FSRL fsrl, TaskMonitor monitor)
+			throws IOException, CancelledException {
+		return fileCache.writeToDisk(getCacheFile(fsrl, monitor));
+	}
+
 	/**
 	 * Returns a filesystem instance for the requested {@link FSRLRoot}, either from an already
 	 * loaded instance in the global fscache, or by instantiating the requested filesystem
@@ -292,7 +316,7 @@ public class FileSystemService {
 
 				fsFSRL = intern(fsFSRL);
 				FSRL containerFSRL = fsFSRL.getContainer();
-				FileCacheEntry cfi = getCacheFile(containerFSRL, monitor);
+				FileCacheEntry cfi = getCacheFileOnDisk(containerFSRL, monitor);
 				if (containerFSRL.getMD5() == null) {
 					containerFSRL = containerFSRL.withMD5(cfi.md5);
 				}
@@ -366,7 +390,7 @@ public class FileSystemService {
 			}
 			return f;
 		}
-		FileCacheEntry fce = getCacheFile(fsrl, monitor);
+		FileCacheEntry fce = getCacheFileOnDisk(fsrl, monitor);
 		return fce.file;
 	}
 
@@ -418,7 +442,8 @@ public class FileSystemService {
 
 	/**
 	 * Returns a {@link ByteProvider} with the contents of the requested {@link GFile file}
-	 * (in the Global file cache directory).
+	 * (in the Global file cache directory, or directly over the cached bytes of a small
+	 * file in the file cache's in-memory tier).
 	 * <p>
 	 * Never returns null, throws IOException if there was a problem.
 	 * <p>
@@ -433,9 +458,26 @@ public class FileSystemService {
 	 */
 	public ByteProvider getByteProvider(FSRL fsrl, TaskMonitor monitor)
 			throws CancelledException, IOException {
+		if (fsrl.getNestingDepth() != 1) {
+			return getByteProvider(getCacheFile(fsrl, monitor), fsrl);
+		}
 		File file = getFile(fsrl, monitor);
-		RandomAccessByteProvider rabp = new RandomAccessByteProvider(file, fsrl);
-		return rabp;
+		return new RandomAccessByteProvider(file, fsrl);
+	}
+
+	private static ByteProvider getByteProvider(FileCacheEntry fce, FSRL fsrl)
+			throws IOException {
+		if (fce.bytes != null) {
+			return new ByteArrayProvider(fce.bytes, fsrl);
+		}
+		return new RandomAccessByteProvider(fce.file, fsrl);
+	}
+
+	private FileCacheEntry getDerivedCacheEntry(String derivedMD5, boolean allowInMemory) {
+		if (derivedMD5 == null) {
+			return null;
+		}
+		return allowInMemory ? fileCache.getEntry(derivedMD5) : fileCache.getFile(derivedMD5);
 	}
 
 	/**
@@ -460,6 +502,29 @@ public class FileSystemService {
 	public FileCacheEntry getDerivedFile(FSRL fsrl, String derivedName,
 			DerivedFileProducer producer, TaskMonitor monitor)
 			throws CancelledException, IOException {
+		return getDerivedFile(fsrl, derivedName, producer, false, monitor);
+	}
+
+	/**
+	 * Same as {@link #getDerivedFile(FSRL, String, DerivedFileProducer, TaskMonitor)}, but
+	 * if {@code allowInMemory} is true a small derived file is only cached in memory, and
+	 * the returned {@link FileCacheEntry} will have bytes instead of a File.
+	 * <p>
+	 * @param fsrl {@link FSRL} of the source file that this derived file is based on.
+	 * @param derivedName a unique string identifying the derived file.
+	 * @param producer a {@link DerivedFileProducer callback or lambda} that returns an
+	 * {@link InputStream} that will be streamed into the file cache.
+	 * @param allowInMemory true if the caller does not need a File, and a small derived file
+	 * can be kept in memory
+	 * @param monitor {@link TaskMonitor} that will be monitor for cancel requests and updated
+	 * with file io progress.
+	 * @return {@link FileCacheEntry} with file or bytes, and md5 fields.
+	 * @throws CancelledException if the user cancels.
+	 * @throws IOException if there was an io error.
+	 */
+	public FileCacheEntry getDerivedFile(FSRL fsrl, String derivedName,
+			DerivedFileProducer producer, boolean allowInMemory, TaskMonitor monitor)
+			throws CancelledException, IOException {
 
 		// fileCacheNameIndex is queried and updated in separate steps,
 		// which could be a race issue with another thread, but in this
@@ -468,11 +533,12 @@ public class FileSystemService {
 		// time.
 		FileCacheEntry srcCFI = getCacheFile(fsrl, monitor);
 		String derivedMD5 = fileCacheNameIndex.get(srcCFI.md5, derivedName);
-		FileCacheEntry derivedFile = (derivedMD5 != null) ? fileCache.getFile(derivedMD5) : null;
+		FileCacheEntry derivedFile = getDerivedCacheEntry(derivedMD5, allowInMemory);
 		if (derivedFile == null) {
 			monitor.setMessage(derivedName + " " + fsrl.getName());
-			try (InputStream is = producer.produceDerivedStream(srcCFI.file)) {
-				derivedFile = fileCache.addStream(is, monitor);
+			try (ByteProvider srcProvider = getByteProvider(srcCFI, fsrl);
+					InputStream is = producer.produceDerivedStream(srcProvider)) {
+				derivedFile = fileCache.addStream(is, allowInMemory, monitor);
 				fileCacheNameIndex.add(srcCFI.md5, derivedName, derivedFile.md5);
 			}
 		}
@@ -504,6 +570,28 @@ public class FileSystemService {
 	public FileCacheEntry getDerivedFilePush(FSRL fsrl, String derivedName,
 			DerivedFilePushProducer pusher, TaskMonitor monitor)
 			throws CancelledException, IOException {
+		return getDerivedFilePush(fsrl, derivedName, pusher, false, monitor);
+	}
+
+	/**
+	 * Same as {@link #getDerivedFilePush(FSRL, String, DerivedFilePushProducer, TaskMonitor)},
+	 * but if {@code allowInMemory} is true a small derived file is only cached in memory, and
+	 * the returned {@link FileCacheEntry} will have bytes instead of a File.
+	 * <p>
+	 * @param fsrl {@link FSRL} of the source file that this derived file is based on.
+	 * @param derivedName a unique string identifying the derived file.
+	 * @param pusher a {@link DerivedFilePushProducer callback or lambda} that recieves a {@link OutputStream}.
+	 * @param allowInMemory true if the caller does not need a File, and a small derived file
+	 * can be kept in memory
+	 * @param monitor {@link TaskMonitor} that will be monitor for cancel requests and updated
+	 * with file io progress.
+	 * @return {@link FileCacheEntry} with file or bytes, and md5 fields.
+	 * @throws CancelledException if the user cancels.
+	 * @throws IOException if there was an io error.
+	 */
+	public FileCacheEntry getDerivedFilePush(FSRL fsrl, String derivedName,
+			DerivedFilePushProducer pusher, boolean allowInMemory, TaskMonitor monitor)
+			throws CancelledException, IOException {
 
 		// fileCacheNameIndex is queried and updated in separate steps,
 		// which could be a race issue with another thread, but in this
@@ -512,10 +600,10 @@ public class FileSystemService {
 		// time.
 		FileCacheEntry srcCFI = getCacheFile(fsrl, monitor);
 		String derivedMD5 = fileCacheNameIndex.get(srcCFI.md5, derivedName);
-		FileCacheEntry derivedFile = (derivedMD5 != null) ? fileCache.getFile(derivedMD5) : null;
+		FileCacheEntry derivedFile = getDerivedCacheEntry(derivedMD5, allowInMemory);
 		if (derivedFile == null) {
 			monitor.setMessage(fsrl.getName() + " " + derivedName);
-			derivedFile = fileCache.pushStream(pusher, monitor);
+			derivedFile = fileCache.pushStream(pusher, allowInMemory, monitor);
 			fileCacheNameIndex.add(srcCFI.md5, derivedName, derivedFile.md5);
 		}
 		else {
@@ -623,8 +711,15 @@ public class FileSystemService {
 		// it doesn't deadlock us.
 		File containerFile = getFile(containerFSRL, monitor);
 		try {
-			GFileSystem fs = fsFactoryMgr.probe(containerFSRL, containerFile, this,
-				conflictResolver, priorityFilter, monitor);
+			GFileSystem fs = mountPreviousFileSystemType(containerFSRL, containerFile,
+				priorityFilter, monitor);
+			if (fs == null) {
+				fs = fsFactoryMgr.probe(containerFSRL, containerFile, this, conflictResolver,
+					priorityFilter, monitor);
+				if (fs != null) {
+					fileSystemTypeIndex.add(containerFSRL.getMD5(), fs.getFSRL().getProtocol());
+				}
+			}
 			if (fs != null) {
 				synchronized (filesystemCache) {
 					FileSystemRef fsRef = filesystemCache.getFilesystemRefMountedAt(fs.getFSRL());
@@ -648,6 +743,32 @@ public class FileSystemService {
 		return null;
 	}
 
+	/**
+	 * Mounts the filesystem type that was found the last time the container file was
+	 * probed, skipping the probe of every other filesystem implementation.
+	 *
+	 * @return new {@link GFileSystem} instance, or null if the container file has not been
+	 * probed before or the previous filesystem type could not be mounted
+	 * @throws CancelledException if user cancels
+	 */
+	private GFileSystem mountPreviousFileSystemType(FSRL containerFSRL, File containerFile,
+			int priorityFilter, TaskMonitor monitor) throws CancelledException {
+		String fsType = fileSystemTypeIndex.get(containerFSRL.getMD5());
+		if (fsType == null || !fsFactoryMgr.hasFileSystemType(fsType, priorityFilter)) {
+			return null;
+		}
+		try {
+			return fsFactoryMgr.mountFileSystem(fsType, containerFSRL, containerFile, this,
+				monitor);
+		}
+		catch (IOException e) {
+			Msg.debug(this, "Unable to mount previous file system type " + fsType + " for " +
+				containerFSRL + ", probing instead", e);
+			fileSystemTypeIndex.remove(containerFSRL.getMD5());
+			return null;
+		}
+	}
+
 	/**
 	 * Mount a specific file system (by class) using a specified container file.
 	 * <p>
@@ -774,7 +895,7 @@ public class FileSystemService {
 				}
 				monitor.setMessage("Caching " + gfile.getName());
 				monitor.initialize(gfile.getLength());
-				FileCacheEntry cfi = fileCache.addStream(dataStream, monitor);
+				FileCacheEntry cfi = fileCache.addStream(dataStream, true, monitor);
 				return cfi.md5;
 			}
 		}
@@ -0,0 +1,179 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.formats.gfilesystem;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.Entry;
+
+import ghidra.util.Msg;
+
+/**
+ * A persistent index of the filesystem type that was found in a container file, keyed by
+ * the container file's MD5.
+ * <p>
+ * Used to skip probing every filesystem implementation when a container that was
+ * previously opened is opened again, even in a later session.
+ * <p>
+ * The index is discarded if the set of registered filesystem types changes, because a
+ * new filesystem implementation could change the result of the probe.
+ * <p>
+ * Changes are only kept in memory until {@link #flush()} is called, so that probing many
+ * new containers does not rewrite the index file for each one.
+ */
+public class FileSystemTypeIndex {
+
+	private static final int MAX_ENTRIES = 10000;
+	private static final String SIGNATURE_KEY = "signature";
+
+	private final File indexFile;
+	private final String signature;
+	private final Object saveLock = new Object();
+	private boolean changed;
+
+	/**
+	 * LRU map of container md5 to filesystem type.
+	 */
+	private final LinkedHashMap<String, String> md5ToFSTypeMap =
+		new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Entry<String, String> eldest) {
+				return size() > MAX_ENTRIES;
+			}
+		};
+
+	/**
+	 * Creates a new index that is stored in the specified file, loading any previously
+	 * saved entries.
+	 *
+	 * @param indexFile {@link File} where the index is stored
+	 * @param signature string that identifies the registered filesystem types.  Entries
+	 * saved with a different signature are ignored.
+	 */
+	public FileSystemTypeIndex(File indexFile, String signature) {
+		this.indexFile = indexFile;
+		this.signature = signature;
+		load();
+	}
+
+	/**
+	 * Clears the index.
+	 */
+	public synchronized void clear() {
+		md5ToFSTypeMap.clear();
+		changed = true;
+	}
+
+	/**
+	 * Returns the filesystem type that was previously found in the container file with the
+	 * specified md5.
+	 *
+	 * @param containerMD5 hex-string md5 of the container file
+	 * @return filesystem type string, or null if not in the index
+	 */
+	public synchronized String get(String containerMD5) {
+		return (containerMD5 != null) ? md5ToFSTypeMap.get(containerMD5) : null;
+	}
+
+	/**
+	 * Adds the filesystem type found in the container file with the specified md5.
+	 *
+	 * @param containerMD5 hex-string md5 of the container file
+	 * @param fsType filesystem type string, ie. "zip"
+	 */
+	public synchronized void add(String containerMD5, String fsType) {
+		if (containerMD5 == null || containerMD5.length() != FileCache.MD5_HEXSTR_LEN ||
+			fsType == null || fsType.equals(md5ToFSTypeMap.get(containerMD5))) {
+			return;
+		}
+		md5ToFSTypeMap.put(containerMD5, fsType);
+		changed = true;
+	}
+
+	/**
+	 * Removes the container file with the specified md5 from the index.
+	 *
+	 * @param containerMD5 hex-string md5 of the container file
+	 */
+	public synchronized void remove(String containerMD5) {
+		if (containerMD5 != null && md5ToFSTypeMap.remove(containerMD5) != null) {
+			changed = true;
+		}
+	}
+
+	/**
+	 * Writes the index to its file if it changed since it was last written.
+	 * <p>
+	 * The file is written without holding the index lock, so lookups are not blocked while
+	 * it is written.
+	 */
+	public void flush() {
+		synchronized (saveLock) {
+			Properties props;
+			synchronized (this) {
+				if (!changed) {
+					return;
+				}
+				props = new Properties();
+				props.putAll(md5ToFSTypeMap);
+				changed = false;
+			}
+			props.setProperty(SIGNATURE_KEY, signature);
+			save(props);
+		}
+	}
+
+	private void load() {
+		if (!indexFile.isFile()) {
+			return;
+		}
+		Properties props = new Properties();
+		try (InputStream is = new FileInputStream(indexFile)) {
+			props.load(is);
+		}
+		catch (IOException e) {
+			Msg.warn(this, "Unable to read filesystem type index " + indexFile, e);
+			return;
+		}
+		if (!signature.equals(props.getProperty(SIGNATURE_KEY))) {
+			return;
+		}
+		for (String key : props.stringPropertyNames()) {
+			if (key.length() == FileCache.MD5_HEXSTR_LEN) {
+				md5ToFSTypeMap.put(key, props.getProperty(key));
+			}
+		}
+	}
+
+	private void save(Properties props) {
+		File tmpFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+		try {
+			try (OutputStream os = new FileOutputStream(tmpFile)) {
+				props.store(os, "Filesystem types of container files");
+			}
+			if (!tmpFile.renameTo(indexFile)) {
+				indexFile.delete();
+				if (!tmpFile.renameTo(indexFile)) {
+					throw new IOException("Unable to rename " + tmpFile);
+				}
+			}
+		}
+		catch (IOException e) {
+			Msg.warn(this, "Unable to write filesystem type index " + indexFile, e);
+			tmpFile.delete();
+		}
+	}
+}
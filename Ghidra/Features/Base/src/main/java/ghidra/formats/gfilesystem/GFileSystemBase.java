@@ -16,7 +16,8 @@
 package ghidra.formats.gfilesystem;
 
 import java.io.*;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import ghidra.app.util.bin.ByteProvider;
 import ghidra.util.SystemUtilities;
@@ -55,6 +56,12 @@ public abstract class GFileSystemBase implements GFileSystem {
 	private FileSystemRefManager refManager = new FileSystemRefManager(this);
 	protected FileSystemService fsService;
 
+	/**
+	 * Name to file index of each directory that {@link #lookup(String)} has walked through,
+	 * built the first time the directory is visited.
+	 */
+	private Map<GFile, Map<String, GFile>> lookupIndex = new ConcurrentHashMap<>();
+
 	protected GFileSystemBase(String fileSystemName, ByteProvider provider) {
 		this.fileSystemName = fileSystemName;
 		this.provider = provider;
@@ -108,6 +115,7 @@ public abstract class GFileSystemBase implements GFileSystem {
 	public void close() throws IOException {
 		refManager.onClose();
 
+		lookupIndex.clear();
 		provider.close();
 		provider = null;
 	}
@@ -181,22 +189,35 @@ public abstract class GFileSystemBase implements GFileSystem {
 		}
 		GFile current = null;
 		String[] parts = path.split("/");
-		partloop: for (String part : parts) {
+		for (String part : parts) {
 			if (part.isEmpty()) {
 				continue;
 			}
-			List<GFile> listing = getListing(current);
-			for (GFile gf : listing) {
-				if (part.equals(gf.getName())) {
-					current = gf;
-					continue partloop;
-				}
+			current = getLookupIndex(current).get(part);
+			if (current == null) {
+				return null;
 			}
-			return null;
 		}
 		return current;
 	}
 
+	private Map<String, GFile> getLookupIndex(GFile directory) throws IOException {
+		GFile key = (directory != null) ? directory : root;
+		Map<String, GFile> dirIndex = (key != null) ? lookupIndex.get(key) : null;
+		if (dirIndex == null) {
+			dirIndex = new HashMap<>();
+			for (GFile gf : getListing(directory)) {
+				// first file wins, same as a linear search of the listing
+				dirIndex.putIfAbsent(gf.getName(), gf);
+			}
+			if (key != null) {
+				Map<String, GFile> prevIndex = lookupIndex.putIfAbsent(key, dirIndex);
+				dirIndex = (prevIndex != null) ? prevIndex : dirIndex;
+			}
+		}
+		return dirIndex;
+	}
+
 	@Override
 	public FileSystemRefManager getRefManager() {
 		return refManager;
@@ -18,8 +18,10 @@ package ghidra.formats.gfilesystem.factory;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
+import generic.concurrent.*;
 import ghidra.app.util.bin.*;
 import ghidra.formats.gfilesystem.*;
 import ghidra.formats.gfilesystem.annotations.FileSystemInfo;
@@ -53,6 +55,8 @@ public class FileSystemFactoryMgr {
 		private static final FileSystemFactoryMgr instance = new FileSystemFactoryMgr();
 	}
 
+	private static final String THREAD_POOL_NAME = "FileSystem Probe";
+
 	private int largestBytesRequired = 0;
 	private List<FileSystemInfoRec> sortedFactories = new ArrayList<>();
 	private Map<String, FileSystemInfoRec> fsByType = new HashMap<>();
@@ -122,6 +126,30 @@ public class FileSystemFactoryMgr {
 		//@formatter:on
 	}
 
+	/**
+	 * Returns true if the specified filesystem type is registered and has a
+	 * {@link FileSystemInfo#priority() priority} greater than or equal to the filter value.
+	 *
+	 * @param fsType filesystem type string, ie. "file", "zip".
+	 * @param priorityFilter minimum priority, or {@link FileSystemInfo#PRIORITY_LOWEST}
+	 * @return boolean true if the filesystem type is registered and passes the filter
+	 */
+	public boolean hasFileSystemType(String fsType, int priorityFilter) {
+		FileSystemInfoRec fsir = fsByType.get(fsType);
+		return fsir != null && fsir.getPriority() >= priorityFilter;
+	}
+
+	/**
+	 * Returns a string that changes when the set of registered filesystem types changes.
+	 *
+	 * @return string that identifies the registered filesystem types
+	 */
+	public String getFileSystemTypesSignature() {
+		List<String> types = new ArrayList<>(fsByType.keySet());
+		Collections.sort(types);
+		return Integer.toHexString(String.join(",", types).hashCode());
+	}
+
 	/**
 	 * Returns the file system type of the specified {@link GFileSystem} class.
 	 *
@@ -272,6 +300,9 @@ public class FileSystemFactoryMgr {
 	 * Probes the specified file for a supported {@link GFileSystem} implementation, and
 	 * if found, creates a new filesystem instance.
 	 * <p>
+	 * The filesystem implementations probe the file concurrently, and the matches are
+	 * passed to the conflict resolver in priority order.
+	 * <p>
 	 *
 	 * @param containerFSRL {@link FSRL} of the containing file.
 	 * @param containerFile {@link File} the containing file.
@@ -301,38 +332,15 @@ public class FileSystemFactoryMgr {
 				largestBytesRequired);
 
 			byte[] startBytes = probeBP.readBytes(0, pboByteCount);
-			List<FileSystemInfoRec> probeMatches = new ArrayList<>();
+			List<FileSystemInfoRec> candidates = new ArrayList<>();
 			for (FileSystemInfoRec fsir : sortedFactories) {
 				if (fsir.getPriority() < priorityFilter) {
 					break;
 				}
-				if (fsir.getFactory() instanceof GFileSystemProbeBytesOnly) {
-					GFileSystemProbeBytesOnly factoryProbe =
-						(GFileSystemProbeBytesOnly) fsir.getFactory();
-					if (factoryProbe.getBytesRequired() <= startBytes.length) {
-						if (factoryProbe.probeStartBytes(containerFSRL, startBytes)) {
-							probeMatches.add(fsir);
-							continue;
-						}
-					}
-				}
-				if (fsir.getFactory() instanceof GFileSystemProbeWithFile) {
-					GFileSystemProbeWithFile factoryProbe =
-						(GFileSystemProbeWithFile) fsir.getFactory();
-					if (factoryProbe.probe(containerFSRL, containerFile, fsService, monitor)) {
-						probeMatches.add(fsir);
-						continue;
-					}
-				}
-				if (fsir.getFactory() instanceof GFileSystemProbeFull) {
-					GFileSystemProbeFull factoryProbe = (GFileSystemProbeFull) fsir.getFactory();
-					if (factoryProbe.probe(containerFSRL, probeBP, containerFile, fsService,
-						monitor)) {
-						probeMatches.add(fsir);
-						continue;
-					}
-				}
+				candidates.add(fsir);
 			}
+			List<FileSystemInfoRec> probeMatches = probeConcurrently(candidates, containerFSRL,
+				probeBP, startBytes, containerFile, fsService, monitor);
 
 			monitor.setMessage("Choosing filesystem");
 			FileSystemInfoRec fsir = conflictResolver.resolveFSIR(probeMatches);
@@ -355,4 +363,103 @@ public class FileSystemFactoryMgr {
 
 	}
 
+	/**
+	 * Runs the probes of the specified factories concurrently, sharing the (thread-safe)
+	 * byte provider and the bytes from the start of the container.
+	 *
+	 * @return the factories that matched, in the same order as the candidates
+	 */
+	private List<FileSystemInfoRec> probeConcurrently(List<FileSystemInfoRec> candidates,
+			FSRL containerFSRL, ByteProvider probeBP, byte[] startBytes, File containerFile,
+			FileSystemService fsService, TaskMonitor monitor)
+			throws IOException, CancelledException {
+
+		QCallback<FileSystemInfoRec, Boolean> callback = (fsir, queueMonitor) -> probeFactory(
+			fsir, containerFSRL, probeBP, startBytes, containerFile, fsService, monitor);
+
+		// @formatter:off
+		ConcurrentQ<FileSystemInfoRec, Boolean> queue =
+			new ConcurrentQBuilder<FileSystemInfoRec, Boolean>()
+				.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+				.setCollectResults(true)
+				.build(callback);
+		// @formatter:on
+
+		Map<FileSystemInfoRec, QResult<FileSystemInfoRec, Boolean>> resultsByFactory =
+			new HashMap<>();
+		try {
+			queue.add(candidates);
+			for (QResult<FileSystemInfoRec, Boolean> result : queue.waitForResults()) {
+				resultsByFactory.put(result.getItem(), result);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancelledException();
+		}
+		finally {
+			queue.dispose();
+		}
+		monitor.checkCanceled();
+
+		// report results, and the first error, in the order the probes would have run in
+		List<FileSystemInfoRec> probeMatches = new ArrayList<>();
+		for (FileSystemInfoRec fsir : candidates) {
+			QResult<FileSystemInfoRec, Boolean> result = resultsByFactory.get(fsir);
+			if (result == null || result.isCancelled()) {
+				throw new CancelledException();
+			}
+			try {
+				if (Boolean.TRUE.equals(result.getResult())) {
+					probeMatches.add(fsir);
+				}
+			}
+			catch (Exception e) {
+				Throwable cause = e;
+				if (cause instanceof ExecutionException && cause.getCause() != null) {
+					cause = cause.getCause();
+				}
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				if (cause instanceof CancelledException) {
+					throw (CancelledException) cause;
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new IOException("Error when probing filesystem " + fsir.getType(), cause);
+			}
+		}
+		return probeMatches;
+	}
+
+	private boolean probeFactory(FileSystemInfoRec fsir, FSRL containerFSRL,
+			ByteProvider probeBP, byte[] startBytes, File containerFile,
+			FileSystemService fsService, TaskMonitor monitor)
+			throws IOException, CancelledException {
+		if (fsir.getFactory() instanceof GFileSystemProbeBytesOnly) {
+			GFileSystemProbeBytesOnly factoryProbe =
+				(GFileSystemProbeBytesOnly) fsir.getFactory();
+			if (factoryProbe.getBytesRequired() <= startBytes.length) {
+				if (factoryProbe.probeStartBytes(containerFSRL, startBytes)) {
+					return true;
+				}
+			}
+		}
+		if (fsir.getFactory() instanceof GFileSystemProbeWithFile) {
+			GFileSystemProbeWithFile factoryProbe = (GFileSystemProbeWithFile) fsir.getFactory();
+			if (factoryProbe.probe(containerFSRL, containerFile, fsService, monitor)) {
+				return true;
+			}
+		}
+		if (fsir.getFactory() instanceof GFileSystemProbeFull) {
+			GFileSystemProbeFull factoryProbe = (GFileSystemProbeFull) fsir.getFactory();
+			if (factoryProbe.probe(containerFSRL, probeBP, containerFile, fsService, monitor)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 }
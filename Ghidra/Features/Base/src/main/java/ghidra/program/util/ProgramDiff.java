@@ -16,7 +16,10 @@
 package ghidra.program.util;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
+import generic.concurrent.*;
 import ghidra.program.database.properties.UnsupportedMapDB;
 import ghidra.program.model.address.*;
 import ghidra.program.model.lang.Register;
@@ -44,6 +47,9 @@ import ghidra.util.task.TaskMonitorAdapter;
 
 public class ProgramDiff {
 
+	/** Name of the thread pool used to determine the differences of each type concurrently. */
+	public static final String THREAD_POOL_NAME = "Program Diff";
+
 	/** A filter for keeping track of all types of differences determined by
 	 * this ProgramDiff so that it knows what differences to recompute.
 	 */
@@ -68,7 +74,12 @@ public class ProgramDiff {
 	 * The number of bytes to get at a time when determining byte differences
 	 * between program1 and program2.
 	 */
-	private static final int BYTE_DIFF_GRAB_SIZE = 1024;
+	private static final int BYTE_DIFF_GRAB_SIZE = 16 * 1024;
+	/**
+	 * The maximum number of addresses whose bytes are compared by a single job when
+	 * byte differences are determined concurrently.
+	 */
+	private static final long BYTE_DIFF_PARTITION_SIZE = 1024 * 1024;
 
 	/** The filter for indicating program differences we are interested in. */
 	private ProgramDiffFilter pdf;
@@ -78,7 +89,7 @@ public class ProgramDiff {
 	 */
 	private Hashtable<Integer, AddressSet> diffAddrSets = new Hashtable<>();
 	/** Whether or not the user cancelled the last getDifferences. */
-	private boolean cancelled = false;
+	private volatile boolean cancelled = false;
 	/** The differences from the last getDifferences() call.
 	 *  The addresses in this address set are derived from program1.
 	 */
@@ -105,8 +116,6 @@ public class ProgramDiff {
 	 *  The addresses in this address set are derived from program1.
 	 */
 	private boolean filterChanged = true;
-	/** The current prefix message to appear in the monitor's message area. */
-	private static String monitorMsg = "Checking Differences";
 	/** String indicating a warning message if the program context registers are not the same. */
 	private String warnings = null;
 
@@ -481,32 +490,19 @@ public class ProgramDiff {
 
 		// Create any required address sets.
 		int[] pt = ProgramDiffFilter.getPrimaryTypes();
+		List<Integer> diffTypes = new ArrayList<>();
 		for (int element : pt) {
-			// Are we interested in this difference type?
-			if (pdf.getFilter(element)) {
-				Integer key = new Integer(element);
-				// Do we still need to determine differences of this type?
-				if (!diffAddrSets.containsKey(key)) {
-					if (!cancelled) {
-						try {
-							createAddressSet(element, monitor);
-						}
-						catch (ProgramConflictException e) {
-							// Ignore register differences if they aren't compatible.
-						}
-					}
-					else {
-						// Turn off this filter since user cancelled getting results.
-						pdf.setFilter(element, false);
-					}
-				}
-				// Do we now have the differences?
-				if (diffAddrSets.containsKey(key)) {
-					AddressSet addrSetToAdd = diffAddrSets.get(key);
-					currentDiffs.add(addrSetToAdd);
-				}
-				// Did the user cancel the program diff?
-				checkCancelled(monitor);
+			// Are we interested in this difference type and do we still need to determine it?
+			if (pdf.getFilter(element) && !diffAddrSets.containsKey(element)) {
+				diffTypes.add(element);
+			}
+		}
+		createAddressSets(diffTypes, monitor);
+		for (int element : pt) {
+			// Do we now have the differences?
+			if (pdf.getFilter(element) && diffAddrSets.containsKey(element)) {
+				AddressSet addrSetToAdd = diffAddrSets.get(element);
+				currentDiffs.add(addrSetToAdd);
 			}
 		}
 		checkCancelled(monitor);
@@ -582,7 +578,7 @@ public class ProgramDiff {
 			return new AddressSet(); // ignore property that isn't supported.
 		}
 		return getCuiDiffs(property, addrs, new UserDefinedComparator(program1, program2, property),
-			monitor);
+			getDiffMessage(ProgramDiffFilter.USER_DEFINED_DIFFS), monitor);
 	}
 
 	/** Creates an address set indicating the differences between program1 and
@@ -601,89 +597,79 @@ public class ProgramDiff {
 		AddressSetView as = new AddressSet();
 		monitor.setProgress(0);
 
+		String monitorMsg = getDiffMessage(diffType);
 		switch (diffType) {
 			case ProgramDiffFilter.BYTE_DIFFS:
-				monitorMsg = "Checking Byte Differences";
 				monitor.setMessage(monitorMsg);
-				as = getByteDifferences(addrs, monitor);
+				as = getByteDifferences(addrs, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.CODE_UNIT_DIFFS:
-				monitorMsg = "Checking Code Unit Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCodeUnitDifferences(addrs, monitor);
 				break;
 			case ProgramDiffFilter.PROGRAM_CONTEXT_DIFFS:
 				if (sameProgramContext) {
-					monitorMsg = "Checking Program Context Differences";
 					monitor.setMessage(monitorMsg);
 					as = getProgramContextDifferences(addrs, monitor);
 				}
 				break;
 			case ProgramDiffFilter.EOL_COMMENT_DIFFS:
-				monitorMsg = "Checking End of Line Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.EOL_COMMENT, addrs,
-					new CommentTypeComparator(program1, program2, CodeUnit.EOL_COMMENT), monitor);
+					new CommentTypeComparator(program1, program2, CodeUnit.EOL_COMMENT),
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.REPEATABLE_COMMENT_DIFFS:
-				monitorMsg = "Checking Repeatable Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.REPEATABLE_COMMENT, addrs,
 					new CommentTypeComparator(program1, program2, CodeUnit.REPEATABLE_COMMENT),
-					monitor);
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.PRE_COMMENT_DIFFS:
-				monitorMsg = "Checking Pre-Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.PRE_COMMENT, addrs,
-					new CommentTypeComparator(program1, program2, CodeUnit.PRE_COMMENT), monitor);
+					new CommentTypeComparator(program1, program2, CodeUnit.PRE_COMMENT),
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.POST_COMMENT_DIFFS:
-				monitorMsg = "Checking Post-Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.POST_COMMENT, addrs,
-					new CommentTypeComparator(program1, program2, CodeUnit.POST_COMMENT), monitor);
+					new CommentTypeComparator(program1, program2, CodeUnit.POST_COMMENT),
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.PLATE_COMMENT_DIFFS:
-				monitorMsg = "Checking Plate Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.PLATE_COMMENT, addrs,
-					new CommentTypeComparator(program1, program2, CodeUnit.PLATE_COMMENT), monitor);
+					new CommentTypeComparator(program1, program2, CodeUnit.PLATE_COMMENT),
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.REFERENCE_DIFFS:
-				monitorMsg = "Checking Reference Differences";
 				monitor.setMessage(monitorMsg);
-				as = getReferenceDifferences(addrs, monitor);
+				as = getReferenceDifferences(addrs, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.USER_DEFINED_DIFFS:
-				monitorMsg = "Checking User Defined Property Differences";
 				monitor.setMessage(monitorMsg);
-				as = getUserDefinedDifferences(addrs, monitor);
+				as = getUserDefinedDifferences(addrs, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.BOOKMARK_DIFFS:
-				monitorMsg = "Checking Bookmark Differences";
 				monitor.setMessage(monitorMsg);
-				as = getBookmarkDifferences(addrs, monitor);
+				as = getBookmarkDifferences(addrs, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.SYMBOL_DIFFS:
-				monitorMsg = "Checking Label Differences";
 				monitor.setMessage(monitorMsg);
-				as = getLabelDifferences(addrs, monitor);
+				as = getLabelDifferences(addrs, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.EQUATE_DIFFS:
-				monitorMsg = "Checking Equate Differences";
 				monitor.setMessage(monitorMsg);
-				as = getEquateDifferences(addrs, monitor);
+				as = getEquateDifferences(addrs, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.FUNCTION_DIFFS:
-				monitorMsg = "Checking Function Differences";
 				monitor.setMessage(monitorMsg);
-				as = getFunctionDifferences(addrs, monitor);
+				as = getFunctionDifferences(addrs, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.FUNCTION_TAG_DIFFS:
-				monitorMsg = "Checking Function Tag Differences";
 				monitor.setMessage(monitorMsg);
-				as = getFunctionTagDifferences(addrs, monitor);
+				as = getFunctionTagDifferences(addrs, monitorMsg, monitor);
 				break;
 		}
 		return as;
@@ -795,7 +781,7 @@ public class ProgramDiff {
 	 * to be checked
 	 * @throws CancelledException if the getDifferences() task has been canceled by the user.
 	 */
-	synchronized public void checkCancelled(TaskMonitor monitor) throws CancelledException {
+	public void checkCancelled(TaskMonitor monitor) throws CancelledException {
 		if (cancelled) {
 			throw new CancelledException();
 		}
@@ -864,110 +850,293 @@ public class ProgramDiff {
 		}
 	}
 
+	/** Creates the address sets indicating the differences between program1 and
+	 * program2 of each of the specified types.
+	 * The differences of each type, and the byte differences of each partition of the
+	 * checked addresses, are determined concurrently and the resulting address sets merged.
+	 * The addresses in these address sets are derived from program1
+	 * and put into diffAddrSets using the diffType number as an index.
+	 * Differences of a type whose program context registers aren't compatible are ignored.
+	 * @param diffTypes the types of difference to look for between the programs.
+	 * @param monitor the task monitor for indicating the progress of
+	 * determining differences. This monitor reports the progress to the user.
+	 * @throws CancelledException if the user cancelled the Diff.
+	 */
+	private void createAddressSets(List<Integer> diffTypes, TaskMonitor monitor)
+			throws CancelledException {
+		if (diffTypes.isEmpty()) {
+			return;
+		}
+		List<DiffJob> jobs = new ArrayList<>();
+		for (int diffType : diffTypes) {
+			jobs.add(new DiffJob(diffType, null));
+			if (diffType == ProgramDiffFilter.BYTE_DIFFS) {
+				for (AddressSet partition : partitionAddressSet(
+					getInCommonAddressSet(checkAddressSet), BYTE_DIFF_PARTITION_SIZE)) {
+					jobs.add(new DiffJob(diffType, partition));
+				}
+			}
+		}
+
+		QCallback<DiffJob, AddressSet> callback = new QCallback<DiffJob, AddressSet>() {
+			@Override
+			public AddressSet process(DiffJob job, TaskMonitor taskMonitor) throws Exception {
+				if (job.diffType != ProgramDiffFilter.BYTE_DIFFS) {
+					return createAddressSet(job.diffType, job.monitorMsg, taskMonitor);
+				}
+				if (job.addrs == null) {
+					return getMemoryDifferences(checkAddressSet);
+				}
+				return getCommonByteDifferences(job.addrs, job.monitorMsg, taskMonitor);
+			}
+		};
+
+		// @formatter:off
+		ConcurrentQ<DiffJob, AddressSet> queue = new ConcurrentQBuilder<DiffJob, AddressSet>()
+			.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+			.setCollectResults(true)
+			.setMonitor(monitor)
+			.build(callback);
+		// @formatter:on
+
+		Collection<QResult<DiffJob, AddressSet>> results;
+		try {
+			queue.add(jobs);
+			results = queue.waitForResults();
+		}
+		catch (InterruptedException e) {
+			cancelled = true;
+			throw new CancelledException();
+		}
+		finally {
+			queue.dispose();
+		}
+
+		// Merge the results of each type, keeping any type whose jobs all completed.
+		Map<Integer, AddressSet> typeSets = new HashMap<>();
+		Set<Integer> incompleteTypes = new HashSet<>();
+		Throwable error = null;
+		for (QResult<DiffJob, AddressSet> result : results) {
+			int diffType = result.getItem().diffType;
+			try {
+				AddressSet as = result.getResult();
+				if (as == null) {
+					incompleteTypes.add(diffType);
+					continue;
+				}
+				AddressSet typeSet = typeSets.get(diffType);
+				if (typeSet == null) {
+					typeSets.put(diffType, as);
+				}
+				else {
+					typeSet.add(as);
+				}
+			}
+			catch (Exception e) {
+				incompleteTypes.add(diffType);
+				Throwable cause = (e instanceof ExecutionException && e.getCause() != null)
+						? e.getCause()
+						: e;
+				if (cause instanceof CancellationException) {
+					cause = new CancelledException();
+				}
+				// Ignore register differences if they aren't compatible.
+				if (!(cause instanceof ProgramConflictException) && (error == null ||
+					error instanceof CancelledException)) {
+					error = cause;
+				}
+			}
+		}
+		for (Map.Entry<Integer, AddressSet> entry : typeSets.entrySet()) {
+			if (!incompleteTypes.contains(entry.getKey())) {
+				diffAddrSets.put(entry.getKey(), entry.getValue());
+			}
+		}
+		if (error instanceof CancelledException) {
+			cancelled = true;
+			throw (CancelledException) error;
+		}
+		if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		}
+		if (error != null) {
+			throw new RuntimeException(error);
+		}
+	}
+
+	/**
+	 * Splits an address set into consecutive address sets, each containing no more than
+	 * the indicated number of addresses.
+	 * @param addrs the address set to split
+	 * @param partitionSize the maximum number of addresses in each partition
+	 * @return the partitions in address order
+	 */
+	private static List<AddressSet> partitionAddressSet(AddressSetView addrs,
+			long partitionSize) {
+		List<AddressSet> partitions = new ArrayList<>();
+		AddressSet partition = new AddressSet();
+		long partitionCount = 0;
+		for (AddressRange range : addrs) {
+			Address start = range.getMinAddress();
+			Address max = range.getMaxAddress();
+			while (true) {
+				long available = partitionSize - partitionCount;
+				Address end = (max.subtract(start) >= available) ? start.add(available - 1) : max;
+				partition.addRange(start, end);
+				partitionCount += end.subtract(start) + 1;
+				if (partitionCount >= partitionSize) {
+					partitions.add(partition);
+					partition = new AddressSet();
+					partitionCount = 0;
+				}
+				if (end.equals(max)) {
+					break;
+				}
+				start = end.next();
+			}
+		}
+		if (!partition.isEmpty()) {
+			partitions.add(partition);
+		}
+		return partitions;
+	}
+
 	/** Creates an address set indicating the differences between program1 and
 	 * program2 of the specified type.
-	 * The addresses in this address set are derived from program1
-	 * and put into diffAddrSets using the diffType number as an index.
 	 * @param diffType the type of difference to look for between the programs.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
+	 * @return the address set indicating the differences or null if differences of this
+	 * type can't be determined.
+	 * The addresses in this address set are derived from program1.
 	 * @throws ProgramConflictException if the two programs are not comparable since registers differ.
 	 * @throws CancelledException if the user cancelled the Diff.
 	 */
-	private void createAddressSet(int diffType, TaskMonitor monitor)
+	private AddressSet createAddressSet(int diffType, String monitorMsg, TaskMonitor monitor)
 			throws ProgramConflictException, CancelledException {
 
 		AddressSet as = null; // This address set should be derived from program1.
 
 		switch (diffType) {
 			case ProgramDiffFilter.BYTE_DIFFS:
-				monitorMsg = "Checking Byte Differences";
 				monitor.setMessage(monitorMsg);
 				//                as = getByteDifferences(pgmMemComp.inOneMatchingTwo(),
 				//                                        pgmMemComp.inTwoMatchingOne());
-				as = getByteDifferences(checkAddressSet, monitor);
+				as = getByteDifferences(checkAddressSet, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.CODE_UNIT_DIFFS:
-				monitorMsg = "Checking Code Unit Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCodeUnitDifferences(checkAddressSet, monitor);
 				break;
 			case ProgramDiffFilter.PROGRAM_CONTEXT_DIFFS:
 				if (sameProgramContext) {
-					monitorMsg = "Checking Program Context Differences";
 					monitor.setMessage(monitorMsg);
 					as = getProgramContextDifferences(checkAddressSet, monitor);
 				}
 				break;
 			case ProgramDiffFilter.EOL_COMMENT_DIFFS:
-				monitorMsg = "Checking End of Line Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.EOL_COMMENT, checkAddressSet,
-					new CommentTypeComparator(program1, program2, CodeUnit.EOL_COMMENT), monitor);
+					new CommentTypeComparator(program1, program2, CodeUnit.EOL_COMMENT),
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.REPEATABLE_COMMENT_DIFFS:
-				monitorMsg = "Checking Repeatable Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.REPEATABLE_COMMENT, checkAddressSet,
 					new CommentTypeComparator(program1, program2, CodeUnit.REPEATABLE_COMMENT),
-					monitor);
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.PRE_COMMENT_DIFFS:
-				monitorMsg = "Checking Pre-Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.PRE_COMMENT, checkAddressSet,
-					new CommentTypeComparator(program1, program2, CodeUnit.PRE_COMMENT), monitor);
+					new CommentTypeComparator(program1, program2, CodeUnit.PRE_COMMENT),
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.POST_COMMENT_DIFFS:
-				monitorMsg = "Checking Post-Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.POST_COMMENT, checkAddressSet,
-					new CommentTypeComparator(program1, program2, CodeUnit.POST_COMMENT), monitor);
+					new CommentTypeComparator(program1, program2, CodeUnit.POST_COMMENT),
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.PLATE_COMMENT_DIFFS:
-				monitorMsg = "Checking Plate Comment Differences";
 				monitor.setMessage(monitorMsg);
 				as = getCommentDiffs(CodeUnit.PLATE_COMMENT, checkAddressSet,
-					new CommentTypeComparator(program1, program2, CodeUnit.PLATE_COMMENT), monitor);
+					new CommentTypeComparator(program1, program2, CodeUnit.PLATE_COMMENT),
+					monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.REFERENCE_DIFFS:
-				monitorMsg = "Checking Reference Differences";
 				monitor.setMessage(monitorMsg);
-				as = getReferenceDifferences(checkAddressSet, monitor);
+				as = getReferenceDifferences(checkAddressSet, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.USER_DEFINED_DIFFS:
-				monitorMsg = "Checking User Defined Property Differences";
 				monitor.setMessage(monitorMsg);
-				as = getUserDefinedDifferences(checkAddressSet, monitor);
+				as = getUserDefinedDifferences(checkAddressSet, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.BOOKMARK_DIFFS:
-				monitorMsg = "Checking Bookmark Differences";
 				monitor.setMessage(monitorMsg);
-				as = getBookmarkDifferences(checkAddressSet, monitor);
+				as = getBookmarkDifferences(checkAddressSet, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.SYMBOL_DIFFS:
-				monitorMsg = "Checking Label Differences";
 				monitor.setMessage(monitorMsg);
-				as = getLabelDifferences(checkAddressSet, monitor);
+				as = getLabelDifferences(checkAddressSet, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.EQUATE_DIFFS:
-				monitor.setMessage("Checking Equate Differences");
 				monitor.setMessage(monitorMsg);
-				as = getEquateDifferences(checkAddressSet, monitor);
+				as = getEquateDifferences(checkAddressSet, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.FUNCTION_DIFFS:
-				monitorMsg = "Checking Function Differences";
 				monitor.setMessage(monitorMsg);
-				as = getFunctionDifferences(checkAddressSet, monitor);
+				as = getFunctionDifferences(checkAddressSet, monitorMsg, monitor);
 				break;
 			case ProgramDiffFilter.FUNCTION_TAG_DIFFS:
-				monitorMsg = "Checking Function Tag Differences";
 				monitor.setMessage(monitorMsg);
-				as = getFunctionTagDifferences(checkAddressSet, monitor);
+				as = getFunctionTagDifferences(checkAddressSet, monitorMsg, monitor);
 				break;
 		}
-		if (as != null) {
-			diffAddrSets.put(new Integer(diffType), as);
+		return as;
+	}
+
+	/**
+	 * Gets the prefix message to appear in the monitor's message area while determining
+	 * the differences of the specified type.
+	 * @param diffType the type of difference to look for between the programs.
+	 * @return the monitor message
+	 */
+	private static String getDiffMessage(int diffType) {
+		switch (diffType) {
+			case ProgramDiffFilter.BYTE_DIFFS:
+				return "Checking Byte Differences";
+			case ProgramDiffFilter.CODE_UNIT_DIFFS:
+				return "Checking Code Unit Differences";
+			case ProgramDiffFilter.PROGRAM_CONTEXT_DIFFS:
+				return "Checking Program Context Differences";
+			case ProgramDiffFilter.EOL_COMMENT_DIFFS:
+				return "Checking End of Line Comment Differences";
+			case ProgramDiffFilter.REPEATABLE_COMMENT_DIFFS:
+				return "Checking Repeatable Comment Differences";
+			case ProgramDiffFilter.PRE_COMMENT_DIFFS:
+				return "Checking Pre-Comment Differences";
+			case ProgramDiffFilter.POST_COMMENT_DIFFS:
+				return "Checking Post-Comment Differences";
+			case ProgramDiffFilter.PLATE_COMMENT_DIFFS:
+				return "Checking Plate Comment Differences";
+			case ProgramDiffFilter.REFERENCE_DIFFS:
+				return "Checking Reference Differences";
+			case ProgramDiffFilter.USER_DEFINED_DIFFS:
+				return "Checking User Defined Property Differences";
+			case ProgramDiffFilter.BOOKMARK_DIFFS:
+				return "Checking Bookmark Differences";
+			case ProgramDiffFilter.SYMBOL_DIFFS:
+				return "Checking Label Differences";
+			case ProgramDiffFilter.EQUATE_DIFFS:
+				return "Checking Equate Differences";
+			case ProgramDiffFilter.FUNCTION_DIFFS:
+				return "Checking Function Differences";
+			case ProgramDiffFilter.FUNCTION_TAG_DIFFS:
+				return "Checking Function Tag Differences";
+			default:
+				return "Checking Differences";
 		}
 	}
 
@@ -975,7 +1144,8 @@ public class ProgramDiff {
 	// DIFFERENCE METHODS
 	///////////////////////////
 	private void compareBytes(AddressRange limitedRange, AddressSet differences,
-			TaskMonitor monitor) throws MemoryAccessException, CancelledException {
+			String monitorMsg, TaskMonitor monitor)
+			throws MemoryAccessException, CancelledException {
 
 		Memory mem1 = program1.getMemory();
 		Memory mem2 = program2.getMemory();
@@ -1014,39 +1184,16 @@ public class ProgramDiff {
 				int n1 = b1.getBytes(addr, temp1, 0, bytesToGet);
 				int n2 = b2.getBytes(addr2, temp2, 0, bytesToGet);
 				nBytes = Math.min(n1, n2);
-				Address start = null;
-				boolean same = true;
-				for (int i = 0; i < nBytes; i++) {
-					if (temp1[i] != temp2[i]) {
-						if (same) {
-							same = false;
-							start = addr.addWrap(i);
-						}
-//						Address byteAddr = addr.addWrap(i);
-//						if (!differences.contains(byteAddr)) {
-//							CodeUnit cu1 = listing1.getCodeUnitContaining(byteAddr);
-//							CodeUnit cu2 = listing2.getCodeUnitContaining(byteAddr);
-//							Address min1 = cu1.getMinAddress();
-//							Address min2 = cu2.getMinAddress();
-//							Address max1 = cu1.getMaxAddress();
-//							Address max2 = cu2.getMaxAddress();
-//							Address addrMin =
-//								min1.compareTo(min2) < 0 ? min1 : min2;
-//							Address addrMax =
-//								max1.compareTo(max2) > 0 ? max1 : max2;
-//							differences.addRange(addrMin, addrMax);
-//						}
+				// Only scan for the differing bytes once a bulk comparison finds a mismatch.
+				int i = Arrays.mismatch(temp1, 0, nBytes, temp2, 0, nBytes);
+				while (i >= 0) {
+					int end = i + 1;
+					while (end < nBytes && temp1[end] != temp2[end]) {
+						end++;
 					}
-					else {
-						if (!same) {
-							same = true;
-							differences.addRange(start, addr.addWrap(i - 1));
-						}
-					}
-				}
-				if (!same) {
-					same = true;
-					differences.addRange(start, addr.addWrap(nBytes - 1));
+					differences.addRange(addr.addWrap(i), addr.addWrap(end - 1));
+					int next = Arrays.mismatch(temp1, end, nBytes, temp2, end, nBytes);
+					i = (next < 0) ? -1 : end + next;
 				}
 				monitor.setProgress(monitor.getProgress() + (nBytes / addressSize));
 				monitor.setMessage(monitorMsg + ": " + addr.toString(showAddressSpace));
@@ -1071,6 +1218,7 @@ public class ProgramDiff {
 	 *
 	 * @param addrs the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 * @return the addresses where there were different byte values including where
@@ -1078,24 +1226,52 @@ public class ProgramDiff {
 	 * The addresses in this address set are derived from program1.
 	 * @throws CancelledException if the user canceled the Diff.
 	 */
-	private AddressSet getByteDifferences(AddressSetView addrs, TaskMonitor monitor)
+	private AddressSet getByteDifferences(AddressSetView addrs,
+			String monitorMsg, TaskMonitor monitor)
 			throws CancelledException {
-		AddressSet differences = new AddressSet();
+		AddressSet differences = getMemoryDifferences(addrs);
+		AddressSet inCommon = getInCommonAddressSet(addrs);
+		monitor.initialize(inCommon.getNumAddresses());
+		differences.add(getCommonByteDifferences(inCommon, monitorMsg, monitor));
+		return differences;
+	}
 
+	/** Determines the addresses which are in one program and not the other as well as
+	 * the addresses where one program's memory is initialized and the other's isn't.
+	 * These addresses are byte differences which don't require the bytes to be compared.
+	 *
+	 * @param addrs the addresses to check for differences.
+	 * The addresses in this address set should be derived from program1.
+	 * @return the addresses where one program has bytes and the other does not.
+	 * The addresses in this address set are derived from program1.
+	 */
+	private AddressSet getMemoryDifferences(AddressSetView addrs) {
+		AddressSet differences = new AddressSet();
 		differences.add(getNonCommonAddressSet(addrs));
 		differences.add(getInitializationDiffersAddressSet(addrs));
+		return differences;
+	}
 
-		// Check each address range from the address set for differences.
-		AddressSet inCommon = getAddressesInCommon();
-		if (addrs != null) {
-			inCommon = inCommon.intersect(addrs);
-		}
-		monitor.initialize(inCommon.getNumAddresses());
+	/** Determines the addresses where the bytes of the two programs differ.
+	 *
+	 * @param inCommon the addresses to compare, which must be in common between the programs.
+	 * The addresses in this address set should be derived from program1.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
+	 * @param monitor the task monitor for indicating the progress of
+	 * determining differences. This monitor reports the progress to the user.
+	 * @return the addresses where there were different byte values.
+	 * The addresses in this address set are derived from program1.
+	 * @throws CancelledException if the user canceled the Diff.
+	 */
+	private AddressSet getCommonByteDifferences(AddressSetView inCommon,
+			String monitorMsg, TaskMonitor monitor)
+			throws CancelledException {
+		AddressSet differences = new AddressSet();
 		AddressRangeIterator iter = inCommon.getAddressRanges();
 		while (iter.hasNext()) {
 			AddressRange range = iter.next();
 			try {
-				compareBytes(range, differences, monitor);
+				compareBytes(range, differences, monitorMsg, monitor);
 			}
 			catch (MemoryAccessException e) {
 				// Do nothing. Shouldn't happen. Both should have bytes.
@@ -1123,15 +1299,15 @@ public class ProgramDiff {
 
 		AddressSet differences = new AddressSet();
 		// Get the instruction differences.
-		monitorMsg = "Checking Instruction Differences";
+		String monitorMsg = "Checking Instruction Differences";
 		AddressSet instrDiffs = getAdjustedCuiDiffs(CodeUnit.INSTRUCTION_PROPERTY, addrs,
-			new InstructionComparator(program1, program2), monitor);
+			new InstructionComparator(program1, program2), monitorMsg, monitor);
 		instrDiffs = instrDiffs.intersect(pgmMemComp.getAddressesInCommon());
 		differences.add(instrDiffs);
 		// Get the defined data differences.
 		monitorMsg = "Checking Defined Data Differences";
 		AddressSet dataDiffs = getAdjustedCuiDiffs(CodeUnit.DEFINED_DATA_PROPERTY, addrs,
-			new DefinedDataComparator(program1, program2), monitor);
+			new DefinedDataComparator(program1, program2), monitorMsg, monitor);
 		differences.add(dataDiffs);
 		AddressSet contextRegDifferences = getContextRegisterDifferences(addrs, monitor);
 		differences.add(contextRegDifferences);
@@ -1285,6 +1461,7 @@ public class ProgramDiff {
 	 *
 	 * @param addressSet the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 *
@@ -1292,7 +1469,8 @@ public class ProgramDiff {
 	 * The addresses in this address set are derived from program1.
 	 * @throws CancelledException if the user cancelled the Diff.
 	 */
-	private AddressSet getUserDefinedDifferences(AddressSetView addressSet, TaskMonitor monitor)
+	private AddressSet getUserDefinedDifferences(AddressSetView addressSet, String monitorMsg,
+			TaskMonitor monitor)
 			throws CancelledException {
 		AddressSet differences = new AddressSet();
 		Iterator<String> props1 = listing1.getUserDefinedProperties();
@@ -1322,7 +1500,7 @@ public class ProgramDiff {
 			}
 			// Get the differences for each user defined property type.
 			differences.add(getCuiDiffs(property, addressSet,
-				new UserDefinedComparator(program1, program2, property), monitor));
+				new UserDefinedComparator(program1, program2, property), monitorMsg, monitor));
 		}
 		return differences;
 	}
@@ -1331,6 +1509,7 @@ public class ProgramDiff {
 	 *
 	 * @param addressSet the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 *
@@ -1338,7 +1517,8 @@ public class ProgramDiff {
 	 * The addresses in this address set are derived from program1.
 	 * @throws CancelledException if the user cancelled the Diff.
 	 */
-	private AddressSet getBookmarkDifferences(AddressSetView addressSet, TaskMonitor monitor)
+	private AddressSet getBookmarkDifferences(AddressSetView addressSet,
+			String monitorMsg, TaskMonitor monitor)
 			throws CancelledException {
 		AddressSet differences = new AddressSet();
 		BookmarkManager bookmarkMgr1 = program1.getBookmarkManager();
@@ -1378,7 +1558,7 @@ public class ProgramDiff {
 			// Get the differences for each bookmark type.
 			sets[i] = getObjectDiffs(new BookmarksComparator(type, program1, program2),
 				new IteratorWrapper(addrs1.getAddresses(true)),
-				new IteratorWrapper(addrs2.getAddresses(true)), monitor);
+				new IteratorWrapper(addrs2.getAddresses(true)), monitorMsg, monitor);
 			differences.add(sets[i]);
 		}
 		return differences;
@@ -1388,6 +1568,7 @@ public class ProgramDiff {
 	 *  labels (symbols or aliases) specified.
 	 * @param addressSet the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 *
@@ -1395,7 +1576,8 @@ public class ProgramDiff {
 	 * The addresses in this address set are derived from program1.
 	 * @throws CancelledException if the user cancelled the Diff.
 	 */
-	private AddressSet getLabelDifferences(AddressSetView addressSet, TaskMonitor monitor)
+	private AddressSet getLabelDifferences(AddressSetView addressSet,
+			String monitorMsg, TaskMonitor monitor)
 			throws CancelledException {
 		SymbolIterator iter1;
 		SymbolIterator iter2;
@@ -1410,20 +1592,22 @@ public class ProgramDiff {
 		}
 		// Symbols
 		return getObjectDiffs(new SymbolComparator(program1, program2), new IteratorWrapper(iter1),
-			new IteratorWrapper(iter2), monitor);
+			new IteratorWrapper(iter2), monitorMsg, monitor);
 	}
 
 	/** Determines the addresses where program1 and program2 have different equates
 	 * specified.
 	 * @param addressSet the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 * @return the addresses where the equates differed between program1 and program2.
 	 * The addresses in this address set are derived from program1.
 	 * @throws CancelledException if the user cancelled the Diff.
 	 */
-	private AddressSet getEquateDifferences(AddressSetView addressSet, TaskMonitor monitor)
+	private AddressSet getEquateDifferences(AddressSetView addressSet,
+			String monitorMsg, TaskMonitor monitor)
 			throws CancelledException {
 		AddressIterator iter1;
 		AddressIterator iter2;
@@ -1437,7 +1621,7 @@ public class ProgramDiff {
 			iter2 = program2.getEquateTable().getEquateAddresses(addressSet2);
 		}
 		return getObjectDiffs(new EquateComparator(program1, program2), new IteratorWrapper(iter1),
-			new IteratorWrapper(iter2), monitor);
+			new IteratorWrapper(iter2), monitorMsg, monitor);
 	}
 
 	/**
@@ -1472,13 +1656,15 @@ public class ProgramDiff {
 	 * references specified.
 	 * @param addressSet the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 * @return the addresses where the memory references differed between program1 and program2.
 	 * The addresses in this address set are derived from program1.
 	 * @throws CancelledException if the user cancelled the Diff.
 	 */
-	private AddressSet getReferenceDifferences(AddressSetView addressSet, TaskMonitor monitor)
+	private AddressSet getReferenceDifferences(AddressSetView addressSet,
+			String monitorMsg, TaskMonitor monitor)
 			throws CancelledException {
 		AddressIterator iter1;
 		AddressIterator iter2;
@@ -1495,7 +1681,7 @@ public class ProgramDiff {
 			iter2 = rm2.getReferenceSourceIterator(addressSet2, true);
 		}
 		AddressSet addrs = getObjectDiffs(new ReferenceComparator(program1, program2),
-			new IteratorWrapper(iter1), new IteratorWrapper(iter2), monitor);
+			new IteratorWrapper(iter1), new IteratorWrapper(iter2), monitorMsg, monitor);
 		return addrs.intersect(pgmMemComp.getSameMemTypeAddressesInCommon());
 	}
 
@@ -1504,13 +1690,15 @@ public class ProgramDiff {
 	 * stack variables, or register variables.
 	 * @param addressSet the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 * @return the addresses where the equates differed between program1 and program2.
 	 * The addresses in this address set are derived from program1.
 	 * @throws CancelledException if the user cancelled the Diff.
 	 */
-	private AddressSet getFunctionDifferences(AddressSetView addressSet, TaskMonitor monitor)
+	private AddressSet getFunctionDifferences(AddressSetView addressSet,
+			String monitorMsg, TaskMonitor monitor)
 			throws CancelledException {
 		FunctionIterator iter1;
 		FunctionIterator iter2;
@@ -1524,7 +1712,7 @@ public class ProgramDiff {
 			iter2 = program2.getListing().getFunctions(addressSet2, true);
 		}
 		return getObjectDiffs(new FunctionComparator(program1, program2),
-			new IteratorWrapper(iter1), new IteratorWrapper(iter2), monitor);
+			new IteratorWrapper(iter1), new IteratorWrapper(iter2), monitorMsg, monitor);
 	}
 
 	/**
@@ -1532,18 +1720,20 @@ public class ProgramDiff {
 	 * in tags between program 1 and program 2.
 	 *
 	 * @param addressSet
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor
 	 * @return
 	 * @throws CancelledException
 	 */
-	private AddressSet getFunctionTagDifferences(AddressSetView addressSet, TaskMonitor monitor)
+	private AddressSet getFunctionTagDifferences(AddressSetView addressSet,
+			String monitorMsg, TaskMonitor monitor)
 			throws CancelledException {
 
 		FunctionIterator iter1 = program1.getListing().getFunctions(addressSet, true);
 		AddressSet addressSet2 = DiffUtility.getCompatibleAddressSet(addressSet, program2);
 		FunctionIterator iter2 = program2.getListing().getFunctions(addressSet2, true);
 		return getObjectDiffs(new FunctionTagComparator(program1, program2),
-			new IteratorWrapper(iter1), new IteratorWrapper(iter2), monitor);
+			new IteratorWrapper(iter1), new IteratorWrapper(iter2), monitorMsg, monitor);
 	}
 
 	/////////////////////////////////////////
@@ -1556,6 +1746,7 @@ public class ProgramDiff {
 	 * @param addressSet the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
 	 * @param c the comparator to use for determining where the differences are.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 *
@@ -1566,11 +1757,12 @@ public class ProgramDiff {
 	 * @see ghidra.program.model.listing.CodeUnit
 	 */
 	private AddressSet getCuiDiffs(String cuiType, AddressSetView addressSet, CodeUnitComparator c,
-			TaskMonitor monitor) throws CancelledException {
+			String monitorMsg, TaskMonitor monitor) throws CancelledException {
 		CodeUnitIterator iter1 = listing1.getCodeUnitIterator(cuiType, addressSet, true);
 		AddressSet addressSet2 = DiffUtility.getCompatibleAddressSet(addressSet, program2);
 		CodeUnitIterator iter2 = listing2.getCodeUnitIterator(cuiType, addressSet2, true);
-		return getObjectDiffs(c, new IteratorWrapper(iter1), new IteratorWrapper(iter2), monitor);
+		return getObjectDiffs(c, new IteratorWrapper(iter1), new IteratorWrapper(iter2),
+			monitorMsg, monitor);
 	}
 
 	/** Determines the code unit addresses where there are comment differences of the
@@ -1580,6 +1772,7 @@ public class ProgramDiff {
 	 * @param addressSet the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
 	 * @param c the comparator to use for determining where the differences are.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 *
@@ -1590,11 +1783,13 @@ public class ProgramDiff {
 	 * @see ghidra.program.model.listing.CodeUnit
 	 */
 	private AddressSet getCommentDiffs(int commentType, AddressSetView addressSet,
-			CommentTypeComparator c, TaskMonitor monitor) throws CancelledException {
+			CommentTypeComparator c,
+			String monitorMsg, TaskMonitor monitor) throws CancelledException {
 		AddressIterator iter1 = listing1.getCommentAddressIterator(commentType, addressSet, true);
 		AddressSet addressSet2 = DiffUtility.getCompatibleAddressSet(addressSet, program2);
 		AddressIterator iter2 = listing2.getCommentAddressIterator(commentType, addressSet2, true);
-		return getObjectDiffs(c, new IteratorWrapper(iter1), new IteratorWrapper(iter2), monitor);
+		return getObjectDiffs(c, new IteratorWrapper(iter1), new IteratorWrapper(iter2),
+			monitorMsg, monitor);
 	}
 
 	/** Determines the code unit addresses where there are differences of the
@@ -1606,6 +1801,7 @@ public class ProgramDiff {
 	 * @param addressSet the addresses to check for differences.
 	 * The addresses in this address set should be derived from program1.
 	 * @param c the comparator to use for determining where the differences are.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 *
@@ -1616,19 +1812,21 @@ public class ProgramDiff {
 	 * @see ghidra.program.model.listing.CodeUnit
 	 */
 	private AddressSet getAdjustedCuiDiffs(String cuiType, AddressSetView addressSet,
-			CodeUnitComparator c, TaskMonitor monitor) throws CancelledException {
+			CodeUnitComparator c,
+			String monitorMsg, TaskMonitor monitor) throws CancelledException {
 		// Check each address range from the address set for differences.
 		AddressSet inCommon;
 		inCommon = pgmMemComp.getAddressesInCommon();
 		if (addressSet != null) {
 			inCommon = inCommon.intersect(addressSet);
 		}
-		AddressSet as1 = adjustCodeUnitAddressSet(inCommon, listing1, monitor);
+		AddressSet as1 = adjustCodeUnitAddressSet(inCommon, listing1, monitorMsg, monitor);
 		CodeUnitIterator iter1 = listing1.getCodeUnitIterator(cuiType, as1, true);
 		AddressSet inCommonFrom2 = DiffUtility.getCompatibleAddressSet(inCommon, program2);
-		AddressSet as2 = adjustCodeUnitAddressSet(inCommonFrom2, listing2, monitor);
+		AddressSet as2 = adjustCodeUnitAddressSet(inCommonFrom2, listing2, monitorMsg, monitor);
 		CodeUnitIterator iter2 = listing2.getCodeUnitIterator(cuiType, as2, true);
-		return getObjectDiffs(c, new IteratorWrapper(iter1), new IteratorWrapper(iter2), monitor);
+		return getObjectDiffs(c, new IteratorWrapper(iter1), new IteratorWrapper(iter2),
+			monitorMsg, monitor);
 	}
 
 	/**
@@ -1639,13 +1837,14 @@ public class ProgramDiff {
 	 * The addresses in this address set should be derived from the program
 	 * passed as a parameter.
 	 * @param program the program to get the code units from.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @return the new address set
 	 * The addresses in this address set are derived from the program
 	 * that was passed as a parameter.
 	 * @throws CancelledException
 	 */
 	private AddressSet adjustCodeUnitAddressSet(AddressSetView initialAddressSet, Listing listing,
-			TaskMonitor monitor) throws CancelledException {
+			String monitorMsg, TaskMonitor monitor) throws CancelledException {
 
 		if (initialAddressSet == null) {
 			return null;
@@ -1685,6 +1884,7 @@ public class ProgramDiff {
 	 * to be compared exists.
 	 * @param iter2 the program2 object iterator for where the property type
 	 * to be compared exists.
+	 * @param monitorMsg the prefix message to appear in the monitor's message area.
 	 * @param monitor the task monitor for indicating the progress of
 	 * determining differences. This monitor reports the progress to the user.
 	 * @return the addresses where the comparator determined the property type
@@ -1693,7 +1893,8 @@ public class ProgramDiff {
 	 * @throws CancelledException if the user canceled the Diff.
 	 */
 	private AddressSet getObjectDiffs(ProgramDiffComparator c, IteratorWrapper iter1,
-			IteratorWrapper iter2, TaskMonitor monitor) throws CancelledException {
+			IteratorWrapper iter2,
+			String monitorMsg, TaskMonitor monitor) throws CancelledException {
 		AddressSet addrs = new AddressSet();
 		Object o1 = null;
 		Object o2 = null;
@@ -3374,4 +3575,25 @@ public class ProgramDiff {
 		return true;
 	}
 
+
+	/**
+	 * A unit of work for determining differences concurrently: either all the differences
+	 * of a type or the byte differences within a partition of the checked addresses.
+	 */
+	private static class DiffJob {
+		private final int diffType;
+		private final AddressSetView addrs;
+		private final String monitorMsg;
+
+		/**
+		 * @param diffType the type of difference to look for between the programs.
+		 * @param addrs the in common addresses whose bytes are to be compared, or null
+		 * to determine all the differences of the type that aren't part of another job.
+		 */
+		DiffJob(int diffType, AddressSetView addrs) {
+			this.diffType = diffType;
+			this.addrs = addrs;
+			this.monitorMsg = getDiffMessage(diffType);
+		}
+	}
 }
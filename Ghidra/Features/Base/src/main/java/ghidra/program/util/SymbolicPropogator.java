@@ -383,6 +383,9 @@ public class SymbolicPropogator {
 	private boolean checkForReturnRefs = true; // true if return values from functions should be checked for references
 	private boolean checkForStoredRefs = true; // true if stored values should be checked for references
 
+	// if non-null references are collected here instead of being applied to the program
+	private List<DeferredReference> deferredReferences = null;
+
 	public AddressSet flowConstants(Address startAddr, AddressSetView restrictSet,
 			ContextEvaluator eval, VarnodeContext vContext, TaskMonitor monitor)
 			throws CancelledException {
@@ -2319,6 +2322,21 @@ public class SymbolicPropogator {
 			}
 		}
 
+		if (deferredReferences != null) {
+			deferredReferences.add(
+				new DeferredReference(instruction.getMinAddress(), opIndex, target, refType, size));
+			return;
+		}
+
+		applyReference(instruction, opIndex, target, refType, size, monitor);
+	}
+
+	/**
+	 * Apply a reference, along with any data or disassembly implied by the reference.
+	 */
+	private void applyReference(Instruction instruction, int opIndex, Address target,
+			RefType refType, int size, TaskMonitor monitor) {
+
 		if (opIndex == Reference.MNEMONIC) {
 			instruction.addMnemonicReference(target, refType, SourceType.ANALYSIS);
 		}
@@ -2340,6 +2358,46 @@ public class SymbolicPropogator {
 		}
 	}
 
+	/**
+	 * Collect references into the specified list instead of applying them to the program as
+	 * they are found.  This allows constant propagation to run concurrently on several threads,
+	 * with the resulting references later applied by a single thread using
+	 * {@link #applyDeferredReferences(List, TaskMonitor)}.  Any data creation or disassembly
+	 * implied by a reference is deferred along with it.
+	 * <p>
+	 * Deferred references, data and code are not in the program until they are applied, so
+	 * they are not seen by queries of the program such as {@link Instruction#getReferencesFrom()},
+	 * either by this propagator or by others running concurrently.  The results of a flow with
+	 * deferred references can therefore differ from those of the same flow without them.
+	 * 
+	 * @param referenceList list to which references are added, or null to apply references
+	 * as they are found
+	 */
+	public void setDeferredReferenceList(List<DeferredReference> referenceList) {
+		deferredReferences = referenceList;
+	}
+
+	/**
+	 * Apply references which were previously collected by a propagator with a deferred
+	 * reference list.  References from instructions which no longer exist are skipped.
+	 * 
+	 * @param references deferred references
+	 * @param monitor task monitor
+	 * @throws CancelledException if monitor is cancelled
+	 */
+	public void applyDeferredReferences(List<DeferredReference> references, TaskMonitor monitor)
+			throws CancelledException {
+		Listing listing = program.getListing();
+		for (DeferredReference ref : references) {
+			monitor.checkCanceled();
+			Instruction instruction = listing.getInstructionAt(ref.fromAddress);
+			if (instruction == null) {
+				continue; // instruction cleared since reference was found
+			}
+			applyReference(instruction, ref.opIndex, ref.target, ref.refType, ref.size, monitor);
+		}
+	}
+
 	/**
 	 * Evaluate reference type for a pure data reference for valid reference to instructions
 	 * 
@@ -2585,4 +2643,42 @@ public class SymbolicPropogator {
 		checkForStoredRefs = checkStoredRefsOption;
 	}
 
+	/**
+	 * <code>DeferredReference</code> is a reference found during constant propagation
+	 * which has not yet been applied to the program.
+	 */
+	public static class DeferredReference implements Comparable<DeferredReference> {
+		private final Address fromAddress;
+		private final int opIndex;
+		private final Address target;
+		private final RefType refType;
+		private final int size;
+
+		DeferredReference(Address fromAddress, int opIndex, Address target, RefType refType,
+				int size) {
+			this.fromAddress = fromAddress;
+			this.opIndex = opIndex;
+			this.target = target;
+			this.refType = refType;
+			this.size = size;
+		}
+
+		public Address getFromAddress() {
+			return fromAddress;
+		}
+
+		public Address getToAddress() {
+			return target;
+		}
+
+		public RefType getReferenceType() {
+			return refType;
+		}
+
+		@Override
+		public int compareTo(DeferredReference other) {
+			return fromAddress.compareTo(other.fromAddress);
+		}
+	}
+
 }
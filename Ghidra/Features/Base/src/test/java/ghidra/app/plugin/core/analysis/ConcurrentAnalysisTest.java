@@ -0,0 +1,180 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.core.analysis;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.*;
+
+import generic.jar.ResourceFile;
+import ghidra.GhidraApplicationLayout;
+import ghidra.app.services.*;
+import ghidra.app.util.importer.MessageLog;
+import ghidra.framework.Application;
+import ghidra.framework.ApplicationConfiguration;
+import ghidra.program.database.ProgramDB;
+import ghidra.program.model.address.AddressSetView;
+import ghidra.program.model.lang.*;
+import ghidra.program.model.listing.Program;
+import ghidra.program.util.DefaultLanguageService;
+import ghidra.util.UniversalIdGenerator;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+
+public class ConcurrentAnalysisTest {
+
+	private static final int MESSAGE_COUNT = 200;
+
+	private ProgramDB program;
+	private Object consumer = new Object();
+	private AutoAnalysisManager manager;
+	private int transactionID;
+	private int logMessageCount;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		if (!Application.isInitialized()) {
+			ApplicationConfiguration configuration = new ApplicationConfiguration();
+			configuration.setInitializeLogging(false);
+			Application.initializeApplication(
+				new GhidraApplicationLayout(new File("../../..")), configuration);
+			UniversalIdGenerator.initialize();
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		LanguageService languageService = DefaultLanguageService.getLanguageService(
+			new ResourceFile(new File("../../Processors/x86/data/languages/x86.ldefs")));
+		Language language = languageService.getLanguage(new LanguageID("x86:LE:64:default"));
+		CompilerSpec compilerSpec = language.getCompilerSpecByID(new CompilerSpecID("gcc"));
+		program = new ProgramDB("test", language, compilerSpec, consumer);
+		transactionID = program.startTransaction("Test");
+		program.getMemory().createInitializedBlock("test",
+			program.getAddressFactory().getDefaultAddressSpace().getAddress(0x1000), 0x1000,
+			(byte) 0, TaskMonitor.DUMMY, false);
+		manager = AutoAnalysisManager.getAnalysisManager(program);
+		manager.addListener(m -> logMessageCount = m.getMessageLog().getMsgCount());
+	}
+
+	@After
+	public void tearDown() {
+		manager.dispose();
+		program.endTransaction(transactionID, false);
+		program.release(consumer);
+	}
+
+	@Test
+	public void testConcurrentAnalyzers() throws Exception {
+		// each analyzer waits for the other, which only completes if they run concurrently
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		TestAnalyzer first = new TestAnalyzer("First", barrier);
+		TestAnalyzer second = new TestAnalyzer("Second", barrier);
+		manager.addAnalyzer(first);
+		manager.addAnalyzer(second);
+
+		manager.reAnalyzeAll(null);
+		manager.startAnalysis(TaskMonitor.DUMMY, false);
+
+		assertTrue(first.completed);
+		assertTrue(second.completed);
+		assertNotEquals(first.thread, second.thread);
+		// both analyzers logged to the shared log at the same time
+		assertEquals(2 * MESSAGE_COUNT, logMessageCount);
+	}
+
+	@Test
+	public void testDependentAnalyzersNotConcurrent() throws Exception {
+		AtomicBoolean running = new AtomicBoolean();
+		TestAnalyzer first = new TestAnalyzer("First", running);
+		TestAnalyzer second = new TestAnalyzer("Second", running);
+		second.addAnalyzerDependency(first.getName());
+		manager.addAnalyzer(first);
+		manager.addAnalyzer(second);
+
+		manager.reAnalyzeAll(null);
+		manager.startAnalysis(TaskMonitor.DUMMY, false);
+
+		assertTrue(first.completed);
+		assertTrue(second.completed);
+		assertEquals(first.thread, second.thread);
+		assertEquals(2 * MESSAGE_COUNT, logMessageCount);
+	}
+
+	/**
+	 * Byte analyzer which supports concurrent analysis and either waits for another analyzer
+	 * at a barrier or checks that no other analyzer is running.
+	 */
+	private static class TestAnalyzer extends AbstractAnalyzer {
+		private final CyclicBarrier barrier;
+		private final AtomicBoolean running;
+
+		volatile boolean completed;
+		volatile Thread thread;
+
+		TestAnalyzer(String name, CyclicBarrier barrier) {
+			this(name, barrier, null);
+		}
+
+		TestAnalyzer(String name, AtomicBoolean running) {
+			this(name, null, running);
+		}
+
+		private TestAnalyzer(String name, CyclicBarrier barrier, AtomicBoolean running) {
+			super(name, name, AnalyzerType.BYTE_ANALYZER);
+			this.barrier = barrier;
+			this.running = running;
+			setDefaultEnablement(true);
+			setSupportsConcurrentAnalysis(true);
+		}
+
+		@Override
+		protected void addAnalyzerDependency(String analyzerName) {
+			super.addAnalyzerDependency(analyzerName);
+		}
+
+		@Override
+		public boolean added(Program p, AddressSetView set, TaskMonitor monitor, MessageLog log)
+				throws CancelledException {
+			thread = Thread.currentThread();
+			if (running != null && !running.compareAndSet(false, true)) {
+				return false;
+			}
+			try {
+				if (barrier != null) {
+					barrier.await(10, TimeUnit.SECONDS);
+				}
+				for (int i = 0; i < MESSAGE_COUNT; i++) {
+					log.appendMsg(getName(), "message " + i);
+				}
+				completed = true;
+			}
+			catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+				// not run concurrently, completed stays false
+			}
+			finally {
+				if (running != null) {
+					running.set(false);
+				}
+			}
+			return true;
+		}
+	}
+}
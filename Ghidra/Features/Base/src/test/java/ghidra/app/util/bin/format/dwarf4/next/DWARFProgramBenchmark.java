@@ -0,0 +1,195 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.dwarf4.next;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.*;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import generic.jar.ResourceFile;
+import ghidra.GhidraApplicationLayout;
+import ghidra.app.util.bin.format.dwarf4.DWARFPreconditionException;
+import ghidra.app.util.bin.format.dwarf4.next.sectionprovider.ElfSectionProvider;
+import ghidra.framework.Application;
+import ghidra.framework.ApplicationConfiguration;
+import ghidra.program.database.ProgramDB;
+import ghidra.program.model.lang.*;
+import ghidra.program.util.DefaultLanguageService;
+import ghidra.util.UniversalIdGenerator;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * Measures the time and the peak heap used to read the DIE records of a large x86-64 ELF
+ * binary, which is what the DWARF analyzer does before it imports anything.  The peak heap
+ * is the largest heap usage seen right after a garbage collection, which is close to the
+ * peak of live objects.
+ * <p>
+ * Not run by the build (the class name does not end in Test), run it explicitly with
+ * <code>mvn test -Dtest=DWARFProgramBenchmark -DfailIfNoTests=false
+ * -Ddwarf.benchmark.file=&lt;binary&gt; -DargLine=-Xmx2g</code>.  A suitable binary is a
+ * few hundred C++ files that include the standard library headers, compiled with
+ * <code>-gdwarf-4</code>.
+ */
+public class DWARFProgramBenchmark {
+	private static final String FILE_PROPERTY = "dwarf.benchmark.file";
+	private static final int ITERATIONS = 3;
+
+	private static File file;
+
+	private ProgramDB program;
+	private Object consumer = new Object();
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		String path = System.getProperty(FILE_PROPERTY);
+		Assume.assumeTrue(FILE_PROPERTY + " is not set", path != null);
+		file = new File(path);
+		if (!Application.isInitialized()) {
+			ApplicationConfiguration configuration = new ApplicationConfiguration();
+			configuration.setInitializeLogging(false);
+			Application.initializeApplication(
+				new GhidraApplicationLayout(new File("../../..")), configuration);
+			UniversalIdGenerator.initialize();
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		LanguageService languageService = DefaultLanguageService.getLanguageService(
+			new ResourceFile(new File("../../Processors/x86/data/languages/x86.ldefs")));
+		Language language = languageService.getLanguage(new LanguageID("x86:LE:64:default"));
+		CompilerSpec compilerSpec = language.getCompilerSpecByID(new CompilerSpecID("gcc"));
+		program = new ProgramDB(file.getName(), language, compilerSpec, consumer);
+	}
+
+	@After
+	public void tearDown() {
+		program.release(consumer);
+	}
+
+	@Test
+	public void testSummarize() throws Exception {
+		measure("summarize", false, Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testPreload() throws Exception {
+		measure("preload", true, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * A DIE limit that the first few compilation units exceed, which should fail without
+	 * reading the rest of the binary.
+	 */
+	@Test
+	public void testExceedLimit() throws Exception {
+		measure("exceed limit", false, 100_000);
+	}
+
+	private void measure(String name, boolean preLoad, int dieLimit) throws Exception {
+		DWARFImportOptions importOptions = new DWARFImportOptions();
+		importOptions.setPreloadAllDIEs(preLoad);
+		importOptions.setImportLimitDIECount(dieLimit);
+
+		long best = Long.MAX_VALUE;
+		long peakHeap = 0;
+		long dieCount = 0;
+		// the first pass warms up the JIT and the file system cache
+		for (int i = 0; i <= ITERATIONS; i++) {
+			System.gc();
+			try (PeakHeapMonitor heapMonitor = new PeakHeapMonitor()) {
+				long start = System.nanoTime();
+				// the section provider is not closed when the constructor fails
+				try (ElfSectionProvider sectionProvider = new ElfSectionProvider(file);
+						DWARFProgram dprog = new DWARFProgram(program, importOptions,
+							TaskMonitor.DUMMY, sectionProvider)) {
+					dieCount = dprog.getTotalDIECount();
+					assertTrue(dieCount <= dieLimit);
+				}
+				catch (DWARFPreconditionException e) {
+					assertTrue(e.getMessage().contains("than limit of " + dieLimit));
+					dieCount = -1;
+				}
+				long elapsed = System.nanoTime() - start;
+				if (i > 0) {
+					best = Math.min(best, elapsed);
+					peakHeap = Math.max(peakHeap, heapMonitor.getPeak());
+				}
+			}
+		}
+		System.out.println(String.format("%-14s %8.1f ms %8.1f MB peak heap %10d DIEs", name,
+			best / 1e6, peakHeap / (1024.0 * 1024.0), dieCount));
+	}
+
+	/**
+	 * Records the largest heap usage after a garbage collection.
+	 */
+	private static class PeakHeapMonitor implements NotificationListener, AutoCloseable {
+		private final AtomicLong peak = new AtomicLong();
+		private final Set<String> heapPoolNames = new HashSet<>();
+
+		PeakHeapMonitor() {
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					heapPoolNames.add(pool.getName());
+				}
+			}
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+				((NotificationEmitter) gc).addNotificationListener(this, null, null);
+			}
+		}
+
+		@Override
+		public void handleNotification(Notification notification, Object handback) {
+			if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(
+				notification.getType())) {
+				return;
+			}
+			GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+				(CompositeData) notification.getUserData());
+			long used = 0;
+			for (Map.Entry<String, MemoryUsage> entry : info.getGcInfo()
+					.getMemoryUsageAfterGc()
+					.entrySet()) {
+				if (heapPoolNames.contains(entry.getKey())) {
+					used += entry.getValue().getUsed();
+				}
+			}
+			peak.accumulateAndGet(used, Math::max);
+		}
+
+		long getPeak() {
+			return peak.get();
+		}
+
+		@Override
+		public void close() throws ListenerNotFoundException {
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+				((NotificationEmitter) gc).removeNotificationListener(this);
+			}
+		}
+	}
+}
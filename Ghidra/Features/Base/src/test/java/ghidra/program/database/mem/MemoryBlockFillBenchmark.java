@@ -0,0 +1,156 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.database.mem;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.Random;
+
+import org.junit.*;
+
+import generic.jar.ResourceFile;
+import ghidra.GhidraApplicationLayout;
+import ghidra.app.util.bin.*;
+import ghidra.framework.Application;
+import ghidra.framework.ApplicationConfiguration;
+import ghidra.program.database.ProgramDB;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.lang.*;
+import ghidra.program.model.mem.MemoryBlock;
+import ghidra.program.util.DefaultLanguageService;
+import ghidra.util.UniversalIdGenerator;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * Measures the import throughput of creating an initialized memory block from the bytes of
+ * a file, which is what loaders do for each loadable segment.
+ * <p>
+ * Not run by the build (the class name does not end in Test), run it explicitly with
+ * <code>mvn test -Dtest=MemoryBlockFillBenchmark -DfailIfNoTests=false</code>.
+ */
+public class MemoryBlockFillBenchmark {
+	private static final int FILE_SIZE = 64 * 1024 * 1024;
+	private static final int ITERATIONS = 3;
+
+	private static File file;
+	private static byte[] expected;
+
+	private ProgramDB program;
+	private Object consumer = new Object();
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		if (!Application.isInitialized()) {
+			ApplicationConfiguration configuration = new ApplicationConfiguration();
+			configuration.setInitializeLogging(false);
+			Application.initializeApplication(
+				new GhidraApplicationLayout(new File("../../..")), configuration);
+			UniversalIdGenerator.initialize();
+		}
+		expected = new byte[FILE_SIZE];
+		new Random(1).nextBytes(expected);
+		file = File.createTempFile("MemoryBlockFillBenchmark", ".bin");
+		file.deleteOnExit();
+		try (OutputStream os = new FileOutputStream(file)) {
+			os.write(expected);
+		}
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		file.delete();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		LanguageService languageService = DefaultLanguageService.getLanguageService(
+			new ResourceFile(new File("../../Processors/x86/data/languages/x86.ldefs")));
+		Language language = languageService.getLanguage(new LanguageID("x86:LE:64:default"));
+		CompilerSpec compilerSpec = language.getCompilerSpecByID(new CompilerSpecID("gcc"));
+		program = new ProgramDB("fill", language, compilerSpec, consumer);
+	}
+
+	@After
+	public void tearDown() {
+		program.release(consumer);
+	}
+
+	/**
+	 * The stream used by loaders before bulk reads were added to ByteProviderInputStream,
+	 * which returned one byte per call.
+	 */
+	@Test
+	public void testByteAtATimeStream() throws Exception {
+		try (ByteProvider provider = new RandomAccessByteProvider(file)) {
+			measure("byte at a time", () -> new InputStream() {
+				private final InputStream in = new ByteProviderInputStream(provider, 0, FILE_SIZE);
+
+				@Override
+				public int read() throws IOException {
+					return in.read();
+				}
+			});
+		}
+	}
+
+	@Test
+	public void testRandomAccessByteProviderStream() throws Exception {
+		try (ByteProvider provider = new RandomAccessByteProvider(file)) {
+			measure("RandomAccessByteProvider",
+				() -> new ByteProviderInputStream(provider, 0, FILE_SIZE));
+		}
+	}
+
+	private interface StreamSource {
+		InputStream open() throws IOException;
+	}
+
+	private void measure(String name, StreamSource source) throws Exception {
+		Address start = program.getAddressFactory().getDefaultAddressSpace().getAddress(0x1000);
+		long best = Long.MAX_VALUE;
+		// the first pass warms up the JIT and the file system cache
+		for (int i = 0; i <= ITERATIONS; i++) {
+			int transactionID = program.startTransaction("fill");
+			try (InputStream is = source.open()) {
+				long startTime = System.nanoTime();
+				MemoryBlock block = program.getMemory().createInitializedBlock("block", start,
+					is, FILE_SIZE, TaskMonitor.DUMMY, false);
+				long elapsed = System.nanoTime() - startTime;
+				if (i > 0) {
+					best = Math.min(best, elapsed);
+				}
+				verify(block);
+			}
+			finally {
+				program.endTransaction(transactionID, false);
+			}
+		}
+		double seconds = best / 1e9;
+		System.out.println(String.format("%-26s %8.1f ms %8.1f MB/s", name, seconds * 1000,
+			FILE_SIZE / (1024.0 * 1024.0) / seconds));
+	}
+
+	private void verify(MemoryBlock block) throws Exception {
+		byte[] bytes = new byte[4096];
+		for (int offset : new int[] { 0, FILE_SIZE / 3, FILE_SIZE - bytes.length }) {
+			assertEquals(bytes.length, block.getBytes(block.getStart().add(offset), bytes));
+			for (int i = 0; i < bytes.length; i++) {
+				assertEquals(expected[offset + i], bytes[i]);
+			}
+		}
+	}
+}
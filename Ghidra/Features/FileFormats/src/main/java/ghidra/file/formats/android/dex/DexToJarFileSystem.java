@@ -63,7 +63,7 @@ public class DexToJarFileSystem extends GFileSystemBase {
 
 		if (file.equals(jarFile)) {
 			FileCacheEntry jarFileInfo = getJarFile(monitor);
-			return new FileInputStream(jarFileInfo.file);
+			return jarFileInfo.getInputStream();
 		}
 		return null;
 	}
@@ -152,7 +152,7 @@ public class DexToJarFileSystem extends GFileSystemBase {
 					outputStream.finish();
 				}
 
-			}, monitor);
+			}, true, monitor);
 
 		return derivedFileInfo;
 	}
@@ -168,7 +168,7 @@ public class DexToJarFileSystem extends GFileSystemBase {
 		String jarName = baseName + ".jar";
 		FSRL jarFSRL = targetFSRL.withPathMD5(jarName, jarFileInfo.md5);
 		this.jarFile = GFileImpl.fromFilename(this, root, baseName + ".jar", false,
-			jarFileInfo.file.length(), jarFSRL);
+			jarFileInfo.length(), jarFSRL);
 	}
 
 	@Override
@@ -63,7 +63,7 @@ public class GZipFileSystem implements GFileSystem {
 		readGzipMetadata(containerFile, monitor);
 		FileCacheEntry fce = getPayloadFileCacheEntry(monitor);
 		this.fsIndex =
-			new SingleFileSystemIndexHelper(this, fsFSRL, origFilename, fce.file.length(), fce.md5);
+			new SingleFileSystemIndexHelper(this, fsFSRL, origFilename, fce.length(), fce.md5);
 		this.payload = fsIndex.getPayloadFile();
 	}
 
@@ -96,7 +96,8 @@ public class GZipFileSystem implements GFileSystem {
 		UnknownProgressWrappingTaskMonitor upwtm =
 			new UnknownProgressWrappingTaskMonitor(monitor, containerSize);
 		FileCacheEntry derivedFile = fsService.getDerivedFile(containerFSRL, payloadKey,
-			(srcFile) -> new GzipCompressorInputStream(new FileInputStream(srcFile)), upwtm);
+			(srcProvider) -> new GzipCompressorInputStream(srcProvider.getInputStream(0)), true,
+			upwtm);
 		return derivedFile;
 	}
 
@@ -136,7 +137,7 @@ public class GZipFileSystem implements GFileSystem {
 			throws IOException, CancelledException {
 		if (payload.equals(file)) {
 			FileCacheEntry fce = getPayloadFileCacheEntry(monitor);
-			return new FileInputStream(fce.file);
+			return fce.getInputStream();
 		}
 		return null;
 	}
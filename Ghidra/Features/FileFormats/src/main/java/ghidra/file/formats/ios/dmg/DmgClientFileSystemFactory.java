@@ -100,9 +100,9 @@ public class DmgClientFileSystemFactory
 			// based on that.
 
 			FileCacheEntry fce =
-				fsService.getDerivedFile(containerFSRL, "decrypted " + containerName, (srcFile) -> {
-					monitor.initialize(srcFile.length());
-					return new DmgDecryptorStream(containerName, dmgName, srcFile);
+				fsService.getDerivedFile(containerFSRL, "decrypted " + containerName, (srcProvider) -> {
+					monitor.initialize(srcProvider.length());
+					return new DmgDecryptorStream(containerName, dmgName, srcProvider);
 				} , monitor);
 			decrypted_dmg_file = fce.file;
 		}
@@ -100,11 +100,11 @@ public class Img3FileSystem extends GFileSystemBase {
 			if (file.getName().equals(filename)) {
 				FileCacheEntry derivedFile =
 					fsService.getDerivedFile(fsFSRL.getContainer(), "decrypted_img3_" + filename,
-						(srcFile) -> dataTag.getDecryptedInputStream(fsFSRL.getName(2),
+						(srcProvider) -> dataTag.getDecryptedInputStream(fsFSRL.getName(2),
 							fsFSRL.getName(1)),
-						monitor);
+						true, monitor);
 
-				return new FileInputStream(derivedFile.file);
+				return derivedFile.getInputStream();
 			}
 		}
 
@@ -55,7 +55,7 @@ public class JavaClassDecompilerFileSystem implements GFileSystem {
 
 		FileCacheEntry fce = getDecompiledJavaSrcFileEntry(monitor);
 		this.fsIndexHelper = new SingleFileSystemIndexHelper(this, fsFSRL, javaSrcFilename,
-			fce.file.length(), fce.md5);
+			fce.length(), fce.md5);
 	}
 
 	private FileCacheEntry getDecompiledJavaSrcFileEntry(TaskMonitor monitor)
@@ -84,7 +84,7 @@ public class JavaClassDecompilerFileSystem implements GFileSystem {
 				finally {
 					FileUtilities.deleteDir(tempDir, monitor);
 				}
-			}, monitor);
+			}, true, monitor);
 		return derivedFileInfo;
 	}
 
@@ -128,7 +128,7 @@ public class JavaClassDecompilerFileSystem implements GFileSystem {
 			throws IOException, CancelledException {
 		if (fsIndexHelper.getPayloadFile().equals(file)) {
 			FileCacheEntry fce = getDecompiledJavaSrcFileEntry(monitor);
-			return new FileInputStream(fce.file);
+			return fce.getInputStream();
 		}
 		return null;
 	}
@@ -54,7 +54,7 @@ public class SparseImageFileSystem implements GFileSystem {
 		String payloadName = containerFSRL.getName() + ".raw";
 		FSRL payloadFSRL = root.getFSRL().appendPath(payloadName).withMD5(pli.md5);
 		this.payload =
-			GFileImpl.fromFilename(this, root, payloadName, false, pli.file.length(), payloadFSRL);
+			GFileImpl.fromFilename(this, root, payloadName, false, pli.length(), payloadFSRL);
 	}
 
 	@Override
@@ -101,7 +101,7 @@ public class SparseImageFileSystem implements GFileSystem {
 				SparseImageDecompressor sid = new SparseImageDecompressor(provider, os);
 				sid.decompress(monitor);
 			}
-		} , monitor);
+		} , true, monitor);
 	}
 
 	@Override
@@ -109,7 +109,7 @@ public class SparseImageFileSystem implements GFileSystem {
 			throws IOException, CancelledException {
 		if (payload.equals(file)) {
 			FileCacheEntry pli = getPayloadInfo(monitor);
-			return new FileInputStream(pli.file);
+			return pli.getInputStream();
 		}
 		return null;
 	}
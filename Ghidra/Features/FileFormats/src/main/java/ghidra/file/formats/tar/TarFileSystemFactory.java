@@ -48,9 +48,9 @@ public class TarFileSystemFactory implements GFileSystemFactoryWithFile<TarFileS
 			UnknownProgressWrappingTaskMonitor upwtm =
 				new UnknownProgressWrappingTaskMonitor(monitor, containerFile.length());
 			FileCacheEntry fce =
-				fsService.getDerivedFile(containerFSRL, "uncompressed tar", (srcFile) -> {
+				fsService.getDerivedFile(containerFSRL, "uncompressed tar", (srcProvider) -> {
 					Msg.info(TarFileSystem.class, "Uncompressing tar file " + containerFSRL);
-					return newFileInputStreamAutoDetectCompressed(srcFile);
+					return newInputStreamAutoDetectCompressed(srcProvider.getInputStream(0));
 				}, upwtm);
 			containerFile = fce.file;
 		}
@@ -116,7 +116,12 @@ public class TarFileSystemFactory implements GFileSystemFactoryWithFile<TarFileS
 	}
 
 	private static InputStream newFileInputStreamAutoDetectCompressed(File f) throws IOException {
-		InputStream is = new BufferedInputStream(new FileInputStream(f));
+		return newInputStreamAutoDetectCompressed(new FileInputStream(f));
+	}
+
+	private static InputStream newInputStreamAutoDetectCompressed(InputStream rawIs)
+			throws IOException {
+		InputStream is = new BufferedInputStream(rawIs);
 		is.mark(2);
 		int magicbytes = readUShort(is);
 		is.reset();
@@ -45,6 +45,9 @@ public class FidDB implements Closeable {
 	private StringsTable stringsTable;
 	private FunctionsTable functionsTable;
 	private RelationsTable relationsTable;
+	private FidHashFilter fullHashFilter;
+	private FidHashFilter specificHashFilter;
+	private boolean hashFiltersLoaded;
 	private long openTransaction;
 
 	private boolean openForUpdate;
@@ -110,6 +113,19 @@ public class FidDB implements Closeable {
 	 */
 	public void saveRawDatabaseFile(File file, TaskMonitor monitor)
 			throws CancelledException, IOException {
+		if (openForUpdate) {
+			storeHashFilters();
+		}
+		else {
+			// the raw file is read-only, so it can only get its filters now
+			long txId = handle.startTransaction();
+			try {
+				storeHashFilters();
+			}
+			finally {
+				handle.endTransaction(txId, true);
+			}
+		}
 		handle.saveAs(file, false, monitor);
 	}
 
@@ -151,6 +167,91 @@ public class FidDB implements Closeable {
 		relationsTable = new RelationsTable(handle);
 	}
 
+	/**
+	 * Loads the hash filters of this database if they have not been loaded yet.  Filters
+	 * stored in the database are used if they are up to date.  Otherwise the filters of a
+	 * database open for update are rebuilt from the functions table, and a read-only database
+	 * has no filters, because rebuilt filters could not be stored and would be rebuilt in
+	 * every session.  The filters of read-only databases are shared through the FidFile, so
+	 * they are loaded at most once.
+	 * @throws IOException if the database read fails
+	 */
+	private synchronized void loadHashFilters() throws IOException {
+		if (hashFiltersLoaded) {
+			return;
+		}
+		hashFiltersLoaded = true;
+		if (!openForUpdate) {
+			FidHashFilter[] cached = fidFile.getHashFilters();
+			if (cached != null) {
+				fullHashFilter = cached[0];
+				specificHashFilter = cached[1];
+				return;
+			}
+		}
+		int count = functionsTable.getRecordCount();
+		FidHashFilter full = HashFilterTable.readFilter(handle, HashFilterTable.FULL_HASH_KEY);
+		FidHashFilter specific =
+			HashFilterTable.readFilter(handle, HashFilterTable.SPECIFIC_HASH_KEY);
+		if (full == null || specific == null || full.getElementCount() != count ||
+			specific.getElementCount() != count) {
+			if (!openForUpdate) {
+				fidFile.setHashFilters(new FidHashFilter[2]);
+				return;
+			}
+			full = new FidHashFilter(count);
+			specific = new FidHashFilter(count);
+			functionsTable.addHashes(full, specific);
+		}
+		fullHashFilter = full;
+		specificHashFilter = specific;
+		if (!openForUpdate) {
+			fidFile.setHashFilters(new FidHashFilter[] { full, specific });
+		}
+	}
+
+	/**
+	 * Rebuilds the hash filters, sized for the current number of functions, and stores them
+	 * in the database.
+	 * @throws IOException if the database write fails
+	 */
+	private synchronized void storeHashFilters() throws IOException {
+		int count = functionsTable.getRecordCount();
+		FidHashFilter full = new FidHashFilter(count);
+		FidHashFilter specific = new FidHashFilter(count);
+		functionsTable.addHashes(full, specific);
+		HashFilterTable.writeFilter(handle, HashFilterTable.FULL_HASH_KEY, full);
+		HashFilterTable.writeFilter(handle, HashFilterTable.SPECIFIC_HASH_KEY, specific);
+		fullHashFilter = full;
+		specificHashFilter = specific;
+		hashFiltersLoaded = true;
+		fidFile.setHashFilters(null);
+	}
+
+	/**
+	 * Returns the Bloom filter over the full hashes of this database, which also records
+	 * statistics about the full hash lookups it has answered.
+	 * @return the full hash filter, or null if this database is read-only and has no stored
+	 * filters
+	 * @throws IOException if the filter cannot be loaded
+	 */
+	public FidHashFilter getFullHashFilter() throws IOException {
+		loadHashFilters();
+		return fullHashFilter;
+	}
+
+	/**
+	 * Returns the Bloom filter over the specific hashes of this database, which also records
+	 * statistics about the specific hash lookups it has answered.
+	 * @return the specific hash filter, or null if this database is read-only and has no
+	 * stored filters
+	 * @throws IOException if the filter cannot be loaded
+	 */
+	public FidHashFilter getSpecificHashFilter() throws IOException {
+		loadHashFilters();
+		return specificHashFilter;
+	}
+
 	/**
 	 * @return name of underlying FidFile.
 	 */
@@ -190,6 +291,9 @@ public class FidDB implements Closeable {
 	public void close() {
 		if (openCount.decrementAndGet() == 0) {
 			fidFile.closingFidDB(this);
+			if (fullHashFilter != null && fullHashFilter.getQueryCount() != 0) {
+				Msg.debug(this, this + " full hash filter: " + fullHashFilter);
+			}
 
 			try {
 				if (openForUpdate) {
@@ -328,8 +432,15 @@ public class FidDB implements Closeable {
 	 */
 	public List<FunctionRecord> findFunctionsBySpecificHash(long specificHash) {
 		try {
+			FidHashFilter filter = getSpecificHashFilter();
+			if (filter != null && !filter.mightContain(specificHash)) {
+				return Collections.emptyList();
+			}
 			List<FunctionRecord> list =
 				functionsTable.getFunctionRecordsBySpecificHash(specificHash);
+			if (filter != null && list.isEmpty()) {
+				filter.recordFalsePositive();
+			}
 			return list;
 		}
 		catch (IOException e) {
@@ -345,7 +456,14 @@ public class FidDB implements Closeable {
 	 */
 	public List<FunctionRecord> findFunctionsByFullHash(long fullHash) {
 		try {
+			FidHashFilter filter = getFullHashFilter();
+			if (filter != null && !filter.mightContain(fullHash)) {
+				return Collections.emptyList();
+			}
 			List<FunctionRecord> list = functionsTable.getFunctionRecordsByFullHash(fullHash);
+			if (filter != null && list.isEmpty()) {
+				filter.recordFalsePositive();
+			}
 			return list;
 		}
 		catch (IOException e) {
@@ -511,6 +629,12 @@ public class FidDB implements Closeable {
 			checkUpdateAllowed();
 			FunctionRecord functionRecord = functionsTable.createFunctionRecord(
 				library.getLibraryID(), hashQuad, name, entryPoint, domainPath, hasTerminator);
+			synchronized (this) {
+				if (fullHashFilter != null) {
+					fullHashFilter.add(hashQuad.getFullHash());
+					specificHashFilter.add(hashQuad.getSpecificHash());
+				}
+			}
 			return functionRecord;
 		}
 		catch (ReadOnlyException e) {
@@ -812,6 +936,7 @@ public class FidDB implements Closeable {
 			return;
 		}
 
+		storeHashFilters();
 		handle.endTransaction(openTransaction, true);
 		handle.save(comment, null, monitor);
 		openTransaction = handle.startTransaction();
@@ -51,6 +51,7 @@ public class FidFile implements Comparable<FidFile> {
 	private FidFileManager fidFileManager;
 	private Set<LanguageDescription> supportedLanguages;
 	private FidDB openUpdateableFidDB;
+	private FidHashFilter[] hashFilters;
 
 	FidFile(FidFileManager fidFileManager, File file, boolean isInstalled) {
 		this.fidFileManager = fidFileManager;
@@ -214,6 +215,18 @@ public class FidFile implements Comparable<FidFile> {
 		return languages;
 	}
 
+	/**
+	 * @return the full and specific hash filters shared by read-only FidDBs of this file, or
+	 * null if they have not been loaded
+	 */
+	synchronized FidHashFilter[] getHashFilters() {
+		return hashFilters;
+	}
+
+	synchronized void setHashFilters(FidHashFilter[] hashFilters) {
+		this.hashFilters = hashFilters;
+	}
+
 	void closingFidDB(FidDB fidDB) {
 		if (fidDB == openUpdateableFidDB) {
 			openUpdateableFidDB = null;
@@ -0,0 +1,220 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.feature.fid.db;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A Bloom filter over the (full or specific) hash values of the functions in a FID database.
+ * A negative answer from {@link #mightContain(long)} is definitive, so lookups of hashes which
+ * are not in the database can be answered without touching the database.  With the default
+ * sizing roughly 1% of such lookups are false positives.
+ * <p>
+ * The filter also counts the queries it has answered, so the effectiveness of the filter can
+ * be reported.
+ * <p>
+ * Thread-safe, hashes can be added while other threads query the filter.
+ */
+public class FidHashFilter {
+	private static final int BITS_PER_ELEMENT = 10;
+	private static final int DEFAULT_PROBE_COUNT = 7;
+	private static final int MIN_BIT_COUNT = 1024;
+
+	private final AtomicLongArray bits;
+	private final long bitMask;
+	private final int probeCount;
+	private final AtomicInteger elementCount = new AtomicInteger();
+
+	private final LongAdder queryCount = new LongAdder();
+	private final LongAdder rejectCount = new LongAdder();
+	private final LongAdder falsePositiveCount = new LongAdder();
+
+	/**
+	 * Creates an empty filter sized for the specified number of hashes.
+	 * @param expectedCount the expected number of hashes to be added
+	 */
+	public FidHashFilter(int expectedCount) {
+		long bitCount = MIN_BIT_COUNT;
+		while (bitCount < (long) expectedCount * BITS_PER_ELEMENT) {
+			bitCount <<= 1;
+		}
+		this.bits = new AtomicLongArray((int) (bitCount >>> 6));
+		this.bitMask = bitCount - 1;
+		this.probeCount = DEFAULT_PROBE_COUNT;
+	}
+
+	/**
+	 * Restores a filter from its serialized form.
+	 * @param data the serialized filter as produced by {@link #getBytes()}
+	 * @param probeCount the number of probes per hash
+	 * @param elementCount the number of hashes which were added to the filter
+	 * @throws IllegalArgumentException if the data is not a valid filter
+	 */
+	FidHashFilter(byte[] data, int probeCount, int elementCount) {
+		int longCount = data.length >>> 3;
+		if (longCount == 0 || (longCount & (longCount - 1)) != 0 || (data.length & 7) != 0 ||
+			probeCount <= 0) {
+			throw new IllegalArgumentException("Invalid hash filter");
+		}
+		this.bits = new AtomicLongArray(longCount);
+		for (int ii = 0; ii < longCount; ++ii) {
+			long value = 0;
+			for (int jj = 0; jj < 8; ++jj) {
+				value = (value << 8) | (data[ii * 8 + jj] & 0xff);
+			}
+			bits.set(ii, value);
+		}
+		this.bitMask = ((long) longCount << 6) - 1;
+		this.probeCount = probeCount;
+		this.elementCount.set(elementCount);
+	}
+
+	/**
+	 * Adds a hash to the filter.
+	 * @param hash the hash value
+	 */
+	public void add(long hash) {
+		long h1 = mix(hash);
+		long h2 = mix(h1) | 1;
+		for (int ii = 0; ii < probeCount; ++ii) {
+			long index = (h1 + ii * h2) & bitMask;
+			long bit = 1L << index;
+			bits.accumulateAndGet((int) (index >>> 6), bit, (a, b) -> a | b);
+		}
+		elementCount.incrementAndGet();
+	}
+
+	/**
+	 * Tests whether a hash may have been added to the filter.
+	 * @param hash the hash value
+	 * @return false if the hash was definitely not added, true if it may have been
+	 */
+	public boolean mightContain(long hash) {
+		queryCount.increment();
+		long h1 = mix(hash);
+		long h2 = mix(h1) | 1;
+		for (int ii = 0; ii < probeCount; ++ii) {
+			long index = (h1 + ii * h2) & bitMask;
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				rejectCount.increment();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records that a hash passed the filter but was not found in the database.
+	 */
+	void recordFalsePositive() {
+		falsePositiveCount.increment();
+	}
+
+	/**
+	 * @return the number of hashes which have been added to the filter
+	 */
+	public int getElementCount() {
+		return elementCount.get();
+	}
+
+	/**
+	 * @return the number of probes per hash
+	 */
+	public int getProbeCount() {
+		return probeCount;
+	}
+
+	/**
+	 * @return the number of queries answered by the filter
+	 */
+	public long getQueryCount() {
+		return queryCount.sum();
+	}
+
+	/**
+	 * @return the number of queries which the filter answered without consulting the database
+	 */
+	public long getRejectCount() {
+		return rejectCount.sum();
+	}
+
+	/**
+	 * @return the number of queries which passed the filter but matched nothing in the database
+	 */
+	public long getFalsePositiveCount() {
+		return falsePositiveCount.sum();
+	}
+
+	/**
+	 * @return the fraction of queries which were answered without consulting the database
+	 */
+	public double getRejectRate() {
+		long queries = getQueryCount();
+		return queries == 0 ? 0 : (double) getRejectCount() / queries;
+	}
+
+	/**
+	 * @return the fraction of queries for hashes not in the database which nevertheless passed
+	 * the filter
+	 */
+	public double getFalsePositiveRate() {
+		long falsePositives = getFalsePositiveCount();
+		long misses = getRejectCount() + falsePositives;
+		return misses == 0 ? 0 : (double) falsePositives / misses;
+	}
+
+	/**
+	 * Resets the query statistics.
+	 */
+	public void resetStatistics() {
+		queryCount.reset();
+		rejectCount.reset();
+		falsePositiveCount.reset();
+	}
+
+	/**
+	 * @return the serialized filter bits
+	 */
+	byte[] getBytes() {
+		byte[] data = new byte[bits.length() * 8];
+		for (int ii = 0; ii < bits.length(); ++ii) {
+			long value = bits.get(ii);
+			for (int jj = 7; jj >= 0; --jj) {
+				data[ii * 8 + jj] = (byte) value;
+				value >>>= 8;
+			}
+		}
+		return data;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+			"%d hashes, %d queries, %.1f%% rejected, %.2f%% false positive rate", getElementCount(),
+			getQueryCount(), getRejectRate() * 100, getFalsePositiveRate() * 100);
+	}
+
+	/**
+	 * 64-bit finalizer used to derive the two independent values of the probe sequence.
+	 * @param value the value to mix
+	 * @return the mixed value
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+		value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return value ^ (value >>> 33);
+	}
+}
@@ -180,6 +180,32 @@ public class FidQueryService implements Closeable {
 		return result;
 	}
 
+	/**
+	 * Returns the function records having each of the provided full hashes, searching across
+	 * all attached databases.  The hashes are looked up in sorted order, one database at a time,
+	 * so that consecutive lookups visit neighboring entries of each database's hash index.
+	 * @param fullHashes the hash values (need not be sorted or unique)
+	 * @return map from each hash value having at least one match to its function records
+	 */
+	public Map<Long, List<FunctionRecord>> findFunctionsByFullHashes(long[] fullHashes) {
+		long[] sorted = fullHashes.clone();
+		Arrays.sort(sorted);
+		Map<Long, List<FunctionRecord>> result = new HashMap<Long, List<FunctionRecord>>();
+		for (FidDB fidDb : fidDbList) {
+			for (int ii = 0; ii < sorted.length; ++ii) {
+				if (ii > 0 && sorted[ii] == sorted[ii - 1]) {
+					continue;
+				}
+				List<FunctionRecord> list = fidDb.findFunctionsByFullHash(sorted[ii]);
+				if (list != null && !list.isEmpty()) {
+					result.computeIfAbsent(sorted[ii], k -> new ArrayList<FunctionRecord>())
+							.addAll(list);
+				}
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Searches all databases for functions that match a name substring.
 	 * @param name the name substring
@@ -101,6 +101,29 @@ public class FunctionsTable {
 		return null;
 	}
 
+	/**
+	 * @return the number of function records in the table
+	 */
+	public int getRecordCount() {
+		return table.getRecordCount();
+	}
+
+	/**
+	 * Adds the full and specific hashes of every function record to the provided filters.
+	 * @param fullHashFilter the filter receiving full hashes
+	 * @param specificHashFilter the filter receiving specific hashes
+	 * @throws IOException if database iteration encounters an error
+	 */
+	void addHashes(FidHashFilter fullHashFilter, FidHashFilter specificHashFilter)
+			throws IOException {
+		RecordIterator iterator = table.iterator();
+		while (iterator.hasNext()) {
+			Record record = iterator.next();
+			fullHashFilter.add(record.getLongValue(FULL_HASH_COL));
+			specificHashFilter.add(record.getLongValue(SPECIFIC_HASH_COL));
+		}
+	}
+
 	/**
 	 * Returns all the function records that have the provided specific hash.
 	 * This is implemented without an index, so it is inefficient.
@@ -0,0 +1,101 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.feature.fid.db;
+
+import java.io.IOException;
+
+import db.*;
+
+/**
+ * Table holding the persisted {@link FidHashFilter}s of a FID database.  The table is optional:
+ * databases created before it existed (or whose filters are out of date) have their filters
+ * rebuilt from the functions table when they are opened for update, and are used without
+ * filters when they are opened read-only.  The filters are stored when the database is saved,
+ * including when it is saved as a read-only installable database.
+ */
+public class HashFilterTable {
+	static final String HASH_FILTER_TABLE = "Hash Filter Table";
+
+	/**
+	 * Unlike the other FID tables, a version mismatch is not an error; the filters are
+	 * simply rebuilt.
+	 */
+	static final int VERSION = 1;
+
+	static final long FULL_HASH_KEY = 0;
+	static final long SPECIFIC_HASH_KEY = 1;
+
+	static final int ELEMENT_COUNT_COL = 0;
+	static final int PROBE_COUNT_COL = 1;
+	static final int BITS_COL = 2;
+
+	// @formatter:off
+	static final Schema SCHEMA = new Schema(VERSION, "Filter ID", new Class[] {
+			IntField.class, ByteField.class, BinaryField.class
+		}, new String[] {
+			"Element Count", "Probe Count", "Bits"
+		});
+	// @formatter:on
+
+	/**
+	 * Reads a filter from the database.
+	 * @param handle database handle
+	 * @param key the filter key (see {@link #FULL_HASH_KEY} and {@link #SPECIFIC_HASH_KEY})
+	 * @return the filter, or null if the database has no usable filter for the key
+	 * @throws IOException if the database read fails
+	 */
+	static FidHashFilter readFilter(DBHandle handle, long key) throws IOException {
+		Table table = handle.getTable(HASH_FILTER_TABLE);
+		if (table == null || table.getSchema().getVersion() != VERSION) {
+			return null;
+		}
+		Record record = table.getRecord(key);
+		if (record == null) {
+			return null;
+		}
+		try {
+			return new FidHashFilter(record.getBinaryData(BITS_COL),
+				record.getByteValue(PROBE_COUNT_COL), record.getIntValue(ELEMENT_COUNT_COL));
+		}
+		catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a filter to the database, creating the table if necessary.  The database must
+	 * have an open transaction.
+	 * @param handle database handle
+	 * @param key the filter key (see {@link #FULL_HASH_KEY} and {@link #SPECIFIC_HASH_KEY})
+	 * @param filter the filter
+	 * @throws IOException if the database write fails
+	 */
+	static void writeFilter(DBHandle handle, long key, FidHashFilter filter) throws IOException {
+		Table table = handle.getTable(HASH_FILTER_TABLE);
+		if (table != null && table.getSchema().getVersion() != VERSION) {
+			handle.deleteTable(HASH_FILTER_TABLE);
+			table = null;
+		}
+		if (table == null) {
+			table = handle.createTable(HASH_FILTER_TABLE, SCHEMA);
+		}
+		Record record = SCHEMA.createRecord(key);
+		record.setIntValue(ELEMENT_COUNT_COL, filter.getElementCount());
+		record.setByteValue(PROBE_COUNT_COL, (byte) filter.getProbeCount());
+		record.setBinaryData(BITS_COL, filter.getBytes());
+		table.putRecord(record);
+	}
+}
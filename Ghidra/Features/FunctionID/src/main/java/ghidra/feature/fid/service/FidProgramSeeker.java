@@ -16,13 +16,23 @@
 package ghidra.feature.fid.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-
-import generic.cache.FixedSizeMRUCachingFactory;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+import generic.concurrent.ConcurrentQ;
+import generic.concurrent.ConcurrentQBuilder;
+import generic.concurrent.GThreadPool;
+import generic.concurrent.QCallback;
 import ghidra.feature.fid.db.FidQueryService;
 import ghidra.feature.fid.db.FunctionRecord;
 import ghidra.feature.fid.db.LibraryRecord;
@@ -45,7 +55,12 @@ import ghidra.util.task.TaskMonitor;
 
 /**
  * Class for producing FID search results for a functions in a single program.
- * It holds program specific context and caches
+ * It holds program specific context and caches.
+ * <p>
+ * Every function's hash is computed at most once and memoized, since the same function is
+ * typically part of the hash family of each of its callers and callees.  When searching a whole
+ * program, functions are hashed and their families are built in parallel, and the full hashes
+ * are then looked up in sorted batches before the matches of each function are scored.
  */
 public class FidProgramSeeker {
 	/**
@@ -61,13 +76,18 @@ public class FidProgramSeeker {
 
 	public final int MAX_NUM_PARENTS_FOR_SCORE = 500; // Limit number of (useless) parent (caller) functions
 
-	private final int CACHE_SIZE = 10000; // Maximum number of FidQuadHash cached
+	public static final String THREAD_POOL_NAME = "FID Hashing";
+
+	private static final int CHUNK_SIZE = 256; // Number of functions processed by one parallel task
 
 	private final float scoreThreshold; // Code unit score a function must achieve to be considered a match
 	private final int mediumHashCodeUnitLengthLimit;
 	private final FidQueryService fidQueryService;
 	private final Program program;
-	private final FixedSizeMRUCachingFactory<Function, FidHashQuad> cacheFactory;
+	private final Supplier<FidHasher> hasherFactory;
+	private final Queue<FidHasher> idleHashers = new ConcurrentLinkedQueue<FidHasher>();
+	private final Map<Address, FidHashQuad> hashMemo = new ConcurrentHashMap<Address, FidHashQuad>();
+	private final Set<Address> unhashable = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Creates a seek object.
@@ -79,13 +99,28 @@ public class FidProgramSeeker {
 	 */
 	public FidProgramSeeker(FidQueryService fidQueryService, Program program, FidHasher hasher,
 			byte shortHashCodeUnitLength, byte mediumHashCodeUnitLengthLimit, float scoreThreshold) {
+		this(fidQueryService, program, (Supplier<FidHasher>) null, shortHashCodeUnitLength,
+			mediumHashCodeUnitLengthLimit, scoreThreshold);
+		idleHashers.add(hasher);
+	}
+
+	/**
+	 * Creates a seek object which hashes functions in parallel.  FidHashers are not thread safe,
+	 * so the factory is used to create one for each concurrent task.
+	 * @param controller the FID database service
+	 * @param program the program for which to resolve names
+	 * @param hasherFactory creates FID hashers configured for the program
+	 * @param shortHashCodeUnitLength the short hash size
+	 * @param mediumHashCodeUnitLengthLimit the medium hash size
+	 */
+	public FidProgramSeeker(FidQueryService fidQueryService, Program program,
+			Supplier<FidHasher> hasherFactory, byte shortHashCodeUnitLength,
+			byte mediumHashCodeUnitLengthLimit, float scoreThreshold) {
 		this.fidQueryService = fidQueryService;
 		this.program = program;
+		this.hasherFactory = hasherFactory;
 		this.scoreThreshold = scoreThreshold;
 		this.mediumHashCodeUnitLengthLimit = mediumHashCodeUnitLengthLimit;
-		FidHasherFactory factory = new FidHasherFactory(hasher);
-		this.cacheFactory =
-			new FixedSizeMRUCachingFactory<Function, FidHashQuad>(factory, CACHE_SIZE);
 	}
 
 	public static ArrayList<Function> getChildren(Function function,boolean followThunks) {
@@ -130,7 +165,7 @@ public class FidProgramSeeker {
 		ArrayList<Function> children = getChildren(function, true);
 		for (Function relation : children) {
 			monitor.checkCanceled();
-			FidHashQuad hash = cacheFactory.get(relation);
+			FidHashQuad hash = getHash(relation);
 			if (hash != null) {
 				family.addChild(hash);
 			}
@@ -201,24 +236,95 @@ public class FidProgramSeeker {
 		ArrayList<Function> parents = getParents(function, true);
 		for (Function relation : parents) {
 			monitor.checkCanceled();
-			FidHashQuad hash = cacheFactory.get(relation);
+			FidHashQuad hash = getHash(relation);
 			if (hash != null) {
 				family.addParent(hash);
 			}
 		}
 	}
 
+	/**
+	 * Get the hash of a function, computing and memoizing it if necessary.
+	 * @param function the function (may be null)
+	 * @return the hash, or null if the function is null or cannot be hashed
+	 */
+	private FidHashQuad getHash(Function function) {
+		if (function == null) {
+			return null;
+		}
+		Address entryPoint = function.getEntryPoint();
+		FidHashQuad hash = hashMemo.get(entryPoint);
+		if (hash != null || unhashable.contains(entryPoint)) {
+			return hash;
+		}
+		FidHasher hasher = acquireHasher();
+		try {
+			hash = hasher.hash(function);
+		}
+		catch (MemoryAccessException e) {
+			hash = null;
+		}
+		finally {
+			releaseHasher(hasher);
+		}
+		if (hash != null) {
+			hashMemo.put(entryPoint, hash);
+		}
+		else {
+			unhashable.add(entryPoint);
+		}
+		return hash;
+	}
+
+	/**
+	 * Obtain a hasher for the exclusive use of the calling thread.  Without a hasher factory,
+	 * the single hasher is handed to one thread at a time.
+	 * @return the hasher
+	 */
+	private FidHasher acquireHasher() {
+		FidHasher hasher = idleHashers.poll();
+		if (hasher != null) {
+			return hasher;
+		}
+		if (hasherFactory != null) {
+			return hasherFactory.get();
+		}
+		synchronized (idleHashers) {
+			while ((hasher = idleHashers.poll()) == null) {
+				try {
+					idleHashers.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+			return hasher;
+		}
+	}
+
+	private void releaseHasher(FidHasher hasher) {
+		idleHashers.add(hasher);
+		if (hasherFactory == null) {
+			synchronized (idleHashers) {
+				idleHashers.notifyAll();
+			}
+		}
+	}
+
 	/**
 	 * Given HashFamily for a function, lookup possible matches and mint FidSearchResult objects
 	 * @param function the function
 	 * @param family the hash family
+	 * @param functionsByFullHash the function records with the family's full hash
 	 * @param monitor a task monitor
 	 * @return the FidSearchResult describing any discovered matches
 	 * @throws CancelledException if the user cancels
 	 */
-	private FidSearchResult processMatches(Function function, HashFamily family, TaskMonitor monitor)
+	private FidSearchResult processMatches(Function function, HashFamily family,
+			List<FunctionRecord> functionsByFullHash, TaskMonitor monitor)
 			throws CancelledException {
-		List<HashMatch> hashMatches = lookupFamily(family, monitor);
+		List<HashMatch> hashMatches = scoreMatches(family, functionsByFullHash, monitor);
 		FidSearchResult searchResult = null;
 		if (!hashMatches.isEmpty()) {
 			if (hashMatches.size() == 1) {
@@ -300,7 +406,7 @@ public class FidProgramSeeker {
 	private HashFamily getFamily(Function function, TaskMonitor monitor)
 			throws MemoryAccessException, CancelledException {
 		Address address = function.getEntryPoint();
-		FidHashQuad hash = cacheFactory.get(function);
+		FidHashQuad hash = getHash(function);
 		if (hash == null) {
 			return null;
 		}
@@ -381,19 +487,18 @@ public class FidProgramSeeker {
 	}
 
 	/**
-	 * Given a hash family, find raw matches in the FID service.
+	 * Given a hash family and the raw matches of its full hash in the FID service, score them.
 	 * @param family the hash family
+	 * @param functionsByFullHash the function records with the family's full hash
 	 * @param monitor a task monitor
-	 * @return a list of matches
+	 * @return a list of matches, sorted by decreasing significance
 	 * @throws CancelledException if the user cancels
 	 */
-	private List<HashMatch> lookupFamily(HashFamily family, TaskMonitor monitor)
+	private List<HashMatch> scoreMatches(HashFamily family,
+			List<FunctionRecord> functionsByFullHash, TaskMonitor monitor)
 			throws CancelledException {
 		ArrayList<HashMatch> result = new ArrayList<HashMatch>();
 
-		List<FunctionRecord> functionsByFullHash =
-			fidQueryService.findFunctionsByFullHash(family.getHash().getFullHash());
-
 		for (FunctionRecord functionRecord : functionsByFullHash) {
 			monitor.checkCanceled();
 			HashMatch match = scoreMatch(functionRecord, family, monitor);
@@ -420,7 +525,9 @@ public class FidProgramSeeker {
 		HashFamily family = getFamily(function, monitor);
 		FidSearchResult fidResult = null;
 		if (family != null) {
-			fidResult = processMatches(function, family, monitor);
+			List<FunctionRecord> functionsByFullHash =
+				fidQueryService.findFunctionsByFullHash(family.getHash().getFullHash());
+			fidResult = processMatches(function, family, functionsByFullHash, monitor);
 			if (fidResult == null) {
 				fidResult = new FidSearchResult(function, family.getHash(), null);
 			}
@@ -438,27 +545,113 @@ public class FidProgramSeeker {
 		List<FidSearchResult> result = new LinkedList<FidSearchResult>();
 
 		FunctionManager functionManager = program.getFunctionManager();
-		monitor.initialize(functionManager.getFunctionCount());
-		FunctionIterator functions = functionManager.getFunctions(true);
-		for (Function function : functions) {
+		List<Function> functions = new ArrayList<Function>(functionManager.getFunctionCount());
+		FunctionIterator iterator = functionManager.getFunctions(true);
+		for (Function function : iterator) {
 			monitor.checkCanceled();
-			monitor.incrementProgress(1);
-			try {
-				HashFamily family = getFamily(function, monitor);
-				if (family != null) {
-					FidSearchResult searchResult = processMatches(function, family, monitor);
-					if (searchResult != null) {
-						result.add(searchResult);
-					}
+			functions.add(function);
+		}
+
+		monitor.setMessage("FID: hashing functions");
+		processInParallel(functions.size(), new QCallback<Integer, Integer>() {
+			@Override
+			public Integer process(Integer start, TaskMonitor taskMonitor)
+					throws CancelledException {
+				int end = Math.min(start + CHUNK_SIZE, functions.size());
+				for (int ii = start; ii < end; ++ii) {
+					taskMonitor.checkCanceled();
+					getHash(functions.get(ii));
+				}
+				return start;
+			}
+		}, monitor);
+
+		monitor.setMessage("FID: building hash families");
+		HashFamily[] families = new HashFamily[functions.size()];
+		processInParallel(functions.size(), new QCallback<Integer, Integer>() {
+			@Override
+			public Integer process(Integer start, TaskMonitor taskMonitor) throws Exception {
+				int end = Math.min(start + CHUNK_SIZE, functions.size());
+				for (int ii = start; ii < end; ++ii) {
+					taskMonitor.checkCanceled();
+					families[ii] = getFamily(functions.get(ii), taskMonitor);
 				}
+				return start;
 			}
-			catch (MemoryAccessException e) {
-				Msg.showError(this, null, "Memory Access Exception",
-					"Internal error, degenerate unhashable function");
+		}, monitor);
+
+		monitor.setMessage("FID: looking up hashes");
+		int familyCount = 0;
+		long[] fullHashes = new long[families.length];
+		for (HashFamily family : families) {
+			if (family != null) {
+				fullHashes[familyCount++] = family.getHash().getFullHash();
+			}
+		}
+		fullHashes = Arrays.copyOf(fullHashes, familyCount);
+		Map<Long, List<FunctionRecord>> functionsByFullHash =
+			fidQueryService.findFunctionsByFullHashes(fullHashes);
+
+		monitor.setMessage("FID: scoring matches");
+		monitor.initialize(functions.size());
+		for (int ii = 0; ii < families.length; ++ii) {
+			monitor.checkCanceled();
+			monitor.incrementProgress(1);
+			HashFamily family = families[ii];
+			if (family == null) {
+				continue;
+			}
+			List<FunctionRecord> records =
+				functionsByFullHash.get(family.getHash().getFullHash());
+			if (records == null) {
+				continue;
+			}
+			FidSearchResult searchResult =
+				processMatches(functions.get(ii), family, records, monitor);
+			if (searchResult != null) {
+				result.add(searchResult);
 			}
 		}
 
 		return result;
 	}
 
+	/**
+	 * Run a callback over consecutive chunks of indices on the shared FID thread pool.
+	 * @param count the number of indices
+	 * @param callback processes the chunk of {@link #CHUNK_SIZE} indices starting at the index
+	 * it is passed
+	 * @param monitor a task monitor
+	 * @throws CancelledException if the user cancels
+	 */
+	private void processInParallel(int count, QCallback<Integer, Integer> callback,
+			TaskMonitor monitor) throws CancelledException {
+		// @formatter:off
+		ConcurrentQ<Integer, Integer> queue = new ConcurrentQBuilder<Integer, Integer>()
+			.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+			.setMonitor(monitor)
+			.build(callback);
+		// @formatter:on
+
+		for (int start = 0; start < count; start += CHUNK_SIZE) {
+			queue.add(start);
+		}
+		try {
+			queue.waitUntilDone();
+		}
+		catch (CancelledException e) {
+			throw e;
+		}
+		catch (InterruptedException e) {
+			throw new CancelledException();
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		finally {
+			queue.dispose();
+		}
+		monitor.checkCanceled();
+	}
+
 }
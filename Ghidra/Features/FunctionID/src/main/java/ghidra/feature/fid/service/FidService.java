@@ -163,9 +163,9 @@ public class FidService {
 
 	public FidProgramSeeker getProgramSeeker(Program program, FidQueryService fidQueryService,
 			float scoreThreshold) throws VersionException, IOException {
-		FidHasher fidHasher = getHasher(program);
-		FidProgramSeeker seeker = new FidProgramSeeker(fidQueryService, program, fidHasher,
-			getShortHashCodeUnitLength(), getMediumHashCodeUnitLengthLimit(), scoreThreshold);
+		FidProgramSeeker seeker = new FidProgramSeeker(fidQueryService, program,
+			() -> getHasher(program), getShortHashCodeUnitLength(),
+			getMediumHashCodeUnitLengthLimit(), scoreThreshold);
 		return seeker;
 	}
 
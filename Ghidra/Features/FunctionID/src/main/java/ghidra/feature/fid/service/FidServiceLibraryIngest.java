@@ -18,8 +18,10 @@ package ghidra.feature.fid.service;
 import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Predicate;
 
+import generic.concurrent.*;
 import generic.stl.Pair;
 import ghidra.feature.fid.db.*;
 import ghidra.feature.fid.hash.FidHashQuad;
@@ -38,9 +40,20 @@ import ghidra.util.exception.CancelledException;
 import ghidra.util.exception.VersionException;
 import ghidra.util.task.TaskMonitor;
 
+/**
+ * Populates a FID library from a set of programs.
+ * <p>
+ * Programs are opened, hashed and analyzed for call relations concurrently on worker threads,
+ * each producing a {@link ProgramRows} object which holds no references to the program.  The
+ * calling thread is the single writer to the database: it consumes the rows in the order of
+ * the program list (regardless of the order in which workers finish), so the resulting
+ * database is the same as if the programs had been processed sequentially.
+ */
 class FidServiceLibraryIngest {
 	private static final int MAXIMUM_NUMBER_OF_NAME_RESOLUTION_RELATIONS = 12;
 
+	public static final String THREAD_POOL_NAME = "FID Library Ingest";
+
 	private FidDB fidDb; // The database being populated
 	private FidService service;
 	private String libraryFamilyName; // Name of the library being created
@@ -61,6 +74,11 @@ class FidServiceLibraryIngest {
 	private TreeMap<String, FidPopulateResult.Count> childHistogram =
 		new TreeMap<>(); // Counts of child references to function symbols
 
+	// Progress metrics
+	private int programCount;
+	private int functionCount;
+	private int recordCount;
+
 	private static class FunctionRow {
 		public FunctionRecord functionRecord;
 		public FidHashQuad hashQuad;
@@ -69,6 +87,8 @@ class FidServiceLibraryIngest {
 		public String pathName;
 		public boolean hasTerminator;
 		public ArrayList<ChildRow> children;
+		public String functionName;
+		public Address entryPoint;
 
 		/**
 		 * Creates the template for a function record in the database, but doesn't actually create the record
@@ -88,6 +108,8 @@ class FidServiceLibraryIngest {
 			this.pathName = domainFile.getPathname();
 			this.hasTerminator = hasTerminator;
 			this.children = null;
+			this.functionName = function.getName();
+			this.entryPoint = function.getEntryPoint();
 		}
 
 		public void commit(FidDB fidDb, LibraryRecord library) {
@@ -127,6 +149,7 @@ class FidServiceLibraryIngest {
 		public FunctionRow toRow;
 		public String symbolName;
 		public Address toAddress;
+		public String referenceName; // Name used for the child reference histogram
 		public boolean isVeryCommon;
 
 		@Override
@@ -158,6 +181,35 @@ class FidServiceLibraryIngest {
 		}
 	}
 
+	/**
+	 * A disposition of a function, recorded by a worker to be reported by the writer.
+	 */
+	private static class DispositionRow {
+		public String name;
+		public Address entryPoint;
+		public Disposition disposition;
+
+		public DispositionRow(Function function, String name, Disposition disposition) {
+			this.name = name;
+			this.entryPoint = function.getEntryPoint();
+			this.disposition = disposition;
+		}
+	}
+
+	/**
+	 * Everything extracted from a single program which is needed to add it to the library.
+	 */
+	private static class ProgramRows {
+		public DomainFile domainFile;
+		public boolean languageMatches;
+		public Language language;
+		public CompilerSpec compilerSpec;
+		public String programName;
+		public int functionCount;
+		public List<FunctionRow> functionRows = new ArrayList<>(); // In entry point order
+		public List<DispositionRow> dispositions = new ArrayList<>();
+	}
+
 	private static class ChildSymbol implements Comparable<ChildSymbol> {
 		public String name;
 		public FidHashQuad hashQuad; // May be null
@@ -219,37 +271,51 @@ class FidServiceLibraryIngest {
 	public FidPopulateResult create() throws CancelledException, VersionException, IOException {
 
 		monitor.setMessage("Populating library from programs...");
-		monitor.initialize(programFiles.size());
-		Object consumer = new Object();
-		for (DomainFile programFile : programFiles) {
-			monitor.checkCanceled();
-			Program program = null;
-			try {
-				program = (Program) programFile.getDomainObject(consumer, false, false,
-					TaskMonitor.DUMMY);
-				monitor.incrementProgress(1);
-				if (!checkLanguageCompilerSpec(program)) {
-					continue;
-				}
-				languageId = program.getLanguageID();
-				compilerSpec = program.getCompilerSpec();
-
-				if (library == null) {
-					Language language = program.getLanguage();
-					library =
-						fidDb.createNewLibrary(libraryFamilyName, libraryVersion, libraryVariant,
-							Application.getApplicationVersion(), languageId, language.getVersion(),
-							language.getMinorVersion(), compilerSpec.getCompilerSpecID());
-					result = new FidPopulateResult(library);
-				}
+		long startTime = System.currentTimeMillis();
 
-				populateLibraryFromProgram(program);
+		QCallback<Integer, ProgramRows> callback = new QCallback<Integer, ProgramRows>() {
+			@Override
+			public ProgramRows process(Integer index, TaskMonitor taskMonitor) throws Exception {
+				return readProgram(programFiles.get(index), taskMonitor);
+			}
+		};
+
+		// @formatter:off
+		ConcurrentQ<Integer, ProgramRows> queue = new ConcurrentQBuilder<Integer, ProgramRows>()
+			.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+			.setCollectResults(true)
+			.setMonitor(monitor)
+			.build(callback);
+		// @formatter:on
+
+		try {
+			for (int ii = 0; ii < programFiles.size(); ++ii) {
+				queue.add(ii);
 			}
-			finally {
-				if (program != null) {
-					program.release(consumer);
+
+			// Commit the programs in list order as their rows become available
+			Map<Integer, ProgramRows> pending = new HashMap<>();
+			int next = 0;
+			while (next < programFiles.size()) {
+				monitor.checkCanceled();
+				QResult<Integer, ProgramRows> qResult = queue.waitForNextResult();
+				if (qResult == null) {
+					break;
+				}
+				pending.put(qResult.getItem(), getRows(qResult));
+				for (ProgramRows rows = pending.remove(next); rows != null; rows =
+					pending.remove(next)) {
+					commitProgram(rows);
+					++next;
 				}
 			}
+			monitor.checkCanceled();
+		}
+		catch (InterruptedException e) {
+			throw new CancelledException();
+		}
+		finally {
+			queue.dispose();
 		}
 
 		resolveNamedRelations();
@@ -257,47 +323,131 @@ class FidServiceLibraryIngest {
 			result.addChildReferences(500, childHistogram);
 		}
 
+		Msg.info(this,
+			String.format("Library %s %s %s: %d programs, %d functions, %d records in %d ms",
+				libraryFamilyName, libraryVersion, libraryVariant, programCount, functionCount,
+				recordCount, System.currentTimeMillis() - startTime));
 		return result;
 	}
 
 	/**
-	 * Processes a single program, adding it to the library.
-	 * @param result the populate result
-	 * @param program the program
+	 * Gets the rows produced by a worker, rethrowing any exception it encountered.
+	 * @param qResult the worker result
+	 * @return the rows
 	 * @throws CancelledException if the user cancels
+	 * @throws VersionException if the program could not be opened without an upgrade
+	 * @throws IOException if the program could not be opened
 	 */
-	private void populateLibraryFromProgram(Program program) throws CancelledException {
+	private static ProgramRows getRows(QResult<Integer, ProgramRows> qResult)
+			throws CancelledException, VersionException, IOException {
+		if (qResult.isCancelled()) {
+			throw new CancelledException();
+		}
+		Throwable error;
+		try {
+			return qResult.getResult();
+		}
+		catch (Exception e) {
+			error = e;
+		}
+		if (error instanceof ExecutionException && error.getCause() != null) {
+			error = error.getCause();
+		}
+		if (error instanceof CancelledException) {
+			throw (CancelledException) error;
+		}
+		if (error instanceof VersionException) {
+			throw (VersionException) error;
+		}
+		if (error instanceof IOException) {
+			throw (IOException) error;
+		}
+		if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		}
+		throw new RuntimeException(error);
+	}
 
-		FidHasher hasher = service.getHasher(program);
-		ArrayList<Function> theFunctions = new ArrayList<>();
-		Map<Function, FunctionRow> recordMap = new HashMap<>();
+	/**
+	 * Opens a program and extracts the function rows to be added to the library (runs on a
+	 * worker thread).
+	 * @param programFile the program file
+	 * @param taskMonitor a task monitor
+	 * @return the rows of the program
+	 * @throws CancelledException if the user cancels
+	 * @throws VersionException if the program could not be opened without an upgrade
+	 * @throws IOException if the program could not be opened
+	 */
+	private ProgramRows readProgram(DomainFile programFile, TaskMonitor taskMonitor)
+			throws CancelledException, VersionException, IOException {
+		ProgramRows rows = new ProgramRows();
+		rows.domainFile = programFile;
+		Object consumer = new Object();
+		Program program = null;
+		try {
+			program = (Program) programFile.getDomainObject(consumer, false, false,
+				TaskMonitor.DUMMY);
+			rows.programName = program.getName();
+			rows.language = program.getLanguage();
+			rows.compilerSpec = program.getCompilerSpec();
+			rows.languageMatches = languageId.equals(program.getLanguageID());
+			if (rows.languageMatches) {
+				populateRowsFromProgram(program, rows, taskMonitor);
+			}
+		}
+		finally {
+			if (program != null) {
+				program.release(consumer);
+			}
+		}
+		return rows;
+	}
 
-		// 1) hash all the functions, create function rows for them
-		hashAllTheFunctions(program, hasher, theFunctions, recordMap);
+	/**
+	 * Adds the rows of a single program to the library (runs on the writer thread).
+	 * @param rows the rows of the program
+	 * @throws CancelledException if the user cancels
+	 */
+	private void commitProgram(ProgramRows rows) throws CancelledException {
+		if (!checkCompilerSpec(rows)) {
+			return;
+		}
+		compilerSpec = rows.compilerSpec;
+
+		if (library == null) {
+			Language language = rows.language;
+			library = fidDb.createNewLibrary(libraryFamilyName, libraryVersion, libraryVariant,
+				Application.getApplicationVersion(), languageId, language.getVersion(),
+				language.getMinorVersion(), compilerSpec.getCompilerSpecID());
+			result = new FidPopulateResult(library);
+		}
 
-		// 3) add all the forward (child) call relatives
-		for (Entry<Function, FunctionRow> entry : recordMap.entrySet()) {
+		monitor.setMessage("Populating library from " + rows.programName + "...");
+		++programCount;
+		functionCount += rows.functionCount;
+		for (DispositionRow dispositionRow : rows.dispositions) {
+			result.disposition(rows.domainFile, dispositionRow.name, dispositionRow.entryPoint,
+				dispositionRow.disposition);
+		}
+
+		for (FunctionRow functionRow : rows.functionRows) {
 			monitor.checkCanceled();
-			Function function = entry.getKey();
-			FunctionRow functionRow = entry.getValue();
-			if (functionRow != null) {
-				functionRow.children = new ArrayList<>();
-				addChildRelations(function, hasher, recordMap, functionRow.children);
-				Collections.sort(functionRow.children);
-				long hash = functionRow.generateHash();
-				if (globalUniqueFunction.add(hash)) {
-					functionRow.commit(fidDb, library); // Create the database record
-				}
-				else {
-					exclude(program.getDomainFile(), function,
-						FidPopulateResult.Disposition.DUPLICATE_INFO);
-				}
+			for (ChildRow childRow : functionRow.children) {
+				searchChildReferenceByName(childRow, childRow.referenceName);
+			}
+			long hash = functionRow.generateHash();
+			if (globalUniqueFunction.add(hash)) {
+				functionRow.commit(fidDb, library); // Create the database record
+				++recordCount;
+			}
+			else {
+				result.disposition(rows.domainFile, functionRow.functionName,
+					functionRow.entryPoint, FidPopulateResult.Disposition.DUPLICATE_INFO);
 			}
 		}
 
-		for (Entry<Function, FunctionRow> entry : recordMap.entrySet()) {
+		for (FunctionRow functionRow : rows.functionRows) {
 			monitor.checkCanceled();
-			FunctionRow functionRow = entry.getValue();
 			FunctionRecord functionRecord = functionRow.functionRecord;
 			if (functionRecord == null) {
 				continue; // Function exists but was excluded as a duplicate
@@ -324,34 +474,62 @@ class FidServiceLibraryIngest {
 		}
 	}
 
+	/**
+	 * Extracts the function rows of a single program (runs on a worker thread).
+	 * @param program the program
+	 * @param rows accumulates the rows of the program
+	 * @param taskMonitor a task monitor
+	 * @throws CancelledException if the user cancels
+	 */
+	private void populateRowsFromProgram(Program program, ProgramRows rows,
+			TaskMonitor taskMonitor) throws CancelledException {
+
+		FidHasher hasher = service.getHasher(program);
+		Map<Function, FunctionRow> recordMap = new LinkedHashMap<>();
+
+		// 1) hash all the functions, create function rows for them
+		hashAllTheFunctions(program, hasher, rows, recordMap, taskMonitor);
+
+		// 2) add all the forward (child) call relatives
+		for (Entry<Function, FunctionRow> entry : recordMap.entrySet()) {
+			taskMonitor.checkCanceled();
+			Function function = entry.getKey();
+			FunctionRow functionRow = entry.getValue();
+			functionRow.children = new ArrayList<>();
+			addChildRelations(function, recordMap, functionRow.children, taskMonitor);
+			Collections.sort(functionRow.children);
+			rows.functionRows.add(functionRow);
+		}
+	}
+
 	/**
 	 * Hashes all the functions in the program for inserting into the database.
-	 * @param result the populate result
 	 * @param program the program
 	 * @param hasher the FID hasher
-	 * @param theFunctions the functions
+	 * @param rows accumulates the function count and dispositions of the program
 	 * @param recordMap the map of function to function records
+	 * @param taskMonitor a task monitor
 	 * @throws CancelledException if the user cancels
 	 */
-	private void hashAllTheFunctions(Program program, FidHasher hasher,
-			ArrayList<Function> theFunctions, Map<Function, FunctionRow> recordMap)
+	private void hashAllTheFunctions(Program program, FidHasher hasher, ProgramRows rows,
+			Map<Function, FunctionRow> recordMap, TaskMonitor taskMonitor)
 			throws CancelledException {
 		DomainFile domainFile = program.getDomainFile();
 		FunctionManager functionManager = program.getFunctionManager();
 		FunctionIterator functions = functionManager.getFunctions(true);
 
 		for (Function function : functions) {
-			monitor.checkCanceled();
+			taskMonitor.checkCanceled();
 			if (functionIsExternal(function)) {
 				continue;
 			}
 
-			theFunctions.add(function);
+			rows.functionCount++;
 
 			String name = null;
 
 			if (function.getSymbol().getSource() == SourceType.DEFAULT) {
-				exclude(domainFile, function, FidPopulateResult.Disposition.NO_DEFINED_SYMBOL);
+				exclude(rows, function, FidPopulateResult.Disposition.NO_DEFINED_SYMBOL);
 			}
 			else {
 				name = function.getSymbol().getName();
@@ -363,36 +541,35 @@ class FidServiceLibraryIngest {
 			if (function.isThunk()) {
 				if (name != null) {
 //					theAdditionalLabels.put(function.getEntryPoint(), nameAndNamespace);
-					exclude(domainFile, function, FidPopulateResult.Disposition.IS_THUNK);
+					exclude(rows, function, FidPopulateResult.Disposition.IS_THUNK);
 				}
 			}
 			else if (name != null) {
 				try {
 					hashQuad = hasher.hash(function);
 					if (hashQuad == null) {
-						exclude(domainFile, function,
+						exclude(rows, function,
 							FidPopulateResult.Disposition.FAILS_MINIMUM_SHORTHASH_LENGTH);
 						continue;
 					}
 
 					if (functionFilter != null &&
 						!functionFilter.test(new Pair<>(function, hashQuad))) {
-						exclude(domainFile, function,
+						exclude(rows, function,
 							FidPopulateResult.Disposition.FAILED_FUNCTION_FILTER);
 						continue;
 					}
 
-					boolean hasTerminator = findTerminator(function, monitor);
+					boolean hasTerminator = findTerminator(function, taskMonitor);
 
 					functionRow =
 						new FunctionRow(domainFile, function, name, hashQuad, hasTerminator);
 					recordMap.put(function, functionRow);
 
-					result.disposition(domainFile, name, function.getEntryPoint(),
-						Disposition.INCLUDED);
+					rows.dispositions.add(new DispositionRow(function, name, Disposition.INCLUDED));
 				}
 				catch (MemoryAccessException e) {
-					exclude(domainFile, function,
+					exclude(rows, function,
 						FidPopulateResult.Disposition.MEMORY_ACCESS_EXCEPTION);
 				}
 			}
@@ -402,14 +579,13 @@ class FidServiceLibraryIngest {
 	/**
 	 * Collects the child relations of a function in a ChildRow array.
 	 * @param function the function
-	 * @param hasher the FID hasher
 	 * @param recordMap the map of functions to function rows
 	 * @param children accumulates ChildRow objects
+	 * @param taskMonitor a task monitor
 	 * @throws CancelledException if the user cancels
 	 */
-	private void addChildRelations(Function function, FidHasher hasher,
-			Map<Function, FunctionRow> recordMap, ArrayList<ChildRow> children)
-			throws CancelledException {
+	private static void addChildRelations(Function function, Map<Function, FunctionRow> recordMap,
+			ArrayList<ChildRow> children, TaskMonitor taskMonitor) throws CancelledException {
 		HashSet<Address> alreadyDone = new HashSet<>();
 		Program program = function.getProgram();
 		FunctionManager functionManager = program.getFunctionManager();
@@ -418,12 +594,12 @@ class FidServiceLibraryIngest {
 		AddressIterator referenceIterator =
 			referenceManager.getReferenceSourceIterator(function.getBody(), true);
 		for (Address address : referenceIterator) {
-			monitor.checkCanceled();
+			taskMonitor.checkCanceled();
 			Instruction instruction = program.getListing().getInstructionAt(address);
 			if (instruction != null && instruction.getFlowType().isCall()) {
 				Reference[] referencesFrom = referenceManager.getReferencesFrom(address);
 				for (Reference reference : referencesFrom) {
-					monitor.checkCanceled();
+					taskMonitor.checkCanceled();
 					Address toAddress = reference.getToAddress();
 					if (!alreadyDone.contains(toAddress)) {
 						Function relation = functionManager.getFunctionContaining(toAddress);
@@ -435,8 +611,8 @@ class FidServiceLibraryIngest {
 							childRow.toRow = null;
 							childRow.symbolName = grabSymbol(symbolTable, toAddress);
 							childRow.toAddress = toAddress;
+							childRow.referenceName = childRow.symbolName;
 							children.add(childRow);
-							searchChildReferenceByName(childRow, childRow.symbolName);
 						}
 						else {
 							FunctionRow relationRow = recordMap.get(relation);
@@ -445,8 +621,8 @@ class FidServiceLibraryIngest {
 								childRow.toRow = relationRow;
 								childRow.symbolName = null;
 								childRow.toAddress = toAddress;
+								childRow.referenceName = relationRow.name;
 								children.add(childRow);
-								searchChildReferenceByName(childRow, relationRow.name);
 							}
 							// if the relation record was null, 99.99% sure that the
 							// relation is too small to hash, so it will appear in the
@@ -601,18 +777,18 @@ class FidServiceLibraryIngest {
 	/**
 	 * Make sure all programs have the same language and compiler spec,
 	 * otherwise throw and exception or return false based on failOnNewLanguage
-	 * @param program the program
+	 * @param rows the rows of the program
 	 * @return true if the program passes the filter
 	 */
-	private boolean checkLanguageCompilerSpec(Program program) {
-		if (!languageId.equals(program.getLanguageID())) {
+	private boolean checkCompilerSpec(ProgramRows rows) {
+		if (!rows.languageMatches) {
 			return false;
 		}
 		if (compilerSpec != null) {
-			if (!compilerSpec.equals(program.getCompilerSpec())) {
+			if (!compilerSpec.equals(rows.compilerSpec)) {
 				throw new IllegalArgumentException(
-					"Program " + program.getName() + " has different compiler spec (" +
-						program.getCompilerSpec().getCompilerSpecID() +
+					"Program " + rows.programName + " has different compiler spec (" +
+						rows.compilerSpec.getCompilerSpecID() +
 						") than already established (" + compilerSpec.getCompilerSpecID() + ")");
 			}
 		}
@@ -636,9 +812,9 @@ class FidServiceLibraryIngest {
 		return false;
 	}
 
-	private void exclude(DomainFile domainFile, Function function,
+	private static void exclude(ProgramRows rows, Function function,
 			FidPopulateResult.Disposition reason) {
-		result.disposition(domainFile, function.getName(), function.getEntryPoint(), reason);
+		rows.dispositions.add(new DispositionRow(function, function.getName(), reason));
 	}
 
 	private void searchChildReferenceByName(ChildRow row, String name) {
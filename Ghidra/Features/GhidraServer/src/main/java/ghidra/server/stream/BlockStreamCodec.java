@@ -0,0 +1,177 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.server.stream;
+
+import java.io.*;
+import java.util.zip.*;
+
+import db.buffers.BufferFileBlock;
+
+/**
+ * <code>BlockStreamCodec</code> writes and reads the BufferFile blocks transferred over a
+ * block stream connection.
+ * <p>
+ * An uncompressed block is sent as its raw bytes (4-byte block index followed by the
+ * block data).  When compression is enabled each block is deflated independently and
+ * sent as a frame:
+ * <pre>
+ *   int length (big-endian), followed by length bytes of deflated block bytes, or
+ *   int {@value #RAW_FRAME}, followed by the raw block bytes
+ * </pre>
+ * Blocks which do not compress (e.g., already compressed or random data) are sent raw so
+ * that they cost neither extra bandwidth nor inflation time.
+ */
+class BlockStreamCodec {
+
+	/**
+	 * Frame length value which indicates the raw block bytes follow
+	 */
+	static final int RAW_FRAME = -1;
+
+	private final int blockLength;
+	private final boolean compressed;
+
+	private Deflater deflater;
+	private Inflater inflater;
+	private byte[] frameBuffer;
+
+	/**
+	 * Construct a block stream codec.  A codec instance may only be used by a single thread.
+	 * @param blockSize BufferFile block size
+	 * @param compressed true if blocks should be individually compressed
+	 */
+	BlockStreamCodec(int blockSize, boolean compressed) {
+		this.blockLength = blockSize + 4; // include space for index
+		this.compressed = compressed;
+		if (compressed) {
+			frameBuffer = new byte[blockLength];
+		}
+	}
+
+	/**
+	 * Write a block to the specified stream
+	 * @param out stream output
+	 * @param block buffer file block
+	 * @throws IOException if an IO error occurs
+	 */
+	void writeBlock(OutputStream out, BufferFileBlock block) throws IOException {
+		byte[] bytes = block.toBytes();
+		if (!compressed) {
+			out.write(bytes);
+			return;
+		}
+		if (deflater == null) {
+			deflater = new Deflater(Deflater.BEST_SPEED);
+		}
+		deflater.reset();
+		deflater.setInput(bytes);
+		deflater.finish();
+		int length = deflater.deflate(frameBuffer);
+		if (deflater.finished() && length < blockLength) {
+			writeInt(out, length);
+			out.write(frameBuffer, 0, length);
+		}
+		else {
+			writeInt(out, RAW_FRAME);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Read a block from the specified stream
+	 * @param in stream input
+	 * @return buffer file block
+	 * @throws IOException if an IO error occurs
+	 * @throws EOFException if stream ends unexpectedly
+	 */
+	BufferFileBlock readBlock(InputStream in) throws IOException {
+		byte[] bytes = new byte[blockLength];
+		if (!compressed) {
+			readFully(in, bytes, bytes.length);
+			return new BufferFileBlock(bytes);
+		}
+		int length = readInt(in);
+		if (length == RAW_FRAME) {
+			readFully(in, bytes, bytes.length);
+			return new BufferFileBlock(bytes);
+		}
+		if (length < 0 || length >= blockLength) {
+			throw new IOException("invalid block stream frame length: " + length);
+		}
+		readFully(in, frameBuffer, length);
+		if (inflater == null) {
+			inflater = new Inflater();
+		}
+		inflater.reset();
+		inflater.setInput(frameBuffer, 0, length);
+		try {
+			int total = 0;
+			while (total < bytes.length && !inflater.finished()) {
+				int count = inflater.inflate(bytes, total, bytes.length - total);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				total += count;
+			}
+			if (total != bytes.length || !inflater.finished()) {
+				throw new IOException("invalid compressed block");
+			}
+		}
+		catch (DataFormatException e) {
+			throw new IOException("invalid compressed block: " + e.getMessage(), e);
+		}
+		return new BufferFileBlock(bytes);
+	}
+
+	/**
+	 * Release the native compression resources held by this codec
+	 */
+	void dispose() {
+		if (deflater != null) {
+			deflater.end();
+			deflater = null;
+		}
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+	}
+
+	private static void writeInt(OutputStream out, int value) throws IOException {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	private static int readInt(InputStream in) throws IOException {
+		byte[] bytes = new byte[4];
+		readFully(in, bytes, bytes.length);
+		return ((bytes[0] & 0xff) << 24) | ((bytes[1] & 0xff) << 16) | ((bytes[2] & 0xff) << 8) |
+			(bytes[3] & 0xff);
+	}
+
+	private static void readFully(InputStream in, byte[] bytes, int length) throws IOException {
+		int total = 0;
+		while (total < length) {
+			int readlen = in.read(bytes, total, length - total);
+			if (readlen < 0) {
+				throw new EOFException("unexpected end of stream");
+			}
+			total += readlen;
+		}
+	}
+}
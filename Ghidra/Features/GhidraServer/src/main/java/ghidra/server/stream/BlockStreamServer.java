@@ -222,7 +222,13 @@ public class BlockStreamServer extends Thread {
 		// TODO: make backlog setting a property
 		int backlog = 0; // default backlog used
 
-		serverSocket = serverSocketFactory.createServerSocket(port, backlog, inetAddress);
+		serverSocket = serverSocketFactory.createServerSocket();
+		int bufferSize = RemoteBlockStreamHandle.getPreferredBufferSize();
+		if (bufferSize > 0) {
+			// must be set prior to bind for accepted sockets to use a large receive window
+			serverSocket.setReceiveBufferSize(bufferSize);
+		}
+		serverSocket.bind(new InetSocketAddress(inetAddress, port), backlog);
 
 		log.info("Started Block Stream Server on " + ipAddress + ":" + port);
 
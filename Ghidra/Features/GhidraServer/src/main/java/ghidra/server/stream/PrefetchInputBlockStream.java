@@ -0,0 +1,173 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.server.stream;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+
+import db.buffers.BufferFileBlock;
+import db.buffers.InputBlockStream;
+
+/**
+ * <code>PrefetchInputBlockStream</code> reads ahead from another InputBlockStream in a
+ * dedicated thread so that producing blocks (e.g., reading the buffer file on the server
+ * or receiving blocks from the socket on the client) overlaps with consuming them
+ * (e.g., sending blocks to the socket or writing the local buffer file).
+ */
+class PrefetchInputBlockStream implements InputBlockStream {
+
+	/**
+	 * Maximum number of blocks read ahead of the consumer
+	 */
+	static final int PREFETCH_BLOCK_COUNT = 64;
+
+	private static final long OFFER_TIMEOUT_MS = 100;
+
+	private static final Object END_OF_STREAM = new Object();
+
+	private final InputBlockStream source;
+	private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(PREFETCH_BLOCK_COUNT);
+	private final Thread thread;
+
+	private volatile boolean closed;
+	private boolean done;
+
+	/**
+	 * Construct a prefetching input block stream and start reading ahead from the source
+	 * stream.
+	 * @param source source block stream
+	 * @param threadName name of the prefetch thread
+	 */
+	PrefetchInputBlockStream(InputBlockStream source, String threadName) {
+		this.source = source;
+		thread = new Thread(this::prefetch, threadName);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void prefetch() {
+		try {
+			BufferFileBlock block;
+			while (!closed && (block = source.readBlock()) != null) {
+				put(block);
+			}
+			put(END_OF_STREAM);
+		}
+		catch (InterruptedException e) {
+			// stream abandoned
+		}
+		catch (IOException e) {
+			putFailure(e);
+		}
+		catch (RuntimeException e) {
+			putFailure(new IOException("block stream read failed", e));
+		}
+	}
+
+	private void putFailure(IOException e) {
+		try {
+			put(e);
+		}
+		catch (InterruptedException e1) {
+			// stream abandoned
+		}
+	}
+
+	private void put(Object item) throws InterruptedException {
+		while (!closed) {
+			if (queue.offer(item, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+		}
+	}
+
+	@Override
+	public BufferFileBlock readBlock() throws IOException {
+		if (done) {
+			return null;
+		}
+		if (closed) {
+			throw new IOException("block stream closed");
+		}
+		Object item;
+		try {
+			item = queue.take();
+		}
+		catch (InterruptedException e) {
+			throw new IOException("block stream read interrupted", e);
+		}
+		if (item == END_OF_STREAM) {
+			done = true;
+			return null;
+		}
+		if (item instanceof IOException) {
+			done = true;
+			throw (IOException) item;
+		}
+		return (BufferFileBlock) item;
+	}
+
+	/**
+	 * Stop reading ahead and wait for the prefetch thread to terminate without closing
+	 * the source stream.  This must only be used when the source stream will not block
+	 * indefinitely (i.e., it is not reading from a socket).
+	 */
+	void stop() {
+		closed = true;
+		queue.clear();
+		join();
+	}
+
+	/**
+	 * Stop reading ahead and close the source stream, which also terminates a prefetch
+	 * thread which is blocked reading the source.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		queue.clear();
+		try {
+			source.close();
+		}
+		finally {
+			join();
+		}
+	}
+
+	private void join() {
+		try {
+			thread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean includesHeaderBlock() {
+		return source.includesHeaderBlock();
+	}
+
+	@Override
+	public int getBlockCount() {
+		return source.getBlockCount();
+	}
+
+	@Override
+	public int getBlockSize() {
+		return source.getBlockSize();
+	}
+}
@@ -16,7 +16,7 @@
 package ghidra.server.stream;
 
 import java.io.*;
-import java.net.Socket;
+import java.net.*;
 import java.security.SecureRandom;
 
 import javax.net.SocketFactory;
@@ -49,11 +49,27 @@ import ghidra.util.StringUtilities;
  */
 public abstract class RemoteBlockStreamHandle<T extends BlockStream> implements Serializable {
 
-	public static final long serialVersionUID = 1L;
+	public static final long serialVersionUID = 2L;
 
 	public static boolean enableCompressedSerializationOutput = Boolean.parseBoolean(
 		System.getProperty(DataBuffer.COMPRESSED_SERIAL_OUTPUT_PROPERTY, "false"));
 
+	/**
+	 * Property which may be used to specify the socket send/receive buffer size (in bytes)
+	 * used by block stream connections.  By default the operating system's TCP buffer
+	 * auto-tuning is used, since a fixed buffer size caps the transfer rate over high
+	 * latency connections.
+	 */
+	public static final String SOCKET_BUFFER_SIZE_PROPERTY =
+		"ghidra.server.stream.socketBufferSize";
+
+	private static final int socketBufferSize = Integer.getInteger(SOCKET_BUFFER_SIZE_PROPERTY, 0);
+
+	/**
+	 * Size of the buffer used to coalesce blocks written to the socket
+	 */
+	static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
 	public static final String HEADER_PREFIX = "@stream:";
 	public static final String HEADER_SUFFIX = "@";
 	public static final int HEADER_LENGTH =
@@ -135,10 +151,27 @@ public abstract class RemoteBlockStreamHandle<T extends BlockStream> implements
 
 	/**
 	 * Get the preferred socket send/receive buffer size to be used
-	 * @return preferred socket send/receive buffer size
+	 * @return preferred socket send/receive buffer size or 0 if the operating system
+	 * default should be used
+	 * @see #SOCKET_BUFFER_SIZE_PROPERTY
 	 */
-	protected int getPreferredBufferSize() {
-		return (getBlockSize() + 4) * 12;
+	static int getPreferredBufferSize() {
+		return socketBufferSize;
+	}
+
+	/**
+	 * Set the socket send/receive buffer sizes if a preferred size has been specified.
+	 * In order for a large receive buffer to take effect this must be done before the
+	 * socket is connected.
+	 * @param socket socket
+	 * @throws SocketException if an error occurs setting the buffer sizes
+	 */
+	static void setPreferredBufferSize(Socket socket) throws SocketException {
+		int size = getPreferredBufferSize();
+		if (size > 0) {
+			socket.setReceiveBufferSize(size);
+			socket.setSendBufferSize(size);
+		}
 	}
 
 	/**
@@ -278,9 +311,9 @@ public abstract class RemoteBlockStreamHandle<T extends BlockStream> implements
 		}
 
 		SocketFactory socketFactory = SSLSocketFactory.getDefault();
-		Socket socket = socketFactory.createSocket(streamServerIPAddress, streamServerPort);
-
-		// TODO: set socket options ?
+		Socket socket = socketFactory.createSocket();
+		setPreferredBufferSize(socket);
+		socket.connect(new InetSocketAddress(streamServerIPAddress, streamServerPort));
 
 		// write stream connection request info
 		OutputStream out = socket.getOutputStream();
@@ -18,7 +18,6 @@ package ghidra.server.stream;
 import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
-import java.util.zip.*;
 
 import db.buffers.*;
 
@@ -31,7 +30,7 @@ public class RemoteInputBlockStreamHandle extends RemoteBlockStreamHandle<InputB
 		implements BlockStreamHandle<InputBlockStream> {
 
 	@SuppressWarnings("hiding")
-	public static final long serialVersionUID = 1L;
+	public static final long serialVersionUID = 2L;
 
 	private boolean includesHeaderBlock;
 
@@ -50,19 +49,20 @@ public class RemoteInputBlockStreamHandle extends RemoteBlockStreamHandle<InputB
 
 	/**
 	 * <code>ClientInputBlockStream</code> provides the client-side of an
-	 * InputBlockStream which wraps an optionally compressed socket input stream
+	 * InputBlockStream which reads optionally compressed blocks from the socket input stream
 	 */
 	private class ClientInputBlockStream implements InputBlockStream {
 
 		private final Socket socket;
 		private final InputStream in;
+		private final BlockStreamCodec codec;
 
 		private int blocksRemaining = getBlockCount();
 
 		ClientInputBlockStream(Socket socket) throws IOException {
 			this.socket = socket;
-			in = compressed ? new InflaterInputStream(socket.getInputStream())
-					: socket.getInputStream();
+			in = socket.getInputStream();
+			codec = new BlockStreamCodec(getBlockSize(), compressed);
 		}
 
 		@Override
@@ -77,26 +77,15 @@ public class RemoteInputBlockStreamHandle extends RemoteBlockStreamHandle<InputB
 				return null;
 			}
 
-			byte[] bytes = new byte[getBlockSize() + 4]; // include space for index
-			int total = 0;
-			while (total < bytes.length) {
-				int readlen = in.read(bytes, total, bytes.length - total);
-				if (readlen < 0) {
-					throw new EOFException("unexpected end of stream");
-				}
-				total += readlen;
-			}
+			BufferFileBlock block = codec.readBlock(in);
 
 			if (--blocksRemaining == 0) {
+				codec.dispose();
 				// perform final handshake before returning final block
-				if (compressed && in.read() != -1) {
-					// failed to properly exhaust compressed stream
-					throw new IOException("expected end of compressed stream");
-				}
 				readStreamEnd(socket, true);
 				writeStreamEnd(socket);
 			}
-			return new BufferFileBlock(bytes);
+			return block;
 		}
 
 		@Override
@@ -119,9 +108,10 @@ public class RemoteInputBlockStreamHandle extends RemoteBlockStreamHandle<InputB
 	public InputBlockStream openBlockStream() throws IOException {
 
 		Socket socket = connect();
-		socket.setReceiveBufferSize(getPreferredBufferSize());
 
-		return new ClientInputBlockStream(socket);
+		// receive blocks while the caller consumes those already received
+		return new PrefetchInputBlockStream(new ClientInputBlockStream(socket),
+			"BlockStreamReceiver-" + getStreamID());
 	}
 
 	@Override
@@ -130,7 +120,7 @@ public class RemoteInputBlockStreamHandle extends RemoteBlockStreamHandle<InputB
 			throw new IllegalArgumentException("expected InputBlockStream");
 		}
 
-		socket.setSendBufferSize(getPreferredBufferSize());
+		setPreferredBufferSize(socket);
 
 		InputBlockStream inputBlockStream = (InputBlockStream) blockStream;
 		try (OutputStream out = socket.getOutputStream()) {
@@ -153,24 +143,29 @@ public class RemoteInputBlockStreamHandle extends RemoteBlockStreamHandle<InputB
 	private void copyBlockData(InputBlockStream inputBlockStream, OutputStream out)
 			throws IOException {
 
-		if (compressed) {
-			out = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED));
-		}
-
-		int blocksRemaining = getBlockCount();
-
-		BufferFileBlock block;
-		while ((block = inputBlockStream.readBlock()) != null) {
-			if (blocksRemaining == 0) {
-				throw new IOException("unexpected data in stream");
+		// read blocks from the buffer file while sending those already read
+		PrefetchInputBlockStream prefetchStream = new PrefetchInputBlockStream(inputBlockStream,
+			"BlockStreamSender-" + getStreamID());
+		BlockStreamCodec codec = new BlockStreamCodec(getBlockSize(), compressed);
+		OutputStream bufferedOut = new BufferedOutputStream(out, STREAM_BUFFER_SIZE);
+		try {
+			int blocksRemaining = getBlockCount();
+
+			BufferFileBlock block;
+			while ((block = prefetchStream.readBlock()) != null) {
+				if (blocksRemaining == 0) {
+					throw new IOException("unexpected data in stream");
+				}
+				codec.writeBlock(bufferedOut, block);
+				--blocksRemaining;
 			}
-			out.write(block.toBytes());
-			--blocksRemaining;
-		}
 
-		// done with compressed stream, force compressed data to flush
-		if (out instanceof DeflaterOutputStream) {
-			((DeflaterOutputStream) out).finish();
+			// force buffered data to be sent before the stream end
+			bufferedOut.flush();
+		}
+		finally {
+			prefetchStream.stop();
+			codec.dispose();
 		}
 	}
 
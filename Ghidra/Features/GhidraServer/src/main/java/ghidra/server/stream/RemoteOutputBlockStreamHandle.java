@@ -18,7 +18,6 @@ package ghidra.server.stream;
 import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
-import java.util.zip.*;
 
 import db.buffers.*;
 
@@ -31,7 +30,7 @@ public class RemoteOutputBlockStreamHandle extends RemoteBlockStreamHandle<Outpu
 		implements BlockStreamHandle<OutputBlockStream> {
 
 	@SuppressWarnings("hiding")
-	public static final long serialVersionUID = 1L;
+	public static final long serialVersionUID = 2L;
 
 	/**
 	 * Construct a remote output block stream handle for writing blocks to a
@@ -47,21 +46,22 @@ public class RemoteOutputBlockStreamHandle extends RemoteBlockStreamHandle<Outpu
 	}
 
 	/**
-	 * <code>ClientInputBlockStream</code> provides the client-side of an
-	 * OutputBlockStream which wraps an optionally compressed socket output
+	 * <code>ClientOutputBlockStream</code> provides the client-side of an
+	 * OutputBlockStream which writes optionally compressed blocks to the socket output
 	 * stream
 	 */
 	private class ClientOutputBlockStream implements OutputBlockStream {
 
 		private final Socket socket;
 		private final OutputStream out;
+		private final BlockStreamCodec codec;
 
 		private int blocksRemaining = getBlockCount();
 
 		ClientOutputBlockStream(Socket socket) throws IOException {
 			this.socket = socket;
-			out = compressed ? new DeflaterOutputStream(socket.getOutputStream(),
-				new Deflater(Deflater.BEST_SPEED)) : socket.getOutputStream();
+			out = new BufferedOutputStream(socket.getOutputStream(), STREAM_BUFFER_SIZE);
+			codec = new BlockStreamCodec(getBlockSize(), compressed);
 		}
 
 		@Override
@@ -76,6 +76,7 @@ public class RemoteOutputBlockStreamHandle extends RemoteBlockStreamHandle<Outpu
 
 		@Override
 		public void close() throws IOException {
+			codec.dispose();
 			socket.getOutputStream().close();
 		}
 
@@ -85,14 +86,12 @@ public class RemoteOutputBlockStreamHandle extends RemoteBlockStreamHandle<Outpu
 				throw new EOFException("unexpected data in stream");
 			}
 
-			out.write(block.toBytes());
+			codec.writeBlock(out, block);
 
 			if (--blocksRemaining == 0) {
 
-				// done with compressed stream, force compressed data to flush
-				if (out instanceof DeflaterOutputStream) {
-					((DeflaterOutputStream) out).finish();
-				}
+				// force buffered data to be sent before the stream end
+				out.flush();
 
 				// perform final handshake after final write
 				writeStreamEnd(socket);
@@ -105,7 +104,6 @@ public class RemoteOutputBlockStreamHandle extends RemoteBlockStreamHandle<Outpu
 	public OutputBlockStream openBlockStream() throws IOException {
 
 		Socket socket = connect();
-		socket.setSendBufferSize(getPreferredBufferSize());
 
 		return new ClientOutputBlockStream(socket);
 	}
@@ -117,7 +115,7 @@ public class RemoteOutputBlockStreamHandle extends RemoteBlockStreamHandle<Outpu
 			throw new IllegalArgumentException("expected OutputBlockStream");
 		}
 
-		socket.setReceiveBufferSize(getPreferredBufferSize());
+		setPreferredBufferSize(socket);
 
 		OutputBlockStream outputBlockStream = (OutputBlockStream) blockStream;
 		try (InputStream in = socket.getInputStream()) {
@@ -148,30 +146,17 @@ public class RemoteOutputBlockStreamHandle extends RemoteBlockStreamHandle<Outpu
 	private void copyBlockData(OutputBlockStream outputBlockStream, InputStream in)
 			throws IOException, EOFException {
 
-		if (compressed) {
-			in = new InflaterInputStream(in);
-		}
-
-		int blocksRemaining = getBlockCount();
-
-		byte[] bytes = new byte[getBlockSize() + 4]; // include space for index
-		while (blocksRemaining > 0) {
-			int total = 0;
-			while (total < bytes.length) {
-				int readlen = in.read(bytes, total, bytes.length - total);
-				if (readlen < 0) {
-					throw new EOFException("unexpected end of stream");
-				}
-				total += readlen;
+		BlockStreamCodec codec = new BlockStreamCodec(getBlockSize(), compressed);
+		try {
+			int blocksRemaining = getBlockCount();
+			while (blocksRemaining > 0) {
+				BufferFileBlock block = codec.readBlock(in);
+				outputBlockStream.writeBlock(block);
+				--blocksRemaining;
 			}
-
-			BufferFileBlock block = new BufferFileBlock(bytes);
-			outputBlockStream.writeBlock(block);
-			--blocksRemaining;
 		}
-		if (compressed && in.read() != -1) {
-			// failed to properly exhaust compressed stream
-			throw new IOException("expected end of compressed stream");
+		finally {
+			codec.dispose();
 		}
 	}
 }
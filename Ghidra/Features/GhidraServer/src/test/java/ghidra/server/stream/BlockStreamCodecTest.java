@@ -0,0 +1,155 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.server.stream;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.Test;
+
+import db.buffers.BufferFileBlock;
+
+public class BlockStreamCodecTest {
+
+	private static final int BLOCK_SIZE = 16 * 1024;
+	private static final int BLOCK_COUNT = 300;
+
+	@Test
+	public void testUncompressedRoundTrip() throws IOException {
+		byte[] bytes = roundTrip(false);
+		// the uncompressed format is unchanged: raw index and data of each block
+		assertEquals(BLOCK_COUNT * (BLOCK_SIZE + 4), bytes.length);
+	}
+
+	@Test
+	public void testCompressedRoundTrip() throws IOException {
+		byte[] bytes = roundTrip(true);
+		// random blocks are sent raw with a frame header, pattern blocks are deflated
+		int randomBlocks = (BLOCK_COUNT + 1) / 2;
+		assertTrue(bytes.length > randomBlocks * (BLOCK_SIZE + 8));
+		assertTrue(bytes.length < BLOCK_COUNT * (BLOCK_SIZE + 4));
+	}
+
+	@Test
+	public void testInvalidFrameLength() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bos);
+		out.writeInt(BLOCK_SIZE + 4);
+		out.write(new byte[BLOCK_SIZE + 4]);
+
+		BlockStreamCodec codec = new BlockStreamCodec(BLOCK_SIZE, true);
+		try {
+			codec.readBlock(new ByteArrayInputStream(bos.toByteArray()));
+			fail("expected IOException");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage().contains("frame length"));
+		}
+		finally {
+			codec.dispose();
+		}
+	}
+
+	@Test
+	public void testCorruptCompressedBlock() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bos);
+		out.writeInt(100);
+		out.write(new byte[100]);
+
+		BlockStreamCodec codec = new BlockStreamCodec(BLOCK_SIZE, true);
+		try {
+			codec.readBlock(new ByteArrayInputStream(bos.toByteArray()));
+			fail("expected IOException");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage().contains("invalid compressed block"));
+		}
+		finally {
+			codec.dispose();
+		}
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncatedStream() throws IOException {
+		MemoryInputBlockStream source = new MemoryInputBlockStream(BLOCK_SIZE, 1, false);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		BlockStreamCodec codec = new BlockStreamCodec(BLOCK_SIZE, true);
+		codec.writeBlock(bos, source.readBlock());
+		byte[] bytes = bos.toByteArray();
+		codec.readBlock(new ByteArrayInputStream(bytes, 0, bytes.length - 1));
+	}
+
+	@Test
+	public void testPrefetchPreservesOrder() throws IOException {
+		MemoryInputBlockStream source = new MemoryInputBlockStream(BLOCK_SIZE, BLOCK_COUNT, true);
+		try (PrefetchInputBlockStream prefetch = new PrefetchInputBlockStream(source, "test")) {
+			for (int i = 0; i < BLOCK_COUNT; i++) {
+				assertBlock(source, i, prefetch.readBlock());
+			}
+			assertNull(prefetch.readBlock());
+		}
+	}
+
+	@Test
+	public void testPrefetchReportsFailureAfterEarlierBlocks() throws IOException {
+		int failAtIndex = PrefetchInputBlockStream.PREFETCH_BLOCK_COUNT * 2;
+		MemoryInputBlockStream source =
+			new MemoryInputBlockStream(BLOCK_SIZE, BLOCK_COUNT, true, failAtIndex);
+		try (PrefetchInputBlockStream prefetch = new PrefetchInputBlockStream(source, "test")) {
+			for (int i = 0; i < failAtIndex; i++) {
+				assertBlock(source, i, prefetch.readBlock());
+			}
+			try {
+				prefetch.readBlock();
+				fail("expected IOException");
+			}
+			catch (IOException e) {
+				assertEquals("failed to read block " + failAtIndex, e.getMessage());
+			}
+		}
+	}
+
+	private byte[] roundTrip(boolean compressed) throws IOException {
+		MemoryInputBlockStream source = new MemoryInputBlockStream(BLOCK_SIZE, BLOCK_COUNT, true);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		BlockStreamCodec writer = new BlockStreamCodec(BLOCK_SIZE, compressed);
+		BufferFileBlock block;
+		while ((block = source.readBlock()) != null) {
+			writer.writeBlock(bos, block);
+		}
+		writer.dispose();
+		byte[] bytes = bos.toByteArray();
+
+		InputStream in = new ByteArrayInputStream(bytes);
+		BlockStreamCodec reader = new BlockStreamCodec(BLOCK_SIZE, compressed);
+		for (int i = 0; i < BLOCK_COUNT; i++) {
+			assertBlock(source, i, reader.readBlock(in));
+		}
+		reader.dispose();
+		assertEquals(-1, in.read());
+		return bytes;
+	}
+
+	private static void assertBlock(MemoryInputBlockStream source, int index,
+			BufferFileBlock block) {
+		assertNotNull(block);
+		assertEquals(index, block.getIndex());
+		assertArrayEquals(source.getBlockData(index), block.getData());
+	}
+}
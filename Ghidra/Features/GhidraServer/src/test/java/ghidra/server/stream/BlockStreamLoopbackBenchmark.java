@@ -0,0 +1,157 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.server.stream;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.junit.*;
+
+import db.buffers.BufferFileBlock;
+import db.buffers.InputBlockStream;
+import ghidra.GhidraApplicationLayout;
+import ghidra.framework.Application;
+import ghidra.framework.ApplicationConfiguration;
+import ghidra.net.ApplicationKeyManagerFactory;
+import ghidra.net.SSLContextInitializer;
+
+/**
+ * Measures checkout transfer throughput through a {@link BlockStreamServer} over a TLS
+ * loopback connection, using a self-signed server certificate like a Ghidra Server which
+ * has no keystore configured.
+ * <p>
+ * Not run by the build (the class name does not end in Test), run it explicitly with
+ * <code>mvn test -Dtest=BlockStreamLoopbackBenchmark -DfailIfNoTests=false</code>.  The
+ * block stream server listens on the default stream port 13102.
+ */
+public class BlockStreamLoopbackBenchmark {
+
+	private static final int BLOCK_SIZE = 16 * 1024;
+	private static final int BLOCK_COUNT = 8 * 1024; // 128 MB
+	private static final int ITERATIONS = 3;
+
+	private static BlockStreamServer server;
+
+	private boolean savedCompression;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		if (!Application.isInitialized()) {
+			ApplicationConfiguration configuration = new ApplicationConfiguration();
+			configuration.setInitializeLogging(false);
+			Application.initializeApplication(
+				new GhidraApplicationLayout(new File("../../..")), configuration);
+		}
+		System.setProperty("java.rmi.server.hostname", "127.0.0.1");
+		SSLContextInitializer.initialize();
+		ApplicationKeyManagerFactory.setDefaultIdentity(new X500Principal("CN=GhidraServer"));
+		assertTrue(ApplicationKeyManagerFactory.initialize());
+
+		server = BlockStreamServer.getBlockStreamServer();
+		server.startServer();
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		server.stopServer();
+	}
+
+	@Before
+	public void setUp() {
+		savedCompression = RemoteBlockStreamHandle.enableCompressedSerializationOutput;
+	}
+
+	@After
+	public void tearDown() {
+		RemoteBlockStreamHandle.enableCompressedSerializationOutput = savedCompression;
+	}
+
+	@Test
+	public void testUncompressed() throws Exception {
+		measure("uncompressed, mixed", false, true);
+	}
+
+	@Test
+	public void testCompressedMixed() throws Exception {
+		measure("compressed, mixed", true, true);
+	}
+
+	@Test
+	public void testCompressedPattern() throws Exception {
+		measure("compressed, compressible", true, false);
+	}
+
+	private void measure(String name, boolean compressed, boolean includeRandomBlocks)
+			throws Exception {
+		RemoteBlockStreamHandle.enableCompressedSerializationOutput = compressed;
+		long best = Long.MAX_VALUE;
+		// the first pass warms up the JIT and the TLS session
+		for (int i = 0; i <= ITERATIONS; i++) {
+			long elapsed = transfer(includeRandomBlocks);
+			if (i > 0) {
+				best = Math.min(best, elapsed);
+			}
+		}
+		double seconds = best / 1e9;
+		double megabytes = (double) BLOCK_COUNT * BLOCK_SIZE / (1024 * 1024);
+		System.out.println(String.format("%-26s %8.1f ms %8.1f MB/s", name, seconds * 1000,
+			megabytes / seconds));
+	}
+
+	private long transfer(boolean includeRandomBlocks) throws IOException {
+		MemoryInputBlockStream source =
+			new MemoryInputBlockStream(BLOCK_SIZE, BLOCK_COUNT, includeRandomBlocks);
+		RemoteInputBlockStreamHandle handle = new RemoteInputBlockStreamHandle(server, source);
+		assertTrue(server.registerBlockStream(handle, source));
+
+		long start = System.nanoTime();
+		int count = 0;
+		try (InputBlockStream in = toClient(handle).openBlockStream()) {
+			BufferFileBlock block;
+			while ((block = in.readBlock()) != null) {
+				assertEquals(count, block.getIndex());
+				if (count % 1024 == 0) {
+					assertArrayEquals(source.getBlockData(count), block.getData());
+				}
+				++count;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		assertEquals(BLOCK_COUNT, count);
+		return elapsed;
+	}
+
+	/**
+	 * Returns the client's copy of a handle, which it receives through RMI serialization.
+	 */
+	private static RemoteInputBlockStreamHandle toClient(RemoteInputBlockStreamHandle handle)
+			throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+			out.writeObject(handle);
+		}
+		try (ObjectInputStream in =
+			new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+			return (RemoteInputBlockStreamHandle) in.readObject();
+		}
+		catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+}
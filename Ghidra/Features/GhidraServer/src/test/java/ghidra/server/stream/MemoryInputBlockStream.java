@@ -0,0 +1,115 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.server.stream;
+
+import java.io.IOException;
+import java.util.Random;
+
+import db.buffers.BufferFileBlock;
+import db.buffers.InputBlockStream;
+
+/**
+ * <code>MemoryInputBlockStream</code> produces generated BufferFile blocks without a
+ * buffer file.  Every other block is random (incompressible) when requested, the
+ * remaining blocks repeat a short pattern (compressible), which resembles a program
+ * database with both code bytes and sparsely filled table buffers.
+ */
+class MemoryInputBlockStream implements InputBlockStream {
+
+	private final int blockSize;
+	private final int blockCount;
+	private final boolean includeRandomBlocks;
+	private final int failAtIndex;
+
+	private int nextIndex;
+
+	/**
+	 * Construct a block stream
+	 * @param blockSize BufferFile block size
+	 * @param blockCount number of blocks
+	 * @param includeRandomBlocks true if every other block should be random
+	 */
+	MemoryInputBlockStream(int blockSize, int blockCount, boolean includeRandomBlocks) {
+		this(blockSize, blockCount, includeRandomBlocks, -1);
+	}
+
+	/**
+	 * Construct a block stream which fails with an IOException when the specified block
+	 * is read
+	 * @param blockSize BufferFile block size
+	 * @param blockCount number of blocks
+	 * @param includeRandomBlocks true if every other block should be random
+	 * @param failAtIndex index of the block which fails to read, or -1
+	 */
+	MemoryInputBlockStream(int blockSize, int blockCount, boolean includeRandomBlocks,
+			int failAtIndex) {
+		this.blockSize = blockSize;
+		this.blockCount = blockCount;
+		this.includeRandomBlocks = includeRandomBlocks;
+		this.failAtIndex = failAtIndex;
+	}
+
+	/**
+	 * Get the expected data of the block with the specified index
+	 * @param index block index
+	 * @return block data
+	 */
+	byte[] getBlockData(int index) {
+		byte[] data = new byte[blockSize];
+		if (includeRandomBlocks && (index % 2) == 0) {
+			new Random(index).nextBytes(data);
+		}
+		else {
+			for (int i = 0; i < data.length; i += 16) {
+				data[i] = (byte) index;
+				data[i + 1] = (byte) (i >> 4);
+			}
+		}
+		return data;
+	}
+
+	@Override
+	public BufferFileBlock readBlock() throws IOException {
+		if (nextIndex == blockCount) {
+			return null;
+		}
+		if (nextIndex == failAtIndex) {
+			throw new IOException("failed to read block " + nextIndex);
+		}
+		int index = nextIndex++;
+		return new BufferFileBlock(index, getBlockData(index));
+	}
+
+	@Override
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+	@Override
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	@Override
+	public boolean includesHeaderBlock() {
+		return true;
+	}
+
+	@Override
+	public void close() {
+		// nothing to release
+	}
+}
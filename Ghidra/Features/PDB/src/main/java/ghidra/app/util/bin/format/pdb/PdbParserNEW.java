@@ -26,6 +26,7 @@ import ghidra.app.plugin.core.datamgr.util.DataTypeArchiveUtility;
 import ghidra.app.services.DataTypeManagerService;
 import ghidra.app.util.NamespaceUtils;
 import ghidra.app.util.SymbolPath;
+import ghidra.app.util.bin.format.pdb.reader.PdbXmlPullParser;
 import ghidra.app.util.importer.LibrarySearchPathManager;
 import ghidra.app.util.importer.MessageLog;
 import ghidra.framework.*;
@@ -61,6 +62,17 @@ public class PdbParserNEW {
 	public final static boolean onWindows =
 		(Platform.CURRENT_PLATFORM.getOperatingSystem() == OperatingSystem.WINDOWS);
 
+	/**
+	 * System property which selects the built-in PDB reader (true) or the
+	 * {@value #PDB_EXE} utility (false) for loading .pdb files.  The built-in reader
+	 * is disabled by default since its results have not been validated against the
+	 * {@value #PDB_EXE} XML: public symbol lengths are approximated from the matching
+	 * function or data symbol, or from the distance to the next public symbol, and stack
+	 * variables are classified as parameters using the parameter count of the
+	 * procedure type.
+	 */
+	public final static String NATIVE_READER_PROPERTY = "pdb.native.reader";
+
 	public enum PdbFileType {
 		PDB, XML;
 
@@ -73,6 +85,7 @@ public class PdbParserNEW {
 	private final boolean forceAnalysis;
 	private final File pdbFile;
 	private final boolean isXML;
+	private final boolean isNative;
 	private final Program program;
 	private final DataTypeManagerService service;
 	private final PdbProgramAttributes programAttributes;
@@ -109,9 +122,30 @@ public class PdbParserNEW {
 		this.forceAnalysis = forceAnalysis;
 
 		this.isXML = pdbFile.getAbsolutePath().endsWith(PdbFileType.XML.toString());
+		this.isNative = !isXML && isNativeReaderEnabled();
 		this.programAttributes = programAttributes;
 	}
 
+	/**
+	 * Determine if .pdb files are read by the built-in PDB reader instead of the
+	 * {@value #PDB_EXE} utility
+	 * @return true if the built-in reader is used
+	 * @see #NATIVE_READER_PROPERTY
+	 */
+	public static boolean isNativeReaderEnabled() {
+		return Boolean.parseBoolean(
+			System.getProperty(NATIVE_READER_PROPERTY, Boolean.FALSE.toString()));
+	}
+
+	/**
+	 * Determine if .pdb files (as opposed to .pdb.xml files) can be loaded on the
+	 * current platform
+	 * @return true if .pdb files can be loaded
+	 */
+	public static boolean canLoadPdbFiles() {
+		return onWindows || isNativeReaderEnabled();
+	}
+
 	/**
 	 * Get the program's data type manager
 	 * @return data type manager
@@ -147,7 +181,8 @@ public class PdbParserNEW {
 		processPdbContents(false);
 
 		// The below code only applies when we are processing .pdb (not .pdb.xml) files
-		if (!isXML) {
+		// with the pdb.exe utility
+		if (!isXML && !isNative) {
 
 			try {//give thread sometime to spin up...
 				Thread.sleep(1000);
@@ -191,10 +226,11 @@ public class PdbParserNEW {
 	}
 
 	private void checkOSCompatibility() throws PdbException {
-		if (!isXML && !onWindows) {
+		if (!isXML && !isNative && !onWindows) {
 			throw new PdbException(
-				"\n.pdb files may only be loaded when running Windows. To load PDBs\n" +
-					"on other platforms, use Windows to pre-dump the .pdb file to .pdb.xml\n" +
+				"\n.pdb files may only be loaded by " + PDB_EXE + " when running Windows.\n" +
+					"Enable the experimental built-in PDB reader (-D" + NATIVE_READER_PROPERTY +
+					"=true), or use Windows to pre-dump the .pdb file to .pdb.xml\n" +
 					"using 'CreatePdbXmlFilesScript.java' or 'createPdbXmlFiles.bat'.");
 		}
 
@@ -313,6 +349,9 @@ public class PdbParserNEW {
 			monitor = TaskMonitor.DUMMY;
 		}
 		errHandler.setMessageLog(log);
+		if (parser instanceof PdbXmlPullParser) {
+			((PdbXmlPullParser) parser).setMonitor(monitor);
+		}
 		Msg.debug(this, "Found PDB for " + program.getName());
 		try {
 
@@ -510,6 +549,15 @@ public class PdbParserNEW {
 	private void processPdbContents(boolean skipValidation) throws PdbException, IOException {
 		InputStream in = null;
 
+		if (isNative) {
+			Msg.warn(this, "Loading " + pdbFile.getName() + " with the built-in PDB reader: " +
+				"public symbol lengths and stack parameters are approximated");
+			errHandler = new PdbErrorHandler();
+			parser = new PdbXmlPullParser(pdbFile);
+			verifyPdbSignature(null);
+			return;
+		}
+
 		if (!isXML) {
 			String[] cmd = getCommandLineArray(skipValidation);
 			Runtime runtime = Runtime.getRuntime();
@@ -574,6 +622,11 @@ public class PdbParserNEW {
 			xmlelem = parser.peek();
 		}
 		catch (Exception e) {
+			if (isNative) {
+				Msg.error(this, "Built-in PDB reader failed to read " + pdbFile.getName(), e);
+				throw new PdbException("PDB parsing problem in the built-in PDB reader: " +
+					(e.getMessage() != null ? e.getMessage() : e.toString()));
+			}
 			if (!isXML) {
 				throw new PdbException("PDB Execution failure of " + PDB_EXE + ".\n" +
 					"This was likely caused by severe execution failure which can occur if executed\n" +
@@ -1323,12 +1376,13 @@ public class PdbParserNEW {
 	 * matching PDB file.
 	 *
 	 * If the file type is supplied, then only that file type will be searched for. Otherwise,
-	 * the search process depends on the current operating system that Ghidra is running from:
+	 * the search process depends on whether .pdb files can be loaded (see
+	 * {@link #canLoadPdbFiles()}):
 	 *
-	 *  - Windows: look in the symbolsRepositoryPath for a matching .pdb file. If one does not
+	 *  - Windows or built-in reader enabled: look in the symbolsRepositoryPath for a matching .pdb file. If one does not
 	 *  		exist, look for a .pdb.xml file in symbolsRepositoryPath. If not found, then
 	 *  		search for a matching .pdb file, then .pdb.xml file, in other directories.
-	 *  - non-Windows: look in the symbolsRepositoryPath for a matching .pdb.xml file. If one does
+	 *  - otherwise: look in the symbolsRepositoryPath for a matching .pdb.xml file. If one does
 	 *  		not exist, look for a .pdb file. If a .pdb file is found, return an error saying
 	 *  		that it was found, but could not be processed. If no matches found in
 	 *  		symbolsRepositoryPath, then look for .pdb.xml file, then .pdb.xml file in other
@@ -1369,9 +1423,8 @@ public class PdbParserNEW {
 		}
 
 		// If the file type is not specified, look for both file types, starting with the
-		// file type that's most appropriate for the Operating System (PDB for Windows, XML for
-		// non-Windows).
-		checkForXml = onWindows ? false : true;
+		// file type that can be loaded (PDB for Windows or the built-in reader, otherwise XML).
+		checkForXml = !canLoadPdbFiles();
 
 		// Start by searching in symbolsRepositoryPath, if available.
 		if (symbolsRepositoryPath != null) {
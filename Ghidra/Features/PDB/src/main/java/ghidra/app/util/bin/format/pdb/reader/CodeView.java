@@ -0,0 +1,290 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.pdb.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CodeView record constants and decoding helpers shared by the PDB stream readers.
+ * All multi-byte values are little-endian.
+ */
+final class CodeView {
+
+	// Type record leaf kinds
+	static final int LF_MODIFIER = 0x1001;
+	static final int LF_POINTER = 0x1002;
+	static final int LF_PROCEDURE = 0x1008;
+	static final int LF_MFUNCTION = 0x1009;
+	static final int LF_ARGLIST = 0x1201;
+	static final int LF_FIELDLIST = 0x1203;
+	static final int LF_BITFIELD = 0x1205;
+	static final int LF_BCLASS = 0x1400;
+	static final int LF_VBCLASS = 0x1401;
+	static final int LF_IVBCLASS = 0x1402;
+	static final int LF_INDEX = 0x1404;
+	static final int LF_VFUNCTAB = 0x1409;
+	static final int LF_FRIENDCLS = 0x140b;
+	static final int LF_VFUNCOFF = 0x140c;
+	static final int LF_ENUMERATE = 0x1502;
+	static final int LF_ARRAY = 0x1503;
+	static final int LF_CLASS = 0x1504;
+	static final int LF_STRUCTURE = 0x1505;
+	static final int LF_UNION = 0x1506;
+	static final int LF_ENUM = 0x1507;
+	static final int LF_FRIENDFCN = 0x150c;
+	static final int LF_MEMBER = 0x150d;
+	static final int LF_STMEMBER = 0x150e;
+	static final int LF_METHOD = 0x150f;
+	static final int LF_NESTTYPE = 0x1510;
+	static final int LF_ONEMETHOD = 0x1511;
+	static final int LF_NESTTYPEEX = 0x1512;
+	static final int LF_MEMBERMODIFY = 0x1513;
+	static final int LF_INTERFACE = 0x1519;
+	static final int LF_BINTERFACE = 0x151a;
+	static final int LF_FUNC_ID = 0x1601;
+	static final int LF_MFUNC_ID = 0x1602;
+
+	// Numeric leaf kinds
+	private static final int LF_NUMERIC = 0x8000;
+	private static final int LF_CHAR = 0x8000;
+	private static final int LF_SHORT = 0x8001;
+	private static final int LF_USHORT = 0x8002;
+	private static final int LF_LONG = 0x8003;
+	private static final int LF_ULONG = 0x8004;
+	private static final int LF_REAL32 = 0x8005;
+	private static final int LF_REAL64 = 0x8006;
+	private static final int LF_REAL80 = 0x8007;
+	private static final int LF_REAL128 = 0x8008;
+	private static final int LF_QUADWORD = 0x8009;
+	private static final int LF_UQUADWORD = 0x800a;
+	private static final int LF_VARSTRING = 0x8010;
+	private static final int LF_OCTWORD = 0x8017;
+	private static final int LF_UOCTWORD = 0x8018;
+
+	// Composite property flags
+	static final int PROPERTY_FWDREF = 0x0080;
+	static final int PROPERTY_HAS_UNIQUE_NAME = 0x0200;
+
+	// Symbol record kinds
+	static final int S_END = 0x0006;
+	static final int S_THUNK32 = 0x1102;
+	static final int S_BLOCK32 = 0x1103;
+	static final int S_WITH32 = 0x1104;
+	static final int S_LABEL32 = 0x1105;
+	static final int S_UDT = 0x1108;
+	static final int S_BPREL32 = 0x110b;
+	static final int S_LDATA32 = 0x110c;
+	static final int S_GDATA32 = 0x110d;
+	static final int S_PUB32 = 0x110e;
+	static final int S_LPROC32 = 0x110f;
+	static final int S_GPROC32 = 0x1110;
+	static final int S_REGREL32 = 0x1111;
+	static final int S_GMANPROC = 0x112a;
+	static final int S_LMANPROC = 0x112b;
+	static final int S_SEPCODE = 0x1132;
+	static final int S_LOCAL = 0x113e;
+	static final int S_DEFRANGE_FRAMEPOINTER_REL = 0x1142;
+	static final int S_DEFRANGE_FRAMEPOINTER_REL_FULL_SCOPE = 0x1144;
+	static final int S_DEFRANGE_REGISTER_REL = 0x1145;
+	static final int S_LPROC32_ID = 0x1146;
+	static final int S_GPROC32_ID = 0x1147;
+	static final int S_INLINESITE = 0x114d;
+	static final int S_INLINESITE_END = 0x114e;
+	static final int S_PROC_ID_END = 0x114f;
+
+	static final int LOCAL_IS_PARAM = 0x0001;
+
+	// C13 debug subsection kinds
+	static final int DEBUG_S_IGNORE = 0x80000000;
+	static final int DEBUG_S_LINES = 0xf2;
+	static final int DEBUG_S_FILECHKSMS = 0xf4;
+
+	static final int CV_LINES_HAVE_COLUMNS = 0x0001;
+	static final int CV_SIGNATURE_C13 = 4;
+
+	private CodeView() {
+		// static use only
+	}
+
+	/**
+	 * Determine if the specified symbol kind opens a scope which is closed by a
+	 * corresponding end record.
+	 * @param kind symbol record kind
+	 * @return true if kind opens a scope
+	 */
+	static boolean isScopeStart(int kind) {
+		switch (kind) {
+			case S_THUNK32:
+			case S_BLOCK32:
+			case S_WITH32:
+			case S_LPROC32:
+			case S_GPROC32:
+			case S_GMANPROC:
+			case S_LMANPROC:
+			case S_SEPCODE:
+			case S_LPROC32_ID:
+			case S_GPROC32_ID:
+			case S_INLINESITE:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Determine if the specified symbol kind closes a scope
+	 * @param kind symbol record kind
+	 * @return true if kind closes a scope
+	 */
+	static boolean isScopeEnd(int kind) {
+		return kind == S_END || kind == S_PROC_ID_END || kind == S_INLINESITE_END;
+	}
+
+	/**
+	 * Determine if the specified symbol kind is a procedure
+	 * @param kind symbol record kind
+	 * @return true if kind is a procedure
+	 */
+	static boolean isProcedure(int kind) {
+		return kind == S_LPROC32 || kind == S_GPROC32 || kind == S_LPROC32_ID ||
+			kind == S_GPROC32_ID;
+	}
+
+	/**
+	 * Get a little-endian view of a region of the specified buffer
+	 * @param buf buffer
+	 * @param offset region offset
+	 * @param length region length
+	 * @return little-endian buffer whose position is 0
+	 * @throws IOException if the region is not contained within the buffer
+	 */
+	static ByteBuffer slice(ByteBuffer buf, int offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || offset > buf.limit() - length) {
+			throw new IOException("Invalid PDB: data extends beyond end of stream");
+		}
+		ByteBuffer dup = buf.duplicate();
+		dup.limit(offset + length);
+		dup.position(offset);
+		return dup.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Read an unsigned 16-bit value
+	 * @param buf buffer
+	 * @return value
+	 */
+	static int getUnsignedShort(ByteBuffer buf) {
+		return buf.getShort() & 0xffff;
+	}
+
+	/**
+	 * Read an unsigned 8-bit value
+	 * @param buf buffer
+	 * @return value
+	 */
+	static int getUnsignedByte(ByteBuffer buf) {
+		return buf.get() & 0xff;
+	}
+
+	/**
+	 * Read a null-terminated UTF-8 string.  A string which is not terminated ends at the
+	 * buffer limit.
+	 * @param buf buffer
+	 * @return string
+	 */
+	static String getString(ByteBuffer buf) {
+		int start = buf.position();
+		int end = start;
+		int limit = buf.limit();
+		while (end < limit && buf.get(end) != 0) {
+			end++;
+		}
+		byte[] bytes = new byte[end - start];
+		buf.get(bytes);
+		if (buf.hasRemaining()) {
+			buf.get(); // terminator
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a numeric leaf.  Non-integral values are skipped and returned as 0.
+	 * @param buf buffer
+	 * @return value
+	 */
+	static long getNumeric(ByteBuffer buf) {
+		int leaf = getUnsignedShort(buf);
+		if (leaf < LF_NUMERIC) {
+			return leaf;
+		}
+		switch (leaf) {
+			case LF_CHAR:
+				return buf.get();
+			case LF_SHORT:
+				return buf.getShort();
+			case LF_USHORT:
+				return getUnsignedShort(buf);
+			case LF_LONG:
+				return buf.getInt();
+			case LF_ULONG:
+				return buf.getInt() & 0xffffffffL;
+			case LF_QUADWORD:
+			case LF_UQUADWORD:
+				return buf.getLong();
+			case LF_REAL32:
+				skip(buf, 4);
+				return 0;
+			case LF_REAL64:
+				skip(buf, 8);
+				return 0;
+			case LF_REAL80:
+				skip(buf, 10);
+				return 0;
+			case LF_REAL128:
+			case LF_OCTWORD:
+			case LF_UOCTWORD:
+				skip(buf, 16);
+				return 0;
+			case LF_VARSTRING:
+				skip(buf, getUnsignedShort(buf));
+				return 0;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Advance the buffer position, stopping at its limit
+	 * @param buf buffer
+	 * @param count number of bytes to skip
+	 */
+	static void skip(ByteBuffer buf, int count) {
+		buf.position(Math.min(buf.limit(), buf.position() + count));
+	}
+
+	/**
+	 * Skip any padding bytes which follow a field list sub-record
+	 * @param buf buffer
+	 */
+	static void skipPadding(ByteBuffer buf) {
+		while (buf.hasRemaining() && (buf.get(buf.position()) & 0xff) >= 0xf0) {
+			buf.get();
+		}
+	}
+}
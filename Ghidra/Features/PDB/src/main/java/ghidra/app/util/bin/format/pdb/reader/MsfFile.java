@@ -0,0 +1,263 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.pdb.reader;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <code>MsfFile</code> provides access to the streams of a Multi-Stream File (MSF), the
+ * container format of a PDB 7.0 file.  The file is memory-mapped and stream content is
+ * read directly from the mapping; a stream whose blocks are contiguous is not copied.
+ */
+public class MsfFile implements Closeable {
+
+	private static final byte[] MSF7_MAGIC =
+		"Microsoft C/C++ MSF 7.00\r\n\u001aDS\0\0\0".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] MSF2_MAGIC =
+		"Microsoft C/C++ program database 2.00\r\n\u001aJG\0\0".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int NIL_STREAM_SIZE = -1;
+
+	// mapped regions are a multiple of any valid block size so blocks never span regions
+	private static final int REGION_SHIFT = 30;
+
+	private RandomAccessFile raf;
+	private ByteBuffer[] regions;
+
+	private int blockSize;
+	private int[] streamSizes;
+	private int[][] streamBlocks;
+
+	/**
+	 * Open a MSF file
+	 * @param file PDB file
+	 * @throws IOException if an IO error occurs or the file is not a MSF 7.00 file
+	 */
+	public MsfFile(File file) throws IOException {
+		raf = new RandomAccessFile(file, "r");
+		boolean success = false;
+		try {
+			map();
+			readDirectory();
+			success = true;
+		}
+		finally {
+			if (!success) {
+				close();
+			}
+		}
+	}
+
+	private void map() throws IOException {
+		FileChannel channel = raf.getChannel();
+		long length = channel.size();
+		long regionSize = 1L << REGION_SHIFT;
+		int count = (int) ((length + regionSize - 1) >> REGION_SHIFT);
+		regions = new ByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			long start = (long) i << REGION_SHIFT;
+			regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+				Math.min(regionSize, length - start)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	private void readDirectory() throws IOException {
+		if (regions.length == 0 || regions[0].limit() < MSF7_MAGIC.length + 24) {
+			throw new IOException("Invalid PDB: file too short");
+		}
+		ByteBuffer header = regions[0].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		byte[] magic = new byte[MSF7_MAGIC.length];
+		header.get(magic);
+		if (!Arrays.equals(magic, MSF7_MAGIC)) {
+			header.position(0);
+			magic = new byte[MSF2_MAGIC.length];
+			header.get(magic);
+			if (Arrays.equals(magic, MSF2_MAGIC)) {
+				throw new IOException("Unsupported PDB format: version 2.00");
+			}
+			throw new IOException("Invalid PDB: unrecognized file format");
+		}
+		blockSize = header.getInt();
+		header.getInt(); // free block map block
+		int blockCount = header.getInt();
+		int directorySize = header.getInt();
+		header.getInt(); // unknown
+		int blockMapBlock = header.getInt();
+
+		if (blockSize != 512 && blockSize != 1024 && blockSize != 2048 && blockSize != 4096 &&
+			blockSize != 8192 && blockSize != 16384 && blockSize != 32768) {
+			throw new IOException("Invalid PDB: bad block size " + blockSize);
+		}
+		if (blockCount < 0 || (long) blockCount * blockSize > getFileLength() + blockSize) {
+			throw new IOException("Invalid PDB: bad block count");
+		}
+
+		int directoryBlockCount = getBlockCount(directorySize);
+		ByteBuffer blockMap = getBlock(blockMapBlock);
+		if (directoryBlockCount > blockSize / 4) {
+			throw new IOException("Invalid PDB: directory too large");
+		}
+		int[] directoryBlocks = new int[directoryBlockCount];
+		for (int i = 0; i < directoryBlockCount; i++) {
+			directoryBlocks[i] = blockMap.getInt();
+		}
+		ByteBuffer directory = readBlocks(directoryBlocks, directorySize);
+
+		int streamCount = directory.getInt();
+		if (streamCount < 0 || streamCount > directory.remaining() / 4) {
+			throw new IOException("Invalid PDB: bad stream count");
+		}
+		streamSizes = new int[streamCount];
+		for (int i = 0; i < streamCount; i++) {
+			int size = directory.getInt();
+			streamSizes[i] = size == NIL_STREAM_SIZE ? 0 : size;
+		}
+		streamBlocks = new int[streamCount][];
+		for (int i = 0; i < streamCount; i++) {
+			int count = getBlockCount(streamSizes[i]);
+			if (count > directory.remaining() / 4) {
+				throw new IOException("Invalid PDB: truncated stream directory");
+			}
+			int[] blocks = new int[count];
+			for (int j = 0; j < count; j++) {
+				blocks[j] = directory.getInt();
+			}
+			streamBlocks[i] = blocks;
+		}
+	}
+
+	private long getFileLength() {
+		long length = 0;
+		for (ByteBuffer region : regions) {
+			length += region.limit();
+		}
+		return length;
+	}
+
+	private int getBlockCount(int size) throws IOException {
+		if (size < 0) {
+			throw new IOException("Invalid PDB: bad stream size");
+		}
+		return (int) ((size + (long) blockSize - 1) / blockSize);
+	}
+
+	private ByteBuffer getBlock(int blockIndex) throws IOException {
+		long offset = (long) blockIndex * blockSize;
+		int region = (int) (offset >> REGION_SHIFT);
+		if (blockIndex < 0 || region >= regions.length) {
+			throw new IOException("Invalid PDB: bad block index " + blockIndex);
+		}
+		ByteBuffer buf = regions[region];
+		int regionOffset = (int) (offset & ((1L << REGION_SHIFT) - 1));
+		int length = Math.min(blockSize, buf.limit() - regionOffset);
+		if (length <= 0) {
+			throw new IOException("Invalid PDB: bad block index " + blockIndex);
+		}
+		return CodeView.slice(buf, regionOffset, length);
+	}
+
+	private ByteBuffer readBlocks(int[] blocks, int size) throws IOException {
+		if (size == 0) {
+			return ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		if (isContiguous(blocks)) {
+			long offset = (long) blocks[0] * blockSize;
+			int region = (int) (offset >> REGION_SHIFT);
+			int regionOffset = (int) (offset & ((1L << REGION_SHIFT) - 1));
+			if (region < regions.length &&
+				regionOffset <= regions[region].limit() - (long) size) {
+				return CodeView.slice(regions[region], regionOffset, size);
+			}
+		}
+		byte[] bytes = new byte[size];
+		int pos = 0;
+		for (int block : blocks) {
+			ByteBuffer buf = getBlock(block);
+			int len = Math.min(size - pos, buf.remaining());
+			buf.get(bytes, pos, len);
+			pos += len;
+		}
+		if (pos != size) {
+			throw new IOException("Invalid PDB: truncated stream");
+		}
+		return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static boolean isContiguous(int[] blocks) {
+		for (int i = 1; i < blocks.length; i++) {
+			if (blocks[i] != blocks[i - 1] + 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the number of streams
+	 * @return stream count
+	 */
+	public int getStreamCount() {
+		return streamSizes.length;
+	}
+
+	/**
+	 * Get the length of a stream
+	 * @param streamIndex stream index
+	 * @return stream length or 0 if the stream does not exist
+	 */
+	public int getStreamLength(int streamIndex) {
+		if (streamIndex < 0 || streamIndex >= streamSizes.length) {
+			return 0;
+		}
+		return streamSizes[streamIndex];
+	}
+
+	/**
+	 * Get the content of a stream.  The returned buffer is read-only data which may
+	 * reference the file mapping directly, and must not be used after this file is closed.
+	 * @param streamIndex stream index
+	 * @return little-endian stream content (empty if the stream does not exist)
+	 * @throws IOException if the stream can not be read
+	 */
+	public ByteBuffer getStream(int streamIndex) throws IOException {
+		if (raf == null) {
+			throw new IOException("PDB file closed");
+		}
+		if (streamIndex < 0 || streamIndex >= streamSizes.length) {
+			return ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return readBlocks(streamBlocks[streamIndex], streamSizes[streamIndex]).asReadOnlyBuffer()
+				.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public void close() throws IOException {
+		regions = null;
+		if (raf != null) {
+			try {
+				raf.close();
+			}
+			finally {
+				raf = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,456 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.pdb.reader;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+import generic.concurrent.*;
+import ghidra.util.Msg;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * <code>PdbFile</code> reads the program database streams of a PDB 7.0 file: the PDB
+ * information, type and item tables, the global symbols and the per-module symbols and
+ * line numbers.  Module streams are only read by {@link #parseModules(TaskMonitor)}, which
+ * decodes them concurrently.
+ */
+public class PdbFile implements Closeable {
+
+	private static final String THREAD_POOL_NAME = "PDB Reader";
+
+	private static final int PDB_STREAM = 1;
+	private static final int TPI_STREAM = 2;
+	private static final int DBI_STREAM = 3;
+	private static final int IPI_STREAM = 4;
+
+	private static final int NO_STREAM = 0xffff;
+	private static final int NAMES_SIGNATURE = 0xeffeeffe;
+	private static final String NAMES_STREAM = "/names";
+
+	private static final int DBI_HEADER_SIZE = 64;
+	private static final int SECTION_HEADER_SIZE = 40;
+
+	// optional debug header stream indexes
+	private static final int DBG_OMAP_FROM_SRC = 4;
+	private static final int DBG_SECTION_HDR = 5;
+	private static final int DBG_SECTION_HDR_ORIG = 10;
+
+	private final File file;
+	private MsfFile msf;
+
+	private String guid;
+	private int age;
+	private ByteBuffer names;
+
+	private PdbTypeTable types;
+	private PdbTypeTable items;
+
+	private long[] sectionAddresses;
+	private long[] sectionSizes;
+	private long[] omapFrom;
+	private long[] omapTo;
+
+	private List<PdbModule> modules = new ArrayList<>();
+	private List<PdbSymbol> publicSymbols = new ArrayList<>();
+	private List<PdbSymbol> globalSymbols = new ArrayList<>();
+	private List<PdbSymbol> typedefs = new ArrayList<>();
+
+	/**
+	 * Open a PDB file and read its information, type and global symbol streams
+	 * @param file PDB file
+	 * @throws IOException if an IO error occurs or the file is not a valid PDB 7.0 file
+	 */
+	public PdbFile(File file) throws IOException {
+		this.file = file;
+		msf = new MsfFile(file);
+		boolean success = false;
+		try {
+			readInfoStream();
+			types = new PdbTypeTable(msf.getStream(TPI_STREAM));
+			items = new PdbTypeTable(msf.getStream(IPI_STREAM));
+			readDbiStream();
+			success = true;
+		}
+		catch (RuntimeException e) {
+			throw new IOException("Invalid PDB: " + e.getMessage(), e);
+		}
+		finally {
+			if (!success) {
+				close();
+			}
+		}
+	}
+
+	/**
+	 * Get the PDB file
+	 * @return PDB file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Get the GUID signature which identifies the matching executable
+	 * @return GUID formatted as <code>{XXXXXXXX-XXXX-XXXX-XXXX-XXXXXXXXXXXX}</code>
+	 */
+	public String getGuid() {
+		return guid;
+	}
+
+	/**
+	 * Get the PDB age
+	 * @return age
+	 */
+	public int getAge() {
+		return age;
+	}
+
+	MsfFile getMsf() {
+		return msf;
+	}
+
+	PdbTypeTable getTypes() {
+		return types;
+	}
+
+	PdbTypeTable getItems() {
+		return items;
+	}
+
+	List<PdbModule> getModules() {
+		return modules;
+	}
+
+	List<PdbSymbol> getPublicSymbols() {
+		return publicSymbols;
+	}
+
+	List<PdbSymbol> getGlobalSymbols() {
+		return globalSymbols;
+	}
+
+	List<PdbSymbol> getTypedefs() {
+		return typedefs;
+	}
+
+	/**
+	 * Get a string from the <code>/names</code> string table
+	 * @param offset string table offset
+	 * @return string or empty string if the offset is invalid
+	 */
+	String getString(int offset) {
+		if (names == null || offset < 0 || offset >= names.limit()) {
+			return "";
+		}
+		ByteBuffer buf = names.duplicate();
+		buf.position(offset);
+		return CodeView.getString(buf);
+	}
+
+	/**
+	 * Get the number of sections of the executable
+	 * @return section count
+	 */
+	int getSectionCount() {
+		return sectionAddresses.length;
+	}
+
+	/**
+	 * Get the virtual size of a section of the executable
+	 * @param segment 1-based section index
+	 * @return section size or 0 if the section does not exist
+	 */
+	long getSectionSize(int segment) {
+		if (segment < 1 || segment > sectionSizes.length) {
+			return 0;
+		}
+		return sectionSizes[segment - 1];
+	}
+
+	/**
+	 * Convert a segmented address to a relative virtual address of the executable.
+	 * Addresses of an executable which has been rearranged after linking are translated
+	 * through the OMAP table.
+	 * @param segment 1-based section index
+	 * @param offset section offset
+	 * @return relative virtual address or 0 if the address is invalid
+	 */
+	long getRva(int segment, long offset) {
+		if (segment < 1 || segment > sectionAddresses.length) {
+			return 0;
+		}
+		long rva = sectionAddresses[segment - 1] + offset;
+		if (omapFrom == null) {
+			return rva;
+		}
+		int index = Arrays.binarySearch(omapFrom, rva);
+		if (index < 0) {
+			index = -index - 2;
+		}
+		if (index < 0 || omapTo[index] == 0) {
+			return 0;
+		}
+		return omapTo[index] + (rva - omapFrom[index]);
+	}
+
+	private void readInfoStream() throws IOException {
+		ByteBuffer buf = msf.getStream(PDB_STREAM);
+		if (buf.limit() < 28) {
+			throw new IOException("Invalid PDB: bad information stream");
+		}
+		buf.getInt(); // version
+		buf.getInt(); // signature
+		age = buf.getInt();
+		int data1 = buf.getInt();
+		int data2 = CodeView.getUnsignedShort(buf);
+		int data3 = CodeView.getUnsignedShort(buf);
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("{%08X-%04X-%04X-", data1, data2, data3));
+		for (int i = 0; i < 8; i++) {
+			if (i == 2) {
+				sb.append('-');
+			}
+			sb.append(String.format("%02X", buf.get() & 0xff));
+		}
+		sb.append('}');
+		guid = sb.toString();
+
+		int namesStream = readNamedStreamMap(buf).getOrDefault(NAMES_STREAM, NO_STREAM);
+		if (namesStream != NO_STREAM) {
+			ByteBuffer namesBuf = msf.getStream(namesStream);
+			if (namesBuf.limit() >= 12 && namesBuf.getInt() == NAMES_SIGNATURE) {
+				namesBuf.getInt(); // hash version
+				int size = namesBuf.getInt();
+				names = CodeView.slice(namesBuf, 12, size);
+			}
+		}
+	}
+
+	private static Map<String, Integer> readNamedStreamMap(ByteBuffer buf) throws IOException {
+		Map<String, Integer> map = new HashMap<>();
+		int stringsSize = buf.getInt();
+		ByteBuffer strings = CodeView.slice(buf, buf.position(), stringsSize);
+		CodeView.skip(buf, stringsSize);
+		int size = buf.getInt();
+		buf.getInt(); // capacity
+		skipBitVector(buf); // present buckets
+		skipBitVector(buf); // deleted buckets
+		// one entry is stored for each present bucket
+		for (int i = 0; i < size; i++) {
+			int nameOffset = buf.getInt();
+			int streamIndex = buf.getInt();
+			if (nameOffset >= 0 && nameOffset < strings.limit()) {
+				strings.position(nameOffset);
+				map.put(CodeView.getString(strings), streamIndex);
+			}
+		}
+		return map;
+	}
+
+	private static void skipBitVector(ByteBuffer buf) throws IOException {
+		int count = buf.getInt();
+		if (count < 0 || count > buf.remaining() / 4) {
+			throw new IOException("Invalid PDB: bad named stream map");
+		}
+		CodeView.skip(buf, count * 4);
+	}
+
+	private void readDbiStream() throws IOException {
+		ByteBuffer buf = msf.getStream(DBI_STREAM);
+		if (buf.limit() < DBI_HEADER_SIZE) {
+			throw new IOException("Invalid PDB: bad DBI stream header");
+		}
+		buf.getInt(); // version signature
+		buf.getInt(); // version header
+		age = buf.getInt(); // supersedes age of information stream
+		CodeView.getUnsignedShort(buf); // global symbol stream
+		buf.getShort(); // build number
+		CodeView.getUnsignedShort(buf); // public symbol stream
+		buf.getShort(); // PDB DLL version
+		int symbolRecordStream = CodeView.getUnsignedShort(buf);
+		buf.getShort(); // PDB DLL rebuild
+		int moduleInfoSize = buf.getInt();
+		int sectionContributionSize = buf.getInt();
+		int sectionMapSize = buf.getInt();
+		int sourceInfoSize = buf.getInt();
+		int typeServerMapSize = buf.getInt();
+		buf.getInt(); // MFC type server index
+		int debugHeaderSize = buf.getInt();
+		int ecSize = buf.getInt();
+
+		int offset = DBI_HEADER_SIZE;
+		ByteBuffer moduleInfo = CodeView.slice(buf, offset, moduleInfoSize);
+		while (moduleInfo.hasRemaining()) {
+			modules.add(new PdbModule(moduleInfo));
+		}
+		offset += moduleInfoSize + sectionContributionSize + sectionMapSize + sourceInfoSize +
+			typeServerMapSize + ecSize;
+		ByteBuffer debugHeader = CodeView.slice(buf, offset, debugHeaderSize);
+		readSectionHeaders(debugHeader);
+
+		if (symbolRecordStream != NO_STREAM) {
+			readGlobalSymbols(msf.getStream(symbolRecordStream));
+		}
+	}
+
+	private int getDebugStream(ByteBuffer debugHeader, int index) {
+		if (debugHeader.limit() < (index + 1) * 2) {
+			return NO_STREAM;
+		}
+		return debugHeader.getShort(index * 2) & 0xffff;
+	}
+
+	private void readSectionHeaders(ByteBuffer debugHeader) throws IOException {
+		int omapStream = getDebugStream(debugHeader, DBG_OMAP_FROM_SRC);
+		int originalHeaderStream = getDebugStream(debugHeader, DBG_SECTION_HDR_ORIG);
+		int headerStream = getDebugStream(debugHeader, DBG_SECTION_HDR);
+		if (omapStream != NO_STREAM && originalHeaderStream != NO_STREAM) {
+			headerStream = originalHeaderStream;
+			ByteBuffer omap = msf.getStream(omapStream);
+			int count = omap.limit() / 8;
+			omapFrom = new long[count];
+			omapTo = new long[count];
+			for (int i = 0; i < count; i++) {
+				omapFrom[i] = omap.getInt() & 0xffffffffL;
+				omapTo[i] = omap.getInt() & 0xffffffffL;
+			}
+		}
+		ByteBuffer headers = headerStream != NO_STREAM ? msf.getStream(headerStream)
+				: ByteBuffer.allocate(0);
+		int count = headers.limit() / SECTION_HEADER_SIZE;
+		sectionAddresses = new long[count];
+		sectionSizes = new long[count];
+		for (int i = 0; i < count; i++) {
+			int base = i * SECTION_HEADER_SIZE;
+			sectionSizes[i] = headers.getInt(base + 8) & 0xffffffffL;
+			sectionAddresses[i] = headers.getInt(base + 12) & 0xffffffffL;
+		}
+	}
+
+	private void readGlobalSymbols(ByteBuffer buf) {
+		while (buf.remaining() >= 4) {
+			int start = buf.position();
+			int length = CodeView.getUnsignedShort(buf);
+			if (length < 2 || length > buf.remaining()) {
+				break;
+			}
+			int kind = CodeView.getUnsignedShort(buf);
+			ByteBuffer rec = buf.slice().order(buf.order());
+			rec.limit(length - 2);
+			buf.position(start + 2 + length);
+			try {
+				switch (kind) {
+					case CodeView.S_PUB32: {
+						rec.getInt(); // flags
+						long offset = rec.getInt() & 0xffffffffL;
+						int segment = CodeView.getUnsignedShort(rec);
+						publicSymbols.add(new PdbSymbol(PdbSymbol.PUBLIC_SYMBOL,
+							PdbSymbol.UNKNOWN_KIND, CodeView.getString(rec), segment, offset, 0,
+							0));
+						break;
+					}
+					case CodeView.S_LDATA32:
+					case CodeView.S_GDATA32: {
+						int type = rec.getInt();
+						long offset = rec.getInt() & 0xffffffffL;
+						int segment = CodeView.getUnsignedShort(rec);
+						String dataKind = kind == CodeView.S_GDATA32 ? PdbSymbol.GLOBAL_KIND
+								: PdbSymbol.FILE_STATIC_KIND;
+						globalSymbols.add(new PdbSymbol(PdbSymbol.DATA, dataKind,
+							CodeView.getString(rec), segment, offset, 0, type));
+						break;
+					}
+					case CodeView.S_UDT: {
+						int type = rec.getInt();
+						typedefs.add(new PdbSymbol(PdbSymbol.DATA, PdbSymbol.UNKNOWN_KIND,
+							CodeView.getString(rec), 0, 0, 0, type));
+						break;
+					}
+					default:
+						break;
+				}
+			}
+			catch (RuntimeException e) {
+				// truncated record - ignore
+			}
+		}
+	}
+
+	/**
+	 * Read the symbols and line numbers of all modules.  Modules are decoded concurrently;
+	 * a module whose stream is invalid is reported and skipped.
+	 * @param monitor task monitor
+	 * @throws CancelledException if the task is cancelled
+	 */
+	public void parseModules(TaskMonitor monitor) throws CancelledException {
+		QCallback<PdbModule, PdbModule> callback = (module, m) -> {
+			m.checkCanceled();
+			module.parse(PdbFile.this);
+			return module;
+		};
+
+		// @formatter:off
+		ConcurrentQ<PdbModule, PdbModule> queue = new ConcurrentQBuilder<PdbModule, PdbModule>()
+			.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+			.setCollectResults(true)
+			.setMonitor(monitor)
+			.build(callback);
+		// @formatter:on
+
+		Collection<QResult<PdbModule, PdbModule>> results;
+		try {
+			queue.add(modules);
+			results = queue.waitForResults();
+		}
+		catch (InterruptedException e) {
+			throw new CancelledException();
+		}
+		finally {
+			queue.dispose();
+		}
+		monitor.checkCanceled();
+
+		for (QResult<PdbModule, PdbModule> result : results) {
+			try {
+				result.getResult();
+			}
+			catch (CancellationException | CancelledException e) {
+				throw new CancelledException();
+			}
+			catch (Exception e) {
+				Throwable cause = e.getCause() != null ? e.getCause() : e;
+				Msg.error(this, "Failed to read PDB module " + result.getItem().getName() +
+					": " + cause.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (msf != null) {
+			try {
+				msf.close();
+			}
+			finally {
+				msf = null;
+			}
+		}
+	}
+}
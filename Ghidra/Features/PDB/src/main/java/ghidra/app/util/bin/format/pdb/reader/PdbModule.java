@@ -0,0 +1,436 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.pdb.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * <code>PdbModule</code> corresponds to a module (compiland) described by the DBI stream.
+ * Its symbol stream, which contains the procedures, static data and line numbers of the
+ * module, is only decoded by {@link #parse(PdbFile)}.
+ */
+class PdbModule {
+
+	private static final int NO_STREAM = 0xffff;
+
+	// hidden line numbers used for compiler generated code
+	private static final int LINE_HIDDEN = 0xfeefee;
+	private static final int LINE_ALWAYS_STEP_INTO = 0xf00f00;
+
+	private static final Comparator<LineNumber> LINE_ORDER = (l1, l2) -> {
+		int c = Integer.compare(l1.segment, l2.segment);
+		return c != 0 ? c : Long.compare(l1.offset, l2.offset);
+	};
+
+	private final String name;
+	private final int symbolStream;
+	private final int symbolByteSize;
+	private final int c11ByteSize;
+	private final int c13ByteSize;
+
+	private List<PdbSymbol> symbols = Collections.emptyList();
+	private List<LineNumber> lines = Collections.emptyList();
+	private List<String> sourceFiles = Collections.emptyList();
+
+	/**
+	 * <code>LineNumber</code> associates a source line with a code address
+	 */
+	static class LineNumber {
+		final int segment;
+		final long offset;
+		final int start;
+		final int end;
+		final String sourceFile;
+
+		LineNumber(int segment, long offset, int start, int end, String sourceFile) {
+			this.segment = segment;
+			this.offset = offset;
+			this.start = start;
+			this.end = end;
+			this.sourceFile = sourceFile;
+		}
+	}
+
+	/**
+	 * Read the next module information entry of the DBI module substream
+	 * @param buf module substream positioned at the entry
+	 * @throws IOException if the entry is invalid
+	 */
+	PdbModule(ByteBuffer buf) throws IOException {
+		try {
+			buf.getInt(); // unused
+			CodeView.skip(buf, 28); // section contribution
+			buf.getShort(); // flags
+			symbolStream = CodeView.getUnsignedShort(buf);
+			symbolByteSize = buf.getInt();
+			c11ByteSize = buf.getInt();
+			c13ByteSize = buf.getInt();
+			buf.getShort(); // source file count
+			buf.getShort(); // padding
+			buf.getInt(); // file name offsets
+			buf.getInt(); // source file name index
+			buf.getInt(); // PDB file path name index
+			name = CodeView.getString(buf);
+			CodeView.getString(buf); // object file name
+			CodeView.skip(buf, (4 - (buf.position() & 3)) & 3);
+		}
+		catch (RuntimeException e) {
+			throw new IOException("Invalid PDB: truncated module information");
+		}
+	}
+
+	/**
+	 * Get the module name
+	 * @return module name
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the symbols of this module which have been read by {@link #parse(PdbFile)}:
+	 * procedures, static data, blocks, labels and thunks
+	 * @return module symbols
+	 */
+	List<PdbSymbol> getSymbols() {
+		return symbols;
+	}
+
+	/**
+	 * Get the names of the source files which contributed to this module
+	 * @return source file names
+	 */
+	List<String> getSourceFiles() {
+		return sourceFiles;
+	}
+
+	/**
+	 * Get the line numbers for a code range
+	 * @param segment address segment
+	 * @param offset segment offset of the range
+	 * @param length length of the range
+	 * @return line numbers in address order
+	 */
+	List<LineNumber> getLines(int segment, long offset, long length) {
+		int index = Collections.binarySearch(lines,
+			new LineNumber(segment, offset, 0, 0, null), LINE_ORDER);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		while (index > 0 && LINE_ORDER.compare(lines.get(index - 1),
+			new LineNumber(segment, offset, 0, 0, null)) == 0) {
+			--index;
+		}
+		List<LineNumber> list = new ArrayList<>();
+		for (; index < lines.size(); index++) {
+			LineNumber line = lines.get(index);
+			if (line.segment != segment || line.offset >= offset + length) {
+				break;
+			}
+			list.add(line);
+		}
+		return list;
+	}
+
+	/**
+	 * Read the symbols and line numbers of this module
+	 * @param pdb PDB file
+	 * @throws IOException if an IO error occurs or the module stream is invalid
+	 */
+	void parse(PdbFile pdb) throws IOException {
+		if (symbolStream == NO_STREAM) {
+			return;
+		}
+		ByteBuffer stream = pdb.getMsf().getStream(symbolStream);
+		if (symbolByteSize < 4 || stream.limit() < 4) {
+			return;
+		}
+		if (stream.getInt(0) != CodeView.CV_SIGNATURE_C13) {
+			throw new IOException("Unsupported symbol format in module " + name);
+		}
+		parseSymbols(pdb, CodeView.slice(stream, 4, symbolByteSize - 4));
+		if (c13ByteSize > 0) {
+			parseLines(pdb,
+				CodeView.slice(stream, symbolByteSize + c11ByteSize, c13ByteSize));
+		}
+	}
+
+	private void parseSymbols(PdbFile pdb, ByteBuffer buf) {
+		List<PdbSymbol> list = new ArrayList<>();
+		List<PdbSymbol> scopes = new ArrayList<>(); // null for non-procedure scopes
+		PdbSymbol pendingLocal = null;
+
+		while (buf.remaining() >= 4) {
+			int start = buf.position();
+			int length = CodeView.getUnsignedShort(buf);
+			if (length < 2 || length > buf.remaining()) {
+				break;
+			}
+			int kind = CodeView.getUnsignedShort(buf);
+			ByteBuffer rec = buf.slice().order(buf.order());
+			rec.limit(length - 2);
+			buf.position(start + 2 + length);
+
+			PdbSymbol proc = scopes.isEmpty() ? null : scopes.get(scopes.size() - 1);
+			if (kind < CodeView.S_LOCAL || kind > CodeView.S_DEFRANGE_REGISTER_REL) {
+				pendingLocal = null;
+			}
+			try {
+				if (CodeView.isProcedure(kind)) {
+					PdbSymbol procedure = readProcedure(pdb, kind, rec);
+					list.add(procedure);
+					scopes.add(procedure);
+					continue;
+				}
+				if (CodeView.isScopeStart(kind)) {
+					PdbSymbol symbol = readScope(kind, rec);
+					if (symbol != null) {
+						list.add(symbol);
+					}
+					scopes.add(null);
+					continue;
+				}
+				if (CodeView.isScopeEnd(kind)) {
+					if (!scopes.isEmpty()) {
+						scopes.remove(scopes.size() - 1);
+					}
+					continue;
+				}
+				switch (kind) {
+					case CodeView.S_LDATA32:
+					case CodeView.S_GDATA32: {
+						int type = rec.getInt();
+						long offset = rec.getInt() & 0xffffffffL;
+						int segment = CodeView.getUnsignedShort(rec);
+						String dataKind = kind == CodeView.S_GDATA32 ? PdbSymbol.GLOBAL_KIND
+								: (scopes.isEmpty() ? PdbSymbol.FILE_STATIC_KIND
+										: PdbSymbol.STATIC_LOCAL_KIND);
+						list.add(new PdbSymbol(PdbSymbol.DATA, dataKind,
+							CodeView.getString(rec), segment, offset, 0, type));
+						break;
+					}
+					case CodeView.S_LABEL32: {
+						long offset = rec.getInt() & 0xffffffffL;
+						int segment = CodeView.getUnsignedShort(rec);
+						rec.get(); // flags
+						list.add(new PdbSymbol(PdbSymbol.LABEL, PdbSymbol.UNKNOWN_KIND,
+							CodeView.getString(rec), segment, offset, 0, 0));
+						break;
+					}
+					case CodeView.S_BPREL32:
+					case CodeView.S_REGREL32: {
+						if (proc == null) {
+							break;
+						}
+						int offset = rec.getInt();
+						int type = rec.getInt();
+						if (kind == CodeView.S_REGREL32) {
+							rec.getShort(); // register
+						}
+						String localName = CodeView.getString(rec);
+						proc.addLocal(new PdbSymbol(PdbSymbol.DATA, getLocalKind(proc, localName),
+							localName, 0, offset, 0, type));
+						break;
+					}
+					case CodeView.S_LOCAL: {
+						if (proc == null) {
+							break;
+						}
+						int type = rec.getInt();
+						int flags = CodeView.getUnsignedShort(rec);
+						String localName = CodeView.getString(rec);
+						String localKind = PdbSymbol.LOCAL_KIND;
+						if ((flags & CodeView.LOCAL_IS_PARAM) != 0) {
+							localKind = "this".equals(localName) ? PdbSymbol.OBJECT_POINTER_KIND
+									: PdbSymbol.PARAMETER_KIND;
+						}
+						pendingLocal = new PdbSymbol(PdbSymbol.DATA, localKind, localName, 0, 0,
+							0, type);
+						break;
+					}
+					case CodeView.S_DEFRANGE_FRAMEPOINTER_REL:
+					case CodeView.S_DEFRANGE_FRAMEPOINTER_REL_FULL_SCOPE:
+						if (pendingLocal != null && proc != null) {
+							proc.addLocal(withOffset(pendingLocal, rec.getInt()));
+							pendingLocal = null;
+						}
+						break;
+					case CodeView.S_DEFRANGE_REGISTER_REL:
+						if (pendingLocal != null && proc != null) {
+							rec.getShort(); // base register
+							rec.getShort(); // flags
+							proc.addLocal(withOffset(pendingLocal, rec.getInt()));
+							pendingLocal = null;
+						}
+						break;
+					default:
+						break;
+				}
+			}
+			catch (RuntimeException e) {
+				// truncated record - ignore
+			}
+		}
+		symbols = list;
+	}
+
+	private static PdbSymbol withOffset(PdbSymbol local, int offset) {
+		return new PdbSymbol(local.tag, local.kind, local.name, 0, offset, 0, local.typeIndex);
+	}
+
+	private static String getLocalKind(PdbSymbol proc, String localName) {
+		if (proc.pendingThis && "this".equals(localName)) {
+			proc.pendingThis = false;
+			return PdbSymbol.OBJECT_POINTER_KIND;
+		}
+		if (proc.pendingParameters > 0) {
+			--proc.pendingParameters;
+			return PdbSymbol.PARAMETER_KIND;
+		}
+		return PdbSymbol.LOCAL_KIND;
+	}
+
+	private static PdbSymbol readProcedure(PdbFile pdb, int kind, ByteBuffer rec) {
+		rec.getInt(); // parent
+		rec.getInt(); // end
+		rec.getInt(); // next
+		long length = rec.getInt() & 0xffffffffL;
+		rec.getInt(); // debug start
+		rec.getInt(); // debug end
+		int type = rec.getInt();
+		long offset = rec.getInt() & 0xffffffffL;
+		int segment = CodeView.getUnsignedShort(rec);
+		rec.get(); // flags
+		String procName = CodeView.getString(rec);
+		if (kind == CodeView.S_LPROC32_ID || kind == CodeView.S_GPROC32_ID) {
+			type = pdb.getItems().getFunctionIdType(type);
+		}
+		PdbSymbol procedure = new PdbSymbol(PdbSymbol.FUNCTION, PdbSymbol.UNKNOWN_KIND,
+			procName, segment, offset, length, type);
+		PdbTypeTable types = pdb.getTypes();
+		procedure.pendingParameters = Math.max(0, types.getParameterCount(type));
+		procedure.pendingThis = types.hasThisPointer(type);
+		return procedure;
+	}
+
+	private static PdbSymbol readScope(int kind, ByteBuffer rec) {
+		if (kind == CodeView.S_BLOCK32) {
+			rec.getInt(); // parent
+			rec.getInt(); // end
+			long length = rec.getInt() & 0xffffffffL;
+			long offset = rec.getInt() & 0xffffffffL;
+			int segment = CodeView.getUnsignedShort(rec);
+			return new PdbSymbol(PdbSymbol.BLOCK, PdbSymbol.UNKNOWN_KIND,
+				CodeView.getString(rec), segment, offset, length, 0);
+		}
+		if (kind == CodeView.S_THUNK32) {
+			rec.getInt(); // parent
+			rec.getInt(); // end
+			rec.getInt(); // next
+			long offset = rec.getInt() & 0xffffffffL;
+			int segment = CodeView.getUnsignedShort(rec);
+			int length = CodeView.getUnsignedShort(rec);
+			rec.get(); // ordinal
+			return new PdbSymbol(PdbSymbol.THUNK, PdbSymbol.UNKNOWN_KIND,
+				CodeView.getString(rec), segment, offset, length, 0);
+		}
+		return null;
+	}
+
+	private void parseLines(PdbFile pdb, ByteBuffer buf) throws IOException {
+		Map<Integer, String> files = new HashMap<>();
+		List<ByteBuffer> lineSections = new ArrayList<>();
+		while (buf.remaining() >= 8) {
+			int kind = buf.getInt();
+			int length = buf.getInt();
+			if (length < 0 || length > buf.remaining()) {
+				break;
+			}
+			ByteBuffer section = CodeView.slice(buf, buf.position(), length);
+			CodeView.skip(buf, (length + 3) & ~3);
+			if ((kind & CodeView.DEBUG_S_IGNORE) != 0) {
+				continue;
+			}
+			if (kind == CodeView.DEBUG_S_FILECHKSMS) {
+				readFileChecksums(pdb, section, files);
+			}
+			else if (kind == CodeView.DEBUG_S_LINES) {
+				lineSections.add(section);
+			}
+		}
+
+		List<LineNumber> list = new ArrayList<>();
+		for (ByteBuffer section : lineSections) {
+			readLines(section, files, list);
+		}
+		list.sort(LINE_ORDER);
+		lines = list;
+		sourceFiles = new ArrayList<>(new LinkedHashSet<>(files.values()));
+	}
+
+	private static void readFileChecksums(PdbFile pdb, ByteBuffer buf,
+			Map<Integer, String> files) throws IOException {
+		while (buf.remaining() >= 6) {
+			int entryOffset = buf.position();
+			int nameOffset = buf.getInt();
+			int checksumSize = CodeView.getUnsignedByte(buf);
+			buf.get(); // checksum kind
+			CodeView.skip(buf, checksumSize);
+			CodeView.skip(buf, (4 - (buf.position() & 3)) & 3);
+			files.put(entryOffset, pdb.getString(nameOffset));
+		}
+	}
+
+	private static void readLines(ByteBuffer buf, Map<Integer, String> files,
+			List<LineNumber> list) {
+		try {
+			long baseOffset = buf.getInt() & 0xffffffffL;
+			int segment = CodeView.getUnsignedShort(buf);
+			int flags = CodeView.getUnsignedShort(buf);
+			buf.getInt(); // code size
+			while (buf.remaining() >= 12) {
+				int blockStart = buf.position();
+				int fileId = buf.getInt();
+				int lineCount = buf.getInt();
+				int blockSize = buf.getInt();
+				if (blockSize < 12 || blockSize > buf.limit() - blockStart ||
+					lineCount < 0 || lineCount > (blockSize - 12) / 8) {
+					return;
+				}
+				String sourceFile = files.getOrDefault(fileId, "");
+				for (int i = 0; i < lineCount; i++) {
+					long offset = baseOffset + (buf.getInt() & 0xffffffffL);
+					int lineFlags = buf.getInt();
+					int start = lineFlags & 0xffffff;
+					if (start == LINE_HIDDEN || start == LINE_ALWAYS_STEP_INTO) {
+						continue;
+					}
+					int end = start + ((lineFlags >>> 24) & 0x7f);
+					list.add(new LineNumber(segment, offset, start, end, sourceFile));
+				}
+				if ((flags & CodeView.CV_LINES_HAVE_COLUMNS) != 0) {
+					CodeView.skip(buf, lineCount * 4);
+				}
+				buf.position(blockStart + blockSize);
+			}
+		}
+		catch (RuntimeException e) {
+			// truncated subsection - ignore remainder
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.pdb.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>PdbSymbol</code> is a decoded symbol record.  Tags and kinds use the DIA symbol tag
+ * and data kind names (e.g., tag "Data" with kind "Global").
+ */
+class PdbSymbol {
+
+	static final String FUNCTION = "Function";
+	static final String DATA = "Data";
+	static final String BLOCK = "Block";
+	static final String LABEL = "Label";
+	static final String THUNK = "Thunk";
+	static final String PUBLIC_SYMBOL = "PublicSymbol";
+
+	static final String UNKNOWN_KIND = "Unknown";
+	static final String LOCAL_KIND = "Local";
+	static final String STATIC_LOCAL_KIND = "StaticLocal";
+	static final String PARAMETER_KIND = "Parameter";
+	static final String OBJECT_POINTER_KIND = "ObjectPointer";
+	static final String FILE_STATIC_KIND = "FileStatic";
+	static final String GLOBAL_KIND = "Global";
+
+	final String tag;
+	final String kind;
+	final String name;
+	final int segment;
+	final long offset;
+	final long length;
+	final int typeIndex;
+
+	// Function symbols only
+	List<PdbSymbol> locals;
+	int pendingParameters;
+	boolean pendingThis;
+
+	/**
+	 * Construct a symbol
+	 * @param tag DIA symbol tag name
+	 * @param kind DIA data kind name
+	 * @param name symbol name
+	 * @param segment address segment (1-based section index), or 0 for a frame-relative
+	 * local variable
+	 * @param offset segment or frame offset
+	 * @param length length in bytes, or 0 to use the length of its type
+	 * @param typeIndex type index, or 0 if none
+	 */
+	PdbSymbol(String tag, String kind, String name, int segment, long offset, long length,
+			int typeIndex) {
+		this.tag = tag;
+		this.kind = kind;
+		this.name = name;
+		this.segment = segment;
+		this.offset = offset;
+		this.length = length;
+		this.typeIndex = typeIndex;
+	}
+
+	void addLocal(PdbSymbol local) {
+		if (locals == null) {
+			locals = new ArrayList<>();
+		}
+		locals.add(local);
+	}
+}
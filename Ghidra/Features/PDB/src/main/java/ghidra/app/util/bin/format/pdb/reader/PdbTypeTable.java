@@ -0,0 +1,610 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.pdb.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <code>PdbTypeTable</code> provides access to the type records of a TPI or IPI stream.
+ * Only the location of each record is determined when the table is opened; records are
+ * decoded on demand.
+ * <p>
+ * Type names are formed in the same way as the DIA-based PDB XML export, e.g.
+ * <code>char *[2][3]</code> for a pointer to a two-by-three array of characters.
+ */
+class PdbTypeTable {
+
+	private static final int TYPE_INDEX_BEGIN = 0x1000;
+	private static final int MAX_TYPE_DEPTH = 64;
+
+	private static final String UNNAMED_TAG = "unnamed-tag";
+	private static final String UNDEFINED = "Undefined";
+
+	private final ByteBuffer records;
+	private final int typeIndexBegin;
+	private final int[] recordOffsets;
+
+	private volatile Map<String, Integer> definitions;
+	private final Map<Integer, String> nameCache = new ConcurrentHashMap<>();
+
+	/**
+	 * <code>Composite</code> corresponds to a class, structure, union, interface or
+	 * enum type record.
+	 */
+	static class Composite {
+		int typeIndex;
+		int leaf;
+		int property;
+		int fieldList;
+		int underlyingType; // enum only
+		long size; // not enum
+		String name;
+		String uniqueName;
+
+		boolean isForwardReference() {
+			return (property & CodeView.PROPERTY_FWDREF) != 0;
+		}
+
+		boolean isEnum() {
+			return leaf == CodeView.LF_ENUM;
+		}
+
+		String getKey() {
+			return (property & CodeView.PROPERTY_HAS_UNIQUE_NAME) != 0 && uniqueName != null
+					? uniqueName
+					: name;
+		}
+	}
+
+	/**
+	 * <code>FieldVisitor</code> receives the members of a field list
+	 */
+	interface FieldVisitor {
+		/**
+		 * Data member (LF_MEMBER or LF_STMEMBER)
+		 * @param name member name
+		 * @param typeIndex member type index
+		 * @param offset member offset (0 for a static member)
+		 * @param isStatic true if static member
+		 */
+		void member(String name, int typeIndex, long offset, boolean isStatic);
+
+		/**
+		 * Enumerate value (LF_ENUMERATE)
+		 * @param name enumerate name
+		 * @param value enumerate value
+		 */
+		void enumerate(String name, long value);
+	}
+
+	/**
+	 * Open the type table contained within a TPI or IPI stream
+	 * @param stream stream content
+	 * @throws IOException if the stream is invalid
+	 */
+	PdbTypeTable(ByteBuffer stream) throws IOException {
+		if (stream.limit() == 0) {
+			records = stream;
+			typeIndexBegin = TYPE_INDEX_BEGIN;
+			recordOffsets = new int[0];
+			return;
+		}
+		if (stream.limit() < 56) {
+			throw new IOException("Invalid PDB: bad type stream header");
+		}
+		stream.getInt(); // version
+		int headerSize = stream.getInt();
+		typeIndexBegin = stream.getInt();
+		int typeIndexEnd = stream.getInt();
+		int recordBytes = stream.getInt();
+		if (typeIndexEnd < typeIndexBegin || typeIndexBegin < 0) {
+			throw new IOException("Invalid PDB: bad type index range");
+		}
+		records = CodeView.slice(stream, headerSize, recordBytes);
+
+		int count = typeIndexEnd - typeIndexBegin;
+		recordOffsets = new int[count];
+		int offset = 0;
+		for (int i = 0; i < count; i++) {
+			if (offset > recordBytes - 4) {
+				throw new IOException("Invalid PDB: truncated type records");
+			}
+			recordOffsets[i] = offset;
+			offset += 2 + (records.getShort(offset) & 0xffff);
+		}
+	}
+
+	/**
+	 * Determine if the specified type index refers to a record in this table
+	 * @param typeIndex type index
+	 * @return true if record exists
+	 */
+	boolean contains(int typeIndex) {
+		return typeIndex >= typeIndexBegin && typeIndex - typeIndexBegin < recordOffsets.length;
+	}
+
+	/**
+	 * Get the first type index within this table
+	 * @return first type index
+	 */
+	int getTypeIndexBegin() {
+		return typeIndexBegin;
+	}
+
+	/**
+	 * Get the type index following the last record within this table
+	 * @return end type index
+	 */
+	int getTypeIndexEnd() {
+		return typeIndexBegin + recordOffsets.length;
+	}
+
+	/**
+	 * Get the leaf kind of a type record
+	 * @param typeIndex type index
+	 * @return leaf kind or -1 if the record does not exist
+	 */
+	int getLeaf(int typeIndex) {
+		if (!contains(typeIndex)) {
+			return -1;
+		}
+		return records.getShort(recordOffsets[typeIndex - typeIndexBegin] + 2) & 0xffff;
+	}
+
+	/**
+	 * Get the content of a type record following its leaf kind
+	 * @param typeIndex type index
+	 * @return record content or null if the record does not exist
+	 */
+	ByteBuffer getRecord(int typeIndex) {
+		if (!contains(typeIndex)) {
+			return null;
+		}
+		int offset = recordOffsets[typeIndex - typeIndexBegin];
+		int length = records.getShort(offset) & 0xffff;
+		try {
+			return CodeView.slice(records, offset + 4, Math.max(0, length - 2));
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Get the composite described by a class, structure, union, interface or enum record
+	 * @param typeIndex type index
+	 * @return composite or null if the record is not a composite
+	 */
+	Composite getComposite(int typeIndex) {
+		int leaf = getLeaf(typeIndex);
+		if (leaf != CodeView.LF_CLASS && leaf != CodeView.LF_STRUCTURE &&
+			leaf != CodeView.LF_INTERFACE && leaf != CodeView.LF_UNION &&
+			leaf != CodeView.LF_ENUM) {
+			return null;
+		}
+		ByteBuffer buf = getRecord(typeIndex);
+		try {
+			Composite composite = new Composite();
+			composite.typeIndex = typeIndex;
+			composite.leaf = leaf;
+			CodeView.getUnsignedShort(buf); // member count
+			composite.property = CodeView.getUnsignedShort(buf);
+			if (leaf == CodeView.LF_ENUM) {
+				composite.underlyingType = buf.getInt();
+				composite.fieldList = buf.getInt();
+			}
+			else {
+				composite.fieldList = buf.getInt();
+				if (leaf != CodeView.LF_UNION) {
+					buf.getInt(); // derivation list
+					buf.getInt(); // vtable shape
+				}
+				composite.size = CodeView.getNumeric(buf);
+			}
+			composite.name = CodeView.getString(buf);
+			if ((composite.property & CodeView.PROPERTY_HAS_UNIQUE_NAME) != 0) {
+				composite.uniqueName = CodeView.getString(buf);
+			}
+			return composite;
+		}
+		catch (RuntimeException e) {
+			return null; // truncated record
+		}
+	}
+
+	/**
+	 * Resolve a forward reference to the type index of the corresponding definition
+	 * @param typeIndex composite type index
+	 * @return definition type index or the specified type index if no definition exists
+	 */
+	int resolveDefinition(int typeIndex) {
+		Composite composite = getComposite(typeIndex);
+		if (composite == null || !composite.isForwardReference()) {
+			return typeIndex;
+		}
+		Integer definition = getDefinitions().get(composite.getKey());
+		return definition != null ? definition : typeIndex;
+	}
+
+	private Map<String, Integer> getDefinitions() {
+		Map<String, Integer> map = definitions;
+		if (map == null) {
+			synchronized (this) {
+				map = definitions;
+				if (map == null) {
+					map = new HashMap<>();
+					for (int ti = typeIndexBegin; ti < getTypeIndexEnd(); ti++) {
+						Composite composite = getComposite(ti);
+						if (composite != null && !composite.isForwardReference()) {
+							map.putIfAbsent(composite.getKey(), ti);
+						}
+					}
+					definitions = map;
+				}
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Get the name of a composite, replacing unnamed tag names with a name unique to
+	 * its definition
+	 * @param composite composite definition
+	 * @return composite name
+	 */
+	String getCompositeName(Composite composite) {
+		String name = composite.name;
+		if (name == null || name.length() == 0) {
+			return "NONAME";
+		}
+		if (name.contains(UNNAMED_TAG)) {
+			return String.format("<unnamed_%04x>", composite.typeIndex);
+		}
+		return name;
+	}
+
+	/**
+	 * Get the name of a type
+	 * @param typeIndex type index
+	 * @return type name or empty string if no type specified
+	 */
+	String getTypeName(int typeIndex) {
+		if (typeIndex == 0) {
+			return "";
+		}
+		String name = nameCache.get(typeIndex);
+		if (name == null) {
+			name = getTypeName(typeIndex, "", 0);
+			nameCache.put(typeIndex, name);
+		}
+		return name;
+	}
+
+	private String getTypeName(int typeIndex, String suffix, int depth) {
+		if (depth > MAX_TYPE_DEPTH) {
+			return UNDEFINED;
+		}
+		if (typeIndex < typeIndexBegin) {
+			return PrimitiveTypes.getName(typeIndex, suffix);
+		}
+		ByteBuffer buf = getRecord(typeIndex);
+		if (buf == null) {
+			return UNDEFINED;
+		}
+		try {
+			switch (getLeaf(typeIndex)) {
+				case CodeView.LF_POINTER:
+					return getTypeName(buf.getInt(), suffix + " *", depth + 1);
+				case CodeView.LF_MODIFIER:
+				case CodeView.LF_BITFIELD:
+					return getTypeName(buf.getInt(), suffix, depth + 1);
+				case CodeView.LF_ARRAY: {
+					int elementType = buf.getInt();
+					buf.getInt(); // index type
+					long arrayLength = CodeView.getNumeric(buf);
+					long elementLength = getTypeLength(elementType);
+					if (elementLength == 0) {
+						elementLength = arrayLength;
+					}
+					long count = elementLength == 0 ? 0 : arrayLength / elementLength;
+					return getTypeName(elementType, suffix + "[" + count + "]", depth + 1);
+				}
+				case CodeView.LF_PROCEDURE:
+				case CodeView.LF_MFUNCTION:
+					return "void *";
+				case CodeView.LF_CLASS:
+				case CodeView.LF_STRUCTURE:
+				case CodeView.LF_INTERFACE:
+				case CodeView.LF_UNION:
+				case CodeView.LF_ENUM: {
+					Composite composite = getComposite(resolveDefinition(typeIndex));
+					if (composite == null) {
+						return UNDEFINED;
+					}
+					return getCompositeName(composite) + suffix;
+				}
+				default:
+					return UNDEFINED;
+			}
+		}
+		catch (RuntimeException e) {
+			return UNDEFINED; // truncated record
+		}
+	}
+
+	/**
+	 * Get the length of a type
+	 * @param typeIndex type index
+	 * @return type length in bytes or 0 if unknown
+	 */
+	long getTypeLength(int typeIndex) {
+		for (int depth = 0; depth < MAX_TYPE_DEPTH; depth++) {
+			if (typeIndex < typeIndexBegin) {
+				return PrimitiveTypes.getLength(typeIndex);
+			}
+			ByteBuffer buf = getRecord(typeIndex);
+			if (buf == null) {
+				return 0;
+			}
+			try {
+				switch (getLeaf(typeIndex)) {
+					case CodeView.LF_POINTER:
+						buf.getInt(); // referent type
+						return (buf.getInt() >> 13) & 0x3f;
+					case CodeView.LF_MODIFIER:
+					case CodeView.LF_BITFIELD:
+						typeIndex = buf.getInt();
+						continue;
+					case CodeView.LF_ARRAY:
+						buf.getInt(); // element type
+						buf.getInt(); // index type
+						return CodeView.getNumeric(buf);
+					case CodeView.LF_CLASS:
+					case CodeView.LF_STRUCTURE:
+					case CodeView.LF_INTERFACE:
+					case CodeView.LF_UNION:
+					case CodeView.LF_ENUM: {
+						Composite composite = getComposite(resolveDefinition(typeIndex));
+						if (composite == null) {
+							return 0;
+						}
+						if (!composite.isEnum()) {
+							return composite.size;
+						}
+						typeIndex = composite.underlyingType;
+						continue;
+					}
+					default:
+						return 0;
+				}
+			}
+			catch (RuntimeException e) {
+				return 0; // truncated record
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Get the bit length of a bit-field type
+	 * @param typeIndex type index
+	 * @return bit length or 0 if not a bit-field type
+	 */
+	int getBitFieldLength(int typeIndex) {
+		if (getLeaf(typeIndex) != CodeView.LF_BITFIELD) {
+			return 0;
+		}
+		ByteBuffer buf = getRecord(typeIndex);
+		try {
+			buf.getInt(); // underlying type
+			return CodeView.getUnsignedByte(buf);
+		}
+		catch (RuntimeException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Get the number of parameters of a procedure type, excluding any implicit
+	 * <code>this</code> parameter and the variable argument indicator.
+	 * @param typeIndex LF_PROCEDURE or LF_MFUNCTION type index
+	 * @return parameter count or -1 if not a procedure type
+	 */
+	int getParameterCount(int typeIndex) {
+		int leaf = getLeaf(typeIndex);
+		ByteBuffer buf = getRecord(typeIndex);
+		try {
+			int argList;
+			if (leaf == CodeView.LF_PROCEDURE) {
+				buf.getInt(); // return type
+				buf.getShort(); // call type, function attributes
+				buf.getShort(); // parameter count
+				argList = buf.getInt();
+			}
+			else if (leaf == CodeView.LF_MFUNCTION) {
+				buf.getInt(); // return type
+				buf.getInt(); // class type
+				buf.getInt(); // this type
+				buf.getShort(); // call type, function attributes
+				buf.getShort(); // parameter count
+				argList = buf.getInt();
+			}
+			else {
+				return -1;
+			}
+			ByteBuffer args = getRecord(argList);
+			if (args == null || getLeaf(argList) != CodeView.LF_ARGLIST) {
+				return 0;
+			}
+			int count = args.getInt();
+			if (count > 0 && count <= args.remaining() / 4 &&
+				args.getInt(args.position() + (count - 1) * 4) == 0) {
+				--count; // variable arguments
+			}
+			return Math.max(0, count);
+		}
+		catch (RuntimeException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Determine if a procedure type is a member function with a <code>this</code> pointer
+	 * @param typeIndex procedure type index
+	 * @return true if member function has a <code>this</code> pointer
+	 */
+	boolean hasThisPointer(int typeIndex) {
+		if (getLeaf(typeIndex) != CodeView.LF_MFUNCTION) {
+			return false;
+		}
+		ByteBuffer buf = getRecord(typeIndex);
+		try {
+			buf.getInt(); // return type
+			buf.getInt(); // class type
+			return buf.getInt() != 0;
+		}
+		catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Get the procedure type referenced by an LF_FUNC_ID or LF_MFUNC_ID record
+	 * of an IPI stream
+	 * @param idIndex item index
+	 * @return procedure type index or 0 if not a function id
+	 */
+	int getFunctionIdType(int idIndex) {
+		int leaf = getLeaf(idIndex);
+		if (leaf != CodeView.LF_FUNC_ID && leaf != CodeView.LF_MFUNC_ID) {
+			return 0;
+		}
+		ByteBuffer buf = getRecord(idIndex);
+		try {
+			buf.getInt(); // scope or parent type
+			return buf.getInt();
+		}
+		catch (RuntimeException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Visit the data members and enumerates of a field list, following any
+	 * continuation records.  Methods, base classes, nested types and other members
+	 * are skipped.
+	 * @param fieldList field list type index
+	 * @param visitor field visitor
+	 */
+	void visitFields(int fieldList, FieldVisitor visitor) {
+		Set<Integer> visited = new HashSet<>();
+		while (fieldList != 0 && visited.add(fieldList)) {
+			if (getLeaf(fieldList) != CodeView.LF_FIELDLIST) {
+				return;
+			}
+			fieldList = visitFieldList(getRecord(fieldList), visitor);
+		}
+	}
+
+	private int visitFieldList(ByteBuffer buf, FieldVisitor visitor) {
+		try {
+			while (buf.remaining() >= 2) {
+				int leaf = CodeView.getUnsignedShort(buf);
+				switch (leaf) {
+					case CodeView.LF_MEMBER: {
+						buf.getShort(); // attributes
+						int type = buf.getInt();
+						long offset = CodeView.getNumeric(buf);
+						visitor.member(CodeView.getString(buf), type, offset, false);
+						break;
+					}
+					case CodeView.LF_STMEMBER: {
+						buf.getShort(); // attributes
+						int type = buf.getInt();
+						visitor.member(CodeView.getString(buf), type, 0, true);
+						break;
+					}
+					case CodeView.LF_ENUMERATE: {
+						buf.getShort(); // attributes
+						long value = CodeView.getNumeric(buf);
+						visitor.enumerate(CodeView.getString(buf), value);
+						break;
+					}
+					case CodeView.LF_BCLASS:
+					case CodeView.LF_BINTERFACE:
+						buf.getShort(); // attributes
+						buf.getInt(); // base type
+						CodeView.getNumeric(buf); // offset
+						break;
+					case CodeView.LF_VBCLASS:
+					case CodeView.LF_IVBCLASS:
+						buf.getShort(); // attributes
+						buf.getInt(); // base type
+						buf.getInt(); // virtual base pointer type
+						CodeView.getNumeric(buf); // virtual base pointer offset
+						CodeView.getNumeric(buf); // virtual base offset
+						break;
+					case CodeView.LF_METHOD:
+						buf.getShort(); // overload count
+						buf.getInt(); // method list
+						CodeView.getString(buf);
+						break;
+					case CodeView.LF_ONEMETHOD: {
+						int attributes = CodeView.getUnsignedShort(buf);
+						buf.getInt(); // method type
+						int methodProperty = (attributes >> 2) & 0x7;
+						if (methodProperty == 4 || methodProperty == 6) {
+							buf.getInt(); // virtual table offset of introducing virtual
+						}
+						CodeView.getString(buf);
+						break;
+					}
+					case CodeView.LF_NESTTYPE:
+					case CodeView.LF_NESTTYPEEX:
+					case CodeView.LF_FRIENDFCN:
+					case CodeView.LF_MEMBERMODIFY:
+						buf.getShort(); // padding or attributes
+						buf.getInt(); // type
+						CodeView.getString(buf);
+						break;
+					case CodeView.LF_VFUNCTAB:
+					case CodeView.LF_FRIENDCLS:
+						buf.getShort(); // padding
+						buf.getInt(); // type
+						break;
+					case CodeView.LF_VFUNCOFF:
+						buf.getShort(); // padding
+						buf.getInt(); // type
+						buf.getInt(); // offset
+						break;
+					case CodeView.LF_INDEX:
+						buf.getShort(); // padding
+						return buf.getInt(); // continuation
+					default:
+						return 0; // unknown member length
+				}
+				CodeView.skipPadding(buf);
+			}
+		}
+		catch (RuntimeException e) {
+			// truncated record
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,512 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.pdb.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import ghidra.app.util.bin.format.pdb.reader.PdbModule.LineNumber;
+import ghidra.app.util.bin.format.pdb.reader.PdbTypeTable.Composite;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+import ghidra.xml.*;
+
+/**
+ * <code>PdbXmlPullParser</code> presents the content of a PDB file as the element stream
+ * produced by parsing the XML output of the DIA-based <code>pdb.exe</code> utility, which
+ * allows the PDB to be applied without a Windows host or an intermediate XML document.
+ * <p>
+ * Elements are generated on demand, one type or function at a time.  The streams of the
+ * individual modules are only read once the <code>functions</code> element is reached.
+ */
+public class PdbXmlPullParser extends AbstractXmlPullParser {
+
+	private static final String NONAME = "NONAME";
+
+	private enum Section {
+		PDB, ENUMS, DATATYPES, TYPEDEFS, CLASSES, FUNCTIONS, TABLES, DONE
+	}
+
+	/**
+	 * A procedure and the module which defines it
+	 */
+	private static class ModuleFunction {
+		final PdbModule module;
+		final PdbSymbol symbol;
+		final long rva;
+
+		ModuleFunction(PdbModule module, PdbSymbol symbol, long rva) {
+			this.module = module;
+			this.symbol = symbol;
+			this.rva = rva;
+		}
+	}
+
+	private final PdbFile pdb;
+	private final PdbTypeTable types;
+	private final String name;
+
+	private final ArrayDeque<XmlElement> queue = new ArrayDeque<>();
+	private TaskMonitor monitor = TaskMonitor.DUMMY;
+	private boolean pullingContent = true;
+
+	private Section section = Section.PDB;
+	private int cursor;
+	private Set<String> sectionNames = new HashSet<>();
+	private List<ModuleFunction> functions;
+	private Map<Long, String> publicNames;
+	private List<PdbSymbol> sortedPublics;
+
+	/**
+	 * Open a PDB file
+	 * @param pdbFile PDB file
+	 * @throws IOException if an IO error occurs or the file is not a valid PDB 7.0 file
+	 */
+	public PdbXmlPullParser(File pdbFile) throws IOException {
+		pdb = new PdbFile(pdbFile);
+		types = pdb.getTypes();
+		name = pdbFile.getName();
+	}
+
+	/**
+	 * Set the task monitor used while reading the module streams
+	 * @param monitor task monitor
+	 */
+	public void setMonitor(TaskMonitor monitor) {
+		this.monitor = monitor != null ? monitor : TaskMonitor.DUMMY;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String getProcessingInstruction(String piName, String attribute) {
+		return null;
+	}
+
+	@Override
+	public boolean hasNext() {
+		fill();
+		return !queue.isEmpty();
+	}
+
+	@Override
+	public XmlElement peek() {
+		fill();
+		return queue.peek();
+	}
+
+	@Override
+	public XmlElement next() {
+		fill();
+		return queue.poll();
+	}
+
+	@Override
+	public void dispose() {
+		queue.clear();
+		section = Section.DONE;
+		try {
+			pdb.close();
+		}
+		catch (IOException e) {
+			// ignore
+		}
+	}
+
+	@Override
+	public boolean isPullingContent() {
+		return pullingContent;
+	}
+
+	@Override
+	public void setPullingContent(boolean pullingContent) {
+		this.pullingContent = pullingContent;
+	}
+
+	private void fill() {
+		while (queue.isEmpty() && section != Section.DONE) {
+			step();
+		}
+	}
+
+	private void step() {
+		switch (section) {
+			case PDB:
+				addStart("pdb", 0, "file", pdb.getFile().getAbsolutePath(), "exe",
+					getExecutableName(), "guid", pdb.getGuid(), "age",
+					Integer.toString(pdb.getAge()));
+				beginSection(Section.ENUMS, "enums");
+				break;
+			case ENUMS:
+			case DATATYPES:
+			case CLASSES:
+				if (cursor < types.getTypeIndexEnd()) {
+					addComposite(cursor++);
+				}
+				else {
+					endSection();
+				}
+				break;
+			case TYPEDEFS:
+				if (cursor < pdb.getTypedefs().size()) {
+					addTypedef(pdb.getTypedefs().get(cursor++));
+				}
+				else {
+					endSection();
+				}
+				break;
+			case FUNCTIONS:
+				if (functions == null) {
+					functions = getFunctions();
+				}
+				if (cursor < functions.size()) {
+					addFunction(functions.get(cursor++));
+				}
+				else {
+					endSection();
+				}
+				break;
+			case TABLES:
+				addSymbolTable();
+				addSourceFileTable();
+				endSection();
+				break;
+			default:
+				break;
+		}
+	}
+
+	private String getExecutableName() {
+		String pdbName = pdb.getFile().getName();
+		int index = pdbName.lastIndexOf('.');
+		return index > 0 ? pdbName.substring(0, index) : pdbName;
+	}
+
+	private void beginSection(Section nextSection, String sectionName) {
+		section = nextSection;
+		cursor = section == Section.TYPEDEFS || section == Section.FUNCTIONS ? 0
+				: types.getTypeIndexBegin();
+		sectionNames.clear();
+		addStart(sectionName, 1);
+	}
+
+	private void endSection() {
+		switch (section) {
+			case ENUMS:
+				addEnd("enums", 1);
+				beginSection(Section.DATATYPES, "datatypes");
+				break;
+			case DATATYPES:
+				addEnd("datatypes", 1);
+				beginSection(Section.TYPEDEFS, "typedefs");
+				break;
+			case TYPEDEFS:
+				addEnd("typedefs", 1);
+				beginSection(Section.CLASSES, "classes");
+				break;
+			case CLASSES:
+				addEnd("classes", 1);
+				beginSection(Section.FUNCTIONS, "functions");
+				break;
+			case FUNCTIONS:
+				addEnd("functions", 1);
+				beginSection(Section.TABLES, "tables");
+				break;
+			case TABLES:
+				addEnd("tables", 1);
+				addEnd("pdb", 0);
+				section = Section.DONE;
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void addComposite(int typeIndex) {
+		Composite composite = types.getComposite(typeIndex);
+		if (composite == null || composite.isForwardReference()) {
+			return;
+		}
+		boolean isClass = composite.leaf == CodeView.LF_CLASS;
+		String compositeName = types.getCompositeName(composite);
+		switch (section) {
+			case ENUMS:
+				if (!composite.isEnum() || !sectionNames.add(compositeName)) {
+					return;
+				}
+				addStart("enum", 2, "name", compositeName, "type",
+					types.getTypeName(composite.underlyingType), "length",
+					toHex(types.getTypeLength(composite.underlyingType)));
+				types.visitFields(composite.fieldList, new FieldVisitorAdapter() {
+					@Override
+					public void enumerate(String enumerateName, long value) {
+						addStart("member", 3, "name", enumerateName, "value",
+							Integer.toString((int) value));
+						addEnd("member", 3);
+					}
+				});
+				addEnd("enum", 2);
+				break;
+			case DATATYPES:
+			case CLASSES:
+				if (composite.isEnum() || isClass != (section == Section.CLASSES) ||
+					composite.size == 0 || !sectionNames.add(compositeName)) {
+					return;
+				}
+				String element = isClass ? "class" : "datatype";
+				if (isClass) {
+					addStart(element, 2, "name", compositeName, "length", toHex(composite.size));
+				}
+				else {
+					addStart(element, 2, "name", compositeName, "kind", getUdtKind(composite),
+						"length", toHex(composite.size));
+				}
+				types.visitFields(composite.fieldList, new FieldVisitorAdapter() {
+					@Override
+					public void member(String memberName, int type, long offset,
+							boolean isStatic) {
+						addMember(memberName, type, offset, isStatic);
+					}
+				});
+				addEnd(element, 2);
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void addMember(String memberName, int type, long offset, boolean isStatic) {
+		int bitLength = types.getBitFieldLength(type);
+		long length = bitLength;
+		if (bitLength != 0) {
+			memberName = memberName + ":" + toHex(bitLength);
+		}
+		else {
+			length = types.getTypeLength(type);
+		}
+		addStart("member", 3, "name", memberName, "datatype", types.getTypeName(type), "offset",
+			toHex(offset), "kind", isStatic ? "StaticMember" : "Member", "length", toHex(length));
+		addEnd("member", 3);
+	}
+
+	private static String getUdtKind(Composite composite) {
+		switch (composite.leaf) {
+			case CodeView.LF_UNION:
+				return "Union";
+			case CodeView.LF_INTERFACE:
+				return "Interface";
+			case CodeView.LF_CLASS:
+				return "Class";
+			default:
+				return "Structure";
+		}
+	}
+
+	private void addTypedef(PdbSymbol typedef) {
+		String baseType = types.getTypeName(typedef.typeIndex);
+		if (typedef.name.equals(baseType)) {
+			return;
+		}
+		addStart("typedef", 2, "name", typedef.name, "basetype", baseType);
+		addEnd("typedef", 2);
+	}
+
+	private List<ModuleFunction> getFunctions() {
+		try {
+			pdb.parseModules(monitor);
+		}
+		catch (CancelledException e) {
+			return Collections.emptyList(); // monitor is checked by the consumer
+		}
+		Map<Long, ModuleFunction> map = new TreeMap<>();
+		for (PdbModule module : pdb.getModules()) {
+			for (PdbSymbol symbol : module.getSymbols()) {
+				if (PdbSymbol.FUNCTION.equals(symbol.tag)) {
+					long rva = pdb.getRva(symbol.segment, symbol.offset);
+					if (rva != 0) {
+						map.putIfAbsent(rva, new ModuleFunction(module, symbol, rva));
+					}
+				}
+			}
+		}
+		return new ArrayList<>(map.values());
+	}
+
+	private Map<Long, String> getPublicNames() {
+		Map<Long, String> map = new HashMap<>();
+		for (PdbSymbol symbol : pdb.getPublicSymbols()) {
+			long rva = pdb.getRva(symbol.segment, symbol.offset);
+			if (rva != 0) {
+				map.putIfAbsent(rva, symbol.name);
+			}
+		}
+		return map;
+	}
+
+	private void addFunction(ModuleFunction function) {
+		if (publicNames == null) {
+			publicNames = getPublicNames();
+		}
+		PdbSymbol symbol = function.symbol;
+		String functionName = publicNames.getOrDefault(function.rva, symbol.name);
+		addStart("function", 2, "name", functionName, "address", toHex(function.rva), "length",
+			toHex(symbol.length));
+		if (symbol.locals != null) {
+			for (PdbSymbol local : symbol.locals) {
+				addStart("stack_variable", 3, "name", local.name, "kind", local.kind, "offset",
+					toHex(local.offset), "datatype", types.getTypeName(local.typeIndex), "length",
+					toHex(types.getTypeLength(local.typeIndex)));
+				addEnd("stack_variable", 3);
+			}
+		}
+		if (symbol.length > 0) {
+			for (LineNumber line : function.module.getLines(symbol.segment, symbol.offset,
+				symbol.length)) {
+				addStart("line_number", 3, "source_file", line.sourceFile, "start",
+					toHex(line.start), "end", toHex(line.end), "addr",
+					toHex(pdb.getRva(line.segment, line.offset)));
+				addEnd("line_number", 3);
+			}
+		}
+		addEnd("function", 2);
+	}
+
+	private void addSymbolTable() {
+		addStart("table", 2, "name", "Symbols");
+		int index = 0;
+		Set<String> emitted = new HashSet<>();
+		Map<Long, Long> knownLengths = new HashMap<>();
+		List<PdbSymbol> symbols = new ArrayList<>();
+		List<Long> lengths = new ArrayList<>();
+
+		List<PdbSymbol> moduleSymbols = new ArrayList<>(pdb.getGlobalSymbols());
+		for (PdbModule module : pdb.getModules()) {
+			moduleSymbols.addAll(module.getSymbols());
+		}
+		for (PdbSymbol symbol : moduleSymbols) {
+			long rva = pdb.getRva(symbol.segment, symbol.offset);
+			if (rva == 0 || !emitted.add(symbol.tag + ':' + symbol.name + ':' + rva)) {
+				continue;
+			}
+			long length = PdbSymbol.DATA.equals(symbol.tag) ? types.getTypeLength(symbol.typeIndex)
+					: symbol.length;
+			if (PdbSymbol.FUNCTION.equals(symbol.tag) || PdbSymbol.DATA.equals(symbol.tag)) {
+				knownLengths.putIfAbsent(rva, length);
+			}
+			symbols.add(symbol);
+			lengths.add(length);
+		}
+
+		for (PdbSymbol symbol : pdb.getPublicSymbols()) {
+			long rva = pdb.getRva(symbol.segment, symbol.offset);
+			addSymbol(symbol, rva, getPublicLength(symbol, rva, knownLengths), ++index);
+		}
+		for (int i = 0; i < symbols.size(); i++) {
+			PdbSymbol symbol = symbols.get(i);
+			addSymbol(symbol, pdb.getRva(symbol.segment, symbol.offset), lengths.get(i),
+				++index);
+		}
+		addEnd("table", 2);
+	}
+
+	private long getPublicLength(PdbSymbol symbol, long rva, Map<Long, Long> knownLengths) {
+		Long known = knownLengths.get(rva);
+		if (known != null && known != 0) {
+			return known;
+		}
+		if (sortedPublics == null) {
+			sortedPublics = new ArrayList<>(pdb.getPublicSymbols());
+			sortedPublics.sort(PdbXmlPullParser::compareAddress);
+		}
+		// distance to the next public symbol of the same section
+		int index = Collections.binarySearch(sortedPublics, symbol,
+			PdbXmlPullParser::compareAddress);
+		long end = pdb.getSectionSize(symbol.segment);
+		for (int i = Math.max(0, index) + 1; i < sortedPublics.size(); i++) {
+			PdbSymbol next = sortedPublics.get(i);
+			if (next.segment != symbol.segment) {
+				break;
+			}
+			if (next.offset > symbol.offset) {
+				end = Math.min(end, next.offset);
+				break;
+			}
+		}
+		return Math.max(0, end - symbol.offset);
+	}
+
+	private static int compareAddress(PdbSymbol s1, PdbSymbol s2) {
+		int c = Integer.compare(s1.segment, s2.segment);
+		return c != 0 ? c : Long.compare(s1.offset, s2.offset);
+	}
+
+	private void addSymbol(PdbSymbol symbol, long rva, long length, int index) {
+		String symbolName = symbol.name.length() == 0 ? NONAME : symbol.name;
+		addStart("symbol", 3, "name", symbolName, "address", toHex(rva), "length",
+			toHex(length), "tag", symbol.tag, "kind", symbol.kind, "index", toHex(index),
+			"undecorated", "", "value", "", "datatype", types.getTypeName(symbol.typeIndex));
+		addEnd("symbol", 3);
+	}
+
+	private void addSourceFileTable() {
+		addStart("table", 2, "name", "SourceFiles");
+		Set<String> files = new LinkedHashSet<>();
+		for (PdbModule module : pdb.getModules()) {
+			files.addAll(module.getSourceFiles());
+		}
+		int id = 0;
+		for (String file : files) {
+			addStart("source_file", 3, "name", file, "id", toHex(++id));
+			addEnd("source_file", 3);
+		}
+		addEnd("table", 2);
+	}
+
+	private static String toHex(long value) {
+		return "0x" + Integer.toHexString((int) value);
+	}
+
+	private void addStart(String elementName, int level, String... attributes) {
+		LinkedHashMap<String, String> map = new LinkedHashMap<>();
+		for (int i = 0; i < attributes.length; i += 2) {
+			map.put(attributes[i], attributes[i + 1]);
+		}
+		queue.add(new XmlElementImpl(true, false, elementName, level, map, null, -1, -1));
+	}
+
+	private void addEnd(String elementName, int level) {
+		queue.add(new XmlElementImpl(false, true, elementName, level, null, "", -1, -1));
+	}
+
+	/**
+	 * Field visitor which ignores all fields
+	 */
+	private static class FieldVisitorAdapter implements PdbTypeTable.FieldVisitor {
+		@Override
+		public void member(String memberName, int typeIndex, long offset, boolean isStatic) {
+			// ignore
+		}
+
+		@Override
+		public void enumerate(String enumerateName, long value) {
+			// ignore
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.pdb.reader;
+
+/**
+ * Names and lengths of the CodeView primitive types (type indexes below 0x1000).  A
+ * primitive type index combines a pointer mode (bits 8-10) with a basic type (bits 0-7).
+ * Names correspond to those produced by the DIA-based PDB XML export.
+ */
+final class PrimitiveTypes {
+
+	private static final String NO_TYPE = "<NoType>";
+
+	// pointer lengths indexed by pointer mode (0 = not a pointer)
+	private static final int[] POINTER_LENGTHS = { 0, 2, 4, 4, 4, 6, 8, 16 };
+
+	private PrimitiveTypes() {
+		// static use only
+	}
+
+	/**
+	 * Get the name of a primitive type
+	 * @param typeIndex primitive type index
+	 * @param suffix pointer/array suffix to be appended to the name
+	 * @return type name
+	 */
+	static String getName(int typeIndex, String suffix) {
+		if (typeIndex == 0) {
+			return "";
+		}
+		int mode = (typeIndex >> 8) & 0x7;
+		if (mode != 0) {
+			suffix = suffix + " *";
+		}
+		return getBasicName(typeIndex & 0xff) + suffix;
+	}
+
+	/**
+	 * Get the length of a primitive type
+	 * @param typeIndex primitive type index
+	 * @return type length in bytes or 0 if unknown
+	 */
+	static int getLength(int typeIndex) {
+		int mode = (typeIndex >> 8) & 0x7;
+		if (mode != 0) {
+			return POINTER_LENGTHS[mode];
+		}
+		switch (typeIndex & 0xff) {
+			case 0x10: // T_CHAR
+			case 0x20: // T_UCHAR
+			case 0x68: // T_INT1
+			case 0x69: // T_UINT1
+			case 0x70: // T_RCHAR
+			case 0x7c: // T_CHAR8
+			case 0x30: // T_BOOL08
+				return 1;
+			case 0x11: // T_SHORT
+			case 0x21: // T_USHORT
+			case 0x72: // T_INT2
+			case 0x73: // T_UINT2
+			case 0x71: // T_WCHAR
+			case 0x7a: // T_CHAR16
+			case 0x31: // T_BOOL16
+			case 0x46: // T_REAL16
+				return 2;
+			case 0x08: // T_HRESULT
+			case 0x12: // T_LONG
+			case 0x22: // T_ULONG
+			case 0x74: // T_INT4
+			case 0x75: // T_UINT4
+			case 0x7b: // T_CHAR32
+			case 0x32: // T_BOOL32
+			case 0x40: // T_REAL32
+				return 4;
+			case 0x13: // T_QUAD
+			case 0x23: // T_UQUAD
+			case 0x76: // T_INT8
+			case 0x77: // T_UINT8
+			case 0x33: // T_BOOL64
+			case 0x41: // T_REAL64
+				return 8;
+			case 0x42: // T_REAL80
+				return 10;
+			case 0x14: // T_OCT
+			case 0x24: // T_UOCT
+			case 0x78: // T_INT16
+			case 0x79: // T_UINT16
+			case 0x43: // T_REAL128
+				return 16;
+			default:
+				return 0;
+		}
+	}
+
+	private static String getBasicName(int basicType) {
+		switch (basicType) {
+			case 0x03: // T_VOID
+				return "void";
+			case 0x08: // T_HRESULT
+				return "HRESULT";
+			case 0x10: // T_CHAR
+			case 0x68: // T_INT1
+			case 0x70: // T_RCHAR
+			case 0x7c: // T_CHAR8
+				return "char";
+			case 0x20: // T_UCHAR
+			case 0x69: // T_UINT1
+				return "uchar";
+			case 0x71: // T_WCHAR
+				return "wchar";
+			case 0x7a: // T_CHAR16
+				return "char16_t";
+			case 0x7b: // T_CHAR32
+				return "char32_t";
+			case 0x11: // T_SHORT
+			case 0x72: // T_INT2
+				return "short";
+			case 0x21: // T_USHORT
+			case 0x73: // T_UINT2
+				return "ushort";
+			case 0x12: // T_LONG
+				return "long";
+			case 0x22: // T_ULONG
+				return "ulong";
+			case 0x74: // T_INT4
+				return "int";
+			case 0x75: // T_UINT4
+				return "uint";
+			case 0x13: // T_QUAD
+			case 0x76: // T_INT8
+				return "__int64";
+			case 0x23: // T_UQUAD
+			case 0x77: // T_UINT8
+				return "__uint64";
+			case 0x14: // T_OCT
+			case 0x78: // T_INT16
+				return "__int128";
+			case 0x24: // T_UOCT
+			case 0x79: // T_UINT16
+				return "unsigned __int128";
+			case 0x30: // T_BOOL08
+			case 0x31: // T_BOOL16
+			case 0x32: // T_BOOL32
+			case 0x33: // T_BOOL64
+				return "bool";
+			case 0x40: // T_REAL32
+			case 0x42: // T_REAL80
+			case 0x43: // T_REAL128
+			case 0x46: // T_REAL16
+				return "float";
+			case 0x41: // T_REAL64
+				return "double";
+			default:
+				return NO_TYPE;
+		}
+	}
+}
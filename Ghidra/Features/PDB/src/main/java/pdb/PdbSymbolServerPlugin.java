@@ -737,7 +737,7 @@ public class PdbSymbolServerPlugin extends Plugin {
 	private void tryToLoadPdb(File downloadedPdb, Program currentProgram) {
 
 		// Only ask to load PDB if file type is applicable for current OS
-		if (fileType == PdbFileType.PDB && !PdbParserNEW.onWindows) {
+		if (fileType == PdbFileType.PDB && !PdbParserNEW.canLoadPdbFiles()) {
 			return;
 		}
 
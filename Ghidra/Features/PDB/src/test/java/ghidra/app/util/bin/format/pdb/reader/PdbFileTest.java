@@ -0,0 +1,624 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.util.bin.format.pdb.reader;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import ghidra.util.task.TaskMonitor;
+import ghidra.xml.*;
+
+/**
+ * Decodes a small PDB 7.0 file which is written by the test itself: a MSF container whose
+ * multi-block streams are not contiguous, a PDB information stream with a <code>/names</code>
+ * string table, a TPI stream with a forward-referenced structure, an enum and a procedure, a
+ * DBI stream with one module, section headers and global symbols, and a module stream with
+ * a procedure, a parameter and C13 line numbers.  The XML produced by
+ * {@link PdbXmlPullParser} is compared with <code>sample.pdb.xml</code>, which has the layout
+ * written by pdb.exe for the same program.
+ */
+public class PdbFileTest {
+
+	private static final int BLOCK_SIZE = 512;
+
+	private static final int PDB_STREAM = 1;
+	private static final int TPI_STREAM = 2;
+	private static final int DBI_STREAM = 3;
+	private static final int IPI_STREAM = 4;
+	private static final int NAMES_STREAM = 5;
+	private static final int SECTION_HEADER_STREAM = 6;
+	private static final int SYMBOL_RECORD_STREAM = 7;
+	private static final int MODULE_STREAM = 8;
+	private static final int NO_STREAM = 0xffff;
+
+	private static final int GUID_DATA1 = 0x2d0c13aa;
+	private static final int AGE = 3;
+
+	private static final int T_INT4 = 0x74;
+	private static final int T_64PCHAR = 0x610;
+
+	// type indexes of the TPI stream
+	private static final int POINT_POINTER = 0x1000;
+	private static final int POINT_FWDREF = 0x1001;
+	private static final int POINT_FIELDS = 0x1002;
+	private static final int POINT = 0x1003;
+	private static final int COLOR_FIELDS = 0x1004;
+	private static final int COLOR = 0x1005;
+	private static final int MAIN_ARGS = 0x1006;
+	private static final int MAIN_TYPE = 0x1007;
+	private static final int TYPE_INDEX_END = 0x1008;
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File pdbFile;
+	private byte[] dbiStream;
+
+	@Before
+	public void setUp() throws IOException {
+		pdbFile = new File(tempFolder.newFolder(), "sample.pdb");
+		dbiStream = createDbiStream();
+		byte[][] streams = new byte[MODULE_STREAM + 1][];
+		streams[0] = new byte[0];
+		streams[PDB_STREAM] = createInfoStream();
+		streams[TPI_STREAM] = createTypeStream();
+		streams[DBI_STREAM] = dbiStream;
+		streams[IPI_STREAM] = new byte[0];
+		streams[NAMES_STREAM] = createNamesStream();
+		streams[SECTION_HEADER_STREAM] = createSectionHeaders();
+		streams[SYMBOL_RECORD_STREAM] = createSymbolRecords();
+		streams[MODULE_STREAM] = createModuleStream();
+		Files.write(pdbFile.toPath(), createMsf(streams));
+	}
+
+	@Test
+	public void testMsfStreams() throws IOException {
+		try (MsfFile msf = new MsfFile(pdbFile)) {
+			assertEquals(MODULE_STREAM + 1, msf.getStreamCount());
+			assertEquals(0, msf.getStreamLength(IPI_STREAM));
+			assertEquals(0, msf.getStreamLength(MODULE_STREAM + 1));
+			assertEquals(dbiStream.length, msf.getStreamLength(DBI_STREAM));
+
+			// the DBI stream spans several blocks which are interleaved with other streams
+			assertTrue(dbiStream.length > 2 * BLOCK_SIZE);
+			ByteBuffer buf = msf.getStream(DBI_STREAM);
+			byte[] bytes = new byte[buf.remaining()];
+			buf.get(bytes);
+			assertArrayEquals(dbiStream, bytes);
+		}
+	}
+
+	@Test
+	public void testInvalidMsf() throws IOException {
+		byte[] bytes = Files.readAllBytes(pdbFile.toPath());
+		bytes[0] = 'X';
+		Files.write(pdbFile.toPath(), bytes);
+		try {
+			new MsfFile(pdbFile).close();
+			fail("expected IOException");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage().contains("unrecognized file format"));
+		}
+	}
+
+	@Test
+	public void testTypesAndSymbols() throws Exception {
+		try (PdbFile pdb = new PdbFile(pdbFile)) {
+			assertEquals("{2D0C13AA-D03A-44C2-B13A-3C9077EEC622}", pdb.getGuid());
+			assertEquals(AGE, pdb.getAge());
+			assertEquals("main.c", pdb.getString(1));
+
+			PdbTypeTable types = pdb.getTypes();
+			assertEquals(0x1000, types.getTypeIndexBegin());
+			assertEquals(TYPE_INDEX_END, types.getTypeIndexEnd());
+			assertEquals(POINT, types.resolveDefinition(POINT_FWDREF));
+			assertEquals("Point *", types.getTypeName(POINT_POINTER));
+			assertEquals("char *", types.getTypeName(T_64PCHAR));
+			assertEquals(8, types.getTypeLength(POINT_POINTER));
+			assertEquals(0x18, types.getTypeLength(POINT_FWDREF));
+			assertEquals(4, types.getTypeLength(COLOR));
+			assertEquals(1, types.getParameterCount(MAIN_TYPE));
+
+			assertEquals(2, pdb.getSectionCount());
+			assertEquals(0x1010, pdb.getRva(1, 0x10));
+			assertEquals(0x2000, pdb.getRva(2, 0));
+			assertEquals(0, pdb.getRva(3, 0));
+
+			assertEquals(1, pdb.getModules().size());
+			PdbModule module = pdb.getModules().get(0);
+			assertEquals("main.obj", module.getName());
+			assertEquals(2, pdb.getPublicSymbols().size());
+			assertEquals(1, pdb.getGlobalSymbols().size());
+			assertEquals(1, pdb.getTypedefs().size());
+
+			pdb.parseModules(TaskMonitor.DUMMY);
+			assertEquals(Arrays.asList("main.c"), module.getSourceFiles());
+			List<PdbSymbol> symbols = module.getSymbols();
+			assertEquals(1, symbols.size());
+			PdbSymbol main = symbols.get(0);
+			assertEquals(PdbSymbol.FUNCTION, main.tag);
+			assertEquals("main", main.name);
+			assertEquals(1, main.locals.size());
+			assertEquals(PdbSymbol.PARAMETER_KIND, main.locals.get(0).kind);
+			assertEquals(2, module.getLines(1, 0x10, 0x20).size());
+		}
+	}
+
+	@Test
+	public void testXmlMatchesFixture() throws Exception {
+		PdbXmlPullParser actual = new PdbXmlPullParser(pdbFile);
+		InputStream in = getClass().getResourceAsStream("sample.pdb.xml");
+		XmlPullParser expected = XmlPullParserFactory.create(in, "sample.pdb.xml", null, false);
+		try {
+			int count = 0;
+			while (expected.hasNext()) {
+				XmlElement expectedElement = expected.next();
+				assertTrue("missing element " + expectedElement.getName(), actual.hasNext());
+				XmlElement actualElement = actual.next();
+				String where = "element " + count + " (" + expectedElement.getName() + ")";
+				assertEquals(where, expectedElement.isStart(), actualElement.isStart());
+				assertEquals(where, expectedElement.getName(), actualElement.getName());
+				assertEquals(where, expectedElement.getLevel(), actualElement.getLevel());
+				if (expectedElement.isStart()) {
+					Map<String, String> attributes =
+						new HashMap<>(expectedElement.getAttributes());
+					Map<String, String> actualAttributes =
+						new HashMap<>(actualElement.getAttributes());
+					if ("pdb".equals(expectedElement.getName())) {
+						// the file attribute is the absolute path of the temporary file
+						attributes.remove("file");
+						assertEquals(pdbFile.getAbsolutePath(), actualAttributes.remove("file"));
+					}
+					assertEquals(where, attributes, actualAttributes);
+				}
+				++count;
+			}
+			assertFalse(actual.hasNext());
+		}
+		finally {
+			expected.dispose();
+			actual.dispose();
+			in.close();
+		}
+	}
+
+	private static byte[] createInfoStream() {
+		Writer w = new Writer();
+		w.int32(20000404); // version
+		w.int32(0x5c3a4b2e); // signature
+		w.int32(1); // age, superseded by the DBI stream
+		w.int32(GUID_DATA1);
+		w.int16(0xd03a);
+		w.int16(0x44c2);
+		w.bytes(new byte[] { (byte) 0xb1, 0x3a, 0x3c, (byte) 0x90, 0x77, (byte) 0xee,
+			(byte) 0xc6, 0x22 });
+		// named stream map with the single entry "/names"
+		byte[] strings = "/names\0".getBytes(StandardCharsets.US_ASCII);
+		w.int32(strings.length);
+		w.bytes(strings);
+		w.int32(1); // size
+		w.int32(1); // capacity
+		w.int32(1); // present bucket words
+		w.int32(1);
+		w.int32(0); // deleted bucket words
+		w.int32(0); // name offset
+		w.int32(NAMES_STREAM);
+		return w.toByteArray();
+	}
+
+	private static byte[] createNamesStream() {
+		byte[] strings = "\0main.c\0".getBytes(StandardCharsets.US_ASCII);
+		Writer w = new Writer();
+		w.int32(0xeffeeffe);
+		w.int32(1); // hash version
+		w.int32(strings.length);
+		w.bytes(strings);
+		return w.toByteArray();
+	}
+
+	private static byte[] createTypeStream() {
+		Writer records = new Writer();
+
+		Writer rec = new Writer();
+		rec.int32(POINT_FWDREF);
+		rec.int32((8 << 13) | 0x0c); // 64-bit pointer
+		records.typeRecord(CodeView.LF_POINTER, rec);
+
+		rec = new Writer();
+		rec.int16(0); // member count
+		rec.int16(CodeView.PROPERTY_FWDREF);
+		rec.int32(0); // field list
+		rec.int32(0); // derivation list
+		rec.int32(0); // vtable shape
+		rec.int16(0); // size
+		rec.string("Point");
+		records.typeRecord(CodeView.LF_STRUCTURE, rec);
+
+		rec = new Writer();
+		rec.member("x", T_INT4, 0);
+		rec.member("name", T_64PCHAR, 8);
+		rec.member("next", POINT_POINTER, 0x10);
+		records.typeRecord(CodeView.LF_FIELDLIST, rec);
+
+		rec = new Writer();
+		rec.int16(3); // member count
+		rec.int16(0); // property
+		rec.int32(POINT_FIELDS);
+		rec.int32(0); // derivation list
+		rec.int32(0); // vtable shape
+		rec.int16(0x18); // size
+		rec.string("Point");
+		records.typeRecord(CodeView.LF_STRUCTURE, rec);
+
+		rec = new Writer();
+		rec.enumerate("RED", 0);
+		rec.enumerate("GREEN", 1);
+		records.typeRecord(CodeView.LF_FIELDLIST, rec);
+
+		rec = new Writer();
+		rec.int16(2); // member count
+		rec.int16(0); // property
+		rec.int32(T_INT4);
+		rec.int32(COLOR_FIELDS);
+		rec.string("Color");
+		records.typeRecord(CodeView.LF_ENUM, rec);
+
+		rec = new Writer();
+		rec.int32(1); // argument count
+		rec.int32(T_INT4);
+		records.typeRecord(CodeView.LF_ARGLIST, rec);
+
+		rec = new Writer();
+		rec.int32(T_INT4); // return type
+		rec.int16(0); // call type, function attributes
+		rec.int16(1); // parameter count
+		rec.int32(MAIN_ARGS);
+		records.typeRecord(CodeView.LF_PROCEDURE, rec);
+
+		byte[] recordBytes = records.toByteArray();
+		Writer w = new Writer();
+		w.int32(20040203); // version
+		w.int32(56); // header size
+		w.int32(0x1000);
+		w.int32(TYPE_INDEX_END);
+		w.int32(recordBytes.length);
+		w.int16(NO_STREAM); // hash stream
+		w.int16(NO_STREAM); // auxiliary hash stream
+		w.int32(4); // hash key size
+		w.int32(0x3ffff); // hash bucket count
+		w.bytes(new byte[24]); // hash value, type index offset and adjustment buffers
+		w.bytes(recordBytes);
+		return w.toByteArray();
+	}
+
+	private static byte[] createDbiStream() {
+		Writer modules = new Writer();
+		modules.int32(0); // unused
+		modules.bytes(new byte[28]); // section contribution
+		modules.int16(0); // flags
+		modules.int16(MODULE_STREAM);
+		modules.int32(createModuleSymbols().length);
+		modules.int32(0); // C11 line numbers
+		modules.int32(createModuleLines().length);
+		modules.int16(1); // source file count
+		modules.int16(0); // padding
+		modules.int32(0); // file name offsets
+		modules.int32(0); // source file name index
+		modules.int32(0); // PDB file path name index
+		modules.string("main.obj");
+		modules.string("C:\\src\\main.obj");
+		modules.align(0);
+
+		Writer debugHeader = new Writer();
+		for (int i = 0; i <= 10; i++) {
+			debugHeader.int16(i == 5 ? SECTION_HEADER_STREAM : NO_STREAM);
+		}
+
+		// section contributions are skipped by the reader; their length makes the stream
+		// span several blocks
+		byte[] sectionContributions = new byte[2 * BLOCK_SIZE];
+
+		Writer w = new Writer();
+		w.int32(-1); // version signature
+		w.int32(19990903); // version header
+		w.int32(AGE);
+		w.int16(NO_STREAM); // global symbol stream
+		w.int16(0); // build number
+		w.int16(NO_STREAM); // public symbol stream
+		w.int16(0); // PDB DLL version
+		w.int16(SYMBOL_RECORD_STREAM);
+		w.int16(0); // PDB DLL rebuild
+		w.int32(modules.size());
+		w.int32(sectionContributions.length);
+		w.int32(0); // section map
+		w.int32(0); // source info
+		w.int32(0); // type server map
+		w.int32(0); // MFC type server index
+		w.int32(debugHeader.size());
+		w.int32(0); // EC substream
+		w.int16(0); // flags
+		w.int16(0x8664); // machine
+		w.int32(0); // padding
+		w.bytes(modules.toByteArray());
+		w.bytes(sectionContributions);
+		w.bytes(debugHeader.toByteArray());
+		return w.toByteArray();
+	}
+
+	private static byte[] createSectionHeaders() {
+		Writer w = new Writer();
+		w.section(".text", 0x100, 0x1000);
+		w.section(".data", 0x40, 0x2000);
+		return w.toByteArray();
+	}
+
+	private static byte[] createSymbolRecords() {
+		Writer w = new Writer();
+
+		Writer rec = new Writer();
+		rec.int32(2); // flags
+		rec.int32(0x10);
+		rec.int16(1);
+		rec.string("_main");
+		w.symbolRecord(CodeView.S_PUB32, rec);
+
+		rec = new Writer();
+		rec.int32(0); // flags
+		rec.int32(0);
+		rec.int16(2);
+		rec.string("_g_origin");
+		w.symbolRecord(CodeView.S_PUB32, rec);
+
+		rec = new Writer();
+		rec.int32(POINT);
+		rec.int32(0);
+		rec.int16(2);
+		rec.string("g_origin");
+		w.symbolRecord(CodeView.S_GDATA32, rec);
+
+		rec = new Writer();
+		rec.int32(POINT);
+		rec.string("PointAlias");
+		w.symbolRecord(CodeView.S_UDT, rec);
+		return w.toByteArray();
+	}
+
+	private static byte[] createModuleSymbols() {
+		Writer w = new Writer();
+		w.int32(CodeView.CV_SIGNATURE_C13);
+
+		Writer rec = new Writer();
+		rec.int32(0); // parent
+		rec.int32(0); // end
+		rec.int32(0); // next
+		rec.int32(0x20); // length
+		rec.int32(4); // debug start
+		rec.int32(0x1c); // debug end
+		rec.int32(MAIN_TYPE);
+		rec.int32(0x10);
+		rec.int16(1);
+		rec.int8(0); // flags
+		rec.string("main");
+		w.symbolRecord(CodeView.S_GPROC32, rec);
+
+		rec = new Writer();
+		rec.int32(8); // offset
+		rec.int32(T_INT4);
+		rec.int16(335); // RSP
+		rec.string("argc");
+		w.symbolRecord(CodeView.S_REGREL32, rec);
+
+		w.symbolRecord(CodeView.S_END, new Writer());
+		return w.toByteArray();
+	}
+
+	private static byte[] createModuleLines() {
+		Writer checksums = new Writer();
+		checksums.int32(1); // name offset of main.c
+		checksums.int8(0); // checksum size
+		checksums.int8(0); // checksum kind
+		checksums.align(0);
+
+		Writer lines = new Writer();
+		lines.int32(0x10); // offset
+		lines.int16(1); // segment
+		lines.int16(0); // flags
+		lines.int32(0x20); // code size
+		lines.int32(0); // file checksum entry
+		lines.int32(2); // line count
+		lines.int32(12 + 2 * 8); // block size
+		lines.int32(0);
+		lines.int32(0x80000000 | 5);
+		lines.int32(8);
+		lines.int32(0x80000000 | 6);
+
+		Writer w = new Writer();
+		w.int32(CodeView.DEBUG_S_FILECHKSMS);
+		w.int32(checksums.size());
+		w.bytes(checksums.toByteArray());
+		w.int32(CodeView.DEBUG_S_LINES);
+		w.int32(lines.size());
+		w.bytes(lines.toByteArray());
+		return w.toByteArray();
+	}
+
+	private static byte[] createModuleStream() {
+		Writer w = new Writer();
+		w.bytes(createModuleSymbols());
+		w.bytes(createModuleLines());
+		return w.toByteArray();
+	}
+
+	/**
+	 * Write a MSF 7.00 file.  Blocks are assigned to the streams in turn so that each stream
+	 * larger than one block is not contiguous.
+	 */
+	private static byte[] createMsf(byte[][] streams) {
+		int[][] streamBlocks = new int[streams.length][];
+		int[] blockCounts = new int[streams.length];
+		int maxBlockCount = 0;
+		for (int i = 0; i < streams.length; i++) {
+			blockCounts[i] = (streams[i].length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			streamBlocks[i] = new int[blockCounts[i]];
+			maxBlockCount = Math.max(maxBlockCount, blockCounts[i]);
+		}
+		int nextBlock = 4; // superblock, free block maps and block map
+		for (int b = 0; b < maxBlockCount; b++) {
+			for (int i = 0; i < streams.length; i++) {
+				if (b < blockCounts[i]) {
+					streamBlocks[i][b] = nextBlock++;
+				}
+			}
+		}
+
+		Writer directory = new Writer();
+		directory.int32(streams.length);
+		for (byte[] stream : streams) {
+			directory.int32(stream.length);
+		}
+		for (int[] blocks : streamBlocks) {
+			for (int block : blocks) {
+				directory.int32(block);
+			}
+		}
+		byte[] directoryBytes = directory.toByteArray();
+		int directoryBlock = nextBlock;
+		int blockCount = directoryBlock + 1;
+		assertTrue(directoryBytes.length <= BLOCK_SIZE);
+
+		ByteBuffer file =
+			ByteBuffer.allocate(blockCount * BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		file.put("Microsoft C/C++ MSF 7.00\r\n\u001aDS\0\0\0".getBytes(
+			StandardCharsets.US_ASCII));
+		file.putInt(BLOCK_SIZE);
+		file.putInt(1); // free block map block
+		file.putInt(blockCount);
+		file.putInt(directoryBytes.length);
+		file.putInt(0); // unknown
+		file.putInt(3); // block map block
+		file.putInt(3 * BLOCK_SIZE, directoryBlock);
+		for (int i = 0; i < streams.length; i++) {
+			for (int b = 0; b < blockCounts[i]; b++) {
+				int length = Math.min(BLOCK_SIZE, streams[i].length - b * BLOCK_SIZE);
+				file.position(streamBlocks[i][b] * BLOCK_SIZE);
+				file.put(streams[i], b * BLOCK_SIZE, length);
+			}
+		}
+		file.position(directoryBlock * BLOCK_SIZE);
+		file.put(directoryBytes);
+		return file.array();
+	}
+
+	/**
+	 * Little-endian writer for stream content and CodeView records
+	 */
+	private static class Writer {
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		int size() {
+			return out.size();
+		}
+
+		byte[] toByteArray() {
+			return out.toByteArray();
+		}
+
+		void int8(int value) {
+			out.write(value);
+		}
+
+		void int16(int value) {
+			out.write(value);
+			out.write(value >> 8);
+		}
+
+		void int32(int value) {
+			int16(value);
+			int16(value >> 16);
+		}
+
+		void bytes(byte[] bytes) {
+			out.write(bytes, 0, bytes.length);
+		}
+
+		void string(String s) {
+			bytes(s.getBytes(StandardCharsets.UTF_8));
+			int8(0);
+		}
+
+		/**
+		 * Pad to a 4-byte boundary; type records are padded with LF_PAD bytes
+		 */
+		void align(int padLeaf) {
+			while ((out.size() & 3) != 0) {
+				int8(padLeaf != 0 ? padLeaf | (4 - (out.size() & 3)) : 0);
+			}
+		}
+
+		void member(String name, int type, int offset) {
+			int16(CodeView.LF_MEMBER);
+			int16(3); // public
+			int32(type);
+			int16(offset);
+			string(name);
+			align(0xf0);
+		}
+
+		void enumerate(String name, int value) {
+			int16(CodeView.LF_ENUMERATE);
+			int16(3); // public
+			int16(value);
+			string(name);
+			align(0xf0);
+		}
+
+		void section(String name, int virtualSize, int virtualAddress) {
+			byte[] nameBytes = Arrays.copyOf(name.getBytes(StandardCharsets.US_ASCII), 8);
+			bytes(nameBytes);
+			int32(virtualSize);
+			int32(virtualAddress);
+			bytes(new byte[24]);
+		}
+
+		/**
+		 * Append a type record; its content follows the 4-byte record prefix, so aligning
+		 * the content aligns the record
+		 */
+		void typeRecord(int leaf, Writer content) {
+			content.align(0xf0);
+			int16(content.size() + 2);
+			int16(leaf);
+			bytes(content.toByteArray());
+		}
+
+		void symbolRecord(int kind, Writer content) {
+			content.align(0);
+			int16(content.size() + 2);
+			int16(kind);
+			bytes(content.toByteArray());
+		}
+	}
+}
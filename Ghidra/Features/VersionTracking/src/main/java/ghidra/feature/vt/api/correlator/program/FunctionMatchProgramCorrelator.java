@@ -15,10 +15,10 @@
  */
 package ghidra.feature.vt.api.correlator.program;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 import ghidra.app.plugin.core.entropy.EntropyCalculate;
+import ghidra.app.plugin.prototype.match.FunctionHashCache;
 import ghidra.app.plugin.prototype.match.FunctionHasher;
 import ghidra.app.plugin.prototype.match.MatchFunctions;
 import ghidra.app.plugin.prototype.match.MatchFunctions.MatchedFunctions;
@@ -40,6 +40,9 @@ public class FunctionMatchProgramCorrelator extends VTAbstractProgramCorrelator
 	private final boolean oneToOne;
 	private final FunctionHasher hasher;
 
+	private FunctionHashCache sourceHashCache;
+	private FunctionHashCache destinationHashCache;
+
 	public FunctionMatchProgramCorrelator(ServiceProvider serviceProvider, Program sourceProgram,
 			AddressSetView sourceAddressSet, Program destinationProgram,
 			AddressSetView destinationAddressSet, ToolOptions options, String name,
@@ -53,6 +56,64 @@ public class FunctionMatchProgramCorrelator extends VTAbstractProgramCorrelator
 
 	private EntropyCalculate[] entropy;
 
+	/**
+	 * @return the hasher used to match functions
+	 */
+	public FunctionHasher getHasher() {
+		return hasher;
+	}
+
+	/**
+	 * Use previously computed function hashes, possibly shared with other correlators.  Hashes
+	 * which are not in a cache are computed and added to it during correlation.
+	 * @param sourceCache source program function hashes (null to not use a cache)
+	 * @param destinationCache destination program function hashes (null to not use a cache)
+	 */
+	public void setFunctionHashCaches(FunctionHashCache sourceCache,
+			FunctionHashCache destinationCache) {
+		if (sourceCache != null && sourceCache.getProgram() != getSourceProgram()) {
+			throw new IllegalArgumentException("hash cache is not for the source program");
+		}
+		if (destinationCache != null &&
+			destinationCache.getProgram() != getDestinationProgram()) {
+			throw new IllegalArgumentException("hash cache is not for the destination program");
+		}
+		this.sourceHashCache = sourceCache;
+		this.destinationHashCache = destinationCache;
+	}
+
+	/**
+	 * Hash the functions of both programs, in parallel, for all of the specified correlators
+	 * which are <code>FunctionMatchProgramCorrelator</code>s, so that the code units of each
+	 * function are only read once for all of their hashers.  The resulting caches are then
+	 * shared by those correlators.  All correlators must be for the same programs as the caches.
+	 * @param correlators the correlators which are about to be run
+	 * @param sourceCache source program function hash cache
+	 * @param destinationCache destination program function hash cache
+	 * @param monitor task monitor
+	 * @throws CancelledException if the monitor is cancelled
+	 */
+	public static void shareFunctionHashes(Collection<VTProgramCorrelator> correlators,
+			FunctionHashCache sourceCache, FunctionHashCache destinationCache,
+			TaskMonitor monitor) throws CancelledException {
+		List<FunctionMatchProgramCorrelator> matchCorrelators = new ArrayList<>();
+		Set<FunctionHasher> hashers = new LinkedHashSet<>();
+		for (VTProgramCorrelator correlator : correlators) {
+			if (correlator instanceof FunctionMatchProgramCorrelator) {
+				FunctionMatchProgramCorrelator matchCorrelator =
+					(FunctionMatchProgramCorrelator) correlator;
+				matchCorrelator.setFunctionHashCaches(sourceCache, destinationCache);
+				matchCorrelators.add(matchCorrelator);
+				hashers.add(matchCorrelator.getHasher());
+			}
+		}
+		for (FunctionMatchProgramCorrelator correlator : matchCorrelators) {
+			sourceCache.computeHashes(correlator.getSourceAddressSet(), hashers, monitor);
+			destinationCache.computeHashes(correlator.getDestinationAddressSet(), hashers,
+				monitor);
+		}
+	}
+
 	@Override
 	protected void doCorrelate(VTMatchSet matchSet, TaskMonitor monitor) throws CancelledException {
 		int functionMinimumSize = getOptions().getInt(
@@ -61,7 +122,8 @@ public class FunctionMatchProgramCorrelator extends VTAbstractProgramCorrelator
 
 		List<MatchedFunctions> matchedFunctions = MatchFunctions.matchFunctions(getSourceProgram(),
 			getSourceAddressSet(), getDestinationProgram(), getDestinationAddressSet(),
-			functionMinimumSize, oneToOne, !oneToOne, hasher, monitor);
+			functionMinimumSize, oneToOne, !oneToOne, hasher, sourceHashCache,
+			destinationHashCache, monitor);
 
 		buildEntropy(1024);
 
@@ -16,18 +16,13 @@
 package ghidra.feature.vt.api.correlator.program;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.Set;
 
-import generic.DominantPair;
 import generic.hash.FNV1a64MessageDigest;
 import generic.hash.MessageDigest;
 import generic.lsh.KandL;
 import generic.lsh.LSHMemoryModel;
-import generic.lsh.vector.LSHCosineVectorAccum;
-import generic.lsh.vector.VectorCompare;
+import generic.lsh.vector.*;
 import ghidra.feature.vt.api.main.VTAssociationType;
 import ghidra.feature.vt.api.main.VTMatchInfo;
 import ghidra.feature.vt.api.main.VTMatchSet;
@@ -42,6 +37,8 @@ import ghidra.program.model.listing.DataIterator;
 import ghidra.program.model.listing.Listing;
 import ghidra.program.model.listing.Program;
 import ghidra.program.model.mem.MemoryAccessException;
+import ghidra.util.datastruct.LongIntHashtable;
+import ghidra.util.exception.NoValueException;
 import ghidra.util.exception.CancelledException;
 import ghidra.util.task.TaskMonitor;
 
@@ -56,10 +53,12 @@ public class SimilarDataProgramCorrelator extends VTAbstractProgramCorrelator {
 			destinationAddressSet, options);
 	}
 
-	HashMap<Address, LSHCosineVectorAccum> sourceMap;
-	HashMap<Address, LSHCosineVectorAccum> destinationMap;
+	List<Address> sourceAddresses;
+	List<LSHCosineVectorAccum> sourceVectors;
+	List<Address> destinationAddresses;
+	List<LSHCosineVectorAccum> destinationVectors;
 
-	HashMap<Long, Integer> idMap;
+	LongIntHashtable idMap;
 
 	int featureID = 0;
 	int minDataLength;
@@ -73,7 +72,7 @@ public class SimilarDataProgramCorrelator extends VTAbstractProgramCorrelator {
 			getOptions().getBoolean(SimilarDataProgramCorrelatorFactory.SKIP_HOMOGENOUS_DATA,
 				SimilarDataProgramCorrelatorFactory.SKIP_HOMOGENOUS_DATA_DEFAULT);
 
-		LSHMultiHash<Address> sourceDictionary;
+		LSHVectorIndex sourceDictionary;
 		monitor.setMessage("Generating source dictionary");
 		sourceDictionary =
 			generateDictionary(getSourceProgram(), matchSet, skipHomogenousData, monitor);
@@ -82,19 +81,19 @@ public class SimilarDataProgramCorrelator extends VTAbstractProgramCorrelator {
 		findDestinations(matchSet, sourceDictionary, SIMILARITY_THRESHOLD, monitor);
 	}
 
-	private LSHMultiHash<Address> generateDictionary(Program sourceProgram, VTMatchSet matchSet,
+	private LSHVectorIndex generateDictionary(Program sourceProgram, VTMatchSet matchSet,
 			boolean skipHomogenousData, TaskMonitor monitor) throws CancelledException {
-		final LSHMultiHash<Address> dictionary = generateLSHMultiHash();
 		extractNGramFeatures(matchSet, skipHomogenousData, monitor, 4);
-		dictionary.add(sourceMap, monitor);
-		return dictionary;
+		return generateLSHVectorIndex(monitor);
 	}
 
 	private void extractNGramFeatures(VTMatchSet matchSet, boolean skipHomogenousData,
 			TaskMonitor monitor, int n) throws CancelledException {
-		sourceMap = new HashMap<Address, LSHCosineVectorAccum>();
-		destinationMap = new HashMap<Address, LSHCosineVectorAccum>();
-		idMap = new HashMap<Long, Integer>();
+		sourceAddresses = new ArrayList<Address>();
+		sourceVectors = new ArrayList<LSHCosineVectorAccum>();
+		destinationAddresses = new ArrayList<Address>();
+		destinationVectors = new ArrayList<LSHCosineVectorAccum>();
+		idMap = new LongIntHashtable();
 
 		final Program sourceProgram = getSourceProgram();
 		final Program destinationProgram = getDestinationProgram();
@@ -112,11 +111,17 @@ public class SimilarDataProgramCorrelator extends VTAbstractProgramCorrelator {
 			boolean skipHomogenousData, int n, TaskMonitor monitor) throws CancelledException {
 		double weight = 1.0 / n;
 		AddressSetView addressSet;
+		List<Address> addresses;
+		List<LSHCosineVectorAccum> vectors;
 		if (isSourceProgram) {
 			addressSet = getSourceAddressSet();
+			addresses = sourceAddresses;
+			vectors = sourceVectors;
 		}
 		else {
 			addressSet = getDestinationAddressSet();
+			addresses = destinationAddresses;
+			vectors = destinationVectors;
 		}
 		MessageDigest digest = new FNV1a64MessageDigest();
 		while (dataIt.hasNext()) {
@@ -146,31 +151,19 @@ public class SimilarDataProgramCorrelator extends VTAbstractProgramCorrelator {
 				continue;
 			}
 
+			if (length < n) {
+				continue;
+			}
+			LSHCosineVectorAccum vector = new LSHCosineVectorAccum();
+			addresses.add(address);
+			vectors.add(vector);
+
 			byte[] bytes = new byte[n];
-			for (int i = 0; i < data.getLength() - (n - 1); i++) {
+			for (int i = 0; i < length - (n - 1); i++) {
 				if (monitor.isCancelled()) {
 					break;
 				}
-				LSHCosineVectorAccum vector;
-				if (data.getBytes(bytes, i) != n) {
-					throw new RuntimeException("failed to read vector data at " + address);
-				}
-				if (isSourceProgram) {
-					vector = sourceMap.get(address);
-				}
-				else {
-					vector = destinationMap.get(address);
-				}
-				if (vector == null) {
-					vector = new LSHCosineVectorAccum();
-					if (isSourceProgram) {
-						sourceMap.put(address, vector);
-					}
-					else {
-						destinationMap.put(address, vector);
-					}
-				}
-
+				System.arraycopy(allBytes, i, bytes, 0, n);
 				digest.update(bytes, monitor);
 				long hash = digest.digestLong();
 				int id = getFeatureID(hash);
@@ -193,28 +186,30 @@ public class SimilarDataProgramCorrelator extends VTAbstractProgramCorrelator {
 	}
 
 	private int getFeatureID(long hash) {
-		if (idMap.containsKey(hash)) {
+		try {
 			return idMap.get(hash);
 		}
+		catch (NoValueException e) {
+			// new feature
+		}
 		featureID++;
 		idMap.put(hash, featureID);
 		return featureID;
 	}
 
-	private void findDestinations(VTMatchSet matchSet, LSHMultiHash<Address> sourceDictionary,
+	private void findDestinations(VTMatchSet matchSet, LSHVectorIndex sourceDictionary,
 			double threshold, TaskMonitor monitor) {
-		monitor.initialize(destinationMap.size());
+		monitor.initialize(destinationVectors.size());
 
-		for (Entry<Address, LSHCosineVectorAccum> entry : destinationMap.entrySet()) {
+		for (int ii = 0; ii < destinationVectors.size(); ++ii) {
 			if (monitor.isCancelled()) {
 				return;
 			}
 
 			monitor.incrementProgress(1);
-			Address destinationAddress = entry.getKey();
-			LSHCosineVectorAccum vector = entry.getValue();
-			Set<DominantPair<Address, LSHCosineVectorAccum>> neighbors =
-				sourceDictionary.lookup(vector);
+			Address destinationAddress = destinationAddresses.get(ii);
+			LSHCosineVectorAccum vector = destinationVectors.get(ii);
+			int[] neighbors = sourceDictionary.lookup(vector);
 			List<VTMatchInfo> members =
 				transform(matchSet, destinationAddress, vector, neighbors, threshold, monitor);
 
@@ -230,8 +225,7 @@ public class SimilarDataProgramCorrelator extends VTAbstractProgramCorrelator {
 	}
 
 	private List<VTMatchInfo> transform(VTMatchSet matchSet, Address destinationAddress,
-			LSHCosineVectorAccum destinationVector,
-			Set<DominantPair<Address, LSHCosineVectorAccum>> neighbors, double threshold,
+			LSHCosineVectorAccum destinationVector, int[] neighbors, double threshold,
 			TaskMonitor monitor) {
 		List<VTMatchInfo> result = new ArrayList<VTMatchInfo>();
 
@@ -239,14 +233,14 @@ public class SimilarDataProgramCorrelator extends VTAbstractProgramCorrelator {
 		Listing destinationListing = getDestinationProgram().getListing();
 		VectorCompare veccompare = new VectorCompare();
 
-		for (DominantPair<Address, LSHCosineVectorAccum> neighbor : neighbors) {
+		for (int neighbor : neighbors) {
 			if (monitor.isCancelled()) {
 				break;
 			}
 
-			Address sourceAddress = neighbor.first;
+			Address sourceAddress = sourceAddresses.get(neighbor);
 
-			LSHCosineVectorAccum sourceVector = neighbor.second;
+			LSHCosineVectorAccum sourceVector = sourceVectors.get(neighbor);
 
 			double similarity = sourceVector.compare(destinationVector, veccompare);
 
@@ -284,12 +278,15 @@ public class SimilarDataProgramCorrelator extends VTAbstractProgramCorrelator {
 		return data.getLength();
 	}
 
-	private LSHMultiHash<Address> generateLSHMultiHash() {
+	private LSHVectorIndex generateLSHVectorIndex(TaskMonitor monitor)
+			throws CancelledException {
 		LSHMemoryModel model =
 			getOptions().getEnum(SimilarDataProgramCorrelatorFactory.MEMORY_MODEL,
 				SimilarDataProgramCorrelatorFactory.MEMORY_MODEL_DEFAULT);
 		int L = KandL.memoryModelToL(model);
-		return new LSHMultiHash<Address>(model.getK(), L);
+		LSHCosineVectorAccum[] vectors =
+			sourceVectors.toArray(new LSHCosineVectorAccum[sourceVectors.size()]);
+		return new LSHVectorIndex(model.getK(), L, vectors, monitor);
 	}
 
 	@Override
@@ -18,11 +18,9 @@ package ghidra.feature.vt.api.correlator.program;
 import java.util.*;
 import java.util.Map.Entry;
 
-import generic.DominantPair;
 import generic.lsh.KandL;
 import generic.lsh.LSHMemoryModel;
-import generic.lsh.vector.LSHCosineVectorAccum;
-import generic.lsh.vector.VectorCompare;
+import generic.lsh.vector.*;
 import ghidra.feature.vt.api.main.*;
 import ghidra.feature.vt.api.util.VTAbstractProgramCorrelator;
 import ghidra.framework.options.ToolOptions;
@@ -48,6 +46,9 @@ public class SimilarSymbolNameProgramCorrelator extends VTAbstractProgramCorrela
 	HashMap<Symbol, LSHCosineVectorAccum> sourceMap;
 	HashMap<Symbol, LSHCosineVectorAccum> destinationMap;
 
+	Symbol[] sourceSymbols;
+	LSHCosineVectorAccum[] sourceVectors;
+
 	HashMap<String, Integer> idMap;
 
 	int featureID = 0;
@@ -59,7 +60,7 @@ public class SimilarSymbolNameProgramCorrelator extends VTAbstractProgramCorrela
 			getOptions().getInt(SimilarSymbolNameProgramCorrelatorFactory.MIN_NAME_LENGTH,
 				SimilarSymbolNameProgramCorrelatorFactory.MIN_NAME_LENGTH_DEFAULT);
 
-		LSHMultiHash<Symbol> sourceDictionary;
+		LSHVectorIndex sourceDictionary;
 		monitor.setMessage("Generating source dictionary");
 		sourceDictionary = generateDictionary(getSourceProgram(), matchSet, monitor);
 
@@ -146,15 +147,21 @@ public class SimilarSymbolNameProgramCorrelator extends VTAbstractProgramCorrela
 		return featureID;
 	}
 
-	private LSHMultiHash<Symbol> generateDictionary(Program program, VTMatchSet matchSet,
-			final TaskMonitor monitor) {
-		final LSHMultiHash<Symbol> dictionary = generateLSHMultiHash();
+	private LSHVectorIndex generateDictionary(Program program, VTMatchSet matchSet,
+			final TaskMonitor monitor) throws CancelledException {
 		extractNGramFeatures(matchSet, monitor, 3);
-		dictionary.add(sourceMap, monitor);
-		return dictionary;
+		sourceSymbols = new Symbol[sourceMap.size()];
+		sourceVectors = new LSHCosineVectorAccum[sourceMap.size()];
+		int i = 0;
+		for (Entry<Symbol, LSHCosineVectorAccum> entry : sourceMap.entrySet()) {
+			sourceSymbols[i] = entry.getKey();
+			sourceVectors[i] = entry.getValue();
+			++i;
+		}
+		return generateLSHVectorIndex(monitor);
 	}
 
-	private void findDestinations(VTMatchSet matchSet, LSHMultiHash<Symbol> sourceDictionary,
+	private void findDestinations(VTMatchSet matchSet, LSHVectorIndex sourceDictionary,
 			double threshold, TaskMonitor monitor) {
 		monitor.initialize(destinationMap.size());
 		for (Entry<Symbol, LSHCosineVectorAccum> entry : destinationMap.entrySet()) {
@@ -164,8 +171,7 @@ public class SimilarSymbolNameProgramCorrelator extends VTAbstractProgramCorrela
 			monitor.incrementProgress(1);
 			Symbol destinationSymbol = entry.getKey();
 			LSHCosineVectorAccum vector = entry.getValue();
-			Set<DominantPair<Symbol, LSHCosineVectorAccum>> neighbors =
-				sourceDictionary.lookup(vector);
+			int[] neighbors = sourceDictionary.lookup(vector);
 			List<VTMatchInfo> members =
 				transform(matchSet, destinationSymbol, vector, neighbors, threshold, monitor);
 			for (VTMatchInfo member : members) {
@@ -180,8 +186,7 @@ public class SimilarSymbolNameProgramCorrelator extends VTAbstractProgramCorrela
 	}
 
 	private List<VTMatchInfo> transform(VTMatchSet matchSet, Symbol destinationSymbol,
-			LSHCosineVectorAccum destinationVector,
-			Set<DominantPair<Symbol, LSHCosineVectorAccum>> neighbors, double threshold,
+			LSHCosineVectorAccum destinationVector, int[] neighbors, double threshold,
 			TaskMonitor monitor) {
 		List<VTMatchInfo> result = new ArrayList<VTMatchInfo>();
 		int sourceLength = 0;
@@ -203,11 +208,11 @@ public class SimilarSymbolNameProgramCorrelator extends VTAbstractProgramCorrela
 			return result;
 		}
 
-		for (DominantPair<Symbol, LSHCosineVectorAccum> neighbor : neighbors) {
+		for (int neighbor : neighbors) {
 			if (monitor.isCancelled()) {
 				break;
 			}
-			Symbol sourceSymbol = neighbor.first;
+			Symbol sourceSymbol = sourceSymbols[neighbor];
 			Address sourceAddress = sourceSymbol.getAddress();
 
 			VTAssociationType type;
@@ -236,7 +241,7 @@ public class SimilarSymbolNameProgramCorrelator extends VTAbstractProgramCorrela
 				destinationLength = destinationCodeUnit.getLength();
 			}
 
-			LSHCosineVectorAccum sourceVector = neighbor.second;
+			LSHCosineVectorAccum sourceVector = sourceVectors[neighbor];
 
 			double similarity = sourceVector.compare(destinationVector, veccompare);
 
@@ -266,12 +271,13 @@ public class SimilarSymbolNameProgramCorrelator extends VTAbstractProgramCorrela
 		return result;
 	}
 
-	private LSHMultiHash<Symbol> generateLSHMultiHash() {
+	private LSHVectorIndex generateLSHVectorIndex(TaskMonitor monitor)
+			throws CancelledException {
 		LSHMemoryModel model =
 			getOptions().getEnum(SimilarSymbolNameProgramCorrelatorFactory.MEMORY_MODEL,
 				SimilarSymbolNameProgramCorrelatorFactory.MEMORY_MODEL_DEFAULT);
 		int L = KandL.memoryModelToL(model);
-		return new LSHMultiHash<Symbol>(model.getK(), L);
+		return new LSHVectorIndex(model.getK(), L, sourceVectors, monitor);
 	}
 
 	@Override
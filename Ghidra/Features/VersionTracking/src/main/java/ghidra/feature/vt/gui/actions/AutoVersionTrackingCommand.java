@@ -17,6 +17,7 @@ package ghidra.feature.vt.gui.actions;
 
 import java.util.*;
 
+import ghidra.app.plugin.prototype.match.*;
 import ghidra.feature.vt.api.correlator.program.*;
 import ghidra.feature.vt.api.main.*;
 import ghidra.feature.vt.api.util.VTAssociationStatusException;
@@ -74,6 +75,8 @@ public class AutoVersionTrackingCommand extends BackgroundCommand {
 	private AddressSetView sourceAddressSet;
 	private AddressSetView destinationAddressSet;
 	private VTController controller;
+	private FunctionHashCache sourceHashCache;
+	private FunctionHashCache destinationHashCache;
 	private double minCombinedReferenceCorrelatorScore;
 	private double minCombinedReferenceCorrelatorConfidence;
 	private final ToolOptions applyOptions;
@@ -111,6 +114,8 @@ public class AutoVersionTrackingCommand extends BackgroundCommand {
 		boolean hasApplyErrors = false;
 		sourceAddressSet = sourceProgram.getMemory().getLoadedAndInitializedAddressSet();
 		destinationAddressSet = destinationProgram.getMemory().getLoadedAndInitializedAddressSet();
+		sourceHashCache = new FunctionHashCache(sourceProgram);
+		destinationHashCache = new FunctionHashCache(destinationProgram);
 		try {
 			monitor.setMessage("Running Auto Version Tracking");
 			monitor.setCancelEnabled(true);
@@ -131,6 +136,10 @@ public class AutoVersionTrackingCommand extends BackgroundCommand {
 			options = factory.createDefaultOptions();
 			hasApplyErrors |= correlateAndPossiblyApply(factory, options, monitor);
 
+			// Hash all functions once, in parallel, for the exact and duplicate function 
+			// correlators which follow
+			hashFunctions(monitor);
+
 			factory = new ExactMatchBytesProgramCorrelatorFactory();
 			options = factory.createDefaultOptions();
 			hasApplyErrors |= correlateAndPossiblyApply(factory, options, monitor);
@@ -217,6 +226,10 @@ public class AutoVersionTrackingCommand extends BackgroundCommand {
 			statusMsg = getName() + " was cancelled.";
 			return false;
 		}
+		finally {
+			sourceHashCache = null;
+			destinationHashCache = null;
+		}
 
 		String applyMarkupStatus = " with no apply markup errors.";
 		if (hasApplyErrors) {
@@ -232,6 +245,36 @@ public class AutoVersionTrackingCommand extends BackgroundCommand {
 		return true;
 	}
 
+	/**
+	 * Computes the function hashes used by the exact function bytes, instructions and mnemonics
+	 * correlators (and the duplicate function instructions correlator) for both programs.  
+	 * @param monitor Checks to see if user has cancelled.
+	 * @throws CancelledException if cancelled
+	 */
+	private void hashFunctions(TaskMonitor monitor) throws CancelledException {
+		List<FunctionHasher> hashers =
+			Arrays.asList(ExactBytesFunctionHasher.INSTANCE,
+				ExactInstructionsFunctionHasher.INSTANCE, ExactMnemonicsFunctionHasher.INSTANCE);
+		long progress = monitor.getProgress();
+		long maximum = monitor.getMaximum();
+		sourceHashCache.computeHashes(sourceAddressSet, hashers, monitor);
+		destinationHashCache.computeHashes(destinationAddressSet, hashers, monitor);
+		monitor.initialize(maximum);
+		monitor.setProgress(progress);
+	}
+
+	/**
+	 * Shares this command's function hash caches with the given correlator if it matches 
+	 * functions by hash.
+	 * @param correlator the correlator about to be run
+	 */
+	private void shareFunctionHashes(VTProgramCorrelator correlator) {
+		if (correlator instanceof FunctionMatchProgramCorrelator) {
+			((FunctionMatchProgramCorrelator) correlator).setFunctionHashCaches(sourceHashCache,
+				destinationHashCache);
+		}
+	}
+
 	private int getNumberOfDataMatches(TaskMonitor monitor) throws CancelledException {
 
 		int numDataMatches = 0;
@@ -286,6 +329,7 @@ public class AutoVersionTrackingCommand extends BackgroundCommand {
 
 		VTProgramCorrelator correlator = factory.createCorrelator(serviceProvider, sourceProgram,
 			sourceAddressSet, destinationProgram, destinationAddressSet, options);
+		shareFunctionHashes(correlator);
 
 		VTMatchSet results = correlator.correlate(session, monitor);
 
@@ -316,6 +360,7 @@ public class AutoVersionTrackingCommand extends BackgroundCommand {
 
 		VTProgramCorrelator correlator = factory.createCorrelator(serviceProvider, sourceProgram,
 			sourceAddressSet, destinationProgram, destinationAddressSet, options);
+		shareFunctionHashes(correlator);
 
 		VTMatchSet results = correlator.correlate(session, monitor);
 		boolean hasMarkupErrors = applyDuplicateFunctionMatches(results.getMatches(), monitor);
@@ -364,6 +409,7 @@ public class AutoVersionTrackingCommand extends BackgroundCommand {
 			ApplyMarkupItemTask markupTask =
 				new ApplyMarkupItemTask(controller.getSession(), markupItems, applyOptions);
 			markupTask.run(monitor);
+			invalidateFunctionHashes(association);
 			boolean currentMatchHasErrors = markupTask.hasErrors();
 			if (currentMatchHasErrors) {
 				someMatchesHaveMarkupErrors = true;
@@ -374,6 +420,16 @@ public class AutoVersionTrackingCommand extends BackgroundCommand {
 
 	}
 
+	/**
+	 * Discards the cached hashes of a destination function after markup has been applied to it.
+	 * @param association the association whose markup was applied
+	 */
+	private void invalidateFunctionHashes(VTAssociation association) {
+		if (destinationHashCache != null) {
+			destinationHashCache.invalidate(association.getDestinationAddress());
+		}
+	}
+
 	/**
 	 * This method tries to set a match association as accepted.
 	 * @param association The match association between two match items. 
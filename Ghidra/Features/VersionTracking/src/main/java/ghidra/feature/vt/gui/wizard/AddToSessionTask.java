@@ -18,6 +18,8 @@ package ghidra.feature.vt.gui.wizard;
 import java.util.*;
 
 import docking.wizard.WizardState;
+import ghidra.app.plugin.prototype.match.FunctionHashCache;
+import ghidra.feature.vt.api.correlator.program.FunctionMatchProgramCorrelator;
 import ghidra.feature.vt.api.main.*;
 import ghidra.feature.vt.api.util.VTMatchUtil;
 import ghidra.feature.vt.api.util.VTOptions;
@@ -109,13 +111,21 @@ public class AddToSessionTask extends Task {
 			session.setEventsEnabled(false); // prevent table updates while busy
 			List<VTProgramCorrelatorFactory> correlatorFactories = getCorrelators(state);
 			List<VTOptions> correlatorOptions = getCorrelatorOptions(state);
-			List<VTProgramCorrelator> noMatchList = new ArrayList<>();
+			List<VTProgramCorrelator> correlators = new ArrayList<>();
 			for (int i = 0; i < correlatorFactories.size(); i++) {
 				VTProgramCorrelatorFactory factory = correlatorFactories.get(i);
-				VTProgramCorrelator correlator =
+				correlators.add(
 					factory.createCorrelator(serviceProvider, sourceProgram, sourceAddressSet,
-						destinationProgram, destinationAddressSet, correlatorOptions.get(i));
+						destinationProgram, destinationAddressSet, correlatorOptions.get(i)));
+			}
 
+			// hash functions once for all of the function matching correlators
+			FunctionMatchProgramCorrelator.shareFunctionHashes(correlators,
+				new FunctionHashCache(sourceProgram), new FunctionHashCache(destinationProgram),
+				monitor);
+
+			List<VTProgramCorrelator> noMatchList = new ArrayList<>();
+			for (VTProgramCorrelator correlator : correlators) {
 				VTMatchSet resultSet = correlator.correlate(session, monitor);
 				if (resultSet.getMatchCount() == 0) {
 					noMatchList.add(correlator);
@@ -1146,6 +1146,10 @@ public class ChainedBuffer implements Buffer {
 	 * Fill buffer with data provided by InputStream.  If 
 	 * stream is exhausted, the remainder of the buffer will be filled
 	 * with 0's.
+	 * <p>
+	 * The stream is read one full data buffer at a time, so that each data buffer
+	 * is only fetched and written once regardless of how many bytes each read
+	 * of the stream returns.
 	 * @param in data source
 	 * @throws IOException thrown if IO error occurs.
 	 */
@@ -1154,34 +1158,23 @@ public class ChainedBuffer implements Buffer {
 			throw new UnsupportedOperationException("Read-only buffer");
 		byte[] data = new byte[dataSpace];
 		int index = 0;
-		int offset = 0;
 		int length = size;
-		int readSpace = dataSpace;
 
 		if (useXORMask) {
 			xorData = new byte[dataSpace];
 		}
 		try {
 			while (length > 0) {
-				int readLen = Math.min(length, readSpace);
-				int cnt = in.read(data, 0, readLen);
-				if (cnt < 0) {
-					break;
+				int readLen = Math.min(length, dataSpace);
+				int cnt = readFully(in, data, readLen);
+				if (cnt > 0) {
+					putBytes(index, 0, data, 0, cnt);
 				}
-
-				putBytes(index, offset, data, 0, readLen);
-
-				readSpace -= cnt;
-				offset += cnt;
-				length -= cnt;
-
-				if (readSpace == 0) {
-					// move-on to next buffer
-					++index;
-					readSpace = dataSpace;
-					offset = 0;
+				if (cnt < readLen) {
+					break; // stream exhausted
 				}
-
+				++index;
+				length -= cnt;
 			}
 		}
 		finally {
@@ -1189,6 +1182,27 @@ public class ChainedBuffer implements Buffer {
 		}
 	}
 
+	/**
+	 * Read from the stream until the specified number of bytes have been read
+	 * or the stream is exhausted.
+	 * @param in data source
+	 * @param data destination byte array
+	 * @param length number of bytes to read
+	 * @return number of bytes read
+	 * @throws IOException thrown if IO error occurs.
+	 */
+	private static int readFully(InputStream in, byte[] data, int length) throws IOException {
+		int total = 0;
+		while (total < length) {
+			int cnt = in.read(data, total, length - total);
+			if (cnt < 0) {
+				break;
+			}
+			total += cnt;
+		}
+		return total;
+	}
+
 	/*
 	 * @see ghidra.framework.store.Buffer#put(int, byte[], int, int)
 	 */
@@ -0,0 +1,307 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db.buffers;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.*;
+
+import ghidra.util.BigEndianDataConverter;
+import ghidra.util.Msg;
+import ghidra.util.exception.ClosedException;
+
+/**
+ * <code>BlockReaderBufferFile</code> provides a read-only BufferFile whose buffers are
+ * read on demand from the raw blocks of a stored buffer file supplied by a
+ * {@link BufferFileBlockReader}.  This allows a database to be opened without first
+ * reconstructing the complete buffer file (e.g., from a compressed form).
+ */
+public class BlockReaderBufferFile implements BufferFile {
+
+	private static final BigEndianDataConverter CONVERTER = BigEndianDataConverter.INSTANCE;
+
+	private BufferFileBlockReader blockReader;
+
+	private final int blockSize;
+	private final int bufferSize;
+	private final int bufferCount;
+
+	private final Hashtable<String, Integer> userParms = new Hashtable<>();
+	private int[] freeIndexes;
+
+	private byte[] block;
+
+	/**
+	 * Open a read-only buffer file whose blocks are provided by the specified block reader.
+	 * The block reader will be closed when this file is closed or disposed.
+	 * @param blockReader buffer file block reader
+	 * @throws IOException if an IO error occurs or the blocks do not correspond to a
+	 * valid buffer file.
+	 */
+	public BlockReaderBufferFile(BufferFileBlockReader blockReader) throws IOException {
+		this.blockReader = blockReader;
+		blockSize = blockReader.getBlockSize();
+		bufferSize = blockSize - LocalBufferFile.BUFFER_PREFIX_SIZE;
+		bufferCount = blockReader.getBlockCount() - 1;
+		block = new byte[blockSize];
+		readHeader();
+	}
+
+	/**
+	 * Read the buffer file header block and free buffer list (see {@link LocalBufferFile}
+	 * for the header format).
+	 * @throws IOException if an IO error occurs or the header is invalid
+	 */
+	private void readHeader() throws IOException {
+
+		if (bufferCount < 0 || bufferSize <= 0) {
+			throw new IOException("Corrupt file");
+		}
+
+		blockReader.readBlock(0, block);
+
+		int offset = 0;
+		if (CONVERTER.getLong(block, offset) != LocalBufferFile.MAGIC_NUMBER) {
+			throw new IOException("Unrecognized file format");
+		}
+		offset += 16; // skip file ID
+		if (CONVERTER.getInt(block, offset) != LocalBufferFile.HEADER_FORMAT_VERSION) {
+			throw new IOException("Unrecognized file format");
+		}
+		offset += 4;
+		if (CONVERTER.getInt(block, offset) != blockSize) {
+			throw new IOException("Corrupt file");
+		}
+		offset += 4;
+		int firstFreeBufferIndex = CONVERTER.getInt(block, offset);
+		offset += 4;
+
+		// Read user-defined integer parameters values
+		try {
+			int cnt = CONVERTER.getInt(block, offset);
+			offset += 4;
+			for (int i = 0; i < cnt; i++) {
+				int nameLen = CONVERTER.getInt(block, offset);
+				offset += 4;
+				String name =
+					new String(block, offset, nameLen, LocalBufferFile.STRING_ENCODING);
+				offset += nameLen;
+				userParms.put(name, CONVERTER.getInt(block, offset));
+				offset += 4;
+			}
+		}
+		catch (IndexOutOfBoundsException e) {
+			throw new IOException("Corrupt file");
+		}
+
+		// Build free index list
+		ArrayList<Integer> freeIndexList = new ArrayList<>();
+		int nextIndex = firstFreeBufferIndex;
+		while (nextIndex >= 0) {
+			if (nextIndex >= bufferCount || freeIndexList.size() >= bufferCount) {
+				throw new IOException("Corrupt file");
+			}
+			freeIndexList.add(nextIndex);
+			blockReader.readBlock(nextIndex + 1, block);
+			if ((block[0] & LocalBufferFile.EMPTY_BUFFER) == 0) {
+				throw new IOException("Corrupt file");
+			}
+			nextIndex = CONVERTER.getInt(block, 1);
+		}
+		freeIndexes = new int[freeIndexList.size()];
+		for (int i = 0; i < freeIndexes.length; i++) {
+			freeIndexes[i] = freeIndexList.get(i);
+		}
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	@Override
+	public boolean setReadOnly() {
+		return false;
+	}
+
+	@Override
+	public int getParameter(String name) throws NoSuchElementException {
+		Integer value = userParms.get(name);
+		if (value == null) {
+			throw new NoSuchElementException(name);
+		}
+		return value;
+	}
+
+	@Override
+	public void setParameter(String name, int value) throws IOException {
+		throw new IOException("File is read-only");
+	}
+
+	@Override
+	public void clearParameters() throws IOException {
+		throw new IOException("File is read-only");
+	}
+
+	@Override
+	public String[] getParameterNames() {
+		return userParms.keySet().toArray(new String[userParms.size()]);
+	}
+
+	@Override
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	@Override
+	public int getIndexCount() {
+		return bufferCount;
+	}
+
+	@Override
+	public int[] getFreeIndexes() {
+		return freeIndexes.clone();
+	}
+
+	@Override
+	public void setFreeIndexes(int[] indexes) throws IOException {
+		throw new IOException("File is read-only");
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (blockReader != null) {
+			try {
+				blockReader.close();
+			}
+			finally {
+				blockReader = null;
+				block = null;
+			}
+		}
+	}
+
+	@Override
+	public boolean delete() {
+		return false;
+	}
+
+	@Override
+	public void dispose() {
+		try {
+			close();
+		}
+		catch (IOException e) {
+			Msg.error(this, e);
+		}
+	}
+
+	@Override
+	public synchronized DataBuffer get(DataBuffer buf, int index) throws IOException {
+
+		if (index >= bufferCount) {
+			throw new EOFException(
+				"Buffer index too large (" + index + " >= " + bufferCount + ")");
+		}
+		if (blockReader == null) {
+			throw new ClosedException();
+		}
+		if (buf == null) {
+			buf = new DataBuffer();
+		}
+
+		blockReader.readBlock(index + 1, block);
+
+		if ((block[0] & LocalBufferFile.EMPTY_BUFFER) != 0) {
+			buf.setEmpty(true);
+			buf.setId(-1);
+		}
+		else {
+			buf.setEmpty(false);
+			buf.setId(CONVERTER.getInt(block, 1));
+			byte[] data = buf.data;
+			if (data == null) {
+				data = new byte[bufferSize];
+				buf.data = data;
+			}
+			else if (data.length != bufferSize) {
+				throw new IllegalArgumentException("Bad buffer size");
+			}
+			System.arraycopy(block, LocalBufferFile.BUFFER_PREFIX_SIZE, data, 0, bufferSize);
+		}
+		buf.setDirty(false);
+		return buf;
+	}
+
+	@Override
+	public void put(DataBuffer buf, int index) throws IOException {
+		throw new IOException("File is read-only");
+	}
+
+	/**
+	 * Obtain a stream to read all buffer blocks of this file.  The header block is
+	 * not included.
+	 * @return input block stream
+	 */
+	InputBlockStream getInputBlockStream() {
+		return new BlockReaderInputBlockStream();
+	}
+
+	/**
+	 * <code>BlockReaderInputBlockStream</code> provides an input BlockStream for
+	 * transferring all buffer blocks, excluding the header block.
+	 */
+	private class BlockReaderInputBlockStream implements InputBlockStream {
+
+		private int nextBlockIndex = 1;
+
+		@Override
+		public BufferFileBlock readBlock() throws IOException {
+			synchronized (BlockReaderBufferFile.this) {
+				if (nextBlockIndex > bufferCount) {
+					return null;
+				}
+				if (blockReader == null) {
+					throw new ClosedException();
+				}
+				byte[] data = new byte[blockSize];
+				blockReader.readBlock(nextBlockIndex, data);
+				return new BufferFileBlock(nextBlockIndex++, data);
+			}
+		}
+
+		@Override
+		public boolean includesHeaderBlock() {
+			return false;
+		}
+
+		@Override
+		public int getBlockCount() {
+			// header block is excluded
+			return bufferCount;
+		}
+
+		@Override
+		public int getBlockSize() {
+			return blockSize;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// block reader remains open
+		}
+	}
+}
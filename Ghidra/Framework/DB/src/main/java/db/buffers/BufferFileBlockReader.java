@@ -0,0 +1,49 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db.buffers;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * <code>BufferFileBlockReader</code> provides random read access to the raw blocks of
+ * a stored buffer file (i.e., the content of a {@link LocalBufferFile}) whose storage
+ * is not directly accessible as a file, such as a compressed form of the buffer file.
+ * Block 0 corresponds to the buffer file header block.
+ */
+public interface BufferFileBlockReader extends Closeable {
+
+	/**
+	 * Get the raw block size
+	 * @return block size
+	 */
+	int getBlockSize();
+
+	/**
+	 * Get the number of blocks, including the header block
+	 * @return block count
+	 */
+	int getBlockCount();
+
+	/**
+	 * Read the specified block
+	 * @param blockIndex block index
+	 * @param block block data array whose length equals the block size
+	 * @throws IOException if an IO error occurs
+	 */
+	void readBlock(int blockIndex, byte[] block) throws IOException;
+
+}
@@ -0,0 +1,195 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db.buffers;
+
+import java.io.IOException;
+
+/**
+ * <code>CachedManagedBufferFileAdapter</code> is a read-only ManagedBufferFileAdapter for
+ * a specific repository item version whose buffers are retained within a
+ * {@link VersionedBufferCache} entry.  Buffers are only retrieved from the remote buffer
+ * file when they are not already cached, and all buffers retrieved are added to the cache.
+ */
+class CachedManagedBufferFileAdapter extends ManagedBufferFileAdapter {
+
+	/**
+	 * Maximum fraction of uncached buffers for which a block stream is produced from the
+	 * cache with individual retrieval of the missing buffers.  Beyond this the remote block
+	 * stream is used since it is much faster than retrieving buffers one at a time.
+	 */
+	private static final int MAX_MISSING_BUFFER_DIVISOR = 16;
+
+	private final VersionedBufferCache.Entry entry;
+
+	/**
+	 * Constructor.
+	 * @param remoteManagedBufferFile remote buffer file handle for a read-only version
+	 * @param entry open cache entry which corresponds to the buffer file version
+	 */
+	CachedManagedBufferFileAdapter(ManagedBufferFileHandle remoteManagedBufferFile,
+			VersionedBufferCache.Entry entry) {
+		super(remoteManagedBufferFile);
+		this.entry = entry;
+	}
+
+	@Override
+	public DataBuffer get(DataBuffer buf, int index) throws IOException {
+		DataBuffer cachedBuf = entry.get(index);
+		if (cachedBuf == null) {
+			cachedBuf = super.get(null, index);
+			entry.put(index, cachedBuf);
+		}
+		if (buf == null) {
+			return cachedBuf;
+		}
+		buf.setEmpty(cachedBuf.isEmpty());
+		buf.setId(cachedBuf.getId());
+		if (cachedBuf.data != null) {
+			buf.data = cachedBuf.data;
+		}
+		return buf;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			super.close();
+		}
+		finally {
+			entry.close();
+		}
+	}
+
+	@Override
+	public void dispose() {
+		try {
+			super.dispose();
+		}
+		finally {
+			entry.close();
+		}
+	}
+
+	@Override
+	InputBlockStream getInputBlockStream() throws IOException {
+		int missingCount = entry.getMissingCount();
+		if (missingCount <= entry.getIndexCount() / MAX_MISSING_BUFFER_DIVISOR) {
+			return new CachedInputBlockStream();
+		}
+		return new CachingInputBlockStream(super.getInputBlockStream());
+	}
+
+	@Override
+	InputBlockStream getInputBlockStream(byte[] changeMapData) throws IOException {
+		return new CachingInputBlockStream(super.getInputBlockStream(changeMapData));
+	}
+
+	/**
+	 * <code>CachedInputBlockStream</code> produces all buffer blocks, excluding the header
+	 * block, from the cache entry.  Any buffer which has not been cached is retrieved
+	 * individually from the remote buffer file.
+	 */
+	private class CachedInputBlockStream implements InputBlockStream {
+
+		private final int blockSize;
+		private int nextBufferIndex = 0;
+
+		CachedInputBlockStream() throws IOException {
+			blockSize = getBufferSize() + LocalBufferFile.BUFFER_PREFIX_SIZE;
+		}
+
+		@Override
+		public BufferFileBlock readBlock() throws IOException {
+			if (nextBufferIndex == entry.getIndexCount()) {
+				return null;
+			}
+			int index = nextBufferIndex++;
+			BufferFileBlock block = entry.getBlock(index);
+			if (block == null) {
+				DataBuffer buf = CachedManagedBufferFileAdapter.super.get(null, index);
+				entry.put(index, buf);
+				block = entry.getBlock(index);
+				if (block == null) {
+					throw new IOException("versioned buffer cache entry closed");
+				}
+			}
+			return block;
+		}
+
+		@Override
+		public boolean includesHeaderBlock() {
+			return false;
+		}
+
+		@Override
+		public int getBlockCount() {
+			// header block is excluded
+			return entry.getIndexCount();
+		}
+
+		@Override
+		public int getBlockSize() {
+			return blockSize;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// entry remains open
+		}
+	}
+
+	/**
+	 * <code>CachingInputBlockStream</code> passes through the blocks of a remote block
+	 * stream while adding them to the cache entry.
+	 */
+	private class CachingInputBlockStream implements InputBlockStream {
+
+		private final InputBlockStream remoteStream;
+
+		CachingInputBlockStream(InputBlockStream remoteStream) {
+			this.remoteStream = remoteStream;
+		}
+
+		@Override
+		public BufferFileBlock readBlock() throws IOException {
+			BufferFileBlock block = remoteStream.readBlock();
+			if (block != null) {
+				entry.putBlock(block);
+			}
+			return block;
+		}
+
+		@Override
+		public boolean includesHeaderBlock() {
+			return remoteStream.includesHeaderBlock();
+		}
+
+		@Override
+		public int getBlockCount() {
+			return remoteStream.getBlockCount();
+		}
+
+		@Override
+		public int getBlockSize() {
+			return remoteStream.getBlockSize();
+		}
+
+		@Override
+		public void close() throws IOException {
+			remoteStream.close();
+		}
+	}
+}
@@ -39,7 +39,7 @@ public class LocalBufferFile implements BufferFile {
 	public static final String PRESAVE_FILE_PREFIX = "tmp";
 	public static final String TEMP_FILE_EXT = ".tmp";
 
-	private static final String STRING_ENCODING = "UTF-8";
+	static final String STRING_ENCODING = "UTF-8";
 
 // ?? Should be changed !!
 	private static final int MINIMUM_BLOCK_SIZE = 128;
@@ -52,7 +52,7 @@ public class LocalBufferFile implements BufferFile {
 	 * format version which indicates how the header
 	 * is formatted.
 	 */
-	private static final int HEADER_FORMAT_VERSION = 1;
+	static final int HEADER_FORMAT_VERSION = 1;
 
 	// 
 	// The first block is reserved for use by the BlockFile header.
@@ -89,13 +89,13 @@ public class LocalBufferFile implements BufferFile {
 	private static final int FILE_ID_OFFSET = 8;
 
 	// Number of bytes added to buffer to allow for storage of flag bits.
-	private static final int BUFFER_PREFIX_SIZE = 5;
+	static final int BUFFER_PREFIX_SIZE = 5;
 
 	// Number of header bytes before the user-defined parameter area
 	private static final int VER1_FIXED_HEADER_LENGTH = 32;
 
 	// Buffer Flags bits
-	private static final byte EMPTY_BUFFER = 0x01;
+	static final byte EMPTY_BUFFER = 0x01;
 
 	static final int MAX_BUFFER_INDEX = Integer.MAX_VALUE - 1;
 
@@ -272,6 +272,23 @@ public class LocalBufferFile implements BufferFile {
 		}
 	}
 
+	/**
+	 * Get the block size of an existing buffer file.  Each block of the file,
+	 * including the header block, has this size.
+	 * @param file buffer file
+	 * @return block size in bytes
+	 * @throws IOException if an IO error occurs or the file is not a buffer file
+	 */
+	public static int getBlockSize(File file) throws IOException {
+		LocalBufferFile bf = new LocalBufferFile(file, true);
+		try {
+			return bf.blockSize;
+		}
+		finally {
+			bf.close();
+		}
+	}
+
 	/**
 	 * Returns the physical file associated with this BufferFile.
 	 */
@@ -1310,6 +1327,9 @@ public class LocalBufferFile implements BufferFile {
 		if (bufferFile instanceof LocalBufferFile) {
 			return ((LocalBufferFile) bufferFile).getInputBlockStream();
 		}
+		if (bufferFile instanceof BlockReaderBufferFile) {
+			return ((BlockReaderBufferFile) bufferFile).getInputBlockStream();
+		}
 		throw new IllegalArgumentException(
 			"Unsupported buffer file implementation: " + bufferFile.getClass().getName());
 	}
@@ -35,6 +35,14 @@ public class ManagedBufferFileAdapter extends BufferFileAdapter implements Manag
 		this.managedBufferFileHandle = remoteManagedBufferFile;
 	}
 
+	/**
+	 * Get the wrapped buffer file handle
+	 * @return managed buffer file handle
+	 */
+	ManagedBufferFileHandle getManagedBufferFileHandle() {
+		return managedBufferFileHandle;
+	}
+
 	@Override
 	public ManagedBufferFile getSaveFile() throws IOException {
 		ManagedBufferFileHandle rbf = managedBufferFileHandle.getSaveFile();
@@ -0,0 +1,457 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db.buffers;
+
+import java.io.*;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import ghidra.framework.Application;
+import ghidra.util.Msg;
+import ghidra.util.NumericUtilities;
+
+/**
+ * <code>VersionedBufferCache</code> provides a persistent client-side cache of the buffers of
+ * versioned buffer files which reside within a repository.  Since a specific version of a
+ * repository item never changes, its buffers may be reused whenever that version is opened
+ * again (e.g., re-opening a read-only version or checking it out), so that only those
+ * buffers which have not previously been retrieved need to be transferred from the server.
+ * <p>
+ * Each cached version is identified by a key which must uniquely identify the repository
+ * item version content (e.g., server, repository, file-ID, version and version time) and
+ * is stored as a pair of files named by the hash of its key: a data file containing a
+ * fixed-size block for each buffer index and a map file identifying those blocks which have
+ * been cached.  The map file is only written after the data file has been flushed, so a
+ * failure will at worst result in cached buffers being retrieved again.  Entries which have
+ * not been used within the shelf-life period are removed, and the least recently used entries
+ * are removed whenever the total size of the cache exceeds its maximum size.
+ * <p>
+ * The cache is disabled by default since it requires additional server requests to
+ * identify the version being opened.
+ */
+public class VersionedBufferCache {
+
+	private static final String CACHE_DIR_PROPERTY = "db.buffer.cache.dir";
+	private static final String CACHE_ENABLED_PROPERTY = "db.buffer.cache.enabled";
+	private static final String CACHE_MAX_SIZE_PROPERTY = "db.buffer.cache.max.size";
+
+	private static final long SHELF_LIFE = 7 * 24 * 60 * 60 * 1000L; // 7-days
+	private static final long DEFAULT_MAX_SIZE = 1024; // MBytes
+
+	private static final String CACHE_DIR = "versioned-buffer-cache";
+	private static final String DATA_FILE_EXT = ".bufs";
+	private static final String MAP_FILE_EXT = ".map";
+
+	private static final int MAP_MAGIC = 0x47424331; // "GBC1"
+
+	private static VersionedBufferCache cache;
+
+	private static Boolean isEnabled;
+
+	private final File cacheDir;
+	private final long maxSize;
+
+	private VersionedBufferCache(File cacheDir, long maxSize) throws IOException {
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+		if (!cacheDir.mkdir() && !cacheDir.isDirectory()) {
+			throw new IOException("Failed to create cache directory: " + cacheDir);
+		}
+		if (!cacheDir.canExecute() || !cacheDir.canWrite()) {
+			throw new IOException("permission denied: " + cacheDir);
+		}
+		removeEntries();
+		Msg.info(this, "Versioned buffer cache: " + cacheDir);
+	}
+
+	/**
+	 * Determine if the versioned buffer cache is enabled.  The cache must be enabled by
+	 * setting the <code>db.buffer.cache.enabled</code> property to true.
+	 * @return true if enabled
+	 */
+	public static synchronized boolean isEnabled() {
+		if (isEnabled == null) {
+			isEnabled = false;
+			String enabled = System.getProperty(CACHE_ENABLED_PROPERTY);
+			if (enabled != null) {
+				enabled = enabled.trim().toLowerCase();
+				isEnabled = "true".equals(enabled) || "yes".equals(enabled);
+			}
+		}
+		return isEnabled;
+	}
+
+	/**
+	 * Get the versioned buffer cache.  The cache resides within the user cache directory
+	 * unless the <code>db.buffer.cache.dir</code> property specifies its directory.  Its
+	 * maximum size is 1024 MBytes unless the <code>db.buffer.cache.max.size</code> property
+	 * specifies the size in MBytes.
+	 * @return versioned buffer cache
+	 * @throws IOException if the cache is disabled or its directory can't be used
+	 */
+	public static synchronized VersionedBufferCache getCache() throws IOException {
+		if (!isEnabled()) {
+			throw new IOException("Cache disabled");
+		}
+		if (cache == null) {
+			File cacheDir;
+			String dirpath = System.getProperty(CACHE_DIR_PROPERTY);
+			if (dirpath != null) {
+				cacheDir = new File(dirpath);
+			}
+			else {
+				cacheDir = new File(Application.getUserCacheDirectory(), CACHE_DIR);
+			}
+			cache = new VersionedBufferCache(cacheDir, getMaxSize() * 1024 * 1024);
+		}
+		return cache;
+	}
+
+	private static long getMaxSize() {
+		String size = System.getProperty(CACHE_MAX_SIZE_PROPERTY);
+		if (size != null) {
+			try {
+				return Math.max(0, Long.parseLong(size.trim()));
+			}
+			catch (NumberFormatException e) {
+				Msg.error(VersionedBufferCache.class,
+					"Invalid " + CACHE_MAX_SIZE_PROPERTY + " property value: " + size);
+			}
+		}
+		return DEFAULT_MAX_SIZE;
+	}
+
+	/**
+	 * Get a buffer file adapter for a versioned buffer file which utilizes this cache.
+	 * If the cache entry is in use by another process the specified buffer file is returned.
+	 * @param bufferFile remote buffer file opened for a specific read-only version
+	 * @param key key which uniquely identifies the content of the buffer file version
+	 * @return cached buffer file adapter or the specified bufferFile if the cache may not
+	 * be used
+	 * @throws IOException if an error occurs accessing the buffer file
+	 */
+	public ManagedBufferFileAdapter getCachedBufferFile(ManagedBufferFileAdapter bufferFile,
+			String key) throws IOException {
+		String name = getEntryName(key);
+		Entry entry = Entry.open(this, new File(cacheDir, name + DATA_FILE_EXT),
+			new File(cacheDir, name + MAP_FILE_EXT), bufferFile.getBufferSize(),
+			bufferFile.getIndexCount());
+		if (entry == null) {
+			return bufferFile;
+		}
+		return new CachedManagedBufferFileAdapter(bufferFile.getManagedBufferFileHandle(), entry);
+	}
+
+	private static String getEntryName(String key) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+			return NumericUtilities.convertBytesToString(hash);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Remove the entries which have not been used within the shelf-life period, followed by
+	 * the least recently used entries until the total size of the cache does not exceed its
+	 * maximum size.  Entries which are in use are never removed.
+	 */
+	synchronized void removeEntries() {
+		File[] files = cacheDir.listFiles();
+		if (files == null) {
+			return;
+		}
+		List<File> dataFiles = new ArrayList<>();
+		Map<File, Long> lastUsedTimes = new HashMap<>();
+		long totalSize = 0;
+		for (File dataFile : files) {
+			String name = dataFile.getName();
+			if (!name.endsWith(DATA_FILE_EXT)) {
+				continue;
+			}
+			// an entry's map file is touched whenever the entry is opened
+			File mapFile = getMapFile(dataFile);
+			dataFiles.add(dataFile);
+			lastUsedTimes.put(dataFile,
+				Math.max(dataFile.lastModified(), mapFile.lastModified()));
+			totalSize += dataFile.length() + mapFile.length();
+		}
+		dataFiles.sort((f1, f2) -> Long.compare(lastUsedTimes.get(f1), lastUsedTimes.get(f2)));
+
+		long now = System.currentTimeMillis();
+		for (File dataFile : dataFiles) {
+			boolean isStale = now - lastUsedTimes.get(dataFile) > SHELF_LIFE;
+			if (!isStale && totalSize <= maxSize) {
+				break;
+			}
+			long size = dataFile.length() + getMapFile(dataFile).length();
+			if (removeEntry(dataFile)) {
+				totalSize -= size;
+			}
+		}
+	}
+
+	private static File getMapFile(File dataFile) {
+		String name = dataFile.getName();
+		String entryName = name.substring(0, name.length() - DATA_FILE_EXT.length());
+		return new File(dataFile.getParentFile(), entryName + MAP_FILE_EXT);
+	}
+
+	/**
+	 * Remove an entry unless it is in use
+	 * @param dataFile entry data file
+	 * @return true if the entry was removed
+	 */
+	private static boolean removeEntry(File dataFile) {
+		File mapFile = getMapFile(dataFile);
+		try (RandomAccessFile dataRaf = new RandomAccessFile(dataFile, "rw")) {
+			FileLock lock = dataRaf.getChannel().tryLock();
+			if (lock == null) {
+				return false;
+			}
+			// map file is removed first so that a partially removed entry is empty
+			if (!mapFile.delete() && mapFile.exists()) {
+				return false;
+			}
+			dataRaf.setLength(0);
+		}
+		catch (OverlappingFileLockException e) {
+			return false; // entry in use within this process
+		}
+		catch (IOException e) {
+			return false;
+		}
+		// the data file can only be deleted once it is closed on some platforms
+		dataFile.delete();
+		return true;
+	}
+
+	/**
+	 * <code>Entry</code> corresponds to the cached buffers of a single buffer file version.
+	 * An entry is locked while open so that it is never shared between processes.
+	 */
+	static class Entry {
+
+		private final VersionedBufferCache cache;
+		private final File mapFile;
+		private final RandomAccessFile dataRaf;
+		private final FileLock lock;
+		private final int bufferSize;
+		private final int blockSize;
+		private final int indexCount;
+		private final BitSet cached;
+
+		private boolean modified;
+		private boolean closed;
+
+		private Entry(VersionedBufferCache cache, File mapFile, RandomAccessFile dataRaf,
+				FileLock lock, int bufferSize, int indexCount, BitSet cached) {
+			this.cache = cache;
+			this.mapFile = mapFile;
+			this.dataRaf = dataRaf;
+			this.lock = lock;
+			this.bufferSize = bufferSize;
+			this.blockSize = bufferSize + LocalBufferFile.BUFFER_PREFIX_SIZE;
+			this.indexCount = indexCount;
+			this.cached = cached;
+		}
+
+		/**
+		 * Open a cache entry, discarding any cached content which does not correspond to the
+		 * specified buffer file dimensions.
+		 * @param cache cache which contains the entry
+		 * @param dataFile entry data file
+		 * @param mapFile entry map file
+		 * @param bufferSize buffer file buffer size
+		 * @param indexCount buffer file index count
+		 * @return entry or null if the entry is in use
+		 * @throws IOException if an IO error occurs
+		 */
+		static Entry open(VersionedBufferCache cache, File dataFile, File mapFile, int bufferSize,
+				int indexCount) throws IOException {
+			RandomAccessFile dataRaf = new RandomAccessFile(dataFile, "rw");
+			FileLock lock = null;
+			try {
+				lock = dataRaf.getChannel().tryLock();
+			}
+			catch (OverlappingFileLockException e) {
+				// entry in use within this process
+			}
+			if (lock == null) {
+				dataRaf.close();
+				return null;
+			}
+			BitSet cached = readMap(mapFile, bufferSize, indexCount);
+			long blockSize = bufferSize + LocalBufferFile.BUFFER_PREFIX_SIZE;
+			if (dataRaf.length() < cached.length() * blockSize) {
+				// data file was removed after the map file was read by another process
+				cached.clear();
+			}
+			if (cached.isEmpty()) {
+				dataRaf.setLength(0);
+			}
+			mapFile.setLastModified(System.currentTimeMillis());
+			return new Entry(cache, mapFile, dataRaf, lock, bufferSize, indexCount, cached);
+		}
+
+		private static BitSet readMap(File mapFile, int bufferSize, int indexCount) {
+			if (!mapFile.isFile()) {
+				return new BitSet();
+			}
+			try (DataInputStream in =
+				new DataInputStream(new BufferedInputStream(new FileInputStream(mapFile)))) {
+				if (in.readInt() != MAP_MAGIC || in.readInt() != bufferSize ||
+					in.readInt() != indexCount) {
+					return new BitSet();
+				}
+				byte[] bits = new byte[in.readInt()];
+				in.readFully(bits);
+				return BitSet.valueOf(bits);
+			}
+			catch (IOException e) {
+				return new BitSet();
+			}
+		}
+
+		private void writeMap() throws IOException {
+			try (DataOutputStream out =
+				new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mapFile)))) {
+				byte[] bits = cached.toByteArray();
+				out.writeInt(MAP_MAGIC);
+				out.writeInt(bufferSize);
+				out.writeInt(indexCount);
+				out.writeInt(bits.length);
+				out.write(bits);
+			}
+		}
+
+		/**
+		 * @return number of buffer indexes within the cached buffer file
+		 */
+		int getIndexCount() {
+			return indexCount;
+		}
+
+		/**
+		 * @return number of buffer indexes which have not been cached
+		 */
+		synchronized int getMissingCount() {
+			return indexCount - cached.cardinality();
+		}
+
+		/**
+		 * Get a cached buffer
+		 * @param index buffer index
+		 * @return cached buffer or null if not cached
+		 * @throws IOException if an IO error occurs
+		 */
+		synchronized DataBuffer get(int index) throws IOException {
+			BufferFileBlock block = getBlock(index);
+			return block != null ? LocalBufferFile.getDataBuffer(block) : null;
+		}
+
+		/**
+		 * Get a cached buffer in its block stream form
+		 * @param index buffer index
+		 * @return cached buffer block or null if not cached
+		 * @throws IOException if an IO error occurs
+		 */
+		synchronized BufferFileBlock getBlock(int index) throws IOException {
+			if (closed || !cached.get(index)) {
+				return null;
+			}
+			byte[] bytes = new byte[blockSize];
+			dataRaf.seek((long) index * blockSize);
+			dataRaf.readFully(bytes);
+			return new BufferFileBlock(index + 1, bytes); // block index excludes header
+		}
+
+		/**
+		 * Add a buffer retrieved from the buffer file to the cache
+		 * @param index buffer index
+		 * @param buf buffer
+		 * @throws IOException if an IO error occurs
+		 */
+		void put(int index, DataBuffer buf) throws IOException {
+			byte[] bytes = LocalBufferFile.getBufferFileBlock(buf, bufferSize).getData();
+			putBlock(new BufferFileBlock(index + 1, bytes));
+		}
+
+		/**
+		 * Add a buffer block retrieved from the buffer file block stream to the cache.
+		 * The header block is ignored.
+		 * @param block buffer file block
+		 * @throws IOException if an IO error occurs
+		 */
+		synchronized void putBlock(BufferFileBlock block) throws IOException {
+			int index = block.getIndex() - 1;
+			if (closed || index < 0 || index >= indexCount || cached.get(index)) {
+				return;
+			}
+			byte[] bytes = block.getData();
+			if (bytes.length != blockSize) {
+				throw new IOException("Bad buffer block size");
+			}
+			dataRaf.seek((long) index * blockSize);
+			dataRaf.write(bytes);
+			cached.set(index);
+			modified = true;
+		}
+
+		/**
+		 * Close this entry, recording those buffers which have been cached.  If buffers were
+		 * added the cache is trimmed to its maximum size.
+		 */
+		void close() {
+			if (closeEntry()) {
+				cache.removeEntries();
+			}
+		}
+
+		private synchronized boolean closeEntry() {
+			if (closed) {
+				return false;
+			}
+			closed = true;
+			try {
+				if (modified) {
+					dataRaf.getFD().sync();
+					writeMap();
+				}
+			}
+			catch (IOException e) {
+				mapFile.delete();
+				Msg.error(this, "Failed to update versioned buffer cache: " + e.getMessage());
+			}
+			finally {
+				try {
+					lock.release();
+					dataRaf.close();
+				}
+				catch (IOException e) {
+					// ignore
+				}
+			}
+			return modified;
+		}
+	}
+}
@@ -47,8 +47,9 @@ public interface GhidraServerHandle extends Remote {
 	 *   9: Added support for transient checkouts (7.2)
 	 *   10: Added BlockStreamServer (7.4)
 	 *   11: Revised password hash to SHA-256 (9.0)
+	 *   12: Block streams are pipelined and compressed one block at a time (9.0)
 	 */
-	public static final int INTERFACE_VERSION = 11;
+	public static final int INTERFACE_VERSION = 12;
 
 	/**
 	 * Minimum version of Ghidra which utilized the current INTERFACE_VERSION
@@ -21,8 +21,7 @@ import java.util.Random;
 
 import db.DBHandle;
 import db.Database;
-import db.buffers.BufferFileManager;
-import db.buffers.LocalManagedBufferFile;
+import db.buffers.*;
 import generic.jar.ResourceFile;
 import ghidra.framework.store.FolderItem;
 import ghidra.framework.store.db.PackedDatabaseCache.CachedDB;
@@ -41,6 +40,10 @@ import utilities.util.FileUtilities;
  * <br>
  * When opening a packed database, a PackedDBHandle is returned 
  * after first expanding the file into a temporary Database.
+ * <br>
+ * A packed database which was written in the indexed form (see
+ * {@link #INDEXED_PACKING_PROPERTY}) is not expanded when opened read-only;
+ * instead its buffers are decompressed individually as they are read.
  */
 public class PackedDatabase extends Database {
 
@@ -51,6 +54,13 @@ public class PackedDatabase extends Database {
 	 */
 	public static final String READ_ONLY_DIRECTORY_LOCK_FILE = ".dbDirLock";
 
+	/**
+	 * System property which, when set to true, causes packed database files to be written
+	 * in the indexed form where each buffer is compressed individually.  Such files may be
+	 * opened read-only without unpacking, but can not be read by older versions.
+	 */
+	public static final String INDEXED_PACKING_PROPERTY = "pdb.pack.indexed";
+
 	private static final Random RANDOM = new Random();
 
 	private static final String TEMPDB_PREFIX = "tmp";
@@ -68,6 +78,7 @@ public class PackedDatabase extends Database {
 
 	private ResourceFile packedDbFile;
 	private boolean isCached;
+	private boolean isIndexed;
 	private String itemName;
 	private String contentType;
 	private LockFile packedDbLock;
@@ -277,7 +288,8 @@ public class PackedDatabase extends Database {
 	 */
 	public static PackedDatabase getPackedDatabase(ResourceFile packedDbFile, boolean neverCache,
 			TaskMonitor monitor) throws IOException, CancelledException {
-		if (!neverCache && PackedDatabaseCache.isEnabled()) {
+		// indexed packed files are read directly and gain nothing from the unpacking cache
+		if (!neverCache && PackedDatabaseCache.isEnabled() && !isIndexedPackedFile(packedDbFile)) {
 			try {
 				return PackedDatabaseCache.getCache().getCachedDB(packedDbFile, monitor);
 			}
@@ -289,6 +301,40 @@ public class PackedDatabase extends Database {
 		return new PackedDatabase(packedDbFile);
 	}
 
+	/**
+	 * Determine if packed database files will be written in the indexed form.
+	 * @return true if indexed packing has been enabled with the
+	 * {@link #INDEXED_PACKING_PROPERTY} property
+	 */
+	public static boolean isIndexedPackingEnabled() {
+		return Boolean.getBoolean(INDEXED_PACKING_PROPERTY);
+	}
+
+	/**
+	 * Determine if the specified packed file is an indexed packed file which may be
+	 * read directly.
+	 * @param packedDbFile packed database file
+	 * @return true if packed file is indexed and directly accessible as a file
+	 */
+	private static boolean isIndexedPackedFile(ResourceFile packedDbFile) {
+		if (packedDbFile.getFile(false) == null) {
+			return false;
+		}
+		ItemDeserializer itemDeserializer = null;
+		try {
+			itemDeserializer = new ItemDeserializer(packedDbFile);
+			return itemDeserializer.isIndexed();
+		}
+		catch (IOException e) {
+			return false; // error will be reported when opened
+		}
+		finally {
+			if (itemDeserializer != null) {
+				itemDeserializer.dispose();
+			}
+		}
+	}
+
 	/**
 	 * Check for the presence of directory read-only lock
 	 * @param directory
@@ -480,6 +526,7 @@ public class PackedDatabase extends Database {
 			}
 			contentType = itemDeserializer.getContentType();
 			itemName = itemDeserializer.getItemName();
+			isIndexed = itemDeserializer.isIndexed() && packedDbFile.getFile(false) != null;
 		}
 		finally {
 			if (itemDeserializer != null) {
@@ -618,34 +665,15 @@ public class PackedDatabase extends Database {
 				throw new DuplicateFileException(outputFile + " already exists");
 			}
 			boolean success = false;
-			InputStream itemIn = null;
 			File tmpFile = null;
 			try {
 				tmpFile = File.createTempFile("pack", ".tmp");
 				tmpFile.delete();
 				dbh.saveAs(tmpFile, false, monitor);
-				itemIn = new BufferedInputStream(new FileInputStream(tmpFile));
-				try {
-					ItemSerializer.outputItem(itemName, contentType, FolderItem.DATABASE_FILE_TYPE,
-						tmpFile.length(), itemIn, outputFile, monitor);
-				}
-				finally {
-					try {
-						itemIn.close();
-					}
-					catch (IOException e) {
-					}
-				}
+				packDatabase(itemName, contentType, tmpFile, outputFile, monitor);
 				success = true;
 			}
 			finally {
-				if (itemIn != null) {
-					try {
-						itemIn.close();
-					}
-					catch (IOException e) {
-					}
-				}
 				tmpFile.delete();
 				if (!success) {
 					outputFile.delete();
@@ -673,10 +701,17 @@ public class PackedDatabase extends Database {
 		}
 		monitor.setMessage("Packing file...");
 
-		InputStream itemIn = new FileInputStream(dbFile);
+		InputStream itemIn = new BufferedInputStream(new FileInputStream(dbFile));
 		try {
-			ItemSerializer.outputItem(name, contentType, FolderItem.DATABASE_FILE_TYPE,
-				dbFile.length(), itemIn, outputFile, monitor);
+			if (isIndexedPackingEnabled()) {
+				ItemSerializer.outputIndexedItem(name, contentType, FolderItem.DATABASE_FILE_TYPE,
+					dbFile.length(), LocalBufferFile.getBlockSize(dbFile), itemIn, outputFile,
+					monitor);
+			}
+			else {
+				ItemSerializer.outputItem(name, contentType, FolderItem.DATABASE_FILE_TYPE,
+					dbFile.length(), itemIn, outputFile, monitor);
+			}
 		}
 		catch (IOCancelledException e) {
 			throw new CancelledException();
@@ -731,6 +766,7 @@ public class PackedDatabase extends Database {
 
 			bakFile.delete();
 			dbTime = packedFile.lastModified();
+			isIndexed = isIndexedPackingEnabled();
 
 			if (oldTime == dbTime) {
 				// ensure that last-modified time on file changes
@@ -784,6 +820,11 @@ public class PackedDatabase extends Database {
 			monitor = TaskMonitorAdapter.DUMMY_MONITOR;
 		}
 
+		if (isIndexed && !isCached) {
+			dbHandle = new PackedDBHandle(this, openIndexedBufferFile());
+			return dbHandle;
+		}
+
 		if (!refreshUnpacking(monitor)) {
 			throw new IOException("Failed to unpack/refresh database - it may be in use");
 		}
@@ -794,6 +835,73 @@ public class PackedDatabase extends Database {
 		return dbHandle;
 	}
 
+	/**
+	 * Open the indexed packed file as a read-only buffer file whose buffers are
+	 * decompressed as they are read.
+	 * @return read-only buffer file
+	 * @throws IOException if an IO error occurs
+	 */
+	private BufferFile openIndexedBufferFile() throws IOException {
+		if (packedDbLock != null) {
+			lock(packedDbLock, true, true);
+		}
+		try {
+			Msg.debug(PackedDatabase.class, "Opening indexed database " + packedDbFile);
+			IndexedItemReader itemReader = new IndexedItemReader(packedDbFile.getFile(false));
+			try {
+				return new BlockReaderBufferFile(new PackedBlockReader(itemReader));
+			}
+			catch (IOException e) {
+				itemReader.close();
+				throw e;
+			}
+		}
+		finally {
+			if (packedDbLock != null) {
+				packedDbLock.removeLock();
+			}
+		}
+	}
+
+	/**
+	 * <code>PackedBlockReader</code> reads the buffer file blocks of an indexed packed
+	 * database whose content chunks correspond to buffer file blocks.
+	 */
+	static class PackedBlockReader implements BufferFileBlockReader {
+
+		private final IndexedItemReader itemReader;
+
+		PackedBlockReader(IndexedItemReader itemReader) throws IOException {
+			this.itemReader = itemReader;
+			int chunkSize = itemReader.getChunkSize();
+			if (chunkSize == 0 || (itemReader.getLength() % chunkSize) != 0) {
+				throw new IOException("Corrupt file");
+			}
+		}
+
+		@Override
+		public int getBlockSize() {
+			return itemReader.getChunkSize();
+		}
+
+		@Override
+		public int getBlockCount() {
+			return itemReader.getChunkCount();
+		}
+
+		@Override
+		public void readBlock(int blockIndex, byte[] block) throws IOException {
+			if (itemReader.readChunk(blockIndex, block) != block.length) {
+				throw new IOException("Corrupt file");
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			itemReader.close();
+		}
+	}
+
 	@Override
 	public synchronized DBHandle openForUpdate(TaskMonitor monitor)
 			throws CancelledException, IOException {
@@ -0,0 +1,248 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.framework.store.local;
+
+import java.io.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import ghidra.util.exception.ClosedException;
+
+/**
+ * <code>IndexedItemReader</code> provides random access to the content of a "packed" file
+ * which was written in the indexed form by
+ * {@link ItemSerializer#outputIndexedItem(String, String, int, long, int, InputStream, File, ghidra.util.task.TaskMonitor)}.
+ * Individual content chunks are read and decompressed on demand, so the content need
+ * not be unpacked before it can be used.
+ */
+public class IndexedItemReader implements Closeable {
+
+	private RandomAccessFile raf;
+	private Inflater inflater = new Inflater();
+
+	private String itemName;
+	private String contentType;
+	private int fileType;
+	private long length;
+
+	private int chunkSize;
+	private long[] chunkOffsets;
+	private long indexOffset;
+	private byte[] compressedChunk;
+
+	/**
+	 * Open an indexed packed file for reading.
+	 * @param packedFile packed file
+	 * @throws IOException if an IO error occurs or the packed file is not in the
+	 * indexed form
+	 */
+	public IndexedItemReader(File packedFile) throws IOException {
+		ItemDeserializer itemDeserializer = new ItemDeserializer(packedFile);
+		try {
+			if (!itemDeserializer.isIndexed()) {
+				throw new IOException("Packed file is not indexed: " + packedFile);
+			}
+			itemName = itemDeserializer.getItemName();
+			contentType = itemDeserializer.getContentType();
+			fileType = itemDeserializer.getFileType();
+			length = itemDeserializer.getLength();
+		}
+		finally {
+			itemDeserializer.dispose();
+		}
+
+		raf = new RandomAccessFile(packedFile, "r");
+		boolean success = false;
+		try {
+			readIndex();
+			success = true;
+		}
+		finally {
+			if (!success) {
+				close();
+			}
+		}
+	}
+
+	private void readIndex() throws IOException {
+		long fileLength = raf.length();
+		if (fileLength < ItemSerializer.INDEX_TRAILER_SIZE) {
+			throw new IOException("Data error");
+		}
+		raf.seek(fileLength - ItemSerializer.INDEX_TRAILER_SIZE);
+		indexOffset = raf.readLong();
+		if (raf.readLong() != ItemSerializer.INDEX_MAGIC_NUMBER || indexOffset < 0) {
+			throw new IOException("Data error");
+		}
+		long indexLength = fileLength - ItemSerializer.INDEX_TRAILER_SIZE - indexOffset;
+		if (indexLength < 0 || (indexLength % 8) != 0 || indexLength / 8 > Integer.MAX_VALUE) {
+			throw new IOException("Data error");
+		}
+		chunkOffsets = new long[(int) (indexLength / 8)];
+
+		byte[] indexBytes = new byte[(int) indexLength];
+		raf.seek(indexOffset);
+		raf.readFully(indexBytes);
+		DataInputStream indexIn = new DataInputStream(new ByteArrayInputStream(indexBytes));
+		for (int i = 0; i < chunkOffsets.length; i++) {
+			chunkOffsets[i] = indexIn.readLong();
+		}
+
+		if (chunkOffsets.length == 0) {
+			if (length != 0) {
+				throw new IOException("Data error");
+			}
+			return;
+		}
+		if (chunkOffsets[0] < 4) {
+			throw new IOException("Data error");
+		}
+		raf.seek(chunkOffsets[0] - 4);
+		chunkSize = raf.readInt();
+		if (chunkSize <= 0 || (length + chunkSize - 1) / chunkSize != chunkOffsets.length) {
+			throw new IOException("Data error");
+		}
+		compressedChunk = new byte[chunkSize];
+	}
+
+	/**
+	 * Returns packed item name
+	 */
+	public String getItemName() {
+		return itemName;
+	}
+
+	/**
+	 * Returns packed content type
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * Returns packed file type.
+	 */
+	public int getFileType() {
+		return fileType;
+	}
+
+	/**
+	 * Returns unpacked data length
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the size of each content chunk.  The last chunk may be shorter.
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Returns the number of content chunks
+	 */
+	public int getChunkCount() {
+		return chunkOffsets.length;
+	}
+
+	/**
+	 * Read and decompress a content chunk.
+	 * @param chunkIndex chunk index
+	 * @param chunk buffer which will receive the chunk content (length must be at least
+	 * the chunk size)
+	 * @return chunk length
+	 * @throws IOException if an IO error occurs
+	 */
+	public synchronized int readChunk(int chunkIndex, byte[] chunk) throws IOException {
+		if (raf == null) {
+			throw new ClosedException();
+		}
+		if (chunkIndex < 0 || chunkIndex >= chunkOffsets.length) {
+			throw new EOFException("Invalid chunk index: " + chunkIndex);
+		}
+		int chunkLength = (int) Math.min(chunkSize, length - (long) chunkIndex * chunkSize);
+		long offset = chunkOffsets[chunkIndex];
+		long nextOffset =
+			chunkIndex + 1 < chunkOffsets.length ? chunkOffsets[chunkIndex + 1] : indexOffset;
+
+		raf.seek(offset);
+		int compressedLength = raf.readInt();
+		if (compressedLength == ItemSerializer.RAW_CHUNK) {
+			if (nextOffset - offset - 4 != chunkLength) {
+				throw new IOException("Data error");
+			}
+			raf.readFully(chunk, 0, chunkLength);
+			return chunkLength;
+		}
+		if (compressedLength < 0 || compressedLength >= chunkLength ||
+			nextOffset - offset - 4 != compressedLength) {
+			throw new IOException("Data error");
+		}
+		raf.readFully(compressedChunk, 0, compressedLength);
+		inflateChunk(inflater, compressedChunk, compressedLength, chunk, chunkLength);
+		return chunkLength;
+	}
+
+	/**
+	 * Decompress a chunk which was individually compressed.
+	 * @param inflater inflater
+	 * @param compressed compressed chunk data
+	 * @param compressedLength compressed chunk length
+	 * @param chunk buffer which will receive the chunk content
+	 * @param chunkLength expected chunk length
+	 * @throws IOException if the compressed data is invalid
+	 */
+	static void inflateChunk(Inflater inflater, byte[] compressed, int compressedLength,
+			byte[] chunk, int chunkLength) throws IOException {
+		inflater.reset();
+		inflater.setInput(compressed, 0, compressedLength);
+		try {
+			int total = 0;
+			while (total < chunkLength && !inflater.finished()) {
+				int cnt = inflater.inflate(chunk, total, chunkLength - total);
+				if (cnt == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				total += cnt;
+			}
+			if (total != chunkLength || !inflater.finished()) {
+				throw new IOException("Data error");
+			}
+		}
+		catch (DataFormatException e) {
+			throw new IOException("Data error: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+		if (raf != null) {
+			try {
+				raf.close();
+			}
+			finally {
+				raf = null;
+			}
+		}
+	}
+
+}
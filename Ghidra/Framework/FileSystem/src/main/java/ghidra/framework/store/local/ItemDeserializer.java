@@ -22,8 +22,7 @@ import ghidra.util.exception.IOCancelledException;
 import ghidra.util.task.TaskMonitor;
 
 import java.io.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.*;
 
 /**
  * <code>ItemDeserializer</code> facilitates the reading of a compressed data stream
@@ -40,6 +39,7 @@ public class ItemDeserializer {
 
 	private static final long MAGIC_NUMBER = ItemSerializer.MAGIC_NUMBER;
 	private static final int FORMAT_VERSION = ItemSerializer.FORMAT_VERSION;
+	private static final int INDEXED_FORMAT_VERSION = ItemSerializer.INDEXED_FORMAT_VERSION;
 	private static final String ZIP_ENTRY_NAME = ItemSerializer.ZIP_ENTRY_NAME;
 
 	private final static int IO_BUFFER_SIZE = ItemSerializer.IO_BUFFER_SIZE;
@@ -49,6 +49,7 @@ public class ItemDeserializer {
 	private String contentType;
 	private int fileType;
 	private long length;
+	private boolean indexed;
 
 	private boolean saved = false;
 
@@ -73,9 +74,11 @@ public class ItemDeserializer {
 			if (objIn.readLong() != MAGIC_NUMBER) {
 				throw new IOException("Invalid data");
 			}
-			if (objIn.readInt() != FORMAT_VERSION) {
+			int formatVersion = objIn.readInt();
+			if (formatVersion != FORMAT_VERSION && formatVersion != INDEXED_FORMAT_VERSION) {
 				throw new IOException("Unsupported data format");
 			}
+			indexed = formatVersion == INDEXED_FORMAT_VERSION;
 
 			itemName = objIn.readUTF();
 			contentType = objIn.readUTF();
@@ -150,6 +153,14 @@ public class ItemDeserializer {
 		return length;
 	}
 
+	/**
+	 * Returns true if the packed content is stored in the indexed form
+	 * which may be read with an {@link IndexedItemReader}.
+	 */
+	public boolean isIndexed() {
+		return indexed;
+	}
+
 	/**
 	 * Save the item to the specified output stream.
 	 * This method may only be invoked once.
@@ -165,6 +176,11 @@ public class ItemDeserializer {
 		}
 		saved = true;
 
+		if (indexed) {
+			saveIndexedItem(out, monitor);
+			return;
+		}
+
 		ZipInputStream zipIn = new ZipInputStream(in);
 		ZipEntry entry = zipIn.getNextEntry();
 		if (entry == null || !ZIP_ENTRY_NAME.equals(entry.getName())) {
@@ -192,4 +208,50 @@ public class ItemDeserializer {
 
 	}
 
+	private void saveIndexedItem(OutputStream out, TaskMonitor monitor)
+			throws IOCancelledException, IOException {
+
+		DataInputStream dataIn = new DataInputStream(in);
+		int chunkSize = dataIn.readInt();
+		if (chunkSize <= 0) {
+			throw new IOException("Data error");
+		}
+		if (monitor != null) {
+			monitor.initialize(length);
+		}
+
+		byte[] chunk = new byte[chunkSize];
+		byte[] compressedChunk = new byte[chunkSize];
+		Inflater inflater = new Inflater();
+		try {
+			long len = length;
+			while (len > 0) {
+				if (monitor != null && monitor.isCancelled()) {
+					throw new IOCancelledException();
+				}
+				int chunkLength = (int) Math.min(chunkSize, len);
+				int compressedLength = dataIn.readInt();
+				if (compressedLength == ItemSerializer.RAW_CHUNK) {
+					dataIn.readFully(chunk, 0, chunkLength);
+				}
+				else if (compressedLength < 0 || compressedLength >= chunkLength) {
+					throw new IOException("Data error");
+				}
+				else {
+					dataIn.readFully(compressedChunk, 0, compressedLength);
+					IndexedItemReader.inflateChunk(inflater, compressedChunk, compressedLength,
+						chunk, chunkLength);
+				}
+				out.write(chunk, 0, chunkLength);
+				len -= chunkLength;
+				if (monitor != null) {
+					monitor.setProgress(length - len);
+				}
+			}
+		}
+		finally {
+			inflater.end();
+		}
+	}
+
 }
@@ -23,8 +23,7 @@ import ghidra.util.exception.IOCancelledException;
 import ghidra.util.task.TaskMonitor;
 
 import java.io.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.*;
 
 /**
  * <code>ItemSerializer</code> facilitates the compressing and writing of a data stream
@@ -36,6 +35,18 @@ import java.util.zip.ZipOutputStream;
  * <li>File type (int)</li>
  * <li>Data length</li>
  * </ul>
+ * The content may be stored as a single compressed stream, or in an indexed form where
+ * fixed-size chunks of the content are compressed individually so that any chunk may be
+ * read without decompressing the preceding content (see {@link IndexedItemReader}).
+ * The indexed form has the following layout following the meta-data:
+ * <pre>
+ *   int chunkSize
+ *   for each chunk: int length, followed by length bytes of deflated chunk data, or
+ *                   int {@value #RAW_CHUNK}, followed by the raw chunk data
+ *   long[] file offset of each chunk
+ *   long file offset of chunk offset table
+ *   long {@link #INDEX_MAGIC_NUMBER}
+ * </pre>
  */
 public class ItemSerializer {
 	private static final int MAGIC_NUMBER_POS = 6;
@@ -43,6 +54,10 @@ public class ItemSerializer {
 
 	static final long MAGIC_NUMBER = 0x2e30212634e92c20L;
 	static final int FORMAT_VERSION = 1;
+	static final int INDEXED_FORMAT_VERSION = 2;
+	static final long INDEX_MAGIC_NUMBER = 0x2e30212634e92c21L;
+	static final int RAW_CHUNK = -1;
+	static final int INDEX_TRAILER_SIZE = 16;
 	static final String ZIP_ENTRY_NAME = "FOLDER_ITEM";
 	static final int IO_BUFFER_SIZE = 32 * 1024;
 
@@ -69,15 +84,7 @@ public class ItemSerializer {
 		OutputStream out = new BufferedOutputStream(new FileOutputStream(packedFile));
 		boolean success = false;
 		try {
-			// Output header containing: original item name and content type
-			ObjectOutputStream objOut = new ObjectOutputStream(out);
-			objOut.writeLong(MAGIC_NUMBER);
-			objOut.writeInt(FORMAT_VERSION);
-			objOut.writeUTF(itemName);
-			objOut.writeUTF(contentType != null ? contentType : "");
-			objOut.writeInt(fileType);
-			objOut.writeLong(length);
-			objOut.flush();
+			writeHeader(out, FORMAT_VERSION, itemName, contentType, fileType, length);
 
 			// Output item content
 			ZipOutputStream zipOut = new ZipOutputStream(out);
@@ -129,6 +136,161 @@ public class ItemSerializer {
 		}
 	}
 
+	/**
+	 * Read data from the specified content stream and write to a packed file in the
+	 * indexed form, along with additional meta-data.  Each chunk of the content is
+	 * compressed individually so that it may be read directly with an
+	 * {@link IndexedItemReader}.
+	 * @param itemName item name
+	 * @param contentType content type
+	 * @param fileType file type
+	 * @param length content length to be read
+	 * @param chunkSize size of the individually compressed content chunks
+	 * @param content content input stream
+	 * @param packedFile output packed file to be created
+	 * @param monitor task monitor
+	 * @throws CancelledException
+	 * @throws IOException
+	 */
+	public static void outputIndexedItem(String itemName, String contentType, int fileType,
+			long length, int chunkSize, InputStream content, File packedFile, TaskMonitor monitor)
+			throws CancelledException, IOException {
+
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+		}
+		long chunkCount = (length + chunkSize - 1) / chunkSize;
+		if (chunkCount > Integer.MAX_VALUE) {
+			throw new IOException("Chunk size too small for content length");
+		}
+
+		CountingOutputStream out = new CountingOutputStream(
+			new BufferedOutputStream(new FileOutputStream(packedFile), IO_BUFFER_SIZE));
+		Deflater deflater = new Deflater();
+		boolean success = false;
+		try {
+			writeHeader(out, INDEXED_FORMAT_VERSION, itemName, contentType, fileType, length);
+
+			DataOutputStream dataOut = new DataOutputStream(out);
+			dataOut.writeInt(chunkSize);
+
+			if (monitor != null) {
+				monitor.initialize(length);
+			}
+
+			long[] chunkOffsets = new long[(int) chunkCount];
+			byte[] chunk = new byte[chunkSize];
+			byte[] compressedChunk = new byte[chunkSize];
+			long lengthWritten = 0;
+			for (int i = 0; i < chunkOffsets.length; i++) {
+				if (monitor != null) {
+					monitor.checkCanceled();
+				}
+				int chunkLength = (int) Math.min(chunkSize, length - lengthWritten);
+				readFully(content, chunk, chunkLength);
+
+				chunkOffsets[i] = out.getCount();
+				deflater.reset();
+				deflater.setInput(chunk, 0, chunkLength);
+				deflater.finish();
+				int compressedLength = deflater.deflate(compressedChunk);
+				if (deflater.finished() && compressedLength < chunkLength) {
+					dataOut.writeInt(compressedLength);
+					dataOut.write(compressedChunk, 0, compressedLength);
+				}
+				else {
+					dataOut.writeInt(RAW_CHUNK);
+					dataOut.write(chunk, 0, chunkLength);
+				}
+
+				lengthWritten += chunkLength;
+				if (monitor != null) {
+					monitor.setProgress(lengthWritten);
+				}
+			}
+
+			if (content.read() >= 0) {
+				throw new IOException("Did not write all content - content exceeds length " +
+					length + ".\n\tItem: " + itemName + " in " + "packed file: " +
+					packedFile.getAbsolutePath());
+			}
+
+			long indexOffset = out.getCount();
+			for (long chunkOffset : chunkOffsets) {
+				dataOut.writeLong(chunkOffset);
+			}
+			dataOut.writeLong(indexOffset);
+			dataOut.writeLong(INDEX_MAGIC_NUMBER);
+			dataOut.flush();
+			success = true;
+		}
+		finally {
+			deflater.end();
+			try {
+				out.close();
+				if (!success) {
+					packedFile.delete();
+				}
+			}
+			catch (IOException e) {
+				// we tried
+			}
+		}
+	}
+
+	private static void writeHeader(OutputStream out, int formatVersion, String itemName,
+			String contentType, int fileType, long length) throws IOException {
+		// Output header containing: original item name and content type
+		ObjectOutputStream objOut = new ObjectOutputStream(out);
+		objOut.writeLong(MAGIC_NUMBER);
+		objOut.writeInt(formatVersion);
+		objOut.writeUTF(itemName);
+		objOut.writeUTF(contentType != null ? contentType : "");
+		objOut.writeInt(fileType);
+		objOut.writeLong(length);
+		objOut.flush();
+	}
+
+	private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+		int total = 0;
+		while (total < length) {
+			int cnt = in.read(buffer, total, length - total);
+			if (cnt < 0) {
+				throw new EOFException("Content ended before expected length");
+			}
+			total += cnt;
+		}
+	}
+
+	/**
+	 * <code>CountingOutputStream</code> tracks the number of bytes written so that
+	 * chunk file offsets may be recorded.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			++count;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
 	/**
 	 * A simple utility method to determine if the given file is a packed file as created by 
 	 * this class. 
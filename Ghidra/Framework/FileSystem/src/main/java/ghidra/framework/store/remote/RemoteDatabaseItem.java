@@ -21,7 +21,9 @@ import db.buffers.*;
 import ghidra.framework.client.RepositoryAdapter;
 import ghidra.framework.remote.RepositoryItem;
 import ghidra.framework.store.DatabaseItem;
+import ghidra.framework.store.Version;
 import ghidra.framework.store.local.ItemSerializer;
+import ghidra.util.Msg;
 import ghidra.util.exception.CancelledException;
 import ghidra.util.task.TaskMonitor;
 
@@ -58,17 +60,71 @@ public class RemoteDatabaseItem extends RemoteFolderItem implements DatabaseItem
 
 	@Override
 	public ManagedBufferFileAdapter open(int version, int minChangeDataVer) throws IOException {
-		return repository.openDatabase(parentPath, itemName, version, minChangeDataVer);
+		return openVersion(version, minChangeDataVer);
 	}
 
 	@Override
 	public ManagedBufferFileAdapter open(int version) throws IOException {
-		return repository.openDatabase(parentPath, itemName, version, -1);
+		return openVersion(version, -1);
 	}
 
 	@Override
 	public ManagedBufferFileAdapter open() throws IOException {
-		return repository.openDatabase(parentPath, itemName, LATEST_VERSION, -1);
+		return openVersion(LATEST_VERSION, -1);
+	}
+
+	/**
+	 * Open a read-only version of this database item.  When the {@link VersionedBufferCache}
+	 * is enabled the specific version to be opened is first determined so that the buffers
+	 * of that version may be retained within, and reused from, the local cache.
+	 * @param version database version or {@link #LATEST_VERSION}
+	 * @param minChangeDataVer minimum change data version or -1 if not required
+	 * @return buffer file adapter
+	 * @throws IOException if an IO error occurs
+	 */
+	private ManagedBufferFileAdapter openVersion(int version, int minChangeDataVer)
+			throws IOException {
+		if (!VersionedBufferCache.isEnabled()) {
+			return repository.openDatabase(parentPath, itemName, version, minChangeDataVer);
+		}
+		RepositoryItem item = repository.getItem(parentPath, itemName);
+		Version[] versions = repository.getVersions(parentPath, itemName);
+		Version ver = findVersion(versions, version);
+		if (item == null || item.getFileID() == null || ver == null) {
+			return repository.openDatabase(parentPath, itemName, version, minChangeDataVer);
+		}
+		ManagedBufferFileAdapter bf = repository.openDatabase(parentPath, itemName,
+			ver.getVersion(), minChangeDataVer);
+		String key = repository.getServerInfo() + "/" + repository.getName() + "/" +
+			item.getFileID() + "/" + ver.getVersion() + "/" + ver.getCreateTime();
+		try {
+			return VersionedBufferCache.getCache().getCachedBufferFile(bf, key);
+		}
+		catch (IOException e) {
+			Msg.warn(this, "Versioned buffer cache not used: " + e.getMessage());
+			return bf;
+		}
+	}
+
+	private static Version findVersion(Version[] versions, int version) {
+		if (versions == null || versions.length == 0) {
+			return null;
+		}
+		if (version == LATEST_VERSION) {
+			Version latest = versions[0];
+			for (Version v : versions) {
+				if (v.getVersion() > latest.getVersion()) {
+					latest = v;
+				}
+			}
+			return latest;
+		}
+		for (Version v : versions) {
+			if (v.getVersion() == version) {
+				return v;
+			}
+		}
+		return null;
 	}
 
 	@Override
@@ -99,7 +155,7 @@ public class RemoteDatabaseItem extends RemoteFolderItem implements DatabaseItem
 	public void output(File outputFile, int version, TaskMonitor monitor)
 			throws IOException, CancelledException {
 
-		BufferFile bf = repository.openDatabase(parentPath, itemName, version, -1);
+		BufferFile bf = openVersion(version, -1);
 		try {
 			File tmpFile = File.createTempFile("ghidra", LocalBufferFile.TEMP_FILE_EXT);
 			tmpFile.delete();
@@ -0,0 +1,263 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.framework.store.db;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import db.*;
+import db.buffers.*;
+import ghidra.framework.store.db.PackedDatabase.PackedBlockReader;
+import ghidra.framework.store.local.IndexedItemReader;
+import ghidra.framework.store.local.ItemDeserializer;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * Packs a database in the indexed form (see {@link PackedDatabase#INDEXED_PACKING_PROPERTY}),
+ * opens it without unpacking, and checks that its records and buffers are the same as those
+ * of the original database.
+ */
+public class PackedDatabaseTest {
+
+	private static final String CONTENT_TYPE = "Test";
+	private static final String TABLE_NAME = "Records";
+	private static final int RECORD_COUNT = 3000;
+	private static final int LARGE_BUFFER_LENGTH = 100_000;
+
+	// DBParms buffer 0: node type, data length and version, then 4-byte parameters
+	private static final int DATABASE_ID_OFFSET = 6 + 4;
+	private static final int DATABASE_ID_END = DATABASE_ID_OFFSET + 8;
+
+	private static final Schema SCHEMA = new Schema(0, "Key",
+		new Class[] { StringField.class, IntField.class, BinaryField.class },
+		new String[] { "Name", "Value", "Bytes" });
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private String savedIndexedProperty;
+	private File dbFile;
+	private int largeBufferId;
+
+	@Before
+	public void setUp() throws Exception {
+		savedIndexedProperty = System.getProperty(PackedDatabase.INDEXED_PACKING_PROPERTY);
+		dbFile = new File(tempFolder.getRoot(), "original.gbf");
+		DBHandle dbh = createDatabase();
+		try {
+			dbh.saveAs(dbFile, false, TaskMonitor.DUMMY);
+		}
+		finally {
+			dbh.close();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		if (savedIndexedProperty != null) {
+			System.setProperty(PackedDatabase.INDEXED_PACKING_PROPERTY, savedIndexedProperty);
+		}
+		else {
+			System.clearProperty(PackedDatabase.INDEXED_PACKING_PROPERTY);
+		}
+	}
+
+	@Test
+	public void testIndexedPackedRecords() throws Exception {
+		File packedFile = pack(true);
+		assertTrue(isIndexed(packedFile));
+
+		PackedDatabase pdb = PackedDatabase.getPackedDatabase(packedFile, true, TaskMonitor.DUMMY);
+		DBHandle packed = pdb.open(TaskMonitor.DUMMY);
+		DBHandle original = new DBHandle(new LocalBufferFile(dbFile, true));
+		try {
+			assertFalse(packed.canUpdate());
+			assertSameRecords(original, packed);
+		}
+		finally {
+			original.close();
+			packed.close();
+		}
+	}
+
+	@Test
+	public void testIndexedPackedBuffers() throws Exception {
+		File packedFile = pack(true);
+
+		LocalBufferFile original = new LocalBufferFile(dbFile, true);
+		BlockReaderBufferFile packed =
+			new BlockReaderBufferFile(new PackedBlockReader(new IndexedItemReader(packedFile)));
+		try {
+			assertEquals(original.getBufferSize(), packed.getBufferSize());
+			assertEquals(original.getIndexCount(), packed.getIndexCount());
+			assertArrayEquals(original.getFreeIndexes(), packed.getFreeIndexes());
+			String[] parameterNames = original.getParameterNames();
+			Arrays.sort(parameterNames);
+			String[] packedParameterNames = packed.getParameterNames();
+			Arrays.sort(packedParameterNames);
+			assertArrayEquals(parameterNames, packedParameterNames);
+			for (String name : parameterNames) {
+				assertEquals(name, original.getParameter(name), packed.getParameter(name));
+			}
+
+			int bufferSize = original.getBufferSize();
+			DataBuffer originalBuf = new DataBuffer();
+			DataBuffer packedBuf = new DataBuffer();
+			byte[] originalData = new byte[bufferSize];
+			byte[] packedData = new byte[bufferSize];
+			for (int i = 0; i < original.getIndexCount(); i++) {
+				original.get(originalBuf, i);
+				packed.get(packedBuf, i);
+				assertEquals("buffer " + i, originalBuf.isEmpty(), packedBuf.isEmpty());
+				if (originalBuf.isEmpty()) {
+					continue;
+				}
+				assertEquals("buffer " + i, originalBuf.getId(), packedBuf.getId());
+				originalBuf.get(0, originalData);
+				packedBuf.get(0, packedData);
+				if (i == 0) {
+					// packing saves a copy with a new database ID (DBParms parameters 1 and 2)
+					Arrays.fill(originalData, DATABASE_ID_OFFSET, DATABASE_ID_END, (byte) 0);
+					Arrays.fill(packedData, DATABASE_ID_OFFSET, DATABASE_ID_END, (byte) 0);
+				}
+				assertArrayEquals("buffer " + i, originalData, packedData);
+			}
+		}
+		finally {
+			original.close();
+			packed.close();
+		}
+	}
+
+	@Test
+	public void testIndexedPackedUpdate() throws Exception {
+		File packedFile = pack(true);
+
+		// opening for update unpacks the indexed file sequentially
+		PackedDatabase pdb = PackedDatabase.getPackedDatabase(packedFile, true, TaskMonitor.DUMMY);
+		DBHandle packed = pdb.openForUpdate(TaskMonitor.DUMMY);
+		DBHandle original = new DBHandle(new LocalBufferFile(dbFile, true));
+		try {
+			assertTrue(packed.canUpdate());
+			assertSameRecords(original, packed);
+		}
+		finally {
+			original.close();
+			packed.close();
+		}
+	}
+
+	@Test
+	public void testDefaultPacking() throws Exception {
+		File packedFile = pack(false);
+		assertFalse(isIndexed(packedFile));
+
+		PackedDatabase pdb = PackedDatabase.getPackedDatabase(packedFile, true, TaskMonitor.DUMMY);
+		DBHandle packed = pdb.open(TaskMonitor.DUMMY);
+		DBHandle original = new DBHandle(new LocalBufferFile(dbFile, true));
+		try {
+			assertSameRecords(original, packed);
+		}
+		finally {
+			original.close();
+			packed.close();
+		}
+	}
+
+	private DBHandle createDatabase() throws IOException {
+		DBHandle dbh = new DBHandle();
+		long txId = dbh.startTransaction();
+		Table table = dbh.createTable(TABLE_NAME, SCHEMA, new int[] { 1 });
+		Random random = new Random(1);
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			Record rec = SCHEMA.createRecord(i * 3);
+			rec.setString(0, "record" + random.nextInt(1000));
+			rec.setIntValue(1, random.nextInt());
+			byte[] bytes = new byte[random.nextInt(200)];
+			random.nextBytes(bytes);
+			rec.setBinaryData(2, bytes);
+			table.putRecord(rec);
+		}
+		// deleted records leave free buffers
+		for (int i = 0; i < RECORD_COUNT; i += 4) {
+			table.deleteRecord(i * 3);
+		}
+
+		DBBuffer buffer = dbh.createBuffer(LARGE_BUFFER_LENGTH);
+		byte[] bytes = new byte[LARGE_BUFFER_LENGTH];
+		random.nextBytes(bytes);
+		buffer.put(0, bytes);
+		largeBufferId = buffer.getId();
+
+		dbh.endTransaction(txId, true);
+		return dbh;
+	}
+
+	private File pack(boolean indexed) throws Exception {
+		System.setProperty(PackedDatabase.INDEXED_PACKING_PROPERTY, Boolean.toString(indexed));
+		File packedFile = new File(tempFolder.getRoot(), indexed ? "indexed.gzf" : "default.gzf");
+		DBHandle dbh = new DBHandle(new LocalBufferFile(dbFile, true));
+		try {
+			PackedDatabase.packDatabase(dbh, "test", CONTENT_TYPE, packedFile, TaskMonitor.DUMMY);
+		}
+		finally {
+			dbh.close();
+		}
+		return packedFile;
+	}
+
+	private static boolean isIndexed(File packedFile) throws IOException {
+		ItemDeserializer itemDeserializer = new ItemDeserializer(packedFile);
+		try {
+			assertEquals(CONTENT_TYPE, itemDeserializer.getContentType());
+			return itemDeserializer.isIndexed();
+		}
+		finally {
+			itemDeserializer.dispose();
+		}
+	}
+
+	private void assertSameRecords(DBHandle expected, DBHandle actual) throws IOException {
+		assertEquals(expected.getTableCount(), actual.getTableCount());
+		Table expectedTable = expected.getTable(TABLE_NAME);
+		Table actualTable = actual.getTable(TABLE_NAME);
+		assertEquals(expectedTable.getRecordCount(), actualTable.getRecordCount());
+		RecordIterator expectedIt = expectedTable.iterator();
+		RecordIterator actualIt = actualTable.iterator();
+		while (expectedIt.hasNext()) {
+			assertTrue(actualIt.hasNext());
+			assertEquals(expectedIt.next(), actualIt.next());
+		}
+		assertFalse(actualIt.hasNext());
+
+		// the secondary index is read through its own buffers
+		Field value = expectedTable.getRecord(3).getFieldValue(1);
+		assertArrayEquals(expectedTable.findRecords(value, 1),
+			actualTable.findRecords(value, 1));
+
+		byte[] expectedBytes = new byte[LARGE_BUFFER_LENGTH];
+		byte[] actualBytes = new byte[LARGE_BUFFER_LENGTH];
+		expected.getBuffer(largeBufferId).get(0, expectedBytes);
+		actual.getBuffer(largeBufferId).get(0, actualBytes);
+		assertArrayEquals(expectedBytes, actualBytes);
+	}
+}
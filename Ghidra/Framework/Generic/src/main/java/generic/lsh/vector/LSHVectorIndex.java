@@ -0,0 +1,250 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package generic.lsh.vector;
+
+import java.util.*;
+
+import generic.concurrent.*;
+import generic.lsh.Partition;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * An immutable locality sensitive hash index over an array of {@link LSHVector}s, which are
+ * identified by their position (id) within the array.
+ * <p>
+ * Each of the L hash tables maps a k-bit signature (see {@link Partition}) to the ids of the
+ * vectors having that signature.  A table is stored as a single sorted <code>long[]</code> of
+ * <code>(signature &lt;&lt; 32) | id</code> postings, so that no per-vector or per-bucket
+ * objects are retained.  Signatures are computed in parallel when the index is built, and
+ * lookups may be performed concurrently.
+ */
+public class LSHVectorIndex {
+
+	public static final String THREAD_POOL_NAME = "LSH Vector Index";
+
+	// random seed used to generate partition identities
+	private static final long SEED = 23;
+	private static final int CHUNK_SIZE = 1024;
+
+	private final int k;
+	private final int L;
+	private final int[][] partitionIdentities;
+	private final long[][] postings;
+	private final int size;
+
+	/**
+	 * Build an index over the specified vectors.
+	 * @param k number of bits in each signature
+	 * @param L number of hash tables
+	 * @param vectors vectors to be indexed, where each vector's id is its array index (null
+	 * elements are not indexed)
+	 * @param monitor task monitor
+	 * @throws CancelledException if the monitor is cancelled
+	 */
+	public LSHVectorIndex(int k, int L, LSHVector[] vectors, TaskMonitor monitor)
+			throws CancelledException {
+		this.k = k;
+		this.L = L;
+		this.size = vectors.length;
+		this.partitionIdentities = new int[L][];
+		Random random = new Random(SEED);
+		for (int ii = 0; ii < L; ++ii) {
+			partitionIdentities[ii] = new int[k];
+			for (int jj = 0; jj < k; ++jj) {
+				partitionIdentities[ii][jj] = random.nextInt();
+			}
+		}
+
+		int[] signatures = computeSignatures(vectors, monitor);
+
+		int count = 0;
+		for (LSHVector vector : vectors) {
+			if (vector != null) {
+				++count;
+			}
+		}
+		postings = new long[L][count];
+		for (int ii = 0; ii < L; ++ii) {
+			monitor.checkCanceled();
+			long[] table = postings[ii];
+			int n = 0;
+			for (int id = 0; id < vectors.length; ++id) {
+				if (vectors[id] != null) {
+					table[n++] = toPosting(signatures[id * L + ii], id);
+				}
+			}
+			Arrays.parallelSort(table);
+		}
+	}
+
+	/**
+	 * @return the number of bits in each signature
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the number of hash tables
+	 */
+	public int getL() {
+		return L;
+	}
+
+	/**
+	 * @return the length of the array of vectors which was indexed
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Compute the L signatures of a vector
+	 * @param vector the vector
+	 * @return array of L signatures
+	 */
+	public int[] getSignatures(LSHVector vector) {
+		int[] result = new int[L];
+		getSignatures(vector, result, 0);
+		return result;
+	}
+
+	/**
+	 * Find all indexed vectors which share at least one signature with the specified vector.
+	 * @param vector the vector to look up
+	 * @return the sorted, unique ids of the candidate neighbors
+	 */
+	public int[] lookup(LSHVector vector) {
+		int[] signatures = getSignatures(vector);
+		int[] ids = new int[16];
+		int count = 0;
+		for (int ii = 0; ii < L; ++ii) {
+			long[] table = postings[ii];
+			int index = findFirst(table, signatures[ii]);
+			for (; index < table.length && getSignature(table[index]) == signatures[ii]; ++index) {
+				if (count == ids.length) {
+					ids = Arrays.copyOf(ids, count * 2);
+				}
+				ids[count++] = getId(table[index]);
+			}
+		}
+		if (count == 0) {
+			return new int[0];
+		}
+		Arrays.sort(ids, 0, count);
+		int unique = 1;
+		for (int ii = 1; ii < count; ++ii) {
+			if (ids[ii] != ids[unique - 1]) {
+				ids[unique++] = ids[ii];
+			}
+		}
+		return Arrays.copyOf(ids, unique);
+	}
+
+	private int[] computeSignatures(LSHVector[] vectors, TaskMonitor monitor)
+			throws CancelledException {
+		int[] signatures = new int[vectors.length * L];
+
+		QCallback<Integer, Integer> callback = new QCallback<Integer, Integer>() {
+			@Override
+			public Integer process(Integer start, TaskMonitor taskMonitor)
+					throws CancelledException {
+				int end = Math.min(start + CHUNK_SIZE, vectors.length);
+				for (int id = start; id < end; ++id) {
+					taskMonitor.checkCanceled();
+					if (vectors[id] != null) {
+						getSignatures(vectors[id], signatures, id * L);
+					}
+				}
+				return start;
+			}
+		};
+
+		// @formatter:off
+		ConcurrentQ<Integer, Integer> queue = new ConcurrentQBuilder<Integer, Integer>()
+			.setThreadPool(GThreadPool.getSharedThreadPool(THREAD_POOL_NAME))
+			.setMonitor(monitor)
+			.build(callback);
+		// @formatter:on
+
+		for (int start = 0; start < vectors.length; start += CHUNK_SIZE) {
+			queue.add(start);
+		}
+		try {
+			queue.waitUntilDone();
+		}
+		catch (CancelledException e) {
+			throw e;
+		}
+		catch (InterruptedException e) {
+			throw new CancelledException();
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		finally {
+			queue.dispose();
+		}
+		monitor.checkCanceled();
+		return signatures;
+	}
+
+	private void getSignatures(LSHVector vector, int[] result, int offset) {
+		if (vector instanceof LSHCosineVectorAccum) {
+			((LSHCosineVectorAccum) vector).doFinalize();
+		}
+		HashEntry[] entries = vector.getEntries();
+		for (int ii = 0; ii < L; ++ii) {
+			result[offset + ii] = Partition.hash(partitionIdentities[ii], entries);
+		}
+	}
+
+	private static long toPosting(int signature, int id) {
+		return ((long) signature << 32) | (id & 0xffffffffL);
+	}
+
+	private static int getSignature(long posting) {
+		return (int) (posting >> 32);
+	}
+
+	private static int getId(long posting) {
+		return (int) posting;
+	}
+
+	/**
+	 * Find the index of the first posting with the specified signature
+	 * @param table sorted postings
+	 * @param signature signature
+	 * @return index of the first posting whose signature is greater than or equal to the
+	 * specified signature (table length if none)
+	 */
+	private static int findFirst(long[] table, int signature) {
+		long key = toPosting(signature, 0);
+		int low = 0;
+		int high = table.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (table[mid] < key) {
+				low = mid + 1;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+}
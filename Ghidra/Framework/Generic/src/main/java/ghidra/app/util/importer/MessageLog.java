@@ -23,7 +23,8 @@ import ghidra.util.exception.AssertException;
  * A maximum message count size constraint can be set to clip
  * messages after a certain number, but still keep incrementing
  * a running total.
- *
+ * <p>
+ * Thread-safe, so that analyzers running concurrently can share a log.
  */
 public class MessageLog {
 	/**
@@ -58,10 +59,22 @@ public class MessageLog {
 	 * @param log the log to copy from
 	 */
 	public void copyFrom(MessageLog log) {
-		this.buffer = new StringBuffer(log.buffer);
-		this.maxSize = log.maxSize;
-		this.count = log.count;
-		this.pos = log.pos;
+		StringBuffer logBuffer;
+		int logMaxSize;
+		int logCount;
+		int logPos;
+		synchronized (log) {
+			logBuffer = new StringBuffer(log.buffer);
+			logMaxSize = log.maxSize;
+			logCount = log.count;
+			logPos = log.pos;
+		}
+		synchronized (this) {
+			this.buffer = logBuffer;
+			this.maxSize = logMaxSize;
+			this.count = logCount;
+			this.pos = logPos;
+		}
 	}
 
 	/**
@@ -109,7 +122,7 @@ public class MessageLog {
 	 * Returns the message count.
 	 * @return the message count
 	 */
-	public int getMsgCount() {
+	public synchronized int getMsgCount() {
 		return count;
 	}
 
@@ -117,7 +130,7 @@ public class MessageLog {
 	 * Clears all messages from this log
 	 * and resets the count.
 	 */
-	public void clear() {
+	public synchronized void clear() {
 		buffer = new StringBuffer();
 		count = 0;
 		pos = -1;
@@ -127,14 +140,14 @@ public class MessageLog {
 	 * Stores a status message that can be used elsewhere (i.e., populate warning dialogs)
 	 * @param status
 	 */
-	public void setStatus(String status) {
+	public synchronized void setStatus(String status) {
 		statusMsg = status;
 	}
 
 	/**
 	 * Clear status message
 	 */
-	public void clearStatus() {
+	public synchronized void clearStatus() {
 		statusMsg = "";
 	}
 
@@ -142,7 +155,7 @@ public class MessageLog {
 	 * Returns a stored status message
 	 * @return stored status message
 	 */
-	public String getStatus() {
+	public synchronized String getStatus() {
 		return statusMsg;
 	}
 
@@ -150,7 +163,7 @@ public class MessageLog {
 	 * @see java.lang.Object#toString()
 	 */
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		if (count > maxSize) {
 			if (pos > -1) {
 				buffer.delete(pos, buffer.length());
@@ -164,7 +177,7 @@ public class MessageLog {
 		return buffer.toString();
 	}
 
-	private void msg(String msg) {
+	private synchronized void msg(String msg) {
 		if (msg == null || msg.length() == 0) {//discard if null...
 			return;
 		}
@@ -0,0 +1,506 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.xml;
+
+import java.io.*;
+import java.util.*;
+
+import javax.xml.stream.*;
+
+import org.xml.sax.*;
+
+import generic.jar.ResourceFile;
+
+/**
+ * Constructs a new XML parser which reads elements on demand in the caller's thread
+ * using a StAX stream reader.  Unlike {@link ThreadedXmlPullParserImpl} there is no
+ * hand-off of elements between threads, element and attribute names are shared across
+ * elements, and the attributes of start elements are held in a compact array.
+ * <p>
+ * This parser does not support validation.
+ */
+class StreamingXmlPullParserImpl extends AbstractXmlPullParser {
+
+	private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY =
+		ThreadLocal.withInitial(StreamingXmlPullParserImpl::createInputFactory);
+
+	private static final String[] NO_ATTRIBUTES = new String[0];
+
+	private final String name;
+	private final InputStream input;
+	private final ErrorHandler errHandler;
+	private final XMLStreamReader reader;
+
+	private final HashMap<String, HashMap<String, String>> processingInstructions =
+		new HashMap<>();
+	private final HashMap<String, String> names = new HashMap<>();
+	private final StringBuilder textBuf = new StringBuilder();
+	private int level = -1;
+
+	private XmlElement nextElement;
+	private boolean done;
+	private boolean disposed;
+	private RuntimeException exception;
+
+	/**
+	 * Constructs a new parser using the specified XML file.
+	 *
+	 * @param file
+	 *            the input XML file
+	 * @param errHandler
+	 *            the XML error handler
+	 * @throws SAXException
+	 *             if an XML parse error occurs
+	 * @throws IOException
+	 *             if an i/o error occurs
+	 */
+	StreamingXmlPullParserImpl(ResourceFile file, ErrorHandler errHandler)
+			throws SAXException, IOException {
+		this(file.getParentFile(), file.getInputStream(), file.getName(), errHandler);
+	}
+
+	/**
+	 * Constructs a new parser using the specified input stream.  The stream will be closed
+	 * once it has been completely read or this parser is disposed.
+	 *
+	 * @param input
+	 *            the XML input stream
+	 * @param inputName
+	 *            the name of the input stream
+	 * @param errHandler
+	 *            the XML error handler
+	 * @throws SAXException
+	 *             if an XML parse error occurs
+	 */
+	StreamingXmlPullParserImpl(InputStream input, String inputName, ErrorHandler errHandler)
+			throws SAXException {
+		this(null, input, inputName, errHandler);
+	}
+
+	private StreamingXmlPullParserImpl(ResourceFile resolveDir, InputStream input,
+			String inputName, ErrorHandler errHandler) throws SAXException {
+		this.name = inputName;
+		this.input = input;
+		this.errHandler = errHandler;
+
+		XMLInputFactory factory = INPUT_FACTORY.get();
+		factory.setXMLResolver((publicId, systemId, baseURI, namespace) -> {
+			if (resolveDir == null) {
+				return null;
+			}
+			try {
+				return new ResourceFile(resolveDir, new File(systemId).getName()).getInputStream();
+			}
+			catch (IOException e) {
+				throw new XMLStreamException(e.getMessage(), e);
+			}
+		});
+		factory.setXMLReporter((message, errorType, relatedInformation, location) -> {
+			if (errHandler == null) {
+				return;
+			}
+			try {
+				errHandler.warning(location != null
+						? new SAXParseException(message, location.getPublicId(),
+							location.getSystemId(), location.getLineNumber(),
+							location.getColumnNumber())
+						: new SAXParseException(message, null));
+			}
+			catch (SAXException e) {
+				throw new XMLStreamException(e.getMessage(), e);
+			}
+		});
+		try {
+			reader = factory.createXMLStreamReader(input);
+		}
+		catch (XMLStreamException e) {
+			close();
+			throw getParseException(e);
+		}
+		finally {
+			// don't retain parser-specific handlers
+			factory.setXMLResolver(null);
+			factory.setXMLReporter(null);
+		}
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+		factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+		return factory;
+	}
+
+	private void checkForException() {
+		if (exception != null) {
+			throw exception;
+		}
+		if (disposed) {
+			throw new RuntimeException("Xml Parser was disposed!");
+		}
+	}
+
+	/**
+	 * Returns the value of the attribute of the processing instruction.
+	 * For example, <code>&lt;?program_dtd version="1"?&gt;</code>
+	 * @param piName the name of the processing instruction
+	 * @param attribute the name of the attribute
+	 * @return the value of the attribute of the processing instruction
+	 */
+	@Override
+	public String getProcessingInstruction(String piName, String attribute) {
+		hasNext(); // make sure we have read up to the first element
+		Map<String, String> map = processingInstructions.get(piName.toUpperCase());
+		if (map == null) {
+			return null;
+		}
+		return map.get(attribute.toUpperCase());
+	}
+
+	@Override
+	public boolean hasNext() {
+		checkForException();
+		if (nextElement == null && !done) {
+			nextElement = readNextElement();
+		}
+		return nextElement != null;
+	}
+
+	@Override
+	public XmlElement peek() {
+		if (hasNext()) {
+			return nextElement;
+		}
+		return null;
+	}
+
+	@Override
+	public XmlElement next() {
+		if (hasNext()) {
+			XmlElement elementToReturn = nextElement;
+			nextElement = null;
+			return elementToReturn;
+		}
+		return null;
+	}
+
+	/**
+	 * Disposes this XML parser. No more elements may be read after dispose is
+	 * called.
+	 */
+	@Override
+	public void dispose() {
+		disposed = true;
+		close();
+	}
+
+	private XmlElement readNextElement() {
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						return readStartElement();
+					case XMLStreamConstants.END_ELEMENT:
+						return readEndElement();
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						textBuf.append(reader.getTextCharacters(), reader.getTextStart(),
+							reader.getTextLength());
+						break;
+					case XMLStreamConstants.PROCESSING_INSTRUCTION:
+						processingInstruction(reader.getPITarget(), reader.getPIData());
+						break;
+					default:
+						break;
+				}
+			}
+		}
+		catch (XMLStreamException e) {
+			exception = new RuntimeException(getParseException(e));
+			close();
+			throw exception;
+		}
+		close();
+		return null;
+	}
+
+	private XmlElement readStartElement() {
+		++level;
+		// NOTE: must clear the string buffer
+		// because all white space between nested start tags
+		// will be appended to the buffer
+		textBuf.setLength(0);
+		String[] attributes = NO_ATTRIBUTES;
+		int count = reader.getAttributeCount();
+		if (count != 0) {
+			attributes = new String[count * 2];
+			for (int i = 0; i < count; i++) {
+				attributes[i * 2] = getName(reader.getAttributePrefix(i),
+					reader.getAttributeLocalName(i));
+				attributes[i * 2 + 1] = reader.getAttributeValue(i);
+			}
+		}
+		Location location = reader.getLocation();
+		return new StartElement(getName(reader.getPrefix(), reader.getLocalName()), level,
+			attributes, location.getColumnNumber(), location.getLineNumber());
+	}
+
+	private XmlElement readEndElement() {
+		String text = textBuf.length() == 0 ? "" : textBuf.toString();
+		textBuf.setLength(0);
+		Location location = reader.getLocation();
+		XmlElement element = new XmlElementImpl(false, true,
+			getName(reader.getPrefix(), reader.getLocalName()), level, null, text,
+			location.getColumnNumber(), location.getLineNumber());
+		--level;
+		return element;
+	}
+
+	/**
+	 * Get the shared instance of an element or attribute name
+	 * @param prefix name prefix, if any (only reported if the StAX implementation
+	 * ignores the namespace-aware setting)
+	 * @param localName local name
+	 * @return qualified name
+	 */
+	private String getName(String prefix, String localName) {
+		String qName = (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+		String sharedName = names.putIfAbsent(qName, qName);
+		return sharedName != null ? sharedName : qName;
+	}
+
+	private void processingInstruction(String target, String data) {
+		target = target.toUpperCase();
+		HashMap<String, String> map = processingInstructions.get(target);
+		if (map == null) {
+			map = new HashMap<>();
+			processingInstructions.put(target, map);
+		}
+		if (data == null) {
+			return;
+		}
+		StringTokenizer st = new StringTokenizer(data);
+		while (st.hasMoreTokens()) {
+			parseAttributeValue(map, st.nextToken());
+		}
+	}
+
+	private void parseAttributeValue(HashMap<String, String> map, String attrValuePair) {
+		int ix = attrValuePair.indexOf('=');
+		if (ix < 1 || ix == (attrValuePair.length() - 1)) {
+			return;
+		}
+		String attr = attrValuePair.substring(0, ix);
+		String value = attrValuePair.substring(++ix);
+		if (value.startsWith("\"") && value.endsWith("\"")) {
+			value = value.substring(1, value.length() - 1);
+		}
+		map.put(attr.toUpperCase(), value.toUpperCase());
+	}
+
+	/**
+	 * Convert a stream exception to the parse exception reported by a SAX parser, after
+	 * first passing it to the error handler.
+	 * @param e stream exception
+	 * @return parse exception
+	 */
+	private SAXException getParseException(XMLStreamException e) {
+		if (e.getNestedException() instanceof SAXException) {
+			return (SAXException) e.getNestedException();
+		}
+		Location location = e.getLocation();
+		SAXParseException parseException = location != null
+				? new SAXParseException(e.getMessage(), location.getPublicId(),
+					location.getSystemId(), location.getLineNumber(), location.getColumnNumber(),
+					e)
+				: new SAXParseException(e.getMessage(), null, e);
+		if (errHandler == null) {
+			return parseException;
+		}
+		try {
+			errHandler.fatalError(parseException);
+		}
+		catch (SAXException e1) {
+			return e1;
+		}
+		return parseException;
+	}
+
+	private void close() {
+		done = true;
+		try {
+			if (reader != null) {
+				reader.close();
+			}
+		}
+		catch (XMLStreamException e) {
+			// we tried
+		}
+		try {
+			input.close();
+		}
+		catch (IOException e) {
+			// we tried
+		}
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean isPullingContent() {
+		return false;
+	}
+
+	@Override
+	public void setPullingContent(boolean pullingContent) {
+		if (pullingContent) {
+			throw new RuntimeException("this impl can't inject content");
+		}
+	}
+
+	/**
+	 * <code>StartElement</code> is a start element whose attributes are stored as an
+	 * array of name/value pairs, which is faster to build and search than a map for the
+	 * small number of attributes elements typically have.
+	 */
+	private static class StartElement implements XmlElement {
+		private final String name;
+		private final int level;
+		private String[] attributes;
+		private final int columnNumber;
+		private final int lineNumber;
+
+		StartElement(String name, int level, String[] attributes, int columnNumber,
+				int lineNumber) {
+			this.name = name;
+			this.level = level;
+			this.attributes = attributes;
+			this.columnNumber = columnNumber;
+			this.lineNumber = lineNumber;
+		}
+
+		private int indexOf(String key) {
+			for (int i = 0; i < attributes.length; i += 2) {
+				if (attributes[i].equals(key)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public int getColumnNumber() {
+			return columnNumber;
+		}
+
+		@Override
+		public int getLineNumber() {
+			return lineNumber;
+		}
+
+		@Override
+		public boolean hasAttribute(String key) {
+			return indexOf(key) >= 0;
+		}
+
+		@Override
+		public String getAttribute(String key) {
+			int index = indexOf(key);
+			return index >= 0 ? attributes[index + 1] : null;
+		}
+
+		@Override
+		public LinkedHashMap<String, String> getAttributes() {
+			LinkedHashMap<String, String> map = new LinkedHashMap<>();
+			for (int i = 0; i < attributes.length; i += 2) {
+				map.put(attributes[i], attributes[i + 1]);
+			}
+			return map;
+		}
+
+		@Override
+		public void setAttribute(String key, String value) {
+			int index = indexOf(key);
+			if (index < 0) {
+				index = attributes.length;
+				attributes = Arrays.copyOf(attributes, index + 2);
+				attributes[index] = key;
+			}
+			attributes[index + 1] = value;
+		}
+
+		@Override
+		public int getLevel() {
+			return level;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String getText() {
+			return null;
+		}
+
+		@Override
+		public boolean isContent() {
+			return false;
+		}
+
+		@Override
+		public boolean isEnd() {
+			return false;
+		}
+
+		@Override
+		public boolean isStart() {
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append('<');
+			sb.append(name);
+			sb.append('(');
+			sb.append(level);
+			sb.append(')');
+			for (int i = 0; i < attributes.length; i += 2) {
+				sb.append(' ');
+				sb.append(attributes[i]);
+				sb.append("=\"");
+				sb.append(attributes[i + 1]);
+				sb.append('"');
+			}
+			sb.append('>');
+			sb.append(" @(");
+			sb.append(lineNumber);
+			sb.append(":");
+			sb.append(columnNumber);
+			sb.append(")");
+			return sb.toString();
+		}
+	}
+}
@@ -23,6 +23,11 @@ import java.io.*;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 
+/**
+ * Factory for XML pull parsers.  Non-validating parsers read elements on demand within the
+ * caller's thread (see {@link StreamingXmlPullParserImpl}), while validating parsers use a
+ * separate SAX parsing thread (see {@link ThreadedXmlPullParserImpl}).
+ */
 public class XmlPullParserFactory {
 	public static void setCreateTracingParsers(XmlTracer xmlTracer) {
 		throw new UnsupportedOperationException(
@@ -46,6 +51,9 @@ public class XmlPullParserFactory {
 	 */
 	public static XmlPullParser create(InputStream input, String inputName,
 			ErrorHandler errHandler, boolean validate) throws SAXException, IOException {
+		if (!validate) {
+			return new StreamingXmlPullParserImpl(input, inputName, errHandler);
+		}
 		return new ThreadedXmlPullParserImpl(input, inputName, errHandler, validate, 1000);
 	}
 
@@ -65,6 +73,9 @@ public class XmlPullParserFactory {
 	 */
 	public static XmlPullParser create(File file, ErrorHandler errHandler, boolean validate)
 			throws SAXException, IOException {
+		if (!validate) {
+			return new StreamingXmlPullParserImpl(new ResourceFile(file), errHandler);
+		}
 		return new ThreadedXmlPullParserImpl(file, errHandler, validate, 1000);
 	}
 
@@ -84,6 +95,9 @@ public class XmlPullParserFactory {
 	 */
 	public static XmlPullParser create(ResourceFile file, ErrorHandler errHandler, boolean validate)
 			throws SAXException, IOException {
+		if (!validate) {
+			return new StreamingXmlPullParserImpl(file, errHandler);
+		}
 		return new ThreadedXmlPullParserImpl(file, errHandler, validate, 1000);
 	}
 
@@ -105,6 +119,10 @@ public class XmlPullParserFactory {
 	 */
 	public static XmlPullParser create(String input, String inputName, ErrorHandler errHandler,
 			boolean validate) throws SAXException {
+		if (!validate) {
+			return new StreamingXmlPullParserImpl(new ByteArrayInputStream(input.getBytes()),
+				inputName, errHandler);
+		}
 		return new ThreadedXmlPullParserImpl(new ByteArrayInputStream(input.getBytes()), inputName,
 			errHandler, validate, 1000);
 	}
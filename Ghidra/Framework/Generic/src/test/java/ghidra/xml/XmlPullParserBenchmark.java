@@ -0,0 +1,131 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.*;
+
+/**
+ * Measures the time to read every element of a non-validating XML document with the
+ * {@link ThreadedXmlPullParserImpl} and the {@link StreamingXmlPullParserImpl}, and checks
+ * that both produce the same elements.  The document is generated with many small elements
+ * carrying a few attributes, like a compiled SLEIGH specification, unless a file is given.
+ * <p>
+ * Not run by the build (the class name does not end in Test), run it explicitly with
+ * <code>mvn test -Dtest=XmlPullParserBenchmark -DfailIfNoTests=false</code>.  Add
+ * <code>-Dxml.benchmark.file=&lt;file&gt;</code> to read an existing document, such as
+ * a .sla file, instead.
+ */
+public class XmlPullParserBenchmark {
+	private static final String FILE_PROPERTY = "xml.benchmark.file";
+	private static final int ELEMENT_COUNT = 500_000; // start elements
+	private static final int ITERATIONS = 3;
+
+	private static byte[] document;
+
+	@BeforeClass
+	public static void setUpClass() throws IOException {
+		String path = System.getProperty(FILE_PROPERTY);
+		document = path != null ? Files.readAllBytes(new File(path).toPath()) : generate();
+	}
+
+	@Test
+	public void testParsers() throws Exception {
+		long threadedHash = measure("threaded", false);
+		long streamingHash = measure("streaming", true);
+		assertEquals(threadedHash, streamingHash);
+	}
+
+	private long measure(String name, boolean streaming) throws Exception {
+		long best = Long.MAX_VALUE;
+		long hash = 0;
+		int count = 0;
+		// the first pass warms up the JIT
+		for (int i = 0; i <= ITERATIONS; i++) {
+			XmlPullParser parser = streaming
+					? new StreamingXmlPullParserImpl(new ByteArrayInputStream(document), name,
+						null)
+					: new ThreadedXmlPullParserImpl(new ByteArrayInputStream(document), name,
+						null, false, 1000);
+			long start = System.nanoTime();
+			hash = 0;
+			count = 0;
+			try {
+				while (parser.hasNext()) {
+					hash = 31 * hash + hash(parser.next());
+					++count;
+				}
+			}
+			finally {
+				parser.dispose();
+			}
+			long elapsed = System.nanoTime() - start;
+			if (i > 0) {
+				best = Math.min(best, elapsed);
+			}
+		}
+		System.out.println(String.format("%-10s %8.1f ms %10d elements", name, best / 1e6,
+			count));
+		return hash;
+	}
+
+	/**
+	 * Hashes what a consumer of the element would look at.
+	 */
+	private static long hash(XmlElement element) {
+		long hash = element.getName().hashCode() * 31L + element.getLevel();
+		if (element.isStart()) {
+			for (Map.Entry<String, String> entry : element.getAttributes().entrySet()) {
+				hash = 31 * hash + entry.getKey().hashCode();
+				hash = 31 * hash + entry.getValue().hashCode();
+			}
+		}
+		else if (element.getText() != null) {
+			hash = 31 * hash + element.getText().trim().hashCode();
+		}
+		return hash;
+	}
+
+	private static byte[] generate() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		buf.append("<sleigh version=\"3\" bigendian=\"false\">\n");
+		int count = 1;
+		for (int c = 0; count < ELEMENT_COUNT; c++) {
+			buf.append(" <constructor parent=\"0x").append(Integer.toHexString(c));
+			buf.append("\" first=\"").append(c % 7);
+			buf.append("\" length=\"").append(c % 15 + 1);
+			buf.append("\" line=\"").append(c).append("\">\n");
+			++count;
+			for (int o = 0; o < 4; o++) {
+				buf.append("  <oper id=\"0x").append(Integer.toHexString(c * 4 + o));
+				buf.append("\" name=\"op").append(o).append("\"/>\n");
+				++count;
+			}
+			buf.append("  <print piece=\"MOV\">text ").append(c).append("</print>\n");
+			buf.append(" </constructor>\n");
+			++count;
+		}
+		buf.append("</sleigh>\n");
+		return buf.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
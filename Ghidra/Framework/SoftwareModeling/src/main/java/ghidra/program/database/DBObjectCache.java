@@ -21,22 +21,34 @@ package ghidra.program.database;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import db.Record;
 import ghidra.program.model.address.KeyRange;
-import ghidra.util.datastruct.LongObjectHashtable;
 
 /**
  * Generic cache implementation for objects that extend DatabaseObject.
+ * <p>
+ * Lookups of valid objects do not synchronize on the cache: the weak references are held in a
+ * {@link ConcurrentHashMap} and the hard cache is a fixed-size ring buffer written without
+ * locking.  Objects which require a refresh, and all cache modifications other than
+ * {@link #put(DatabaseObject)}, are still serialized on the cache instance.
  */
 public class DBObjectCache<T extends DatabaseObject> {
 
-	private LongObjectHashtable<KeyedSoftReference> hashTable;
+	private ConcurrentHashMap<Long, KeyedSoftReference> hashTable;
 	private ReferenceQueue<T> refQueue;
-	private LinkedList<T> hardCache;
-	private int hardCacheSize;
+	private volatile Object[] hardCache;
+	private final AtomicInteger hardCacheIndex = new AtomicInteger();
 	private volatile int invalidateCount;
 
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder reclaimedCount = new LongAdder();
+	private final LongAdder queueProcessingTime = new LongAdder();
+
 	/**
 	 * Constructs a new DBObjectCache with a given hard cache size.  The hard cache size is
 	 * the minimum number of objects to keep in the cache. Typically, the cache will contain
@@ -44,10 +56,9 @@ public class DBObjectCache<T extends DatabaseObject> {
 	 * @param hardCacheSize the minimum number of objects to keep in the cache.
 	 */
 	public DBObjectCache(int hardCacheSize) {
-		this.hardCacheSize = hardCacheSize;
-		hashTable = new LongObjectHashtable<KeyedSoftReference>();
+		hashTable = new ConcurrentHashMap<Long, KeyedSoftReference>();
 		refQueue = new ReferenceQueue<T>();
-		hardCache = new LinkedList<T>();
+		hardCache = new Object[Math.max(hardCacheSize, 0)];
 	}
 
 	/**
@@ -55,22 +66,8 @@ public class DBObjectCache<T extends DatabaseObject> {
 	 * @param key the key of the object to retrieve.
 	 * @return the cached object or null if the object with that key is not currently cached.
 	 */
-	public synchronized T get(long key) {
-		KeyedSoftReference ref = hashTable.get(key);
-		if (ref != null) {
-			T obj = ref.get();
-			if (obj == null) {
-				hashTable.remove(key);
-			}
-			else {
-				if (obj.checkIsValid()) {
-					addToHardCache(obj);
-					return obj;
-				}
-				hashTable.remove(key);
-			}
-		}
-		return null;
+	public T get(long key) {
+		return get(key, null);
 	}
 
 	/**
@@ -83,25 +80,46 @@ public class DBObjectCache<T extends DatabaseObject> {
 	 * used to refresh the associated object if found in cache
 	 * @return the cached object or null if the object with that key is not currently cached.
 	 */
-	public synchronized T get(Record objectRecord) {
-		long key = objectRecord.getKey();
+	public T get(Record objectRecord) {
+		return get(objectRecord.getKey(), objectRecord);
+	}
+
+	private T get(long key, Record objectRecord) {
 		KeyedSoftReference ref = hashTable.get(key);
 		if (ref != null) {
 			T obj = ref.get();
 			if (obj == null) {
-				hashTable.remove(key);
+				hashTable.remove(key, ref);
+			}
+			else if (!obj.isDeleted() && !obj.isInvalid()) {
+				hitCount.increment();
+				addToHardCache(obj);
+				return obj;
+			}
+			else if (checkIsValid(obj, objectRecord)) {
+				hitCount.increment();
+				addToHardCache(obj);
+				return obj;
 			}
 			else {
-				if (obj.checkIsValid(objectRecord)) {
-					addToHardCache(obj);
-					return obj;
-				}
-				hashTable.remove(key);
+				hashTable.remove(key, ref);
 			}
 		}
+		missCount.increment();
 		return null;
 	}
 
+	/**
+	 * Validate (i.e., refresh) an object whose cached state is no longer valid.  Refreshes are
+	 * serialized to avoid concurrent refreshes of the same object.
+	 * @param obj cached object
+	 * @param objectRecord record to be used for the refresh or null
+	 * @return true if the object is still valid
+	 */
+	private synchronized boolean checkIsValid(T obj, Record objectRecord) {
+		return obj.checkIsValid(objectRecord);
+	}
+
 	/**
 	 * Returns the number of objects currently in the cache.
 	 */
@@ -114,10 +132,16 @@ public class DBObjectCache<T extends DatabaseObject> {
 	 * @param size the minimum number of objects to keep in the cache.
 	 */
 	public synchronized void setHardCacheSize(int size) {
-		while (hardCache.size() > size) {
-			hardCache.removeLast();
+		Object[] oldCache = hardCache;
+		Object[] newCache = new Object[Math.max(size, 0)];
+		// retain the most recently added objects
+		int next = hardCacheIndex.get();
+		int count = Math.min(oldCache.length, newCache.length);
+		for (int i = 1; i <= count; i++) {
+			newCache[newCache.length - i] = oldCache[Math.floorMod(next - i, oldCache.length)];
 		}
-		this.hardCacheSize = size;
+		hardCacheIndex.set(0);
+		hardCache = newCache;
 	}
 
 	/**
@@ -138,9 +162,7 @@ public class DBObjectCache<T extends DatabaseObject> {
 	public synchronized ArrayList<T> getCachedObjects() {
 		ArrayList<T> list = new ArrayList<T>();
 		processQueue();
-		long[] keys = hashTable.getKeys();
-		for (int i = 0; i < keys.length; i++) {
-			KeyedSoftReference ref = hashTable.get(keys[i]);
+		for (KeyedSoftReference ref : hashTable.values()) {
 			T obj = ref.get();
 			if (obj != null) {
 				list.add(obj);
@@ -155,7 +177,7 @@ public class DBObjectCache<T extends DatabaseObject> {
 	 * @param keyRanges key ranges to delete
 	 */
 	public synchronized void delete(List<KeyRange> keyRanges) {
-		hardCache.clear();
+		clearHardCache();
 		processQueue();
 		long rangesSize = getKeyRangesSize(keyRanges); // < 0 too many ranges
 		if (rangesSize < 0 || rangesSize > hashTable.size()) {
@@ -194,10 +216,11 @@ public class DBObjectCache<T extends DatabaseObject> {
 	 * @param keyRanges key ranges to delete
 	 */
 	private void deleteLargeKeyRanges(List<KeyRange> keyRanges) {
-		long[] keys = hashTable.getKeys();
-		for (int i = 0; i < keys.length; i++) {
-			if (keyRangesContain(keyRanges, keys[i])) {
-				KeyedSoftReference ref = hashTable.remove(keys[i]);
+		Iterator<KeyedSoftReference> it = hashTable.values().iterator();
+		while (it.hasNext()) {
+			KeyedSoftReference ref = it.next();
+			if (keyRangesContain(keyRanges, ref.getKey())) {
+				it.remove();
 				DatabaseObject obj = ref.get();
 				if (obj != null) {
 					obj.setDeleted();
@@ -239,13 +262,11 @@ public class DBObjectCache<T extends DatabaseObject> {
 	 * that instance of the object.
 	 */
 	public synchronized void invalidate() {
-		hardCache.clear();
+		clearHardCache();
 		processQueue();
 		if (++invalidateCount <= 0) {
 			invalidateCount = 1;
-			long[] keys = hashTable.getKeys();
-			for (int i = 0; i < keys.length; i++) {
-				KeyedSoftReference ref = hashTable.get(keys[i]);
+			for (KeyedSoftReference ref : hashTable.values()) {
 				DatabaseObject obj = ref.get();
 				if (obj != null) {
 					obj.setInvalid();
@@ -275,10 +296,10 @@ public class DBObjectCache<T extends DatabaseObject> {
 			}
 		}
 		else {
-			long[] keys = hashTable.getKeys();
-			for (int i = 0; i < keys.length; i++) {
-				if (keys[i] >= startKey && keys[i] <= endKey) {
-					invalidate(keys[i]);
+			for (KeyedSoftReference ref : hashTable.values()) {
+				long key = ref.getKey();
+				if (key >= startKey && key <= endKey) {
+					invalidate(key);
 				}
 			}
 		}
@@ -316,33 +337,102 @@ public class DBObjectCache<T extends DatabaseObject> {
 		}
 	}
 
+	/**
+	 * Get the number of lookups which returned a cached object
+	 * @return hit count
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * Get the number of lookups which did not return a cached object
+	 * @return miss count
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Get the fraction of lookups which returned a cached object
+	 * @return hit rate between 0 and 1 (0 if there have been no lookups)
+	 */
+	public double getHitRate() {
+		long hits = hitCount.sum();
+		long total = hits + missCount.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Get the number of garbage collected objects whose entries have been removed from the
+	 * cache while processing the reference queue
+	 * @return reclaimed entry count
+	 */
+	public long getReclaimedCount() {
+		return reclaimedCount.sum();
+	}
+
+	/**
+	 * Get the total time spent processing the reference queue
+	 * @return time in nanoseconds
+	 */
+	public long getQueueProcessingTime() {
+		return queueProcessingTime.sum();
+	}
+
+	/**
+	 * Reset the hit, miss, reclaimed and queue processing statistics
+	 */
+	public void resetStatistics() {
+		hitCount.reset();
+		missCount.reset();
+		reclaimedCount.reset();
+		queueProcessingTime.reset();
+	}
+
+	/**
+	 * Add an object to the hard cache, replacing the least recently added object once the
+	 * cache is full.  Concurrent additions may occasionally overwrite each other, which only
+	 * affects how long an object is protected from garbage collection.
+	 * @param obj object to protect against garbage collection
+	 */
 	private void addToHardCache(T obj) {
-		hardCache.addLast(obj);
-		if (hardCache.size() > hardCacheSize) {
-			hardCache.removeFirst();
+		Object[] cache = hardCache;
+		if (cache.length == 0) {
+			return;
 		}
+		int index = hardCacheIndex.getAndIncrement();
+		cache[Math.floorMod(index, cache.length)] = obj;
+	}
+
+	private void clearHardCache() {
+		Arrays.fill(hardCache, null);
+		hardCacheIndex.set(0);
 	}
 
 	// we know the cast is safe--we put them in there
 	@SuppressWarnings("unchecked")
 	private void processQueue() {
-		KeyedSoftReference ref;
-		while ((ref = (KeyedSoftReference) refQueue.poll()) != null) {
-			long key = ref.getKey();
-			KeyedSoftReference oldValue = hashTable.remove(key);
-
-			if (oldValue != null && oldValue != ref) {
-				// we have put another item in the cache with the same key.  Further, we
-				// removed the item, but the garbage collector had not put the item on the
-				// reference queue until after we added a new reference to the cache.
-				// We want to keep the last value that was added, as it has not been deleted.
-				hashTable.put(key, oldValue);
+		KeyedSoftReference ref = (KeyedSoftReference) refQueue.poll();
+		if (ref == null) {
+			return;
+		}
+		long start = System.nanoTime();
+		int count = 0;
+		for (; ref != null; ref = (KeyedSoftReference) refQueue.poll()) {
+			// only remove the entry if it has not been replaced by another item with the
+			// same key which was put in the cache before the garbage collector put this
+			// item on the reference queue.
+			if (hashTable.remove(ref.getKey(), ref)) {
+				++count;
 			}
 		}
+		reclaimedCount.add(count);
+		queueProcessingTime.add(System.nanoTime() - start);
 	}
 
 	private class KeyedSoftReference extends WeakReference<T> {
-		private long key;
+		private volatile long key;
 
 		KeyedSoftReference(long key, T obj, ReferenceQueue<T> queue) {
 			super(obj, queue);
@@ -359,6 +449,7 @@ public class DBObjectCache<T extends DatabaseObject> {
 
 		KeyedSoftReference ref = hashTable.remove(oldKey);
 		if (ref != null) {
+			ref.key = newKey;
 			hashTable.put(newKey, ref);
 			T t = ref.get();
 			if (t != null) {
@@ -422,6 +422,12 @@ public class MemoryMapDB implements Memory, ManagerDB, LiveMemoryListener {
 				public int read() throws IOException {
 					return fillByte;
 				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					Arrays.fill(b, off, off + len, (byte) fillByte);
+					return len;
+				}
 			};
 		}
 		return createInitializedBlock(name, start, fillStream, size, monitor, overlay);
@@ -0,0 +1,1141 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.model.address;
+
+import java.util.*;
+
+/**
+ * Class for storing large sets of addresses with a small memory footprint.  Unlike
+ * {@link AddressSet}, which stores each range as a red-black tree node holding two
+ * {@link Address} objects, this implementation stores the ranges of each address space as a
+ * pair of sorted primitive <code>long</code> arrays of range start and end offsets.  Address
+ * objects are only created when the set is queried.
+ * <p>
+ * Adding ranges in ascending address order, and the bulk set operations between two
+ * <code>CompactAddressSet</code>s (see {@link #unionCompact(CompactAddressSet)},
+ * {@link #intersectCompact(CompactAddressSet)} and {@link #subtractCompact(CompactAddressSet)}),
+ * are linear.  Adding or deleting ranges in random order requires shifting array
+ * elements and should be avoided for very large sets.
+ * <p>
+ * As with {@link AddressSet}, iterators are not valid once the set has been modified.
+ */
+public class CompactAddressSet implements AddressSetView {
+
+	private List<RangeList> spaceLists = new ArrayList<>();
+	private long addressCount = 0;
+
+	/**
+	 * Create a new empty set.
+	 */
+	public CompactAddressSet() {
+	}
+
+	/**
+	 * Create a new set containing a single range.
+	 * @param start the start address of the range
+	 * @param end the end address of the range
+	 */
+	public CompactAddressSet(Address start, Address end) {
+		add(start, end);
+	}
+
+	/**
+	 * Create a new set containing the addresses of the given set.
+	 * @param set the set of addresses to be copied
+	 */
+	public CompactAddressSet(AddressSetView set) {
+		add(set);
+	}
+
+	/**
+	 * Adds the given address to this set.
+	 * @param address the address to add
+	 */
+	public final void add(Address address) {
+		add(address, address);
+	}
+
+	/**
+	 * Add an address range to this set.
+	 * @param range the range to add.
+	 */
+	public final void add(AddressRange range) {
+		if (range == null) {
+			return;
+		}
+		add(range.getMinAddress(), range.getMaxAddress());
+	}
+
+	/**
+	 * Adds the range to this set
+	 * @param start the start address of the range to add
+	 * @param end the end address of the range to add
+	 * @throws IllegalArgumentException if the start and end addresses are in different spaces
+	 */
+	public void add(Address start, Address end) {
+		checkValidRange(start, end);
+		RangeList list = getOrCreateRangeList(start.getAddressSpace());
+		addressCount += list.add(list.toKey(start.getOffset()), list.toKey(end.getOffset()));
+	}
+
+	/**
+	 * Add all addresses of the given set to this set.
+	 * @param set set of addresses to add.
+	 */
+	public final void add(AddressSetView set) {
+		if (set == null || set.isEmpty()) {
+			return;
+		}
+		if (set instanceof CompactAddressSet) {
+			CompactAddressSet union = unionCompact((CompactAddressSet) set);
+			spaceLists = union.spaceLists;
+			addressCount = union.addressCount;
+			return;
+		}
+		for (AddressRange range : set) {
+			add(range.getMinAddress(), range.getMaxAddress());
+		}
+	}
+
+	/**
+	 * Deletes an address range from this set.
+	 * @param range AddressRange to remove from this set
+	 */
+	public final void delete(AddressRange range) {
+		delete(range.getMinAddress(), range.getMaxAddress());
+	}
+
+	/**
+	 * Deletes a range of addresses from this set
+	 * @param start the starting address of the range to be removed
+	 * @param end the ending address of the range to be removed
+	 */
+	public final void delete(Address start, Address end) {
+		checkValidRange(start, end);
+		int index = findRangeList(start.getAddressSpace());
+		if (index < 0) {
+			return;
+		}
+		RangeList list = spaceLists.get(index);
+		addressCount -= list.delete(list.toKey(start.getOffset()), list.toKey(end.getOffset()));
+		if (list.size == 0) {
+			spaceLists.remove(index);
+		}
+	}
+
+	/**
+	 * Delete all addresses in the given set from this set.
+	 * @param set set of addresses to remove from this set.
+	 */
+	public final void delete(AddressSetView set) {
+		if (set == null || set.isEmpty() || isEmpty()) {
+			return;
+		}
+		if (set instanceof CompactAddressSet) {
+			CompactAddressSet difference = subtractCompact((CompactAddressSet) set);
+			spaceLists = difference.spaceLists;
+			addressCount = difference.addressCount;
+			return;
+		}
+		for (AddressRange range : set) {
+			delete(range.getMinAddress(), range.getMaxAddress());
+		}
+	}
+
+	/**
+	 * Removes all addresses from the set.
+	 */
+	public void clear() {
+		spaceLists = new ArrayList<>();
+		addressCount = 0;
+	}
+
+	/**
+	 * Release any unused array capacity held by this set.
+	 */
+	public void trimToSize() {
+		for (RangeList list : spaceLists) {
+			list.trimToSize();
+		}
+	}
+
+	/**
+	 * Returns a new {@link AddressSet} containing the addresses of this set.
+	 * @return a new {@link AddressSet}
+	 */
+	public AddressSet toAddressSet() {
+		AddressSet set = new AddressSet();
+		for (RangeList list : spaceLists) {
+			for (int i = 0; i < list.size; i++) {
+				set.add(list.getStartAddress(i), list.getEndAddress(i));
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Computes the union of this set with another compact set without creating any
+	 * intermediate {@link Address} objects.
+	 * @param set the set to union with this set
+	 * @return a new set containing all addresses of both sets
+	 */
+	public CompactAddressSet unionCompact(CompactAddressSet set) {
+		CompactAddressSet result = new CompactAddressSet();
+		int i = 0;
+		int j = 0;
+		while (i < spaceLists.size() || j < set.spaceLists.size()) {
+			RangeList mine = i < spaceLists.size() ? spaceLists.get(i) : null;
+			RangeList theirs = j < set.spaceLists.size() ? set.spaceLists.get(j) : null;
+			int c = compareSpaces(mine, theirs);
+			if (c < 0) {
+				result.appendRangeList(mine.copy());
+				++i;
+			}
+			else if (c > 0) {
+				result.appendRangeList(theirs.copy());
+				++j;
+			}
+			else {
+				result.appendRangeList(RangeList.union(mine, theirs));
+				++i;
+				++j;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the intersection of this set with another compact set without creating any
+	 * intermediate {@link Address} objects.
+	 * @param set the set to intersect with this set
+	 * @return a new set containing the addresses common to both sets
+	 */
+	public CompactAddressSet intersectCompact(CompactAddressSet set) {
+		CompactAddressSet result = new CompactAddressSet();
+		int i = 0;
+		int j = 0;
+		while (i < spaceLists.size() && j < set.spaceLists.size()) {
+			RangeList mine = spaceLists.get(i);
+			RangeList theirs = set.spaceLists.get(j);
+			int c = compareSpaces(mine, theirs);
+			if (c < 0) {
+				++i;
+			}
+			else if (c > 0) {
+				++j;
+			}
+			else {
+				result.appendRangeList(RangeList.intersect(mine, theirs));
+				++i;
+				++j;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the difference of this set and another compact set without creating any
+	 * intermediate {@link Address} objects.
+	 * @param set the set of addresses to be removed
+	 * @return a new set containing the addresses of this set which are not in the given set
+	 */
+	public CompactAddressSet subtractCompact(CompactAddressSet set) {
+		CompactAddressSet result = new CompactAddressSet();
+		int j = 0;
+		for (RangeList mine : spaceLists) {
+			while (j < set.spaceLists.size() && compareSpaces(set.spaceLists.get(j), mine) < 0) {
+				++j;
+			}
+			if (j < set.spaceLists.size() && compareSpaces(set.spaceLists.get(j), mine) == 0) {
+				result.appendRangeList(RangeList.subtract(mine, set.spaceLists.get(j)));
+			}
+			else {
+				result.appendRangeList(mine.copy());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the exclusive-or of this set and another compact set.
+	 * @param set the set to exclusive-or with this set
+	 * @return a new set containing the addresses which are in exactly one of the two sets
+	 */
+	public CompactAddressSet xorCompact(CompactAddressSet set) {
+		return subtractCompact(set).unionCompact(set.subtractCompact(this));
+	}
+
+	@Override
+	public boolean contains(Address address) {
+		RangeList list = getRangeList(address.getAddressSpace());
+		return list != null && list.contains(list.toKey(address.getOffset()));
+	}
+
+	@Override
+	public boolean contains(Address start, Address end) {
+		if (!start.getAddressSpace().equals(end.getAddressSpace())) {
+			return false;
+		}
+		RangeList list = getRangeList(start.getAddressSpace());
+		return list != null &&
+			list.contains(list.toKey(start.getOffset()), list.toKey(end.getOffset()));
+	}
+
+	@Override
+	public boolean contains(AddressSetView set) {
+		if (set.isEmpty()) {
+			return true;
+		}
+		if (set instanceof CompactAddressSet) {
+			return ((CompactAddressSet) set).subtractCompact(this).isEmpty();
+		}
+		for (AddressRange range : set) {
+			if (!contains(range.getMinAddress(), range.getMaxAddress())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return spaceLists.isEmpty();
+	}
+
+	@Override
+	public Address getMinAddress() {
+		if (spaceLists.isEmpty()) {
+			return null;
+		}
+		return spaceLists.get(0).getStartAddress(0);
+	}
+
+	@Override
+	public Address getMaxAddress() {
+		if (spaceLists.isEmpty()) {
+			return null;
+		}
+		RangeList last = spaceLists.get(spaceLists.size() - 1);
+		return last.getEndAddress(last.size - 1);
+	}
+
+	@Override
+	public int getNumAddressRanges() {
+		int count = 0;
+		for (RangeList list : spaceLists) {
+			count += list.size;
+		}
+		return count;
+	}
+
+	@Override
+	public AddressRangeIterator getAddressRanges() {
+		return getAddressRanges(true);
+	}
+
+	@Override
+	public AddressRangeIterator getAddressRanges(boolean forward) {
+		if (spaceLists.isEmpty()) {
+			return new EmptyAddressRangeIterator();
+		}
+		if (forward) {
+			return new RangeIterator(0, 0, true);
+		}
+		int lastSpace = spaceLists.size() - 1;
+		return new RangeIterator(lastSpace, spaceLists.get(lastSpace).size - 1, false);
+	}
+
+	@Override
+	public AddressRangeIterator getAddressRanges(Address start, boolean forward) {
+		int spaceIndex = findRangeList(start.getAddressSpace());
+		if (spaceIndex < 0) {
+			// start is in a space with no addresses in this set
+			int insertionIndex = -spaceIndex - 1;
+			if (forward) {
+				return new RangeIterator(insertionIndex, 0, true);
+			}
+			int previous = insertionIndex - 1;
+			return new RangeIterator(previous,
+				previous < 0 ? -1 : spaceLists.get(previous).size - 1, false);
+		}
+		RangeList list = spaceLists.get(spaceIndex);
+		long key = list.toKey(start.getOffset());
+		int rangeIndex = list.findRange(key);
+		if (forward && (rangeIndex < 0 || list.ends[rangeIndex] < key)) {
+			++rangeIndex;
+		}
+		return new RangeIterator(spaceIndex, rangeIndex, forward);
+	}
+
+	@Override
+	public Iterator<AddressRange> iterator() {
+		return getAddressRanges();
+	}
+
+	@Override
+	public Iterator<AddressRange> iterator(boolean forward) {
+		return getAddressRanges(forward);
+	}
+
+	@Override
+	public Iterator<AddressRange> iterator(Address start, boolean forward) {
+		return getAddressRanges(start, forward);
+	}
+
+	@Override
+	public long getNumAddresses() {
+		return addressCount;
+	}
+
+	@Override
+	public AddressIterator getAddresses(boolean forward) {
+		if (spaceLists.isEmpty()) {
+			return new EmptyAddressIterator();
+		}
+		return new AddressIteratorAdapter(
+			new CompactAddressIterator((RangeIterator) getAddressRanges(forward), null));
+	}
+
+	@Override
+	public AddressIterator getAddresses(Address start, boolean forward) {
+		return new AddressIteratorAdapter(
+			new CompactAddressIterator((RangeIterator) getAddressRanges(start, forward), start));
+	}
+
+	@Override
+	public boolean intersects(AddressSetView set) {
+		if (set.isEmpty() || isEmpty()) {
+			return false;
+		}
+		if (set instanceof CompactAddressSet) {
+			return !intersectCompact((CompactAddressSet) set).isEmpty();
+		}
+		for (AddressRange range : set) {
+			if (intersects(range.getMinAddress(), range.getMaxAddress())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean intersects(Address start, Address end) {
+		RangeList list = getRangeList(start.getAddressSpace());
+		if (list == null) {
+			return false;
+		}
+		long endKey = start.getAddressSpace().equals(end.getAddressSpace())
+				? list.toKey(end.getOffset())
+				: Long.MAX_VALUE;
+		return list.intersects(list.toKey(start.getOffset()), endKey);
+	}
+
+	@Override
+	public AddressSet intersect(AddressSetView set) {
+		return intersectCompact(asCompactSet(set)).toAddressSet();
+	}
+
+	@Override
+	public AddressSet intersectRange(Address start, Address end) {
+		return intersectCompact(new CompactAddressSet(start, end)).toAddressSet();
+	}
+
+	@Override
+	public AddressSet union(AddressSetView set) {
+		return unionCompact(asCompactSet(set)).toAddressSet();
+	}
+
+	@Override
+	public AddressSet subtract(AddressSetView set) {
+		return subtractCompact(asCompactSet(set)).toAddressSet();
+	}
+
+	@Override
+	public AddressSet xor(AddressSetView set) {
+		return xorCompact(asCompactSet(set)).toAddressSet();
+	}
+
+	@Override
+	public boolean hasSameAddresses(AddressSetView set) {
+		return equals(set);
+	}
+
+	@Override
+	public AddressRange getFirstRange() {
+		if (spaceLists.isEmpty()) {
+			return null;
+		}
+		return spaceLists.get(0).getRange(0);
+	}
+
+	@Override
+	public AddressRange getLastRange() {
+		if (spaceLists.isEmpty()) {
+			return null;
+		}
+		RangeList last = spaceLists.get(spaceLists.size() - 1);
+		return last.getRange(last.size - 1);
+	}
+
+	@Override
+	public AddressRange getRangeContaining(Address address) {
+		RangeList list = getRangeList(address.getAddressSpace());
+		if (list == null) {
+			return null;
+		}
+		long key = list.toKey(address.getOffset());
+		int index = list.findRange(key);
+		if (index < 0 || list.ends[index] < key) {
+			return null;
+		}
+		return list.getRange(index);
+	}
+
+	@Override
+	public Address findFirstAddressInCommon(AddressSetView set) {
+		for (AddressRange range : set) {
+			Address start = range.getMinAddress();
+			AddressRangeIterator it = getAddressRanges(start, true);
+			if (!it.hasNext()) {
+				continue;
+			}
+			AddressRange myRange = it.next();
+			if (myRange.getMinAddress().compareTo(range.getMaxAddress()) > 0) {
+				continue;
+			}
+			Address myStart = myRange.getMinAddress();
+			return myStart.compareTo(start) > 0 ? myStart : start;
+		}
+		return null;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof AddressSetView)) {
+			return false;
+		}
+		AddressSetView set = (AddressSetView) obj;
+		if (getNumAddresses() != set.getNumAddresses() ||
+			getNumAddressRanges() != set.getNumAddressRanges()) {
+			return false;
+		}
+		if (set instanceof CompactAddressSet) {
+			List<RangeList> otherLists = ((CompactAddressSet) set).spaceLists;
+			for (int i = 0; i < spaceLists.size(); i++) {
+				if (!spaceLists.get(i).equals(otherLists.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		AddressRangeIterator otherRanges = set.getAddressRanges();
+		for (AddressRange range : this) {
+			if (!range.equals(otherRanges.next())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		// consistent with AddressSet
+		if (isEmpty()) {
+			return 0;
+		}
+		return getMinAddress().hashCode() + getMaxAddress().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		if (isEmpty()) {
+			return "[empty]\n";
+		}
+		StringBuilder buf = new StringBuilder("[");
+		for (AddressRange range : this) {
+			buf.append(range);
+			buf.append(" ");
+		}
+		buf.append("]");
+		return buf.toString();
+	}
+
+	private static CompactAddressSet asCompactSet(AddressSetView set) {
+		if (set instanceof CompactAddressSet) {
+			return (CompactAddressSet) set;
+		}
+		return new CompactAddressSet(set);
+	}
+
+	private static void checkValidRange(Address start, Address end) {
+		if (start == null || end == null) {
+			throw new IllegalArgumentException("Attempted to add a null address to this set.");
+		}
+		if (start.compareTo(end) > 0) {
+			throw new IllegalArgumentException("Start address must be less than or equal to " +
+				"end address:  Start " + start + "   end = " + end);
+		}
+		if (!start.getAddressSpace().equals(end.getAddressSpace())) {
+			throw new IllegalArgumentException(
+				"Start and end addresses must be in same address space!  Start " + start +
+					"   end = " + end);
+		}
+	}
+
+	private static int compareSpaces(RangeList list1, RangeList list2) {
+		if (list1 == null) {
+			return 1;
+		}
+		if (list2 == null) {
+			return -1;
+		}
+		return list1.space.compareTo(list2.space);
+	}
+
+	/**
+	 * Append a range list whose space follows all spaces currently in this set.  Empty range
+	 * lists are discarded.
+	 * @param list range list
+	 */
+	private void appendRangeList(RangeList list) {
+		if (list.size == 0) {
+			return;
+		}
+		list.trimToSize();
+		spaceLists.add(list);
+		addressCount += list.getNumAddresses();
+	}
+
+	/**
+	 * Find the index of the range list for the given space.
+	 * @param space address space
+	 * @return index of the range list, or (-(insertion point) - 1) if not found
+	 */
+	private int findRangeList(AddressSpace space) {
+		int size = spaceLists.size();
+		// ranges are generally added in order, so check the last space first
+		if (size != 0) {
+			int c = space.compareTo(spaceLists.get(size - 1).space);
+			if (c == 0) {
+				return size - 1;
+			}
+			if (c > 0) {
+				return -size - 1;
+			}
+		}
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int c = spaceLists.get(mid).space.compareTo(space);
+			if (c < 0) {
+				low = mid + 1;
+			}
+			else if (c > 0) {
+				high = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	private RangeList getRangeList(AddressSpace space) {
+		int index = findRangeList(space);
+		return index < 0 ? null : spaceLists.get(index);
+	}
+
+	private RangeList getOrCreateRangeList(AddressSpace space) {
+		int index = findRangeList(space);
+		if (index >= 0) {
+			return spaceLists.get(index);
+		}
+		RangeList list = new RangeList(space);
+		spaceLists.add(-index - 1, list);
+		return list;
+	}
+
+	/**
+	 * <code>RangeList</code> holds the sorted, non-overlapping, non-adjacent ranges of a
+	 * single address space.  Offsets are stored as keys which sort correctly using signed
+	 * <code>long</code> comparison (i.e., unsigned offsets have their sign bit flipped).
+	 */
+	private static final class RangeList {
+		private static final int INITIAL_CAPACITY = 8;
+		private static final long[] EMPTY = new long[0];
+
+		private final AddressSpace space;
+		private final long keyBias;
+		private long[] starts;
+		private long[] ends;
+		private int size;
+
+		RangeList(AddressSpace space) {
+			this(space, INITIAL_CAPACITY);
+		}
+
+		RangeList(AddressSpace space, int capacity) {
+			this.space = space;
+			this.keyBias = space.hasSignedOffset() ? 0 : Long.MIN_VALUE;
+			starts = capacity == 0 ? EMPTY : new long[capacity];
+			ends = capacity == 0 ? EMPTY : new long[capacity];
+		}
+
+		long toKey(long offset) {
+			return offset ^ keyBias;
+		}
+
+		long toOffset(long key) {
+			return key ^ keyBias;
+		}
+
+		Address getStartAddress(int index) {
+			return space.getAddressInThisSpaceOnly(toOffset(starts[index]));
+		}
+
+		Address getEndAddress(int index) {
+			return space.getAddressInThisSpaceOnly(toOffset(ends[index]));
+		}
+
+		AddressRange getRange(int index) {
+			return new AddressRangeImpl(getStartAddress(index), getEndAddress(index));
+		}
+
+		long getNumAddresses() {
+			long count = 0;
+			for (int i = 0; i < size; i++) {
+				count += ends[i] - starts[i] + 1;
+			}
+			return count;
+		}
+
+		/**
+		 * Find the last range whose start is less than or equal to the given key
+		 * @param key offset key
+		 * @return range index or -1 if all ranges start after the key
+		 */
+		int findRange(long key) {
+			if (size != 0 && starts[size - 1] <= key) {
+				return size - 1;
+			}
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (starts[mid] <= key) {
+					low = mid + 1;
+				}
+				else {
+					high = mid - 1;
+				}
+			}
+			return high;
+		}
+
+		/**
+		 * Find the first range whose end is greater than or equal to the given key
+		 * @param key offset key
+		 * @return range index or size if all ranges end before the key
+		 */
+		private int findFirstEndingAtOrAfter(long key) {
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (ends[mid] < key) {
+					low = mid + 1;
+				}
+				else {
+					high = mid - 1;
+				}
+			}
+			return low;
+		}
+
+		boolean contains(long key) {
+			int index = findRange(key);
+			return index >= 0 && ends[index] >= key;
+		}
+
+		boolean contains(long startKey, long endKey) {
+			int index = findRange(startKey);
+			return index >= 0 && ends[index] >= endKey;
+		}
+
+		boolean intersects(long startKey, long endKey) {
+			int index = findRange(endKey);
+			return index >= 0 && ends[index] >= startKey;
+		}
+
+		/**
+		 * Add a range, merging with any overlapping or adjacent ranges
+		 * @param startKey range start key
+		 * @param endKey range end key
+		 * @return the number of addresses added to the set
+		 */
+		long add(long startKey, long endKey) {
+			if (size == 0 || (ends[size - 1] != Long.MAX_VALUE && startKey > ends[size - 1] + 1)) {
+				append(startKey, endKey);
+				return endKey - startKey + 1;
+			}
+			long lower = startKey == Long.MIN_VALUE ? startKey : startKey - 1;
+			long upper = endKey == Long.MAX_VALUE ? endKey : endKey + 1;
+			int first = findFirstEndingAtOrAfter(lower);
+			int last = findRange(upper);
+			if (first > last) {
+				splice(first, first - 1, 1);
+				starts[first] = startKey;
+				ends[first] = endKey;
+				return endKey - startKey + 1;
+			}
+			long newStart = Math.min(startKey, starts[first]);
+			long newEnd = Math.max(endKey, ends[last]);
+			long removed = 0;
+			for (int i = first; i <= last; i++) {
+				removed += ends[i] - starts[i] + 1;
+			}
+			splice(first, last, 1);
+			starts[first] = newStart;
+			ends[first] = newEnd;
+			return (newEnd - newStart + 1) - removed;
+		}
+
+		/**
+		 * Delete a range
+		 * @param startKey range start key
+		 * @param endKey range end key
+		 * @return the number of addresses removed from the set
+		 */
+		long delete(long startKey, long endKey) {
+			int first = findFirstEndingAtOrAfter(startKey);
+			int last = findRange(endKey);
+			if (first > last) {
+				return 0;
+			}
+			long removed = 0;
+			for (int i = first; i <= last; i++) {
+				removed += ends[i] - starts[i] + 1;
+			}
+			long firstStart = starts[first];
+			long lastEnd = ends[last];
+			boolean keepHead = firstStart < startKey;
+			boolean keepTail = lastEnd > endKey;
+			int count = (keepHead ? 1 : 0) + (keepTail ? 1 : 0);
+			splice(first, last, count);
+			int index = first;
+			if (keepHead) {
+				starts[index] = firstStart;
+				ends[index] = startKey - 1;
+				removed -= startKey - firstStart;
+				++index;
+			}
+			if (keepTail) {
+				starts[index] = endKey + 1;
+				ends[index] = lastEnd;
+				removed -= lastEnd - endKey;
+			}
+			return removed;
+		}
+
+		/**
+		 * Append a range which must follow all existing ranges.  An adjacent or overlapping
+		 * range is merged with the last range.
+		 * @param startKey range start key
+		 * @param endKey range end key
+		 */
+		void append(long startKey, long endKey) {
+			if (size != 0) {
+				long lastEnd = ends[size - 1];
+				if (lastEnd >= startKey || lastEnd + 1 == startKey) {
+					ends[size - 1] = Math.max(lastEnd, endKey);
+					return;
+				}
+			}
+			ensureCapacity(size + 1);
+			starts[size] = startKey;
+			ends[size] = endKey;
+			++size;
+		}
+
+		/**
+		 * Replace the ranges from first to last (inclusive) with count uninitialized ranges
+		 * @param first first range index to be replaced
+		 * @param last last range index to be replaced (first - 1 to insert)
+		 * @param count number of ranges to be inserted
+		 */
+		private void splice(int first, int last, int count) {
+			int tail = size - last - 1;
+			int newSize = first + count + tail;
+			ensureCapacity(newSize);
+			System.arraycopy(starts, last + 1, starts, first + count, tail);
+			System.arraycopy(ends, last + 1, ends, first + count, tail);
+			size = newSize;
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity <= starts.length) {
+				return;
+			}
+			int newCapacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, starts.length * 2));
+			starts = Arrays.copyOf(starts, newCapacity);
+			ends = Arrays.copyOf(ends, newCapacity);
+		}
+
+		void trimToSize() {
+			if (starts.length != size) {
+				starts = Arrays.copyOf(starts, size);
+				ends = Arrays.copyOf(ends, size);
+			}
+		}
+
+		RangeList copy() {
+			RangeList list = new RangeList(space, 0);
+			list.starts = Arrays.copyOf(starts, size);
+			list.ends = Arrays.copyOf(ends, size);
+			list.size = size;
+			return list;
+		}
+
+		static RangeList union(RangeList list1, RangeList list2) {
+			RangeList result = new RangeList(list1.space, list1.size + list2.size);
+			int i = 0;
+			int j = 0;
+			while (i < list1.size || j < list2.size) {
+				if (j == list2.size || (i < list1.size && list1.starts[i] <= list2.starts[j])) {
+					result.append(list1.starts[i], list1.ends[i]);
+					++i;
+				}
+				else {
+					result.append(list2.starts[j], list2.ends[j]);
+					++j;
+				}
+			}
+			return result;
+		}
+
+		static RangeList intersect(RangeList list1, RangeList list2) {
+			RangeList result = new RangeList(list1.space, Math.min(list1.size, list2.size));
+			int i = 0;
+			int j = 0;
+			while (i < list1.size && j < list2.size) {
+				long start = Math.max(list1.starts[i], list2.starts[j]);
+				long end = Math.min(list1.ends[i], list2.ends[j]);
+				if (start <= end) {
+					result.append(start, end);
+				}
+				if (list1.ends[i] < list2.ends[j]) {
+					++i;
+				}
+				else {
+					++j;
+				}
+			}
+			return result;
+		}
+
+		static RangeList subtract(RangeList list1, RangeList list2) {
+			RangeList result = new RangeList(list1.space, list1.size);
+			int j = 0;
+			for (int i = 0; i < list1.size; i++) {
+				long start = list1.starts[i];
+				long end = list1.ends[i];
+				while (j < list2.size && list2.ends[j] < start) {
+					++j;
+				}
+				int k = j;
+				while (k < list2.size && list2.starts[k] <= end) {
+					if (list2.starts[k] > start) {
+						result.append(start, list2.starts[k] - 1);
+					}
+					if (list2.ends[k] >= end) {
+						start = end;
+						break;
+					}
+					start = list2.ends[k] + 1;
+					++k;
+				}
+				if (k == list2.size || list2.starts[k] > end) {
+					result.append(start, end);
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RangeList)) {
+				return false;
+			}
+			RangeList other = (RangeList) obj;
+			if (!space.equals(other.space) || size != other.size) {
+				return false;
+			}
+			for (int i = 0; i < size; i++) {
+				if (starts[i] != other.starts[i] || ends[i] != other.ends[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return space.hashCode() + size;
+		}
+	}
+
+	/**
+	 * Iterates over the ranges of this set, in either direction, starting from a given
+	 * space list and range index.
+	 */
+	private class RangeIterator implements AddressRangeIterator {
+		private final boolean forward;
+		private int spaceIndex;
+		private int rangeIndex;
+
+		RangeIterator(int spaceIndex, int rangeIndex, boolean forward) {
+			this.spaceIndex = spaceIndex;
+			this.rangeIndex = rangeIndex;
+			this.forward = forward;
+			normalize();
+		}
+
+		/**
+		 * Advance to the next valid position if the current range index has run off the end
+		 * (or start) of the current space list.
+		 */
+		private void normalize() {
+			if (forward) {
+				while (spaceIndex < spaceLists.size() &&
+					rangeIndex >= spaceLists.get(spaceIndex).size) {
+					++spaceIndex;
+					rangeIndex = 0;
+				}
+			}
+			else {
+				while (spaceIndex >= 0 && rangeIndex < 0) {
+					--spaceIndex;
+					if (spaceIndex >= 0) {
+						rangeIndex = spaceLists.get(spaceIndex).size - 1;
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return spaceIndex >= 0 && spaceIndex < spaceLists.size();
+		}
+
+		/**
+		 * @return the range list containing the next range (hasNext must be true)
+		 */
+		RangeList peekList() {
+			return spaceLists.get(spaceIndex);
+		}
+
+		/**
+		 * @return the index of the next range within {@link #peekList()}
+		 */
+		int peekIndex() {
+			return rangeIndex;
+		}
+
+		/**
+		 * Move past the next range
+		 */
+		void skip() {
+			rangeIndex += forward ? 1 : -1;
+			normalize();
+		}
+
+		@Override
+		public AddressRange next() {
+			if (!hasNext()) {
+				return null;
+			}
+			AddressRange range = peekList().getRange(rangeIndex);
+			skip();
+			return range;
+		}
+
+		@Override
+		public Iterator<AddressRange> iterator() {
+			return this;
+		}
+	}
+
+	/**
+	 * Iterates over the individual addresses of this set, creating {@link Address} objects
+	 * only as they are returned.
+	 */
+	private static class CompactAddressIterator implements Iterator<Address> {
+		private final RangeIterator rangeIt;
+		private final boolean forward;
+		private RangeList list;
+		private long nextKey;
+		private long limitKey;
+		private boolean hasNext;
+
+		CompactAddressIterator(RangeIterator rangeIt, Address start) {
+			this.rangeIt = rangeIt;
+			this.forward = rangeIt.forward;
+			loadNextRange();
+			if (hasNext && start != null && start.getAddressSpace().equals(list.space)) {
+				long startKey = list.toKey(start.getOffset());
+				if (forward ? startKey > nextKey : startKey < nextKey) {
+					nextKey = startKey;
+				}
+			}
+		}
+
+		private void loadNextRange() {
+			hasNext = rangeIt.hasNext();
+			if (!hasNext) {
+				return;
+			}
+			list = rangeIt.peekList();
+			int index = rangeIt.peekIndex();
+			nextKey = forward ? list.starts[index] : list.ends[index];
+			limitKey = forward ? list.ends[index] : list.starts[index];
+			rangeIt.skip();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return hasNext;
+		}
+
+		@Override
+		public Address next() {
+			if (!hasNext) {
+				throw new NoSuchElementException();
+			}
+			Address addr = list.space.getAddressInThisSpaceOnly(list.toOffset(nextKey));
+			if (nextKey == limitKey) {
+				loadNextRange();
+			}
+			else {
+				nextKey += forward ? 1 : -1;
+			}
+			return addr;
+		}
+	}
+}
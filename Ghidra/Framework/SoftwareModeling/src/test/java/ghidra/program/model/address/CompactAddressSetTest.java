@@ -0,0 +1,358 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.model.address;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link CompactAddressSet} holds the same addresses as an {@link AddressSet}
+ * built with the same operations.
+ */
+public class CompactAddressSetTest {
+
+	private AddressSpace ram = new GenericAddressSpace("ram", 32, AddressSpace.TYPE_RAM, 0);
+	private AddressSpace data = new GenericAddressSpace("data", 64, AddressSpace.TYPE_RAM, 1);
+	private AddressSpace io = new GenericAddressSpace("io", 16, AddressSpace.TYPE_RAM, 2);
+
+	@Test
+	public void testEmptySet() {
+		CompactAddressSet set = new CompactAddressSet();
+		assertSameSet(new AddressSet(), set);
+		assertNull(set.getFirstRange());
+		assertNull(set.getLastRange());
+		assertNull(set.getRangeContaining(addr(ram, 0)));
+		assertFalse(set.contains(addr(ram, 0)));
+		assertFalse(set.getAddresses(true).hasNext());
+		assertFalse(set.getAddressRanges(addr(ram, 0), false).hasNext());
+		assertEquals(0, set.hashCode());
+
+		CompactAddressSet other = new CompactAddressSet(addr(ram, 0x10), addr(ram, 0x20));
+		assertTrue(other.contains(set));
+		assertFalse(set.intersects(other));
+		assertTrue(set.unionCompact(new CompactAddressSet()).isEmpty());
+		assertSameSet(other.toAddressSet(), set.unionCompact(other));
+		assertTrue(set.intersectCompact(other).isEmpty());
+		assertTrue(set.subtractCompact(other).isEmpty());
+		assertSameSet(other.toAddressSet(), other.subtractCompact(set));
+		assertSameSet(other.toAddressSet(), set.xorCompact(other));
+
+		set.add(new AddressSet());
+		set.delete(other);
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void testAdjacentRanges() {
+		AddressSet expected = new AddressSet();
+		CompactAddressSet set = new CompactAddressSet();
+		add(expected, set, ram, 0x100, 0x1ff);
+		add(expected, set, ram, 0x200, 0x2ff); // after
+		add(expected, set, ram, 0x0, 0xff); // before
+		add(expected, set, ram, 0x400, 0x4ff);
+		assertSameSet(expected, set);
+		assertEquals(2, set.getNumAddressRanges());
+
+		add(expected, set, ram, 0x300, 0x3ff); // joins both neighbors
+		assertSameSet(expected, set);
+		assertEquals(1, set.getNumAddressRanges());
+
+		delete(expected, set, ram, 0x200, 0x200);
+		assertSameSet(expected, set);
+		delete(expected, set, ram, 0x0, 0x0);
+		delete(expected, set, ram, 0x4ff, 0x4ff);
+		assertSameSet(expected, set);
+	}
+
+	@Test
+	public void testOverlappingRanges() {
+		AddressSet expected = new AddressSet();
+		CompactAddressSet set = new CompactAddressSet();
+		add(expected, set, ram, 0x100, 0x1ff);
+		add(expected, set, ram, 0x300, 0x3ff);
+		add(expected, set, ram, 0x500, 0x5ff);
+		add(expected, set, ram, 0x180, 0x320); // spans a gap
+		assertSameSet(expected, set);
+		add(expected, set, ram, 0x50, 0x700); // covers everything
+		assertSameSet(expected, set);
+		add(expected, set, ram, 0x200, 0x300); // already contained
+		assertSameSet(expected, set);
+
+		delete(expected, set, ram, 0x100, 0x1ff); // splits the range
+		delete(expected, set, ram, 0x0, 0x60);
+		delete(expected, set, ram, 0x6ff, 0x800);
+		assertSameSet(expected, set);
+
+		CompactAddressSet other = new CompactAddressSet();
+		other.add(addr(ram, 0x80), addr(ram, 0x180));
+		other.add(addr(ram, 0x680), addr(ram, 0x900));
+		assertSetOperations(expected, set, other);
+	}
+
+	@Test
+	public void testMultipleAddressSpaces() {
+		AddressSet expected = new AddressSet();
+		CompactAddressSet set = new CompactAddressSet();
+		add(expected, set, io, 0x10, 0x1f);
+		add(expected, set, data, 0x1000, 0x1fff);
+		add(expected, set, ram, 0x100, 0x1ff);
+		add(expected, set, ram, 0x200, 0x2ff);
+		add(expected, set, data, 0x0, 0xf);
+		assertSameSet(expected, set);
+		assertEquals(addr(ram, 0x100), set.getMinAddress());
+		assertEquals(addr(io, 0x1f), set.getMaxAddress());
+
+		// ranges are iterated from a start address in a space with no addresses in the set
+		CompactAddressSet ramAndIo = new CompactAddressSet();
+		ramAndIo.add(addr(ram, 0x100), addr(ram, 0x1ff));
+		ramAndIo.add(addr(io, 0x10), addr(io, 0x1f));
+		assertEquals(Arrays.asList(ramAndIo.getLastRange()),
+			toList(ramAndIo.getAddressRanges(addr(data, 0x0), true)));
+		assertEquals(Arrays.asList(ramAndIo.getFirstRange()),
+			toList(ramAndIo.getAddressRanges(addr(data, 0x0), false)));
+
+		assertFalse(set.contains(addr(ram, 0x1000)));
+		assertTrue(set.contains(addr(data, 0x1000)));
+		assertFalse(set.contains(addr(ram, 0x10), addr(ram, 0x20)));
+
+		delete(expected, set, data, 0x0, 0xffff);
+		assertSameSet(expected, set);
+
+		CompactAddressSet other = new CompactAddressSet();
+		other.add(addr(data, 0x1800), addr(data, 0x2000));
+		other.add(addr(io, 0x0), addr(io, 0x10));
+		other.add(addr(ram, 0x1ff), addr(ram, 0x1ff));
+		assertSetOperations(expected, set, other);
+	}
+
+	@Test
+	public void testMaxOffsetRanges() {
+		long max64 = data.getMaxAddress().getOffset(); // -1 as a signed long
+		AddressSet expected = new AddressSet();
+		CompactAddressSet set = new CompactAddressSet();
+		add(expected, set, data, 0x0, 0x10);
+		add(expected, set, data, max64 - 0xff, max64);
+		add(expected, set, data, 0x7fffffffffffff00L, 0x8000000000000010L);
+		add(expected, set, ram, 0xffffff00L, 0xffffffffL);
+		add(expected, set, io, 0xfff0, 0xffff);
+		assertSameSet(expected, set);
+		assertEquals(addr(data, max64), set.getRangeContaining(addr(data, max64)).getMaxAddress());
+		assertTrue(set.contains(addr(data, max64)));
+		assertTrue(set.contains(addr(data, 0x8000000000000000L)));
+		assertFalse(set.contains(addr(data, 0x8000000000000011L)));
+
+		add(expected, set, data, 0x8000000000000011L, max64 - 0x100);
+		assertSameSet(expected, set);
+		assertEquals(2, getRanges(set, data).size());
+
+		delete(expected, set, data, max64, max64);
+		delete(expected, set, data, 0x7fffffffffffffffL, 0x8000000000000000L);
+		assertSameSet(expected, set);
+
+		CompactAddressSet other = new CompactAddressSet();
+		other.add(addr(data, 0x7ffffffffffffff0L), addr(data, max64));
+		other.add(addr(ram, 0xfffffff0L), addr(ram, 0xffffffffL));
+		assertSetOperations(expected, set, other);
+
+		CompactAddressSet whole = new CompactAddressSet(data.getMinAddress(), data.getMaxAddress());
+		assertEquals(new AddressRangeImpl(data.getMinAddress(), data.getMaxAddress()),
+			whole.getFirstRange());
+		assertTrue(whole.contains(set.intersectCompact(whole)));
+		assertTrue(set.subtractCompact(whole).intersectCompact(whole).isEmpty());
+	}
+
+	@Test
+	public void testOperationsOnIdenticalSets() {
+		CompactAddressSet set = new CompactAddressSet();
+		set.add(addr(ram, 0x100), addr(ram, 0x1ff));
+		set.add(addr(ram, 0x300), addr(ram, 0x3ff));
+		set.add(addr(data, 0x0), addr(data, data.getMaxAddress().getOffset()));
+		CompactAddressSet copy = new CompactAddressSet(set);
+		AddressSet expected = set.toAddressSet();
+
+		assertTrue(set.xorCompact(copy).isEmpty());
+		assertTrue(set.xorCompact(set).isEmpty());
+		assertTrue(set.subtractCompact(copy).isEmpty());
+		assertTrue(set.subtractCompact(set).isEmpty());
+		assertTrue(set.xor(expected).isEmpty());
+		assertTrue(set.subtract(expected).isEmpty());
+		assertSameSet(expected, set.unionCompact(copy));
+		assertSameSet(expected, set.intersectCompact(copy));
+		assertEquals(set, copy);
+		assertTrue(set.hasSameAddresses(expected));
+
+		copy.delete(set);
+		assertTrue(copy.isEmpty());
+		set.delete(set);
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(7);
+		AddressSpace[] spaces = { ram, data, io };
+		AddressSet expected = new AddressSet();
+		CompactAddressSet set = new CompactAddressSet();
+		for (int i = 0; i < 2000; i++) {
+			AddressSpace space = spaces[random.nextInt(spaces.length)];
+			long max = space.getMaxAddress().getOffset();
+			long start = randomOffset(random, space);
+			long end = start + random.nextInt(0x80);
+			if (Long.compareUnsigned(end, start) < 0 || Long.compareUnsigned(end, max) > 0) {
+				end = max;
+			}
+			if (random.nextInt(3) == 0) {
+				delete(expected, set, space, start, end);
+			}
+			else {
+				add(expected, set, space, start, end);
+			}
+			if (i % 100 == 0) {
+				assertSameSet(expected, set);
+			}
+		}
+		assertSameSet(expected, set);
+
+		CompactAddressSet other = new CompactAddressSet();
+		for (int i = 0; i < 200; i++) {
+			AddressSpace space = spaces[random.nextInt(spaces.length)];
+			long start = randomOffset(random, space);
+			other.add(addr(space, start), addr(space, start));
+		}
+		assertSetOperations(expected, set, other);
+	}
+
+	/**
+	 * Offsets cluster near the start, middle and end of the space so that ranges overlap
+	 */
+	private static long randomOffset(Random random, AddressSpace space) {
+		long max = space.getMaxAddress().getOffset();
+		long base;
+		switch (random.nextInt(3)) {
+			case 0:
+				base = 0;
+				break;
+			case 1:
+				base = space.getSize() == 64 ? Long.MIN_VALUE : (max >>> 1) + 1;
+				break;
+			default:
+				base = max - 0x3ff;
+				break;
+		}
+		return base + random.nextInt(0x400);
+	}
+
+	private void assertSetOperations(AddressSet expected, CompactAddressSet set,
+			CompactAddressSet other) {
+		AddressSet otherSet = other.toAddressSet();
+		assertSameSet(expected.union(otherSet), set.unionCompact(other));
+		assertSameSet(expected.intersect(otherSet), set.intersectCompact(other));
+		assertSameSet(expected.subtract(otherSet), set.subtractCompact(other));
+		assertSameSet(expected.xor(otherSet), set.xorCompact(other));
+		assertSameSet(expected.union(otherSet), set.union(otherSet));
+		assertSameSet(expected.intersect(otherSet), set.intersect(otherSet));
+		assertSameSet(expected.subtract(otherSet), set.subtract(otherSet));
+		assertSameSet(expected.xor(otherSet), set.xor(otherSet));
+		assertEquals(expected.intersects(otherSet), set.intersects(other));
+		assertEquals(expected.intersects(otherSet), set.intersects(otherSet));
+		assertEquals(expected.contains(otherSet), set.contains(other));
+		assertEquals(expected.contains(otherSet), set.contains(otherSet));
+		assertEquals(expected.findFirstAddressInCommon(otherSet),
+			set.findFirstAddressInCommon(otherSet));
+
+		CompactAddressSet copy = new CompactAddressSet(set);
+		copy.add(other);
+		assertSameSet(expected.union(otherSet), copy);
+		copy = new CompactAddressSet(set);
+		copy.delete(otherSet);
+		assertSameSet(expected.subtract(otherSet), copy);
+	}
+
+	private void assertSameSet(AddressSet expected, AddressSetView actual) {
+		assertEquals(toList(expected.getAddressRanges(true)),
+			toList(actual.getAddressRanges(true)));
+		assertEquals(toList(expected.getAddressRanges(false)),
+			toList(actual.getAddressRanges(false)));
+		assertEquals(expected.isEmpty(), actual.isEmpty());
+		assertEquals(expected.getNumAddressRanges(), actual.getNumAddressRanges());
+		assertEquals(expected.getNumAddresses(), actual.getNumAddresses());
+		assertEquals(expected.getMinAddress(), actual.getMinAddress());
+		assertEquals(expected.getMaxAddress(), actual.getMaxAddress());
+		assertEquals(expected.getFirstRange(), actual.getFirstRange());
+		assertEquals(expected.getLastRange(), actual.getLastRange());
+		assertEquals(expected.hashCode(), actual.hashCode());
+		assertTrue(actual.hasSameAddresses(expected));
+		assertEquals(new CompactAddressSet(expected), actual);
+
+		for (AddressRange range : expected) {
+			for (Address address : new Address[] { range.getMinAddress(),
+				range.getMaxAddress() }) {
+				assertTrue(actual.contains(address));
+				assertEquals(range, actual.getRangeContaining(address));
+				assertEquals(toList(expected.getAddressRanges(address, true)),
+					toList(actual.getAddressRanges(address, true)));
+				assertEquals(toList(expected.getAddressRanges(address, false)),
+					toList(actual.getAddressRanges(address, false)));
+			}
+			assertTrue(actual.contains(range.getMinAddress(), range.getMaxAddress()));
+			Address before = range.getMinAddress().previous();
+			if (before != null && before.getAddressSpace() == range.getAddressSpace()) {
+				assertEquals(expected.contains(before), actual.contains(before));
+			}
+			Address after = range.getMaxAddress().next();
+			if (after != null && after.getAddressSpace() == range.getAddressSpace()) {
+				assertEquals(expected.contains(after), actual.contains(after));
+			}
+		}
+	}
+
+	private static List<AddressRange> getRanges(AddressSetView set, AddressSpace space) {
+		List<AddressRange> list = new ArrayList<>();
+		for (AddressRange range : set) {
+			if (range.getAddressSpace() == space) {
+				list.add(range);
+			}
+		}
+		return list;
+	}
+
+	private static List<AddressRange> toList(Iterator<AddressRange> it) {
+		List<AddressRange> list = new ArrayList<>();
+		while (it.hasNext()) {
+			list.add(it.next());
+		}
+		return list;
+	}
+
+	private void add(AddressSet expected, CompactAddressSet set, AddressSpace space, long start,
+			long end) {
+		expected.add(addr(space, start), addr(space, end));
+		set.add(addr(space, start), addr(space, end));
+	}
+
+	private void delete(AddressSet expected, CompactAddressSet set, AddressSpace space,
+			long start, long end) {
+		expected.delete(addr(space, start), addr(space, end));
+		set.delete(addr(space, start), addr(space, end));
+	}
+
+	private static Address addr(AddressSpace space, long offset) {
+		return space.getAddress(offset);
+	}
+}